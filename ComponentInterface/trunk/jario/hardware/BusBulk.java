@@ -0,0 +1,12 @@
+/**
+ * Fractal Component Plugin Spec v1.1
+ * by Jason LaDere (Jario)
+ */
+
+package jario.hardware;
+
+public interface BusBulk
+{
+	public void read32bit(int address, int[] data, int offset, int length);
+	public void write32bit(int address, int[] data, int offset, int length);
+}
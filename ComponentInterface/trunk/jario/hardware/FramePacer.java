@@ -0,0 +1,164 @@
+/**
+ * Fractal Component Plugin Spec v1.1
+ * by Jason LaDere (Jario)
+ */
+
+package jario.hardware;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces frames for the video encoders against System.nanoTime. A wait
+ * parks until shortly before the deadline and spins the rest of the way.
+ * The deadline can be moved by the audio left queued for playback, so the
+ * emulation follows the sound card instead of drifting away from it. A
+ * player that holds its queue at a level of its own passes that level in
+ * as the target, so the two do not pull the queue toward different levels.
+ */
+public class FramePacer
+{
+	private static final long SPIN_NANOS = 1000000L; // parking is not trusted any closer than this
+	private static final int MAX_LAG_FRAMES = 4; // further behind than this is not caught up
+	private static final int AUDIO_FRAMES = 2; // audio queued ahead when in sync
+	private static final int AUDIO_GAIN_SHIFT = 3; // an eighth of the audio error per frame
+	private static final int SAMPLE_FRAMES = 256;
+
+	private long period;
+	private long deadline;
+	private long lastFrame;
+	private volatile float speed = 1.0f;
+	private volatile boolean limit = true;
+	private volatile boolean audioSync = true;
+
+	private long[] frameTimes = new long[SAMPLE_FRAMES];
+	private long[] sorted = new long[SAMPLE_FRAMES];
+	private int frameCount;
+
+	public FramePacer(int framesPerSecond)
+	{
+		setFramesPerSecond(framesPerSecond);
+	}
+
+	public void setFramesPerSecond(int framesPerSecond)
+	{
+		period = 1000000000L / framesPerSecond;
+	}
+
+	public boolean isLimit()
+	{
+		return limit;
+	}
+
+	public void setLimit(boolean limit)
+	{
+		this.limit = limit;
+	}
+
+	public float getSpeed()
+	{
+		return speed;
+	}
+
+	/**
+	 * Fast forward multiplier, 2 runs twice as fast as the real system.
+	 */
+	public void setSpeed(float speed)
+	{
+		if (speed > 0.0f)
+			this.speed = speed;
+	}
+
+	public boolean isAudioSync()
+	{
+		return audioSync;
+	}
+
+	public void setAudioSync(boolean audioSync)
+	{
+		this.audioSync = audioSync;
+	}
+
+	/**
+	 * Ends a frame and waits until the next one is due. audioQueued is the
+	 * audio waiting to be played in microseconds, or -1 if it is not known.
+	 */
+	public void frame(int audioQueued)
+	{
+		frame(audioQueued, 0);
+	}
+
+	/**
+	 * Ends a frame like frame(audioQueued), holding the queued audio at
+	 * audioTarget microseconds instead of two frames when it is above 0.
+	 */
+	public void frame(int audioQueued, int audioTarget)
+	{
+		if (limit)
+		{
+			long step = (long) (period / speed);
+			if (audioSync && audioQueued >= 0 && speed == 1.0f)
+			{
+				// more audio queued than wanted means the emulation runs ahead
+				long target = audioTarget > 0 ? audioTarget * 1000L : AUDIO_FRAMES * period;
+				long error = (audioQueued * 1000L - target) >> AUDIO_GAIN_SHIFT;
+				step += StrictMath.max(-step >> 3, StrictMath.min(step >> 3, error));
+			}
+
+			long now = System.nanoTime();
+			deadline += step;
+			if (now - deadline > MAX_LAG_FRAMES * step)
+				deadline = now;
+			waitUntil(deadline);
+		}
+
+		long now = System.nanoTime();
+		if (lastFrame != 0)
+			frameTimes[frameCount++ & (SAMPLE_FRAMES - 1)] = now - lastFrame;
+		lastFrame = now;
+		if (!limit)
+			deadline = now;
+	}
+
+	/**
+	 * Frame time in nanoseconds that the given percent of recent frames
+	 * came in under.
+	 */
+	public long percentile(int percent)
+	{
+		int count = StrictMath.min(frameCount, SAMPLE_FRAMES);
+		if (count == 0)
+			return 0;
+		System.arraycopy(frameTimes, 0, sorted, 0, count);
+		Arrays.sort(sorted, 0, count);
+		return sorted[((count - 1) * percent) / 100];
+	}
+
+	/**
+	 * Frames per second averaged over recent frames.
+	 */
+	public int framesPerSecond()
+	{
+		int count = StrictMath.min(frameCount, SAMPLE_FRAMES);
+		long total = 0;
+		for (int i = 0; i < count; i++)
+			total += frameTimes[i];
+		return total == 0 ? 0 : (int) ((count * 1000000000L) / total);
+	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	private static void waitUntil(long deadline)
+	{
+		while (true)
+		{
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				return;
+			if (remaining > SPIN_NANOS)
+				LockSupport.parkNanos(remaining - SPIN_NANOS);
+			else
+				Thread.yield();
+		}
+	}
+}
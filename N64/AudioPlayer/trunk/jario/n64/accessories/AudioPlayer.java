@@ -32,19 +32,72 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.DataLine;
 import javax.sound.sampled.SourceDataLine;
 
+/**
+ * Audio DMAs are copied into a ring without waiting, a mixer thread moves
+ * them on to the output line. The mixer plays slightly faster or slower
+ * to hold the ring between the one and two DMAs the audio interface keeps
+ * queued, and pads the line with silence rather than letting it run dry.
+ */
 public class AudioPlayer implements Hardware, Bus32bit, BusDMA, Configurable
 {
 	private static final int DEFAULT_AUDIO_SAMPLE_RATE = 44100;
 	private static final int DEFAULT_AUDIO_BIT_LENGTH = 16;
 	private static final int DEFAULT_AUDIO_CHANNELS = 2;
 
+	private static final int RING_SIZE_LOG2 = 16;
+	private static final int LINE_BYTES = 8192;
+	private static final int MIX_BYTES = 1024; // moved to the line at a time
+	private static final double MAX_DRIFT = 0.005; // largest change in playback rate
+	private static final double FILL_SMOOTHING = 1.0 / 64;
+
+	/**
+	 * Drains the ring into the output line.
+	 */
+	private class Mixer implements Runnable
+	{
+		@Override
+		public void run()
+		{
+			while (true)
+			{
+				if (!mix())
+				{
+					try
+					{
+						Thread.sleep(1);
+					}
+					catch (InterruptedException e)
+					{
+						closeAudio();
+						return;
+					}
+				}
+			}
+		}
+	}
+
 	private AudioFormat audioFormat;
-	private SourceDataLine audioDataLine;
+	private volatile SourceDataLine audioDataLine;
 	private int audioSampleRate;
 	private int audioBitLength;
 	private int audioChannels;
-	private boolean changed;
-	private boolean audioOn = true;
+	private volatile boolean changed;
+	private volatile boolean audioOn = true;
+
+	private PcmRing ring = new PcmRing(RING_SIZE_LOG2);
+	private Thread mixerThread;
+	private volatile int targetFill; // one and a half of the last dma
+	private volatile int underruns;
+	private volatile int overruns;
+
+	// mixer side
+	private byte[] input = new byte[MIX_BYTES];
+	private byte[] output = new byte[MIX_BYTES * 2];
+	private byte[] silence = new byte[MIX_BYTES];
+	private int[] previous = new int[8];
+	private int[] current = new int[8];
+	private double phase;
+	private double averageFill;
 
 	public AudioPlayer()
 	{
@@ -79,10 +132,19 @@ public class AudioPlayer implements Hardware, Bus32bit, BusDMA, Configurable
 		case 3:
 			return audioChannels;
 		case 4: // play position
-			if (audioDataLine != null)
-				return audioDataLine.getFramePosition() << 2;
+			SourceDataLine line = audioDataLine;
+			if (line != null)
+				return line.getFramePosition() << 2;
 			else
 				return -1;
+		case 5: // bytes queued and not yet played, in the ring and in the line
+			return ring.size() + pendingLineBytes();
+		case 6: // bytes the queue is held at, 0 before the first dma
+			int target = targetFill;
+			line = audioDataLine;
+			if (target != 0 && line != null)
+				target += line.getBufferSize(); // the mixer keeps the line full
+			return target;
 		default:
 			return 0;
 		}
@@ -115,6 +177,8 @@ public class AudioPlayer implements Hardware, Bus32bit, BusDMA, Configurable
 	public Object readConfig(String key)
 	{
 		if (key.equals("enable")) return audioOn;
+		else if (key.equals("underruns")) return underruns;
+		else if (key.equals("overruns")) return overruns;
 		return null;
 	}
 
@@ -133,23 +197,99 @@ public class AudioPlayer implements Hardware, Bus32bit, BusDMA, Configurable
 	@Override
 	public void writeDMA(int pAddr, ByteBuffer dma, int offset, int length)
 	{
-		if (audioOn && audioDataLine == null)
+		if (mixerThread == null)
+		{
+			mixerThread = new Thread(new Mixer(), "audio mixer");
+			mixerThread.setDaemon(true);
+			mixerThread.start();
+		}
+		if (!audioOn)
+			return;
+
+		targetFill = length + (length >> 1);
+		if (ring.write(dma.array(), offset, length, (audioBitLength >> 3) * audioChannels) < length)
+			overruns++; // the rest of the dma is dropped
+	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	// bytes written to the line that it has not played yet
+	private int pendingLineBytes()
+	{
+		SourceDataLine line = audioDataLine;
+		if (line == null)
+			return 0;
+		return line.getBufferSize() - line.available();
+	}
+
+	// returns false when there was nothing to do
+	private boolean mix()
+	{
+		if (changed || (audioOn && audioDataLine == null))
 		{
+			changed = false;
 			initAudio();
 		}
-		if (!audioOn && audioDataLine != null)
+		if (!audioOn || audioDataLine == null)
 		{
 			closeAudio();
+			ring.clear();
+			return false;
 		}
-		if (changed)
+
+		int frameBytes = (audioBitLength >> 3) * audioChannels;
+		int fill = ring.size();
+		averageFill += (fill - averageFill) * FILL_SMOOTHING;
+		if (fill < frameBytes)
 		{
-			initAudio();
-			changed = false;
+			// keep the line from running dry
+			if (audioDataLine.available() < audioDataLine.getBufferSize() - silence.length)
+				return false;
+			audioDataLine.write(silence, 0, silence.length - silence.length % frameBytes);
+			underruns++;
+			return true;
 		}
-		if (audioDataLine != null)
+
+		int length = ring.read(input, 0, StrictMath.min(fill, input.length - input.length % frameBytes));
+		if (audioBitLength != 16 || targetFill == 0)
+		{
+			audioDataLine.write(input, 0, length);
+			return true;
+		}
+
+		double drift = (averageFill - targetFill) / targetFill;
+		double step = 1.0 + MAX_DRIFT * StrictMath.max(-1.0, StrictMath.min(1.0, drift));
+		audioDataLine.write(output, 0, resample(length / frameBytes, audioChannels, step));
+		return true;
+	}
+
+	// linear interpolation between big endian 16 bit frames, a step above one plays faster
+	private int resample(int frames, int channels, double step)
+	{
+		int out = 0;
+		int frame = 0;
+		while (frame < frames)
 		{
-			audioDataLine.write(dma.array(), offset, length);
+			if (phase >= 1.0)
+			{
+				phase -= 1.0;
+				for (int c = 0, in = frame * channels * 2; c < channels; c++, in += 2)
+				{
+					previous[c] = current[c];
+					current[c] = (short) ((input[in] << 8) | (input[in + 1] & 0xFF));
+				}
+				frame++;
+				continue;
+			}
+			for (int c = 0; c < channels; c++)
+			{
+				int sample = previous[c] + (int) ((current[c] - previous[c]) * phase);
+				output[out++] = (byte) (sample >> 8);
+				output[out++] = (byte) sample;
+			}
+			phase += step;
 		}
+		return out;
 	}
 
 	private boolean initAudio()
@@ -159,25 +299,30 @@ public class AudioPlayer implements Hardware, Bus32bit, BusDMA, Configurable
 		SourceDataLine.Info info = new DataLine.Info(SourceDataLine.class, audioFormat);
 		try
 		{
-			audioDataLine = (SourceDataLine) AudioSystem.getLine(info);
-			audioDataLine.open(audioFormat, 8192);
-			audioDataLine.start();
+			SourceDataLine line = (SourceDataLine) AudioSystem.getLine(info);
+			line.open(audioFormat, LINE_BYTES);
+			line.start();
+			audioDataLine = line;
 		}
 		catch (Exception e)
 		{
 			e.printStackTrace();
+			audioOn = false;
 			return false;
 		}
+		phase = 1.0;
+		averageFill = 0;
 		return true;
 	}
 
 	private void closeAudio()
 	{
-		if (audioDataLine != null)
+		SourceDataLine line = audioDataLine;
+		if (line != null)
 		{
-			audioDataLine.stop();
-			audioDataLine.close();
 			audioDataLine = null;
+			line.stop();
+			line.close();
 		}
 	}
 }
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2009, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.accessories;
+
+import jario.hardware.Bus32bit;
+import jario.hardware.BusDMA;
+import jario.hardware.Configurable;
+import jario.hardware.Hardware;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Audio player without an output line, used for headless runs. Samples are
+ * dropped and the play position and queued bytes are always reported as
+ * unknown (-1), so the audio interface never depends on wall clock time.
+ */
+public class NullAudioPlayer implements Hardware, Bus32bit, BusDMA, Configurable
+{
+	public NullAudioPlayer()
+	{
+	}
+
+	@Override
+	public void connect(int port, Hardware bus)
+	{
+	}
+
+	@Override
+	public void reset()
+	{
+	}
+
+	@Override
+	public int read32bit(int reg)
+	{
+		switch (reg)
+		{
+		case 4: // play position
+		case 5: // bytes queued
+			return -1;
+		default:
+			return 0;
+		}
+	}
+
+	@Override
+	public void write32bit(int reg, int value)
+	{
+	}
+
+	@Override
+	public Object readConfig(String key)
+	{
+		if (key.equals("enable")) return false;
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
+	}
+
+	@Override
+	public void readDMA(int pAddr, ByteBuffer dma, int offset, int length)
+	{
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	@Override
+	public void writeDMA(int pAddr, ByteBuffer dma, int offset, int length)
+	{
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2009, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.accessories;
+
+/**
+ * Lock-free single producer, single consumer ring of pcm bytes. Writes
+ * never wait, whatever does not fit is left to the caller. The ring is
+ * emptied by the consumer alone, the producer only asks for its size.
+ */
+public class PcmRing
+{
+	private final byte[] buffer;
+	private final int mask;
+
+	private volatile long head; // first byte not yet read by the consumer
+	private volatile long tail; // first byte not yet written by the producer
+
+	public PcmRing(int sizeLog2)
+	{
+		buffer = new byte[1 << sizeLog2];
+		mask = buffer.length - 1;
+	}
+
+	public int capacity()
+	{
+		return buffer.length;
+	}
+
+	/**
+	 * Bytes written and not yet read.
+	 */
+	public int size()
+	{
+		return (int) (tail - head);
+	}
+
+	/**
+	 * Copies up to length bytes in whole frames, returns the bytes copied.
+	 */
+	public int write(byte[] src, int offset, int length, int frameBytes)
+	{
+		long t = tail;
+		int count = StrictMath.min(length, buffer.length - (int) (t - head));
+		count -= count % frameBytes;
+		copy(src, offset, buffer, (int) t & mask, count, true);
+		tail = t + count;
+		return count;
+	}
+
+	/**
+	 * Moves up to length bytes out of the ring, returns the bytes moved.
+	 */
+	public int read(byte[] dest, int offset, int length)
+	{
+		long h = head;
+		int count = StrictMath.min(length, (int) (tail - h));
+		copy(buffer, (int) h & mask, dest, offset, count, false);
+		head = h + count;
+		return count;
+	}
+
+	/**
+	 * Drops everything written so far, called by the consumer.
+	 */
+	public void clear()
+	{
+		head = tail;
+	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	// splits the copy where the ring wraps around
+	private void copy(byte[] src, int srcOffset, byte[] dest, int destOffset, int length, boolean intoRing)
+	{
+		int ringOffset = intoRing ? destOffset : srcOffset;
+		int first = StrictMath.min(length, buffer.length - ringOffset);
+		System.arraycopy(src, srcOffset, dest, destOffset, first);
+		if (first < length)
+		{
+			if (intoRing)
+				System.arraycopy(src, srcOffset + first, dest, 0, length - first);
+			else
+				System.arraycopy(src, 0, dest, destOffset + first, length - first);
+		}
+	}
+}
@@ -48,6 +48,7 @@ public class Console implements Hardware, Configurable
 
 	private static final int CPU_DATA_PORT = 4;
 	private static final int CPU_TIMING_PORT = 5;
+	private static final int CPU_RDRAM_PORT = 6;
 	private static final int CPU_CLOCK_REG = 33;
 	
 	private static final int RCP_CART_PORT = 1;
@@ -56,6 +57,8 @@ public class Console implements Hardware, Configurable
 	private static final int RCP_RDRAM_PORT = 4;
 	private static final int RCP_DAC_PORT = 6;
 
+	private static final int RDRAM_CPU_PORT = 0;
+
 	private Hardware cpu;
 	private Hardware rcp;
 	private Hardware rdram;
@@ -103,11 +106,14 @@ public class Console implements Hardware, Configurable
 
 		cpu.connect(CPU_DATA_PORT, (Hardware)((Configurable)rcp).readConfig("MIPS"));
 		cpu.connect(CPU_TIMING_PORT, (Hardware)((Configurable)rcp).readConfig("TIMER"));
+		cpu.connect(CPU_RDRAM_PORT, rdram);
 		
 		rcp.connect(RCP_PIF_PORT, pif);
 		rcp.connect(RCP_MIPS_PORT, cpu);
 		rcp.connect(RCP_RDRAM_PORT, rdram);
 		rcp.connect(RCP_DAC_PORT, dac);
+
+		rdram.connect(RDRAM_CPU_PORT, cpu);
 		
 		dac.connect(6, rdram);
 		controllers = new Hardware[4];
@@ -238,8 +244,12 @@ public class Console implements Hardware, Configurable
 	public Object readConfig(String key)
 	{
 		if (key.equals("instructioncache")) return ((Configurable) cpu).readConfig("instructioncache");
+		else if (key.equals("recompiler")) return ((Configurable) cpu).readConfig("recompiler");
 		else if (key.equals("framelimit")) return ((Configurable) rcp).readConfig("framelimit");
 		else if (key.equals("framebuffer")) return ((Configurable) rcp).readConfig("framebuffer");
+		else if (key.equals("frames")) return ((Configurable) rcp).readConfig("frames");
+		else if (key.equals("speed") || key.equals("audiosync") || key.startsWith("frametime")) return ((Configurable) rcp).readConfig(key);
+		else if (key.equals("instructions")) return ((Configurable) cpu).readConfig("instructions");
 		return null;
 	}
 
@@ -247,8 +257,10 @@ public class Console implements Hardware, Configurable
 	public void writeConfig(String key, Object value)
 	{
 		if (key.equals("instructioncache")) ((Configurable) cpu).writeConfig("instructioncache", value);
+		else if (key.equals("recompiler")) ((Configurable) cpu).writeConfig("recompiler", value);
 		else if (key.equals("framelimit")) ((Configurable) rcp).writeConfig("framelimit", value);
 		else if (key.equals("framebuffer")) ((Configurable) rcp).writeConfig("framebuffer", value);
+		else if (key.equals("speed") || key.equals("audiosync")) ((Configurable) rcp).writeConfig(key, value);
 	}
 
 	// Private Methods /////////////////////////////////////////////////////////
@@ -37,7 +37,7 @@ import jario.hardware.Hardware;
  * 0 - 31: (r/w) System Control Coprocessor 0 Registers (32 bit)
  * 33: (r/w) ADDRESS_REG - The current virtual address to be used
  * 36: (w) CLK_MULT_REG - Sets the clock multiplier
- * 37: (r) INTR_REG - Processes interrupts
+ * 37: (r) INTR_REG - Processes interrupts, returns 1 while more work is pending
  * 38: (r) ERROR_REG - Check for fatal system errors
  * 0 = No errors
  * 1 = Fatal error condition (system should be shutdown)
@@ -50,6 +50,10 @@ import jario.hardware.Hardware;
  * loadWord: Translates a virtual address to a physical address
  * 
  * load/store Byte, load/store HalfWord and load/store DoubleWord are not supported
+ * 
+ * Ports:
+ * 0: CPU
+ * 1: RCP timer - the compare interrupt is scheduled on timer port 15
  */
 public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 {
@@ -153,7 +157,9 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 	protected int[] CP0 = new int[33];
 	protected int instruction;
 
-	private int timerCompare;
+	private static final int TIMER_COMPARE_PORT = 15;
+
+	private boolean compareDue;
 	private int countPerOp;
 	private int wired = 32;
 	private int addr;
@@ -162,6 +168,8 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 
 	protected Bus32bit cpu;
 	protected Bus32bit mmu;
+	protected Bus32bit timer;
+	private CompareEvent compareEvent = new CompareEvent();
 
 	public Cop0()
 	{
@@ -220,13 +228,21 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 		case 0:
 			cpu = (Bus32bit) bus;
 			break;
+		case 1:
+			timer = (Bus32bit) bus;
+			if (timer != null)
+			{
+				((Hardware) timer).connect(TIMER_COMPARE_PORT, compareEvent);
+				changeCompareTimer();
+			}
+			break;
 		}
 	}
 
 	@Override
 	public void reset()
 	{
-		timerCompare = 0;
+		compareDue = false;
 		countPerOp = 0;
 		instruction = 0;
 		wired = 32;
@@ -250,7 +266,6 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 	public void clock(long ticks)
 	{
 		CP0[COUNT_REGISTER] += ticks;
-		timerCompare = -1;
 	}
 
 	@Override
@@ -340,7 +355,7 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 			return addr;
 		case 37:
 			update();
-			if (timerCompare < 0)
+			if (compareDue)
 				timerCompareDone();
 			if (cpuAction.DoSomething)
 			{
@@ -378,7 +393,7 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 					cpuAction.DoSomething = true;
 				}
 			}
-			return 0;
+			return cpuAction.DoSomething ? 1 : 0;
 		case 38:
 			return checkInPermLoop();
 		case 40:
@@ -514,7 +529,6 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 	private void update()
 	{
 		int tick = cpu.read32bit(33);
-		timerCompare -= tick * countPerOp;
 		CP0[COUNT_REGISTER] += tick * countPerOp;
 		CP0[RANDOM_REGISTER] -= (tick > wired) ? tick % wired : tick;
 		if (CP0[RANDOM_REGISTER] < CP0[WIRED_REGISTER])
@@ -523,6 +537,7 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 
 	private void timerCompareDone()
 	{
+		compareDue = false;
 		CP0[FAKE_CAUSE_REGISTER] |= CAUSE_IP7;
 		if (cpu.read32bit(CPU_INTERRUPT_REG) != 0)
 			CP0[FAKE_CAUSE_REGISTER] |= CAUSE_IP2;
@@ -546,25 +561,33 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 
 	private void changeCompareTimer()
 	{
+		if (timer == null)
+			return;
 		int nextCompare = CP0[COMPARE_REGISTER] - CP0[COUNT_REGISTER];
 		if ((nextCompare & 0x80000000) != 0)
 			nextCompare = 0x7FFFFFFF;
 		if (nextCompare == 0)
 			nextCompare = 0x1;
+		timer.write32bit(16 + TIMER_COMPARE_PORT, nextCompare);
+	}
 
-		int nextTimerCompare = nextCompare - timerCompare;
-		if (nextTimerCompare != 0x7FFFFFFF)
-			nextTimerCompare += timerCompare;
-		timerCompare = 0x7FFFFFFF;
-		if (nextTimerCompare < timerCompare)
-			timerCompare = nextTimerCompare;
+	// Timer device that flags the compare interrupt for the next INTR_REG read
+	private class CompareEvent implements Hardware, Clockable
+	{
+		@Override
+		public void connect(int port, Hardware bus)
+		{
+		}
 
-		if (nextTimerCompare == 0x7FFFFFFF)
+		@Override
+		public void reset()
 		{
-			nextCompare = CP0[COMPARE_REGISTER] - CP0[COUNT_REGISTER];
-			if ((nextCompare & 0x80000000) == 0 && nextCompare != 0x7FFFFFFF) {
-				changeCompareTimer();
-			}
+		}
+
+		@Override
+		public void clock(long ticks)
+		{
+			compareDue = true;
 		}
 	}
 
@@ -584,7 +607,6 @@ public class Cop0 implements Hardware, Clockable, Bus32bit, Configurable
 			return 1;
 
 		update();
-		timerCompare -= 5;
 		CP0[COUNT_REGISTER] += 5;
 		return 2;
 	}
@@ -24,9 +24,7 @@ import jario.hardware.Bus32bit;
 import jario.hardware.Bus64bit;
 import jario.hardware.Hardware;
 
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
+import java.util.Arrays;
 
 /**
  * Registers:
@@ -91,74 +89,6 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	protected static final int RC_UP = 2;
 	protected static final int RC_DOWN = 3;
 
-	protected RoundingMode[] roundingMode =
-	{
-			RoundingMode.HALF_EVEN,
-			RoundingMode.DOWN,
-			RoundingMode.CEILING,
-			RoundingMode.FLOOR
-	};
-	protected MathContext[] floatContext =
-	{
-			MathContext.DECIMAL32,
-			new MathContext(7, RoundingMode.DOWN),
-			new MathContext(7, RoundingMode.CEILING),
-			new MathContext(7, RoundingMode.FLOOR)
-	};
-
-	protected class MipsDword
-	{
-		public long DW;
-
-		public int getW(int index)
-		{
-			switch (mode32 ? index & 1 : 0)
-			{
-			case 0:
-				return (int) DW;
-			case 1:
-				return (int) (DW >> 32);
-			default:
-				return 0;
-			}
-		}
-
-		public void setW(int index, int w)
-		{
-			switch (mode32 ? index & 1 : 0)
-			{
-			case 0:
-				DW = ((((long) w)) & 0x00000000FFFFFFFFL) | (DW & 0xFFFFFFFF00000000L);
-				break;
-			case 1:
-				DW = ((((long) w) << 32) & 0xFFFFFFFF00000000L) | (DW & 0x00000000FFFFFFFFL);
-				break;
-			default:
-				return;
-			}
-		}
-
-		public float getF(int index)
-		{
-			return Float.intBitsToFloat((int) DW);
-		}
-
-		public void setF(int index, float f)
-		{
-			DW = (((long) Float.floatToIntBits(f))) & 0x00000000FFFFFFFFL;
-		}
-
-		public double getD()
-		{
-			return Double.longBitsToDouble(DW);
-		}
-
-		public void setD(double d)
-		{
-			DW = Double.doubleToLongBits(d);
-		}
-	}
-
 	public static interface OpCode
 	{
 		public void exec(int inst1, int inst2);
@@ -172,13 +102,11 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	protected OpCode[] r4300i_CoP1_L;
 
 	protected int[] FPCR;
-	protected MipsDword[] FPR;
+	protected long[] FPR;
 	protected boolean mode32;
 	protected int instruction;
 	protected int roundingModel;
 
-	private MipsDword[] tmpFPR;
-
 	protected Bus32bit bus0;
 	protected Bus64bit bus0DW;
 
@@ -186,10 +114,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		FPCR = new int[32];
 		FPCR[REVISION_REGISTER] = 0x00000511;
-		FPR = new MipsDword[32];
-		tmpFPR = new MipsDword[16];
-		for (int i = 0; i < FPR.length; i++)
-			FPR[i] = new MipsDword();
+		FPR = new long[32];
 		roundingModel = RC_NEAR;
 		buildOps();
 	}
@@ -211,10 +136,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		FPCR = new int[32];
 		FPCR[REVISION_REGISTER] = 0x00000511;
-		FPR = new MipsDword[32];
-		tmpFPR = new MipsDword[16];
-		for (int i = 0; i < FPR.length; i++)
-			FPR[i] = new MipsDword();
+		Arrays.fill(FPR, 0L);
 		mode32 = false;
 		instruction = 0;
 		roundingModel = RC_NEAR;
@@ -225,7 +147,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		if (pAddr < 64)
 		{
-			return FPR[pAddr].getW(pAddr);
+			return getW(pAddr);
 		}
 		else
 		{
@@ -244,7 +166,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	@Override
 	public long read64bit(int pAddr)
 	{
-		return FPR[pAddr].DW;
+		return getDW(pAddr);
 	}
 
 	@Override
@@ -252,30 +174,17 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		if (pAddr < 64)
 		{
-			FPR[pAddr].setW(pAddr, value);
+			setW(pAddr, value);
 		}
 		else
 		{
 			switch (pAddr)
 			{
 			case 64:
-				if (value == 0)
-				{
-					mode32 = true;
-					for (int i = 0; i < 16; i++)
-					{
-						tmpFPR[i] = FPR[(i << 1) + 1];
-						FPR[(i << 1) + 1] = FPR[i << 1];
-					}
-				}
-				else
-				{
-					mode32 = false;
-					for (int i = 0; i < 16; i++)
-					{
-						FPR[(i << 1) + 1] = tmpFPR[i];
-					}
-				}
+				// in 32 bit mode the odd registers alias the upper half of the
+				// even ones; their own storage is left untouched until 64 bit
+				// mode is restored
+				mode32 = (value == 0);
 				break;
 			case 65:
 				instruction = value;
@@ -288,7 +197,158 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	@Override
 	public void write64bit(int pAddr, long value)
 	{
-		FPR[pAddr].DW = value;
+		setDW(pAddr, value);
+	}
+
+	// Register Access ///////////////////////////////////////////////////////
+
+	protected final int getW(int index)
+	{
+		if (mode32)
+			return (int) (FPR[index & ~1] >> ((index & 1) << 5));
+		return (int) FPR[index];
+	}
+
+	protected final void setW(int index, int w)
+	{
+		if (mode32 && (index & 1) != 0)
+			FPR[index & ~1] = (((long) w) << 32) | (FPR[index & ~1] & 0x00000000FFFFFFFFL);
+		else
+			FPR[index] = (((long) w) & 0x00000000FFFFFFFFL) | (FPR[index] & 0xFFFFFFFF00000000L);
+	}
+
+	protected final float getF(int index)
+	{
+		return Float.intBitsToFloat((int) FPR[mode32 ? index & ~1 : index]);
+	}
+
+	protected final void setF(int index, float f)
+	{
+		FPR[mode32 ? index & ~1 : index] = ((long) Float.floatToIntBits(f)) & 0x00000000FFFFFFFFL;
+	}
+
+	protected final double getD(int index)
+	{
+		return Double.longBitsToDouble(FPR[mode32 ? index & ~1 : index]);
+	}
+
+	protected final void setD(int index, double d)
+	{
+		FPR[mode32 ? index & ~1 : index] = Double.doubleToLongBits(d);
+	}
+
+	protected final long getDW(int index)
+	{
+		return FPR[mode32 ? index & ~1 : index];
+	}
+
+	protected final void setDW(int index, long dw)
+	{
+		FPR[mode32 ? index & ~1 : index] = dw;
+	}
+
+	// Rounding ////////////////////////////////////////////////////////////////
+
+	// Rounds to an integer in the given mode. Results too large for a long
+	// keep their low 64 bits.
+	protected static long roundLong(double value, int mode)
+	{
+		switch (mode)
+		{
+		case RC_CHOP:
+			value = (value < 0) ? Math.ceil(value) : Math.floor(value);
+			break;
+		case RC_UP:
+			value = Math.ceil(value);
+			break;
+		case RC_DOWN:
+			value = Math.floor(value);
+			break;
+		default:
+			value = Math.rint(value);
+			break;
+		}
+		if (Math.abs(value) < 9.223372036854775808E18)
+			return (long) value;
+		long bits = Double.doubleToRawLongBits(value);
+		int shift = (int) ((bits >> 52) & 0x7FF) - 1075;
+		long magnitude = (shift >= 64) ? 0L : ((bits & 0x000FFFFFFFFFFFFFL) | 0x0010000000000000L) << shift;
+		return (value < 0) ? -magnitude : magnitude;
+	}
+
+	// Narrows to single precision in the given mode.
+	protected static float roundFloat(double value, int mode)
+	{
+		float f = (float) value;
+		switch (mode)
+		{
+		case RC_CHOP:
+			if (Math.abs(f) > Math.abs(value))
+				f = Math.nextAfter(f, 0.0);
+			break;
+		case RC_UP:
+			if (f < value)
+				f = Math.nextUp(f);
+			break;
+		case RC_DOWN:
+			if (f > value)
+				f = Math.nextAfter(f, Double.NEGATIVE_INFINITY);
+			break;
+		}
+		return f;
+	}
+
+	protected static float longToFloat(long value, int mode)
+	{
+		float f = (float) value;
+		int cmp = compare(f, value);
+		switch (mode)
+		{
+		case RC_CHOP:
+			if ((value >= 0) ? cmp > 0 : cmp < 0)
+				f = Math.nextAfter(f, 0.0);
+			break;
+		case RC_UP:
+			if (cmp < 0)
+				f = Math.nextUp(f);
+			break;
+		case RC_DOWN:
+			if (cmp > 0)
+				f = Math.nextAfter(f, Double.NEGATIVE_INFINITY);
+			break;
+		}
+		return f;
+	}
+
+	protected static double longToDouble(long value, int mode)
+	{
+		double d = (double) value;
+		int cmp = compare(d, value);
+		switch (mode)
+		{
+		case RC_CHOP:
+			if ((value >= 0) ? cmp > 0 : cmp < 0)
+				d = Math.nextAfter(d, 0.0);
+			break;
+		case RC_UP:
+			if (cmp < 0)
+				d = Math.nextUp(d);
+			break;
+		case RC_DOWN:
+			if (cmp > 0)
+				d = Math.nextAfter(d, Double.NEGATIVE_INFINITY);
+			break;
+		}
+		return d;
+	}
+
+	// Exact comparison of an integral floating point value with a long.
+	private static int compare(double rounded, long value)
+	{
+		if (rounded >= 9.223372036854775808E18)
+			return 1;
+		long l = (long) rounded;
+		return (l < value) ? -1 : ((l > value) ? 1 : 0);
 	}
 
 	// Private Methods /////////////////////////////////////////////////////////
@@ -419,7 +479,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			bus0.write32bit((inst >> FT) & 0x1F, FPR[(inst >> FS) & 0x1F].getW((inst >> FS) & 0x1F));
+			bus0.write32bit((inst >> FT) & 0x1F, getW((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -427,7 +487,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			bus0DW.write64bit((inst >> FT) & 0x1F, FPR[(inst >> FS) & 0x1F].DW);
+			bus0DW.write64bit((inst >> FT) & 0x1F, getDW((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -456,7 +516,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FS) & 0x1F].setW((inst >> FS) & 0x1F, bus0.read32bit((inst >> FT) & 0x1F));
+			setW((inst >> FS) & 0x1F, bus0.read32bit((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -464,7 +524,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FS) & 0x1F].DW = bus0DW.read64bit((inst >> FT) & 0x1F);
+			setDW((inst >> FS) & 0x1F, bus0DW.read64bit((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -567,7 +627,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F) + FPR[(inst >> FT) & 0x1F].getF((inst >> FT) & 0x1F));
+			setF((inst >> FD) & 0x1F, getF((inst >> FS) & 0x1F) + getF((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -575,7 +635,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F) - FPR[(inst >> FT) & 0x1F].getF((inst >> FT) & 0x1F));
+			setF((inst >> FD) & 0x1F, getF((inst >> FS) & 0x1F) - getF((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -583,7 +643,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F) * FPR[(inst >> FT) & 0x1F].getF((inst >> FT) & 0x1F));
+			setF((inst >> FD) & 0x1F, getF((inst >> FS) & 0x1F) * getF((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -591,7 +651,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F) / FPR[(inst >> FT) & 0x1F].getF((inst >> FT) & 0x1F));
+			setF((inst >> FD) & 0x1F, getF((inst >> FS) & 0x1F) / getF((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -599,7 +659,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, BigDecimal.valueOf(StrictMath.sqrt(FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F))).round(floatContext[roundingModel]).floatValue());
+			setF((inst >> FD) & 0x1F, roundFloat(StrictMath.sqrt(getF((inst >> FS) & 0x1F)), roundingModel));
 		}
 	};
 
@@ -607,7 +667,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, StrictMath.abs(FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F)));
+			setF((inst >> FD) & 0x1F, StrictMath.abs(getF((inst >> FS) & 0x1F)));
 		}
 	};
 
@@ -615,7 +675,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F));
+			setF((inst >> FD) & 0x1F, getF((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -623,7 +683,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, BigDecimal.valueOf(FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F)).negate(floatContext[roundingModel]).floatValue());
+			setF((inst >> FD) & 0x1F, -getF((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -631,7 +691,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].DW = (long) (double) FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F);
+			setDW((inst >> FD) & 0x1F, (long) (double) getF((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -639,7 +699,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setW((inst >> FD) & 0x1F, BigDecimal.valueOf(FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F)).setScale(0, roundingMode[RC_NEAR]).intValue());
+			setW((inst >> FD) & 0x1F, (int) roundLong(getF((inst >> FS) & 0x1F), RC_NEAR));
 		}
 	};
 
@@ -647,7 +707,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setW((inst >> FD) & 0x1F, (int) FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F));
+			setW((inst >> FD) & 0x1F, (int) getF((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -655,7 +715,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setW((inst >> FD) & 0x1F, (int) StrictMath.floor(FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F)));
+			setW((inst >> FD) & 0x1F, (int) StrictMath.floor(getF((inst >> FS) & 0x1F)));
 		}
 	};
 
@@ -663,7 +723,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD((double) FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F));
+			setD((inst >> FD) & 0x1F, (double) getF((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -671,7 +731,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setW((inst >> FD) & 0x1F, BigDecimal.valueOf(FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F)).setScale(0, roundingMode[roundingModel]).intValue());
+			setW((inst >> FD) & 0x1F, (int) roundLong(getF((inst >> FS) & 0x1F), roundingModel));
 		}
 	};
 
@@ -679,7 +739,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].DW = BigDecimal.valueOf(FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F)).setScale(0, roundingMode[roundingModel]).longValue();
+			setDW((inst >> FD) & 0x1F, roundLong(getF((inst >> FS) & 0x1F), roundingModel));
 		}
 	};
 
@@ -690,8 +750,8 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 			boolean less;
 			boolean equal;
 			boolean unorded;
-			float temp0 = FPR[(inst >> FS) & 0x1F].getF((inst >> FS) & 0x1F);
-			float temp1 = FPR[(inst >> FT) & 0x1F].getF((inst >> FT) & 0x1F);
+			float temp0 = getF((inst >> FS) & 0x1F);
+			float temp1 = getF((inst >> FT) & 0x1F);
 
 			if (Float.isNaN(temp0) || Float.isNaN(temp1))
 			{
@@ -732,7 +792,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD(FPR[(inst >> FS) & 0x1F].getD() + FPR[(inst >> FT) & 0x1F].getD());
+			setD((inst >> FD) & 0x1F, getD((inst >> FS) & 0x1F) + getD((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -740,7 +800,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD(FPR[(inst >> FS) & 0x1F].getD() - FPR[(inst >> FT) & 0x1F].getD());
+			setD((inst >> FD) & 0x1F, getD((inst >> FS) & 0x1F) - getD((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -748,7 +808,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD(FPR[(inst >> FS) & 0x1F].getD() * FPR[(inst >> FT) & 0x1F].getD());
+			setD((inst >> FD) & 0x1F, getD((inst >> FS) & 0x1F) * getD((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -756,7 +816,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD(FPR[(inst >> FS) & 0x1F].getD() / FPR[(inst >> FT) & 0x1F].getD());
+			setD((inst >> FD) & 0x1F, getD((inst >> FS) & 0x1F) / getD((inst >> FT) & 0x1F));
 		}
 	};
 
@@ -764,7 +824,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD(StrictMath.sqrt(FPR[(inst >> FS) & 0x1F].getD()));
+			setD((inst >> FD) & 0x1F, StrictMath.sqrt(getD((inst >> FS) & 0x1F)));
 		}
 	};
 
@@ -772,7 +832,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD(StrictMath.abs(FPR[(inst >> FS) & 0x1F].getD()));
+			setD((inst >> FD) & 0x1F, StrictMath.abs(getD((inst >> FS) & 0x1F)));
 		}
 	};
 
@@ -780,7 +840,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD(FPR[(inst >> FS) & 0x1F].getD());
+			setD((inst >> FD) & 0x1F, getD((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -788,7 +848,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD(FPR[(inst >> FS) & 0x1F].getD() * -1.0);
+			setD((inst >> FD) & 0x1F, getD((inst >> FS) & 0x1F) * -1.0);
 		}
 	};
 
@@ -796,7 +856,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setW((inst >> FD) & 0x1F, BigDecimal.valueOf(FPR[(inst >> FS) & 0x1F].getD()).setScale(0, roundingMode[RC_NEAR]).intValue());
+			setW((inst >> FD) & 0x1F, (int) roundLong(getD((inst >> FS) & 0x1F), RC_NEAR));
 		}
 	};
 
@@ -804,7 +864,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setW((inst >> FD) & 0x1F, (int) FPR[(inst >> FS) & 0x1F].getD());
+			setW((inst >> FD) & 0x1F, (int) getD((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -812,7 +872,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, (float) FPR[(inst >> FS) & 0x1F].getD());
+			setF((inst >> FD) & 0x1F, (float) getD((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -820,7 +880,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setW((inst >> FD) & 0x1F, BigDecimal.valueOf(FPR[(inst >> FS) & 0x1F].getD()).setScale(0, roundingMode[roundingModel]).intValue());
+			setW((inst >> FD) & 0x1F, (int) roundLong(getD((inst >> FS) & 0x1F), roundingModel));
 		}
 	};
 
@@ -828,7 +888,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].DW = BigDecimal.valueOf(FPR[(inst >> FS) & 0x1F].getD()).setScale(0, roundingMode[roundingModel]).longValue();
+			setDW((inst >> FD) & 0x1F, roundLong(getD((inst >> FS) & 0x1F), roundingModel));
 		}
 	};
 
@@ -839,8 +899,8 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 			boolean less;
 			boolean equal;
 			boolean unorded;
-			double temp0 = FPR[(inst >> FS) & 0x1F].getD();
-			double temp1 = FPR[(inst >> FT) & 0x1F].getD();
+			double temp0 = getD((inst >> FS) & 0x1F);
+			double temp1 = getD((inst >> FT) & 0x1F);
 
 			if (Double.isNaN(temp0) || Double.isNaN(temp1))
 			{
@@ -881,7 +941,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, (float) FPR[(inst >> FS) & 0x1F].getW((inst >> FS) & 0x1F));
+			setF((inst >> FD) & 0x1F, (float) getW((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -889,7 +949,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD((double) FPR[(inst >> FS) & 0x1F].getW((inst >> FS) & 0x1F));
+			setD((inst >> FD) & 0x1F, (double) getW((inst >> FS) & 0x1F));
 		}
 	};
 
@@ -899,7 +959,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setF((inst >> FD) & 0x1F, BigDecimal.valueOf(FPR[(inst >> FS) & 0x1F].DW).round(floatContext[roundingModel]).floatValue());
+			setF((inst >> FD) & 0x1F, longToFloat(getDW((inst >> FS) & 0x1F), roundingModel));
 		}
 	};
 
@@ -907,7 +967,7 @@ public class Fpu implements Hardware, Bus32bit, Bus64bit
 	{
 		public void exec(int inst, int unused)
 		{
-			FPR[(inst >> FD) & 0x1F].setD(BigDecimal.valueOf(FPR[(inst >> FS) & 0x1F].DW).round(floatContext[roundingModel]).doubleValue());
+			setD((inst >> FD) & 0x1F, longToDouble(getDW((inst >> FS) & 0x1F), roundingModel));
 		}
 	};
 
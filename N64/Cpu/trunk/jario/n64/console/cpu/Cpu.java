@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Arrays;
 import java.util.Properties;
 
 import jario.hardware.Bus16bit;
@@ -59,6 +60,8 @@ import jario.hardware.Hardware;
  * 43/44: (r/w) MULT_LO_REG - Stores the result of integer mult/div operations
  * reg 43 - upper 32 bits
  * reg 44 - lower 32 bits
+ * 45: (w) CODE_WRITE_REG - Invalidates the cached instruction at the written physical address
+ * 46: (w) CODE_DMA_REG - Invalidates every cached instruction in the 4KB page at the written physical address
  */
 public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bus64bit, Configurable
 {
@@ -286,6 +289,9 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 	private static final int COP0_INSTR_REG = 40;
 	private static final int COP0_EXC_REG = 41;
 
+	// timer registers
+	private static final int TIMER_NEXT_REG = 48;
+
 	private static final int CAUSE_EXC_CODE = 0xFF;
 	private static final int CAUSE_IP0 = 0x100;
 	private static final int CAUSE_IP1 = 0x200;
@@ -384,16 +390,18 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 	private static final int RD = 11;
 	private static final int SA = 06;
 
+	private static final int MAX_BLOCK_LENGTH = 256;
+
 	public static interface OpCode
 	{
 		public void exec(int inst1, int inst2);
 	}
 
-	private class CachedOpcode
+	private class CompiledBlock
 	{
-		public int inst;
-		public boolean cached;
-		public OpCode code;
+		public int[] inst;
+		public OpCode[] code;
+		public boolean valid;
 	}
 
 	private static long[] LDL_MASK =
@@ -513,8 +521,13 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 
 	private int llBit;
 	private int llAddr;
-	private CachedOpcode[] cachedOpcodes;
-	private CachedOpcode cachedOp;
+	private int[] cachedInsts;
+	private byte[] cachedHandlers;
+	private long[] cachedValid;
+	private OpCode[] handlers;
+	private CompiledBlock[] compiledBlocks;
+	private boolean[] compiledPages;
+	private boolean[] codePages;
 	private OpCode cachedCode;
 	private OpCode[] r4300i_Opcode;
 	private OpCode[] r4300i_Special;
@@ -526,9 +539,15 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 	private int tmpRd;
 	private int tmpFunct;
 	private boolean cacheInstructions;
+	private boolean compileBlocks;
+	private volatile boolean flushBlocks; // blocks compiled before the recompiler was last turned off
 	private int tick;
 	private int tickTimer;
 	private int countPerOp;
+	private long[] clock;
+	private boolean interruptCheck;
+	private long instructions;
+	private volatile long reportedInstructions; // instructions as of the last timer event, for other threads
 	private int mode32;
 	private boolean running;
 
@@ -538,6 +557,12 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 	private Bus16bit mi16bit;
 	private Bus32bit mi32bit;
 	private Bus64bit mi64bit;
+	private Bus8bit rdram8bit;
+	private Bus16bit rdram16bit;
+	private Bus32bit rdram32bit;
+	private Bus64bit rdram64bit;
+	private int rdramSize;
+	private int[] tlbReadMap;
 	protected Bus32bit cop0;
 	protected Bus32bit mmu;
 	protected Bus32bit cop1;
@@ -578,14 +603,16 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		((Hardware) cop0).connect(0, this);
 		((Hardware) cop1).connect(0, this);
 		mmu = (Bus32bit) ((Configurable) cop0).readConfig("MMU");
+		tlbReadMap = (int[]) ((Configurable) mmu).readConfig("readmap");
 
 		LO = 0x0;
 		HI = 0x0;
-		cachedOpcodes = new CachedOpcode[0x402000 >>> 2]; // 1050624b (1Mb)
-		for (int i = 0; i < (0x402000 >>> 2); i++)
-		{
-			cachedOpcodes[i] = new CachedOpcode();
-		}
+		cachedInsts = new int[0x402000 >>> 2]; // 1050624b (1Mb)
+		cachedHandlers = new byte[0x402000 >>> 2];
+		cachedValid = new long[(0x402000 >>> 2) >>> 6];
+		compiledBlocks = new CompiledBlock[0x402000 >>> 2];
+		compiledPages = new boolean[(0x402000 >>> 12) + 1];
+		codePages = new boolean[0x800000 >>> 12];
 		buildOps();
 	}
 
@@ -602,6 +629,15 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 			break;
 		case 5:
 			timer = (Bus32bit) bus;
+			clock = (bus != null) ? (long[]) ((Configurable) bus).readConfig("clock") : null;
+			((Hardware) cop0).connect(1, bus);
+			break;
+		case 6:
+			rdram8bit = (Bus8bit) bus;
+			rdram16bit = (Bus16bit) bus;
+			rdram32bit = (Bus32bit) bus;
+			rdram64bit = (Bus64bit) bus;
+			rdramSize = (bus != null) ? rdram32bit.read32bit(0x03F00000 + (10 << 2)) : 0;
 			break;
 		}
 	}
@@ -630,7 +666,6 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		currentInstr = 0;
 		llBit = 0;
 		llAddr = 0;
-		cachedOp = null;
 		cachedCode = null;
 		tmpDmultu = new long[3];
 		tmpOp = 0;
@@ -641,10 +676,15 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		tick = 0;
 		tickTimer = 0;
 		countPerOp = 0;
+		interruptCheck = true;
+		instructions = 0L;
+		reportedInstructions = 0L;
 		mode32 = 0;
-		for (int i = 0; i < cachedOpcodes.length; i++)
+		Arrays.fill(cachedValid, 0L);
+		invalidateAllBlocks();
+		for (int i = 0; i < codePages.length; i++)
 		{
-			cachedOpcodes[i].cached = false;
+			codePages[i] = false;
 		}
 
 		((Hardware) cop0).reset();
@@ -715,6 +755,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 			break;
 		case 38:
 			cop0.write32bit(37, value);
+			interruptCheck = true;
 			break;
 		case 40:
 			if (value == 0)
@@ -740,6 +781,12 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		case 44:
 			LO = (LO & 0xFFFFFFFF00000000L) | (value & 0xFFFFFFFFL);
 			break;
+		case 45:
+			invalidateCache(value);
+			break;
+		case 46:
+			invalidatePage(value);
+			break;
 		case 64:
 			tableException = true;
 			break;
@@ -750,6 +797,9 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 	public Object readConfig(String key)
 	{
 		if (key.equals("instructioncache")) return cacheInstructions;
+		else if (key.equals("recompiler")) return compileBlocks;
+		else if (key.equals("codepages")) return codePages;
+		else if (key.equals("instructions")) return reportedInstructions;
 		return null;
 	}
 
@@ -757,6 +807,14 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 	public void writeConfig(String key, Object value)
 	{
 		if (key.equals("instructioncache")) cacheInstructions = (Boolean) value;
+		else if (key.equals("recompiler"))
+		{
+			// writes made while it was off did not invalidate the blocks
+			boolean enable = (Boolean) value;
+			if (enable && !compileBlocks)
+				flushBlocks = true;
+			compileBlocks = enable;
+		}
 	}
 
 	@Override
@@ -826,7 +884,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 	{
 		while (running)
 		{
-			int pAddr = mmu.read32bit(pc);
+			int pAddr = translate(pc);
 			if (tableException)
 			{
 				tableException = false;
@@ -834,24 +892,40 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				nextInstruction = NORMAL;
 				continue;
 			}
+			if (compileBlocks && nextInstruction == NORMAL)
+			{
+				if (flushBlocks)
+				{
+					flushBlocks = false;
+					invalidateAllBlocks();
+				}
+				CompiledBlock block = lookupBlock(pAddr);
+				if (block != null)
+				{
+					runBlock(block);
+					continue;
+				}
+			}
 			if (cacheInstructions)
 			{
-				cachedOp = cachedOpcodes[(pAddr < 0x400000) ? (pAddr >>> 2) : ((pAddr - 0x3C00000) >>> 2)];
-				if (cachedOp.cached)
+				int index = (pAddr < 0x400000) ? (pAddr >>> 2) : ((pAddr - 0x3C00000) >>> 2);
+				if ((cachedValid[index >>> 6] & (1L << index)) != 0)
 				{
-					instruction = cachedOp.inst;
-					cachedCode = cachedOp.code;
+					instruction = cachedInsts[index];
 				}
 				else
 				{
-					cachedOp.cached = true;
-					cachedOp.inst = instruction = mi32bit.read32bit(pAddr);
-					cachedCode = cachedOp.code = (((instruction >> OP) & 0x3F) == 0) ? r4300i_Special[instruction & 0x3F] : r4300i_Opcode[(instruction >> OP) & 0x3F];
+					cachedValid[index >>> 6] |= 1L << index;
+					if (pAddr < 0x800000)
+						codePages[pAddr >>> 12] = true;
+					cachedInsts[index] = instruction = load32bit(pAddr);
+					cachedHandlers[index] = (byte) decodeHandler(instruction);
 				}
+				cachedCode = handlers[cachedHandlers[index] & 0xFF];
 			}
 			else
 			{
-				instruction = mi32bit.read32bit(pAddr);
+				instruction = load32bit(pAddr);
 			}
 
 			tick++;
@@ -872,13 +946,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				pc += 4;
 				continue;
 			case JUMP:
-				pc = jumpToLocation;
-				nextInstruction = NORMAL;
-				((Clockable) timer).clock(tickTimer * countPerOp);
-				tickTimer = 0;
-				cop0.read32bit(COP0_INTR_REG);
-				pc = jumpToLocation;
-				nextInstruction = NORMAL;
+				jump();
 				continue;
 			default:
 				System.err.printf("%X:Invalid next-instruction type:%d\n", pc, nextInstruction);
@@ -886,6 +954,276 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		}
 	}
 
+	private void jump()
+	{
+		pc = jumpToLocation;
+		nextInstruction = NORMAL;
+		// only call out when the next timer event is due or cop0 has work queued
+		clock[0] += tickTimer * countPerOp;
+		instructions += tickTimer;
+		tickTimer = 0;
+		if (clock[0] > clock[1])
+		{
+			reportedInstructions = instructions;
+			((Clockable) timer).clock(0);
+			interruptCheck = true;
+		}
+		if (interruptCheck)
+			interruptCheck = cop0.read32bit(COP0_INTR_REG) != 0;
+		pc = jumpToLocation;
+		nextInstruction = NORMAL;
+	}
+
+	// Runs a compiled block until it leaves the block or takes a jump. The
+	// next-instruction state is handled exactly as in the interpreter loop so
+	// exceptions raised inside the block unwind the same way.
+	private void runBlock(CompiledBlock block)
+	{
+		int[] inst = block.inst;
+		OpCode[] code = block.code;
+		for (int i = 0; i < inst.length && block.valid; i++)
+		{
+			instruction = inst[i];
+
+			tick++;
+			tickTimer++;
+
+			code[i].exec(instruction, 0);
+
+			switch (nextInstruction)
+			{
+			case NORMAL:
+				pc += 4;
+				continue;
+			case DELAY_SLOT:
+				nextInstruction = JUMP;
+				pc += 4;
+				continue;
+			case JUMP:
+				jump();
+				return;
+			default:
+				System.err.printf("%X:Invalid next-instruction type:%d\n", pc, nextInstruction);
+				return;
+			}
+		}
+	}
+
+	private CompiledBlock lookupBlock(int pAddr)
+	{
+		int index = (pAddr < 0x400000) ? (pAddr >>> 2) : ((pAddr - 0x3C00000) >>> 2);
+		if (index < 0 || index >= compiledBlocks.length)
+			return null;
+		CompiledBlock block = compiledBlocks[index];
+		if (block == null)
+		{
+			block = compileBlock(pAddr);
+			if (block == null)
+				return null;
+			compiledBlocks[index] = block;
+			compiledPages[index >>> 10] = true;
+			if (pAddr < 0x800000)
+				codePages[pAddr >>> 12] = true;
+		}
+		return block;
+	}
+
+	// Decodes a basic block starting at pAddr. The block ends after the delay
+	// slot of the first branch, at the end of the page or before the first
+	// opcode the interpreter does not handle.
+	private CompiledBlock compileBlock(int pAddr)
+	{
+		int[] inst = new int[MAX_BLOCK_LENGTH];
+		OpCode[] code = new OpCode[MAX_BLOCK_LENGTH];
+		int length = 0;
+		boolean delaySlot = false;
+		int end = (pAddr & ~0xFFF) + 0x1000;
+		for (int addr = pAddr; addr < end && length < MAX_BLOCK_LENGTH; addr += 4)
+		{
+			int instr = load32bit(addr);
+			OpCode op = decodeOp(instr);
+			if (op == R4300i_UnknownOpcode)
+				break;
+			inst[length] = instr;
+			code[length] = op;
+			length++;
+			if (delaySlot)
+				break;
+			delaySlot = isBranch(instr);
+		}
+		if (length == 0)
+			return null;
+
+		CompiledBlock block = new CompiledBlock();
+		block.inst = new int[length];
+		block.code = new OpCode[length];
+		System.arraycopy(inst, 0, block.inst, 0, length);
+		System.arraycopy(code, 0, block.code, 0, length);
+		block.valid = true;
+		return block;
+	}
+
+	private OpCode decodeOp(int instr)
+	{
+		return handlers[decodeHandler(instr)];
+	}
+
+	// Index into the handler table: 0-63 primary opcodes, 64-127 SPECIAL
+	// functions, 128-159 REGIMM functions.
+	private int decodeHandler(int instr)
+	{
+		switch ((instr >> OP) & 0x3F)
+		{
+		case R4300i_SPECIAL:
+			return 64 + (instr & 0x3F);
+		case R4300i_REGIMM:
+			return 128 + ((instr >> RT) & 0x1F);
+		default:
+			return (instr >> OP) & 0x3F;
+		}
+	}
+
+	private boolean isBranch(int instr)
+	{
+		switch ((instr >> OP) & 0x3F)
+		{
+		case R4300i_SPECIAL:
+			return (instr & 0x3F) == R4300i_SPECIAL_JR || (instr & 0x3F) == R4300i_SPECIAL_JALR;
+		case R4300i_REGIMM:
+		case R4300i_J:
+		case R4300i_JAL:
+		case R4300i_BEQ:
+		case R4300i_BNE:
+		case R4300i_BLEZ:
+		case R4300i_BGTZ:
+		case R4300i_BEQL:
+		case R4300i_BNEL:
+		case R4300i_BLEZL:
+		case R4300i_BGTZL:
+			return true;
+		case R4300i_CP1:
+			return ((instr >> RS) & 0x1F) == R4300i_COP1_BC;
+		default:
+			return false;
+		}
+	}
+
+	// Virtual to physical translation. Mapped pages are looked up directly in
+	// the MMU's page table; unmapped pages go through the MMU so it can raise
+	// the TLB miss.
+	private int translate(int vAddr)
+	{
+		int offset = tlbReadMap[vAddr >>> 12];
+		if (offset != 0)
+			return vAddr + offset;
+		return mmu.read32bit(vAddr);
+	}
+
+	// RDRAM accesses skip the MIPS Interface address decoding.
+	private byte load8bit(int pAddr)
+	{
+		if (pAddr >= 0 && pAddr < rdramSize)
+			return rdram8bit.read8bit(pAddr);
+		return mi8bit.read8bit(pAddr);
+	}
+
+	private short load16bit(int pAddr)
+	{
+		if (pAddr >= 0 && pAddr < rdramSize)
+			return rdram16bit.read16bit(pAddr);
+		return mi16bit.read16bit(pAddr);
+	}
+
+	private int load32bit(int pAddr)
+	{
+		if (pAddr >= 0 && pAddr < rdramSize)
+			return rdram32bit.read32bit(pAddr);
+		return mi32bit.read32bit(pAddr);
+	}
+
+	private long load64bit(int pAddr)
+	{
+		if (pAddr >= 0 && pAddr < rdramSize)
+			return rdram64bit.read64bit(pAddr);
+		return mi64bit.read64bit(pAddr);
+	}
+
+	private void store8bit(int pAddr, byte value)
+	{
+		if (pAddr >= 0 && pAddr < rdramSize)
+			rdram8bit.write8bit(pAddr, value);
+		else
+			mi8bit.write8bit(pAddr, value);
+	}
+
+	private void store16bit(int pAddr, short value)
+	{
+		if (pAddr >= 0 && pAddr < rdramSize)
+			rdram16bit.write16bit(pAddr, value);
+		else
+			mi16bit.write16bit(pAddr, value);
+	}
+
+	private void store32bit(int pAddr, int value)
+	{
+		if (pAddr >= 0 && pAddr < rdramSize)
+			rdram32bit.write32bit(pAddr, value);
+		else
+			mi32bit.write32bit(pAddr, value);
+	}
+
+	private void store64bit(int pAddr, long value)
+	{
+		if (pAddr >= 0 && pAddr < rdramSize)
+			rdram64bit.write64bit(pAddr, value);
+		else
+			mi64bit.write64bit(pAddr, value);
+	}
+
+	private void invalidateCache(int pAddr)
+	{
+		int index = (pAddr < 0x400000) ? (pAddr >>> 2) : ((pAddr - 0x3C00000) >>> 2);
+		if (index < 0 || index >= cachedInsts.length)
+			return;
+		cachedValid[index >>> 6] &= ~(1L << index);
+		if (compiledPages[index >>> 10])
+			invalidateBlocks(index >>> 10);
+	}
+
+	private void invalidatePage(int pAddr)
+	{
+		int index = (pAddr < 0x400000) ? ((pAddr & ~0xFFF) >>> 2) : (((pAddr & ~0xFFF) - 0x3C00000) >>> 2);
+		if (pAddr < 0x800000)
+			codePages[pAddr >>> 12] = false;
+		if (index < 0 || index >= cachedInsts.length)
+			return;
+		Arrays.fill(cachedValid, index >>> 6, Math.min((index + 0x400) >>> 6, cachedValid.length), 0L);
+		if (compiledPages[index >>> 10])
+			invalidateBlocks(index >>> 10);
+	}
+
+	private void invalidateBlocks(int page)
+	{
+		for (int i = page << 10; i < ((page + 1) << 10) && i < compiledBlocks.length; i++)
+		{
+			if (compiledBlocks[i] != null)
+			{
+				compiledBlocks[i].valid = false;
+				compiledBlocks[i] = null;
+			}
+		}
+		compiledPages[page] = false;
+	}
+
+	private void invalidateAllBlocks()
+	{
+		for (int i = 0; i < compiledPages.length; i++)
+		{
+			if (compiledPages[i])
+				invalidateBlocks(i);
+		}
+	}
+
 	private int testInterpreterJump()
 	{
 		if (delaySlotEffectsCompare() == 0)
@@ -903,13 +1241,16 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				/* check RDP running */
 
 				((Clockable) timer).clock(tickTimer * countPerOp + 5);
+				instructions += tickTimer;
+				reportedInstructions = instructions;
 				tickTimer = 0;
+				interruptCheck = true;
 
-				int time = timer.read32bit(4);
+				int time = timer.read32bit(TIMER_NEXT_REG);
 				if (time > 0)
 				{
 					((Clockable) cop0).clock(time + 1);
-					timer.write32bit(4, -1);
+					timer.write32bit(TIMER_NEXT_REG, -1);
 				}
 			}
 		}
@@ -922,7 +1263,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 			return 1;
 
 		int tmpInstr;
-		int pAddr = mmu.read32bit(pc + 4);
+		int pAddr = translate(pc + 4);
 		if (tableException)
 		{
 			tableException = false;
@@ -930,21 +1271,23 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		}
 		if (cacheInstructions)
 		{
-			cachedOp = cachedOpcodes[(pAddr < 0x400000) ? (pAddr >>> 2) : ((pAddr - 0x3C00000) >>> 2)];
-			if (cachedOp.cached)
+			int index = (pAddr < 0x400000) ? (pAddr >>> 2) : ((pAddr - 0x3C00000) >>> 2);
+			if ((cachedValid[index >>> 6] & (1L << index)) != 0)
 			{
-				tmpInstr = cachedOp.inst;
+				tmpInstr = cachedInsts[index];
 			}
 			else
 			{
-				cachedOp.cached = true;
-				tmpInstr = cachedOp.inst = mi32bit.read32bit(pAddr);
-				cachedOp.code = (((tmpInstr >> 26) & 0x3F) == 0) ? r4300i_Special[tmpInstr & 0x3F] : r4300i_Opcode[(tmpInstr >> 26) & 0x3F];
+				cachedValid[index >>> 6] |= 1L << index;
+				if (pAddr < 0x800000)
+					codePages[pAddr >>> 12] = true;
+				tmpInstr = cachedInsts[index] = load32bit(pAddr);
+				cachedHandlers[index] = (byte) decodeHandler(tmpInstr);
 			}
 		}
 		else
 		{
-			tmpInstr = mi32bit.read32bit(pAddr);
+			tmpInstr = load32bit(pAddr);
 		}
 		tmpOp = (tmpInstr >> 26) & 0x3F;
 		tmpRs = (tmpInstr >> 21) & 0x1F;
@@ -1244,6 +1587,11 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		r4300i_Regimm[3] = r4300i_REGIMM_BGEZL;
 		r4300i_Regimm[16] = r4300i_REGIMM_BLTZAL;
 		r4300i_Regimm[17] = r4300i_REGIMM_BGEZAL;
+
+		handlers = new OpCode[160];
+		System.arraycopy(r4300i_Opcode, 0, handlers, 0, 64);
+		System.arraycopy(r4300i_Special, 0, handlers, 64, 64);
+		System.arraycopy(r4300i_Regimm, 0, handlers, 128, 32);
 	}
 
 	/************************* OpCode functions *************************/
@@ -1269,6 +1617,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			cop0.write32bit(COP0_INSTR_REG, instr);
+			interruptCheck = true;
 		}
 	};
 
@@ -1541,7 +1890,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			tmpDouble = mi64bit.read64bit(mmu.read32bit(addr) & ~7);
+			tmpDouble = load64bit(translate(addr) & ~7);
 			GPR[(instr >> RT) & 0x1F] = (GPR[(instr >> RT) & 0x1F] & LDL_MASK[addr & 7])
 					+ (tmpDouble << LDL_SHIFT[addr & 7]);
 		}
@@ -1552,7 +1901,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			tmpDouble = mi64bit.read64bit(mmu.read32bit(addr) & ~7);
+			tmpDouble = load64bit(translate(addr) & ~7);
 			GPR[(instr >> RT) & 0x1F] = (GPR[(instr >> RT) & 0x1F] & LDR_MASK[addr & 7])
 					+ (tmpDouble >> LDR_SHIFT[addr & 7]);
 		}
@@ -1566,7 +1915,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 			return;
 			}
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			GPR[(instr >> RT) & 0x1F] = mi8bit.read8bit(mmu.read32bit(addr));
+			GPR[(instr >> RT) & 0x1F] = load8bit(translate(addr));
 		}
 	};
 
@@ -1581,7 +1930,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_RADE);
 				return;
 			}
-			GPR[(instr >> RT) & 0x1F] = mi16bit.read16bit(mmu.read32bit(addr));
+			GPR[(instr >> RT) & 0x1F] = load16bit(translate(addr));
 		}
 	};
 
@@ -1590,7 +1939,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			tmpWord = mi32bit.read32bit(mmu.read32bit(addr) & ~3);
+			tmpWord = load32bit(translate(addr) & ~3);
 			GPR[(instr >> RT) & 0x1F] = ((int) GPR[(instr >> RT) & 0x1F] & LWL_MASK[addr & 3])
 					+ (tmpWord << LWL_SHIFT[addr & 3]);
 		}
@@ -1610,7 +1959,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_RADE);
 				return;
 			}
-			GPR[(instr >> RT) & 0x1F] = mi32bit.read32bit(mmu.read32bit(addr));
+			GPR[(instr >> RT) & 0x1F] = load32bit(translate(addr));
 		}
 	};
 
@@ -1619,7 +1968,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			GPR[(instr >> RT) & 0x1F] = mi8bit.read8bit(mmu.read32bit(addr)) & 0xFFL;
+			GPR[(instr >> RT) & 0x1F] = load8bit(translate(addr)) & 0xFFL;
 		}
 	};
 
@@ -1634,7 +1983,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_RADE);
 				return;
 			}
-			GPR[(instr >> RT) & 0x1F] = mi16bit.read16bit(mmu.read32bit(addr)) & 0xFFFFL;
+			GPR[(instr >> RT) & 0x1F] = load16bit(translate(addr)) & 0xFFFFL;
 		}
 	};
 
@@ -1643,7 +1992,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			tmpWord = mi32bit.read32bit(mmu.read32bit(addr) & ~3);
+			tmpWord = load32bit(translate(addr) & ~3);
 			GPR[(instr >> RT) & 0x1F] = ((int) GPR[(instr >> RT) & 0x1F] & LWR_MASK[addr & 3])
 					+ (tmpWord >> LWR_SHIFT[addr & 3]);
 		}
@@ -1663,7 +2012,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_RADE);
 				return;
 			}
-			GPR[(instr >> RT) & 0x1F] = mi32bit.read32bit(mmu.read32bit(addr)) & 0xFFFFFFFFL;
+			GPR[(instr >> RT) & 0x1F] = load32bit(translate(addr)) & 0xFFFFFFFFL;
 		}
 	};
 
@@ -1672,19 +2021,10 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			if (cacheInstructions)
-			{
-				int pAddr = mmu.read32bit(addr);
-				if (pAddr < 0x400000)
-					cachedOpcodes[pAddr >>> 2].cached = false;
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-				mi8bit.write8bit(pAddr, (byte) GPR[(instr >> RT) & 0x1F]);
-			}
-			else
-			{
-				mi8bit.write8bit(mmu.read32bit(addr), (byte) GPR[(instr >> RT) & 0x1F]);
-			}
+			int pAddr = translate(addr);
+			if (cacheInstructions || compileBlocks)
+				invalidateCache(pAddr);
+			store8bit(pAddr, (byte) GPR[(instr >> RT) & 0x1F]);
 		}
 	};
 
@@ -1699,19 +2039,10 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_WADE);
 				return;
 			}
-			if (cacheInstructions)
-			{
-				int pAddr = mmu.read32bit(addr);
-				if (pAddr < 0x400000)
-					cachedOpcodes[pAddr >>> 2].cached = false;
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-				mi16bit.write16bit(pAddr, (short) GPR[(instr >> RT) & 0x1F]);
-			}
-			else
-			{
-				mi16bit.write16bit(mmu.read32bit(addr), (short) GPR[(instr >> RT) & 0x1F]);
-			}
+			int pAddr = translate(addr);
+			if (cacheInstructions || compileBlocks)
+				invalidateCache(pAddr);
+			store16bit(pAddr, (short) GPR[(instr >> RT) & 0x1F]);
 		}
 	};
 
@@ -1720,21 +2051,12 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			tmpWord = (mi32bit.read32bit(mmu.read32bit(addr) & ~3) & SWL_MASK[addr & 3])
+			tmpWord = (load32bit(translate(addr) & ~3) & SWL_MASK[addr & 3])
 					+ ((int) GPR[(instr >> RT) & 0x1F] >>> SWL_SHIFT[addr & 3]);
-			if (cacheInstructions)
-			{
-				int pAddr = mmu.read32bit(addr) & ~3;
-				if (pAddr < 0x400000)
-					cachedOpcodes[pAddr >>> 2].cached = false;
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-				mi32bit.write32bit(pAddr, tmpWord);
-			}
-			else
-			{
-				mi32bit.write32bit(mmu.read32bit(addr) & ~3, tmpWord);
-			}
+			int pAddr = translate(addr) & ~3;
+			if (cacheInstructions || compileBlocks)
+				invalidateCache(pAddr);
+			store32bit(pAddr, tmpWord);
 		}
 	};
 
@@ -1749,19 +2071,10 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_WADE);
 				return;
 			}
-			if (cacheInstructions)
-			{
-				int pAddr = mmu.read32bit(addr);
-				if (pAddr < 0x400000)
-					cachedOpcodes[pAddr >>> 2].cached = false;
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-				mi32bit.write32bit(pAddr, (int) GPR[(instr >> RT) & 0x1F]);
-			}
-			else
-			{
-				mi32bit.write32bit(mmu.read32bit(addr), (int) GPR[(instr >> RT) & 0x1F]);
-			}
+			int pAddr = translate(addr);
+			if (cacheInstructions || compileBlocks)
+				invalidateCache(pAddr);
+			store32bit(pAddr, (int) GPR[(instr >> RT) & 0x1F]);
 		}
 	};
 
@@ -1770,27 +2083,15 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			tmpDouble = (mi64bit.read64bit(mmu.read32bit(addr) & ~7) & SDL_MASK[addr & 7])
+			tmpDouble = (load64bit(translate(addr) & ~7) & SDL_MASK[addr & 7])
 					+ (GPR[(instr >> RT) & 0x1F] >> SDL_SHIFT[addr & 7]);
-			if (cacheInstructions)
+			int pAddr = translate(addr) & ~7;
+			if (cacheInstructions || compileBlocks)
 			{
-				int pAddr = mmu.read32bit(addr) & ~7;
-				if (pAddr < 0x400000)
-				{
-					cachedOpcodes[pAddr >>> 2].cached = false;
-					cachedOpcodes[(pAddr + 4) >>> 2].cached = false;
-				}
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-				{
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-					cachedOpcodes[((pAddr + 4) - 0x3C00000) >>> 2].cached = false;
-				}
-				mi64bit.write64bit(pAddr, tmpDouble);
-			}
-			else
-			{
-				mi64bit.write64bit(mmu.read32bit(addr) & ~7, tmpDouble);
+				invalidateCache(pAddr);
+				invalidateCache(pAddr + 4);
 			}
+			store64bit(pAddr, tmpDouble);
 		}
 	};
 
@@ -1799,27 +2100,15 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			tmpDouble = (mi64bit.read64bit(mmu.read32bit(addr) & ~7) & SDR_MASK[addr & 7])
+			tmpDouble = (load64bit(translate(addr) & ~7) & SDR_MASK[addr & 7])
 					+ (GPR[(instr >> RT) & 0x1F] << SDR_SHIFT[addr & 7]);
-			if (cacheInstructions)
-			{
-				int pAddr = mmu.read32bit(addr) & ~7;
-				if (pAddr < 0x400000)
-				{
-					cachedOpcodes[pAddr >>> 2].cached = false;
-					cachedOpcodes[(pAddr + 4) >>> 2].cached = false;
-				}
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-				{
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-					cachedOpcodes[((pAddr + 4) - 0x3C00000) >>> 2].cached = false;
-				}
-				mi64bit.write64bit(pAddr, tmpDouble);
-			}
-			else
+			int pAddr = translate(addr) & ~7;
+			if (cacheInstructions || compileBlocks)
 			{
-				mi64bit.write64bit(mmu.read32bit(addr) & ~7, tmpDouble);
+				invalidateCache(pAddr);
+				invalidateCache(pAddr + 4);
 			}
+			store64bit(pAddr, tmpDouble);
 		}
 	};
 
@@ -1828,21 +2117,12 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 		public void exec(int instr, int unused)
 		{
 			int addr = (int) GPR[(instr >> RS) & 0x1F] + (short) instr;
-			tmpWord = (mi32bit.read32bit(mmu.read32bit(addr) & ~3) & SWR_MASK[addr & 3])
+			tmpWord = (load32bit(translate(addr) & ~3) & SWR_MASK[addr & 3])
 					+ ((int) GPR[(instr >> RT) & 0x1F] << SWR_SHIFT[addr & 3]);
-			if (cacheInstructions)
-			{
-				int pAddr = mmu.read32bit(addr) & ~3;
-				if (pAddr < 0x400000)
-					cachedOpcodes[pAddr >>> 2].cached = false;
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-				mi32bit.write32bit(pAddr, tmpWord);
-			}
-			else
-			{
-				mi32bit.write32bit(mmu.read32bit(addr) & ~3, tmpWord);
-			}
+			int pAddr = translate(addr) & ~3;
+			if (cacheInstructions || compileBlocks)
+				invalidateCache(pAddr);
+			store32bit(pAddr, tmpWord);
 		}
 	};
 
@@ -1867,10 +2147,10 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_RADE);
 				return;
 			}
-			GPR[(instr >> RT) & 0x1F] = mi32bit.read32bit(mmu.read32bit(addr));
+			GPR[(instr >> RT) & 0x1F] = load32bit(translate(addr));
 			llBit = 1;
 			llAddr = addr;
-			llAddr = mmu.read32bit(addr);
+			llAddr = translate(addr);
 		}
 	};
 
@@ -1890,7 +2170,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_RADE);
 				return;
 			}
-			cop1.write32bit((instr >> RT) & 0x1F, mi32bit.read32bit(mmu.read32bit(addr)));
+			cop1.write32bit((instr >> RT) & 0x1F, load32bit(translate(addr)));
 		}
 	};
 
@@ -1907,19 +2187,10 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 			}
 			if (llBit == 1)
 			{
-				if (cacheInstructions)
-				{
-					int pAddr = mmu.read32bit(addr);
-					if (pAddr < 0x400000)
-						cachedOpcodes[pAddr >>> 2].cached = false;
-					else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-						cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-					mi32bit.write32bit(pAddr, (int) GPR[(instr >> RT) & 0x1F]);
-				}
-				else
-				{
-					mi32bit.write32bit(mmu.read32bit(addr), (int) GPR[(instr >> RT) & 0x1F]);
-				}
+				int pAddr = translate(addr);
+				if (cacheInstructions || compileBlocks)
+					invalidateCache(pAddr);
+				store32bit(pAddr, (int) GPR[(instr >> RT) & 0x1F]);
 			}
 			GPR[(instr >> RT) & 0x1F] = (llBit & 0x00000000FFFFFFFFL) | (GPR[(instr >> RT) & 0x1F] & 0xFFFFFFFF00000000L);
 		}
@@ -1936,7 +2207,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_RADE);
 				return;
 			}
-			GPR[(instr >> RT) & 0x1F] = mi64bit.read64bit(mmu.read32bit(addr));
+			GPR[(instr >> RT) & 0x1F] = load64bit(translate(addr));
 		}
 	};
 
@@ -1956,7 +2227,7 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_RADE);
 				return;
 			}
-			((Bus64bit) cop1).write64bit((instr >> RT) & 0x1F, mi64bit.read64bit(mmu.read32bit(addr)));
+			((Bus64bit) cop1).write64bit((instr >> RT) & 0x1F, load64bit(translate(addr)));
 		}
 	};
 
@@ -1976,19 +2247,10 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_WADE);
 				return;
 			}
-			if (cacheInstructions)
-			{
-				int pAddr = mmu.read32bit(addr);
-				if (pAddr < 0x400000)
-					cachedOpcodes[pAddr >>> 2].cached = false;
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-				mi32bit.write32bit(pAddr, cop1.read32bit((instr >> RT) & 0x1F));
-			}
-			else
-			{
-				mi32bit.write32bit(mmu.read32bit(addr), cop1.read32bit((instr >> RT) & 0x1F));
-			}
+			int pAddr = translate(addr);
+			if (cacheInstructions || compileBlocks)
+				invalidateCache(pAddr);
+			store32bit(pAddr, cop1.read32bit((instr >> RT) & 0x1F));
 		}
 	};
 
@@ -2008,25 +2270,13 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_WADE);
 				return;
 			}
-			if (cacheInstructions)
+			int pAddr = translate(addr);
+			if (cacheInstructions || compileBlocks)
 			{
-				int pAddr = mmu.read32bit(addr);
-				if (pAddr < 0x400000)
-				{
-					cachedOpcodes[pAddr >>> 2].cached = false;
-					cachedOpcodes[(pAddr + 4) >>> 2].cached = false;
-				}
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-				{
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-					cachedOpcodes[((pAddr + 4) - 0x3C00000) >>> 2].cached = false;
-				}
-				mi64bit.write64bit(pAddr, ((Bus64bit) cop1).read64bit((instr >> RT) & 0x1F));
-			}
-			else
-			{
-				mi64bit.write64bit(mmu.read32bit(addr), ((Bus64bit) cop1).read64bit((instr >> RT) & 0x1F));
+				invalidateCache(pAddr);
+				invalidateCache(pAddr + 4);
 			}
+			store64bit(pAddr, ((Bus64bit) cop1).read64bit((instr >> RT) & 0x1F));
 		}
 	};
 
@@ -2041,25 +2291,13 @@ public class Cpu implements Hardware, Clockable, Bus8bit, Bus16bit, Bus32bit, Bu
 				cop0.write32bit(COP0_EXC_REG, EXC_WADE);
 				return;
 			}
-			if (cacheInstructions)
-			{
-				int pAddr = mmu.read32bit(addr);
-				if (pAddr < 0x400000)
-				{
-					cachedOpcodes[pAddr >>> 2].cached = false;
-					cachedOpcodes[(pAddr + 4) >>> 2].cached = false;
-				}
-				else if (((pAddr - 0x3C00000) >>> 2) < cachedOpcodes.length)
-				{
-					cachedOpcodes[(pAddr - 0x3C00000) >>> 2].cached = false;
-					cachedOpcodes[((pAddr + 4) - 0x3C00000) >>> 2].cached = false;
-				}
-				mi64bit.write64bit(pAddr, GPR[(instr >> RT) & 0x1F]);
-			}
-			else
+			int pAddr = translate(addr);
+			if (cacheInstructions || compileBlocks)
 			{
-				mi64bit.write64bit(mmu.read32bit(addr), GPR[(instr >> RT) & 0x1F]);
+				invalidateCache(pAddr);
+				invalidateCache(pAddr + 4);
 			}
+			store64bit(pAddr, GPR[(instr >> RT) & 0x1F]);
 		}
 	};
 
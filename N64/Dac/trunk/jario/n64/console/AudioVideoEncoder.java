@@ -26,7 +26,9 @@ import jario.hardware.Hardware;
 import java.awt.Component;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -39,8 +41,12 @@ public class AudioVideoEncoder implements Hardware, Bus32bit, Configurable
 	private static final int AUDIO_BIT_LEN_REG = 2;
 	private static final int AUDIO_CHANNELS_REG = 3;
 	private static final int AUDIO_BUF_POS_REG = 4;
+	private static final int AUDIO_QUEUED_REG = 5;
+	private static final int AUDIO_TARGET_REG = 6;
 
-	private ExecutorService audioThreadExecutor;
+	private static final int FRAME_BUFFERS = 3; // frames in flight, more are dropped
+
+	private ByteBuffer audioBuffer = ByteBuffer.allocate(0);
 	private int audioSampleRate;
 	private int audioBitLength;
 	private int audioChannels;
@@ -48,7 +54,10 @@ public class AudioVideoEncoder implements Hardware, Bus32bit, Configurable
 	private ExecutorService videoThreadExecutor;
 	private Component drawSurface;
 	private Graphics2D graphics;
-	private BufferedImage bufferedImage;
+	private ArrayBlockingQueue<VideoFrame> freeFrames;
+	private int frameWidth;
+	private int framePixelSize = 2;
+	private int droppedFrames;
 	private int[] convet16to32 = new int[65536];
 
 	private int audioDmaOffset;
@@ -58,60 +67,61 @@ public class AudioVideoEncoder implements Hardware, Bus32bit, Configurable
 	private Bus32bit audio;
 	private Hardware rdram;
 
-	public class AudioProcessThread implements Runnable
+	/**
+	 * A framebuffer copied out of rdram, converted into the int pixels
+	 * backing its image and drawn on the video thread, then handed back to
+	 * the pool it came from.
+	 */
+	public class VideoFrame implements Runnable
 	{
 		ByteBuffer buff;
-
-		public AudioProcessThread(BusDMA source, int offset, int length)
-		{
-			buff = ByteBuffer.allocate(length);
-			source.readDMA(offset, buff, 0, length);
-		}
-
-		public void run()
-		{
-			((BusDMA) audio).writeDMA(0, buff, 0, buff.array().length);
-		}
-	};
-
-	public class VideoProcessThread implements Runnable
-	{
 		byte[] buffer;
-		ByteBuffer buff;
+		BufferedImage image;
+		int[] pixels;
+		int pixelSize;
+		ArrayBlockingQueue<VideoFrame> pool;
 
-		public VideoProcessThread(BusDMA source, int offset, int length)
+		public VideoFrame(int width, int height, int pixelSize, ArrayBlockingQueue<VideoFrame> pool)
 		{
-			buff = ByteBuffer.allocate(length);
+			this.pixelSize = pixelSize;
+			this.pool = pool;
+			buff = ByteBuffer.allocate(width * height * pixelSize);
 			buffer = buff.array();
-			source.readDMA(offset, buff, 0, length);
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
 		}
 
 		public void run()
 		{
-			if (bufferedImage == null || graphics == null)
-				return;
-
-			int w = (int) Math.sqrt((buffer.length << 1) / 3);
-			int h = ((w >> 2) * 3);
-			int offset = 0;
-
-			for (int y = 0; y < h; y++)
+			try
 			{
-				for (int x = 0; x < w; x += 2)
+				if (graphics == null)
+					return;
+
+				if (pixelSize == 4)
 				{
-					bufferedImage.setRGB(x + 1, y, convet16to32[((buffer[offset] & 0xFF) << 8) | ((buffer[offset + 1] & 0xFF))]);
-					bufferedImage.setRGB(x, y, convet16to32[((buffer[offset + 2] & 0xFF) << 8) | ((buffer[offset + 3] & 0xFF))]);
-					offset += 4;
+					// RGBA8888
+					for (int i = 0, offset = 0; i < pixels.length; i++, offset += 4)
+						pixels[i] = ((buffer[offset] & 0xFF) << 16) | ((buffer[offset + 1] & 0xFF) << 8) | (buffer[offset + 2] & 0xFF);
+				}
+				else
+				{
+					// RGBA5551
+					for (int i = 0, offset = 0; i < pixels.length; i++, offset += 2)
+						pixels[i] = convet16to32[((buffer[offset] & 0xFF) << 8) | (buffer[offset + 1] & 0xFF)];
 				}
-			}
 
-			graphics.drawImage(bufferedImage, 0, 0, null);
+				graphics.drawImage(image, 0, 0, null);
+			}
+			finally
+			{
+				pool.offer(this);
+			}
 		}
 	};
 
 	public AudioVideoEncoder()
 	{
-		audioThreadExecutor = Executors.newSingleThreadExecutor();
 		videoThreadExecutor = Executors.newSingleThreadExecutor();
 
 		int red, green, blue, alpha;
@@ -143,8 +153,6 @@ public class AudioVideoEncoder implements Hardware, Bus32bit, Configurable
 			}
 			break;
 		case 1: // audio
-			if (bus == null)
-				audioThreadExecutor.shutdownNow();
 			audio = (Bus32bit) bus;
 			if (audio != null)
 			{
@@ -179,6 +187,12 @@ public class AudioVideoEncoder implements Hardware, Bus32bit, Configurable
 		{
 		case 0: // play position
 			return audio != null ? audio.read32bit(AUDIO_BUF_POS_REG) : -1;
+		case 1: // bytes queued and not yet played
+			return audio != null ? audio.read32bit(AUDIO_QUEUED_REG) : -1;
+		case 2: // microseconds queued and not yet played
+			return micros(audio != null ? audio.read32bit(AUDIO_QUEUED_REG) : -1);
+		case 3: // microseconds the player holds the queue at, 0 if it does not
+			return micros(audio != null ? audio.read32bit(AUDIO_TARGET_REG) : 0);
 		default:
 			return 0;
 		}
@@ -210,7 +224,10 @@ public class AudioVideoEncoder implements Hardware, Bus32bit, Configurable
 			break;
 		case 4: // viWidth
 			if (value != 0)
-				bufferedImage = new BufferedImage(value, (value >> 2) * 3, BufferedImage.TYPE_INT_RGB);
+			{
+				frameWidth = value;
+				createFrames();
+			}
 			break;
 		case 5: // fps
 			if (video != null)
@@ -222,14 +239,35 @@ public class AudioVideoEncoder implements Hardware, Bus32bit, Configurable
 		case 7: // audio dma
 			if (audio != null)
 			{
-				audioThreadExecutor.execute(new AudioProcessThread((BusDMA) rdram, audioDmaOffset, value));
+				// the player queues the samples without waiting, so the buffer is reused
+				if (audioBuffer.capacity() < value)
+					audioBuffer = ByteBuffer.allocate(value);
+				((BusDMA) rdram).readDMA(audioDmaOffset, audioBuffer, 0, value);
+				((BusDMA) audio).writeDMA(0, audioBuffer, 0, value);
 			}
 			break;
 		case 8:
 			videoDmaOffset = value;
 			break;
 		case 9: // video dma
-			videoThreadExecutor.execute(new VideoProcessThread((BusDMA) rdram, videoDmaOffset, value));
+			if (freeFrames == null)
+				break;
+			VideoFrame frame = freeFrames.poll();
+			if (frame == null)
+			{
+				// the display has fallen behind
+				droppedFrames++;
+				break;
+			}
+			((BusDMA) rdram).readDMA(videoDmaOffset, frame.buff, 0, StrictMath.min(value, frame.buffer.length));
+			videoThreadExecutor.execute(frame);
+			break;
+		case 10: // video pixel size in bytes
+			if (value != framePixelSize)
+			{
+				framePixelSize = value;
+				createFrames();
+			}
 			break;
 		}
 	}
@@ -237,6 +275,7 @@ public class AudioVideoEncoder implements Hardware, Bus32bit, Configurable
 	@Override
 	public Object readConfig(String key)
 	{
+		if (key.equals("droppedframes")) return droppedFrames;
 		return null;
 	}
 
@@ -245,4 +284,25 @@ public class AudioVideoEncoder implements Hardware, Bus32bit, Configurable
 	{
 		if (key.equals("screen")) drawSurface = (Component) value;
 	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	private int micros(int bytes)
+	{
+		int bytesPerSecond = audioSampleRate * (audioBitLength >> 3) * audioChannels;
+		if (bytes < 0 || bytesPerSecond <= 0)
+			return -1;
+		return (int) ((bytes * 1000000L) / bytesPerSecond);
+	}
+
+	// frames still in flight go back to the old pool and are dropped with it
+	private void createFrames()
+	{
+		if (frameWidth == 0)
+			return;
+		ArrayBlockingQueue<VideoFrame> frames = new ArrayBlockingQueue<VideoFrame>(FRAME_BUFFERS);
+		for (int i = 0; i < FRAME_BUFFERS; i++)
+			frames.offer(new VideoFrame(frameWidth, (frameWidth >> 2) * 3, framePixelSize, frames));
+		freeFrames = frames;
+	}
 }
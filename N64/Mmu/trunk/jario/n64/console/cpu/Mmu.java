@@ -22,9 +22,12 @@ package jario.n64.console.cpu;
 
 import jario.hardware.Bus1bit;
 import jario.hardware.Bus32bit;
+import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 
-public class Mmu implements Hardware, Bus1bit, Bus32bit
+import java.util.Arrays;
+
+public class Mmu implements Hardware, Bus1bit, Bus32bit, Configurable
 {
 	private static final boolean DEBUG_TLB = false;
 
@@ -151,8 +154,8 @@ public class Mmu implements Hardware, Bus1bit, Bus32bit
 
 	public Mmu()
 	{
-		tlbReadMap = new int[0xFFFFF]; // 1048575, 4,194,300b (4MB)
-		tlbWriteMap = new int[0xFFFFF]; // 1048575, 4,194,300b (4MB)
+		tlbReadMap = new int[0x100000]; // 1048576, 4,194,304b (4MB)
+		tlbWriteMap = new int[0x100000]; // 1048576, 4,194,304b (4MB)
 		for (int count = 0; count < 32; count++)
 		{
 			tlb[count] = new Tlb();
@@ -181,8 +184,6 @@ public class Mmu implements Hardware, Bus1bit, Bus32bit
 	{
 		fastTlb = new FastTlb[64];
 		tlb = new Tlb[32];
-		tlbReadMap = new int[0xFFFFF]; // 1048575, 4,194,300b (4MB)
-		tlbWriteMap = new int[0xFFFFF]; // 1048575, 4,194,300b (4MB)
 		for (int count = 0; count < 32; count++)
 		{
 			tlb[count] = new Tlb();
@@ -222,6 +223,18 @@ public class Mmu implements Hardware, Bus1bit, Bus32bit
 		return tlbReadMap[pAddr >>> 12] + pAddr;
 	}
 
+	@Override
+	public Object readConfig(String key)
+	{
+		if (key.equals("readmap")) return tlbReadMap;
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
+	}
+
 	@Override
 	public void write1bit(int pAddr, boolean value)
 	{
@@ -355,14 +368,8 @@ public class Mmu implements Hardware, Bus1bit, Bus32bit
 
 	private void setupTlb()
 	{
-		for (int i = 0; i < tlbReadMap.length; i++)
-		{
-			tlbReadMap[i] = 0;
-		}
-		for (int i = 0; i < tlbWriteMap.length; i++)
-		{
-			tlbWriteMap[i] = 0;
-		}
+		Arrays.fill(tlbReadMap, 0);
+		Arrays.fill(tlbWriteMap, 0);
 		for (long vAddr = 0x80000000L; vAddr < 0xC0000000L; vAddr += 0x1000L)
 		{
 			tlbReadMap[(int) (vAddr >> 12)] = (int) ((vAddr & 0x1FFFFFFFL) - vAddr);
@@ -26,6 +26,7 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Properties;
 
+import jario.hardware.Bus32bit;
 import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 
@@ -116,6 +117,10 @@ public class Rcp implements Hardware, Configurable
 			pi = (Hardware) Class.forName(prop.getProperty("PARALLEL_INTERFACE", "PARALLEL_INTERFACE"), true, loader).newInstance();
 			ri = (Hardware) Class.forName(prop.getProperty("RDRAM_INTERFACE", "RDRAM_INTERFACE"), true, loader).newInstance();
 			si = (Hardware) Class.forName(prop.getProperty("SERIAL_INTERFACE", "SERIAL_INTERFACE"), true, loader).newInstance();
+
+			// optional directory for the display processor to keep textures and combiners between sessions
+			if (prop.getProperty("DISPLAY_CACHE") != null && dp instanceof Configurable)
+				((Configurable) dp).writeConfig("cachedir", prop.getProperty("DISPLAY_CACHE"));
 		}
 		catch (Exception e)
 		{
@@ -188,6 +193,8 @@ public class Rcp implements Hardware, Configurable
 			}
 			pi.connect(PI_DATA_PORT, bus);
 			mi.connect(MI_CART_PORT, bus);
+			if (dp instanceof Configurable) // header crcs identify the rom
+				((Configurable) dp).writeConfig("romcrc", String.format("%08X%08X", ((Bus32bit) bus).read32bit(0xB000010), ((Bus32bit) bus).read32bit(0xB000014)));
 			vi.reset();
 			ai.reset();
 			break;
@@ -238,6 +245,8 @@ public class Rcp implements Hardware, Configurable
 	{
 		if (key.equals("framelimit")) return ((Configurable) vi).readConfig("framelimit");
 		else if (key.equals("framebuffer")) return ((Configurable) vi).readConfig("framebuffer");
+		else if (key.equals("frames")) return ((Configurable) vi).readConfig("frames");
+		else if (key.equals("speed") || key.equals("audiosync") || key.startsWith("frametime")) return ((Configurable) vi).readConfig(key);
 		else if (key.equals("MIPS")) return mi; // for performance and bios
 		else if (key.equals("TIMER")) return timing; // for performance (should be moved out of the rcp anyway)
 		return null;
@@ -248,5 +257,6 @@ public class Rcp implements Hardware, Configurable
 	{
 		if (key.equals("framelimit")) ((Configurable) vi).writeConfig("framelimit", value);
 		else if (key.equals("framebuffer")) ((Configurable) vi).writeConfig("framebuffer", value);
+		else if (key.equals("speed") || key.equals("audiosync")) ((Configurable) vi).writeConfig(key, value);
 	}
 }
@@ -43,28 +43,20 @@ public class AudioInterface implements Hardware, Bus32bit
 	// private static final int MI_INTR_MASK_AI = 0x04; /* Bit 2: AI intr mask */
 	// private static final int MI_INTR_AI = 0x04; /* Bit 2: AI intr */
 
-	private static final int SND_IS_NOT_EMPTY = 0x4000000;
-	private static final int SND_IS_FULL = 0x8000000;
-	private static final int SEGMENTS = 3;
-	// private static final int LOCK_SIZE = 0x1000; // LOCKSIZE must not be fractional
-	// private static final int MAXBUFFER = (LOCK_SIZE * SEGMENTS + LOCK_SIZE);
+	private static final int AI_STATUS_FULL = 0x80000000; /* Bit 31: both dma buffers queued */
+	private static final int AI_STATUS_BUSY = 0x40000000; /* Bit 30: a dma buffer is playing */
 
-	private static final int DAC_AUDIO_POS_REG = 0;
+	private static final int DAC_AUDIO_QUEUED_REG = 1;
 	private static final int DAC_SAMPLE_RATE_REG = 1;
 	private static final int DAC_BIT_LENGTH_REG = 2;
 	private static final int DAC_CHANNELS_REG = 3;
 	private static final int DAC_DMA_OFFSET_REG = 6;
 	private static final int DAC_DMA_REG = 7;
 
-	private int readLoc;
-	private int writeLoc;
 	private int SampleRate;
 	private int SegmentSize;
-	private int write_pos = 0, play_pos = 0;
-	private int last_write = -1;
-	// private int dwBytes1;
 	private int buffsize = 0;
-	private int laststatus = 0;
+	private int queuedBuffers = 0; // dma buffers in the fifo, at most two
 	private int dacrate = 0;
 
 	private int[] regAI = new int[6];
@@ -102,6 +94,7 @@ public class AudioInterface implements Hardware, Bus32bit
 	public void reset()
 	{
 		dacrate = 0;
+		queuedBuffers = 0;
 	}
 
 	@Override
@@ -118,6 +111,8 @@ public class AudioInterface implements Hardware, Bus32bit
 			updateStatus();
 			return regAI[AI_LEN_REG];
 		case 3:
+			if (buffsize != 0)
+				updateStatus();
 			return regAI[AI_STATUS_REG];
 		default:
 			return 0;
@@ -173,153 +168,40 @@ public class AudioInterface implements Hardware, Bus32bit
 
 	// Private Methods /////////////////////////////////////////////////////////
 
+	// The fifo is worked out from the bytes the dac has queued and not yet
+	// played. Whatever is past the last buffer belongs to the one playing,
+	// and the interrupt is raised when the second buffer starts to play.
 	private void updateStatus()
 	{
-		play_pos = dac.read32bit(DAC_AUDIO_POS_REG);
+		int queued = dac.read32bit(DAC_AUDIO_QUEUED_REG);
 
-		if (play_pos == -1)
-			return;
-
-		if (play_pos < buffsize)
-		{
-			write_pos = (buffsize * SEGMENTS) - buffsize;
-		}
-		else
-		{
-			write_pos = ((play_pos / buffsize) * buffsize) - buffsize;
-		}
-
-		int writediff = (write_pos - last_write);
-
-		if (writediff < 0)
-		{
-			writediff += SEGMENTS * buffsize;
-		}
-
-		int play_seg = play_pos / buffsize;
-		int write_seg = play_pos / buffsize;
-		int last_seg = last_write / buffsize;
-
-		if (last_seg == write_seg)
-		{ // The FIFO is still full and DMA is busy...
-			regAI[AI_STATUS_REG] |= 0xC0000000;
-			regAI[AI_LEN_REG] = buffsize - (play_pos - ((play_pos / buffsize) * buffsize));
-			if (play_pos > write_pos)
-			{
-				regAI[AI_LEN_REG] = buffsize - ((write_pos - play_pos) - buffsize);
-			}
-			else
-			{
-				regAI[AI_LEN_REG] = (buffsize - play_pos);
-			}
-			regAI[AI_LEN_REG] += buffsize;
-			laststatus = 0xC0000000;
-			return;
-		}
-		if (laststatus == 0xC0000000)
-		{ // Then we need to generate an interrupt now...
-			regAI[AI_LEN_REG] = buffsize;
-			regAI[AI_LEN_REG] = buffsize - (play_pos - ((play_pos / buffsize) * buffsize));
-			regAI[AI_STATUS_REG] = 0x40000000; // DMA is still busy...
-			if (((play_seg - last_seg) & 7) > 3)
-			{
-				mi.write32bit(MI_INTR_REG, MI_INTR_SET_AI);
-			}
-			laststatus = 0x40000000;
-			return;
-		}
-		if (laststatus == 0x40000000)
-		{
-			if (writediff > (int) (buffsize * 2))
-			{ // This means we are doing a buffer underrun... damnit!
-				regAI[AI_LEN_REG] = 0;
-				regAI[AI_STATUS_REG] = 0x00000000; // DMA is still busy...
-				if (((play_seg - last_seg) & 7) > 2)
-				{
-					mi.write32bit(MI_INTR_REG, MI_INTR_SET_AI);
-				}
-			}
-			return;
+		if (queued == -1)
+		{ // No output to play against, every buffer is played at once
+			queued = 0;
 		}
-	}
-
-	// Fills up a buffer and remixes the audio
-	private void fillBuffer(Hardware buff, int offset, int len)
-	{
-		int write_seg = 0;
-		int last_seg = 0;
-		buffsize = len; // Save it globally
 
-		play_pos = dac.read32bit(DAC_AUDIO_POS_REG);
-
-		if (play_pos < len)
+		int buffers = queued == 0 ? 0 : (queued > buffsize ? 2 : 1);
+		if (buffers == 0)
 		{
-			write_pos = (len * SEGMENTS) - len;
+			regAI[AI_LEN_REG] = 0;
+			regAI[AI_STATUS_REG] = 0;
 		}
 		else
 		{
-			write_pos = ((play_pos / len) * len) - len;
-		}
-
-		if (last_write == -1)
-		{
-			last_write = (write_pos - (2 * len)); // Back up 2 segments...
-			if (last_write < 0)
-			{
-				last_write += (SEGMENTS * len);
-			}
-		}
-
-		if (last_write == write_pos)
-		{ // Then we must freeze...
-
+			regAI[AI_LEN_REG] = ((queued - 1) % buffsize) + 1;
+			regAI[AI_STATUS_REG] = buffers == 2 ? AI_STATUS_FULL | AI_STATUS_BUSY : AI_STATUS_BUSY;
 		}
 
-		last_seg = (last_write / len);
-		write_seg = (write_pos / len);
-
-		if (last_seg == ((write_seg - 2) & 0x7))
-		{ // Means first buffer is clear to write to...
-			write_pos = (last_write + len);
-			if (write_pos >= len * SEGMENTS)
-			{
-				write_pos -= (len * SEGMENTS);
-			}
-			// Set DMA Busy
-			last_write += len;
-			if (last_write >= len * SEGMENTS)
-			{
-				last_write -= (len * SEGMENTS);
-			}
-			regAI[AI_STATUS_REG] |= 0x40000000;
-			laststatus = 0x40000000;
-		}
-		else if (last_seg == ((write_seg - 1) & 0x7))
+		if (buffers == 1 && queuedBuffers == 2)
 		{
-			// Set DMA Busy
-			// Set FIFO Buffer Full
-			last_write = write_pos; // Lets get it back up to speed for audio accuracy...
-			regAI[AI_STATUS_REG] |= 0xC0000000;
-			laststatus = 0xC0000000;
-		}
-		else
-		{ // We get here if our audio stream from the game is running TOO slow...
-			last_write = write_pos; // Lets get it back up to speed for audio accuracy...
-			regAI[AI_STATUS_REG] |= 0x00000000;
-			laststatus = 0x00000000;
+			mi.write32bit(MI_INTR_REG, MI_INTR_SET_AI);
 		}
-
-		// dwBytes1 = len;
-
-		dac.write32bit(DAC_DMA_OFFSET_REG, offset);
-		dac.write32bit(DAC_DMA_REG, len);
+		queuedBuffers = buffers;
 	}
 
-	private int addBuffer(Hardware start, int offset, int length)
+	private void addBuffer(Hardware start, int offset, int length)
 	{
-		int retVal = 0;
-
-		if (length == 0) { return 0; }
+		if (length == 0) { return; }
 		if (length == 0x8C0)
 		{ // TODO: This proves I need more buffering!!!
 			length = 0x840;
@@ -339,24 +221,16 @@ public class AudioInterface implements Hardware, Bus32bit
 			}
 		}
 
-		if (readLoc == writeLoc)
-		{ // Reset our pointer if we can...
-			writeLoc = readLoc = 0;
-		}
-
-		if (readLoc != writeLoc)
-		{ // Then we have stuff in the buffer already... This is a double buffer
-			retVal |= SND_IS_FULL;
-		}
-
-		retVal |= SND_IS_NOT_EMPTY; // Buffer is not empty...
+		boolean wasEmpty = queuedBuffers == 0;
 
-		writeLoc += length;
-
-		fillBuffer(start, offset, length);
-		readLoc = writeLoc = 0;
+		buffsize = length; // Save it globally
+		dac.write32bit(DAC_DMA_OFFSET_REG, offset);
+		dac.write32bit(DAC_DMA_REG, length);
 		updateStatus();
 
-		return retVal;
+		if (wasEmpty)
+		{ // The buffer starts playing straight away
+			mi.write32bit(MI_INTR_REG, MI_INTR_SET_AI);
+		}
 	}
 }
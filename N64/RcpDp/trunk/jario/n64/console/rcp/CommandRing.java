@@ -0,0 +1,105 @@
+/**
+ * Copyright 2005, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.console.rcp;
+
+/**
+ * Lock-free single producer, single consumer ring of int words. The
+ * producer writes a record and publishes it by advancing the tail, the
+ * consumer reads whole records and releases them by advancing the head.
+ */
+public class CommandRing
+{
+	private final int[] buffer;
+	private final int mask;
+
+	private volatile long head; // first word not yet released by the consumer
+	private volatile long tail; // first word not yet published by the producer
+
+	// producer side
+	private long writePosition;
+	private long cachedHead;
+
+	// consumer side
+	private long readPosition;
+	private long cachedTail;
+
+	public CommandRing(int sizeLog2)
+	{
+		buffer = new int[1 << sizeLog2];
+		mask = buffer.length - 1;
+	}
+
+	/**
+	 * Waits until there is room for the given number of words.
+	 */
+	public void reserve(int words)
+	{
+		while (writePosition + words - cachedHead > buffer.length)
+		{
+			cachedHead = head;
+			if (writePosition + words - cachedHead > buffer.length)
+				Thread.yield();
+		}
+	}
+
+	public void put(int value)
+	{
+		buffer[(int) (writePosition++) & mask] = value;
+	}
+
+	public void publish()
+	{
+		tail = writePosition;
+	}
+
+	/**
+	 * True once the consumer has released everything that was published.
+	 */
+	public boolean isDrained()
+	{
+		return head == tail;
+	}
+
+	public boolean poll()
+	{
+		if (readPosition == cachedTail)
+			cachedTail = tail;
+		return readPosition != cachedTail;
+	}
+
+	public int take()
+	{
+		return buffer[(int) (readPosition++) & mask];
+	}
+
+	public long position()
+	{
+		return readPosition;
+	}
+
+	public void skipTo(long position)
+	{
+		readPosition = position;
+	}
+
+	public void release()
+	{
+		head = readPosition;
+	}
+}
@@ -28,16 +28,19 @@ import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 import jario.n64.console.rcp.combiners.Combiners;
 import jario.n64.console.rcp.textures.TextureCache;
+import java.awt.GraphicsEnvironment;
+import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GLContext;
 import javax.media.opengl.GLDrawable;
 import com.jogamp.common.nio.Buffers;
 import javax.media.opengl.awt.GLCanvas;
 
-public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
+public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA, Configurable
 {
 	private static final boolean debug = false;
 	private static final boolean wireframe = false;
@@ -45,6 +48,26 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 	private static final int SIZEOF_FLOAT = 4;
 	private static final int SIZEOF_GLVERTEX = 17 * SIZEOF_FLOAT;
 
+	// hle vertex batch filled by the ucodes, stored as a structure of arrays:
+	// attribute a of vertex i is hleVertices[a * HLE_VERTICES + i]
+	private static final int HLE_VERTICES = 256;
+	private static final int HLE_X = 0; // x, y, z, w
+	private static final int HLE_R = 4; // r, g, b, a
+	private static final int HLE_S = 8; // s, t
+	private static final int HLE_CLIP = 10; // clip x, y, z
+	private static final int HLE_ATTRIBUTES = 13;
+
+	// records sent from the emulation thread to the render thread, the header
+	// word holds the type in the top byte and the number of following words
+	private static final int RECORD_REGISTER = 0; // reg, value
+	private static final int RECORD_COMMAND = 1; // rdp command words
+	private static final int RECORD_TRIANGLES = 2; // count, vertex count, vertex planes, indices
+	private static final int RECORD_LINE = 3; // width, vertex count, vertex planes, index 0, index 1
+	private static final int RECORD_FLUSH = 4;
+	private static final int RECORD_SWAP = 5;
+	private static final int RECORD_CLOCK = 6;
+	private static final int RECORD_RESET = 7;
+
 	// private static final int VI_STATUS_REG = 0;
 	// private static final int VI_ORIGIN_REG = 1;
 	// private static final int VI_WIDTH_REG = 2;
@@ -476,9 +499,20 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 	private int depthImageAddress;
 	private FillColor fillColor = new FillColor();
 	private Combiners combiners = new Combiners();
+	private String cacheDir; // persistent texture and combiner cache, off when null
+	private String romCrc;
 	private ByteBuffer tmem = ByteBuffer.allocate(8 * 512);
 	private OpCode[] rdp_command_table;
 	private byte[] rdp_cmd_data;
+	private float[] hleVertices = new float[HLE_ATTRIBUTES * HLE_VERTICES];
+	private int[] hleIndices = new int[HLE_VERTICES * 3];
+	private float[] renderVertices = new float[HLE_ATTRIBUTES * HLE_VERTICES];
+	private int[] renderIndices = new int[HLE_VERTICES * 3];
+	private byte[] commandData = new byte[256];
+	private Vertex[] hleTriangle = { new Vertex(), new Vertex(), new Vertex() };
+	private Vertex[] nearVertices = { new Vertex(), new Vertex(), new Vertex(), new Vertex() };
+	private Vertex[] clippedVertices = { new Vertex(), new Vertex(), new Vertex(), new Vertex() };
+	private float[] lineColor = new float[4];
 	private int numTriangles;
 	private GLVertex[] vertices = new GLVertex[256];
 	private FloatBuffer bigArray;
@@ -500,6 +534,11 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 
 	private int[] regDPC = new int[10];
 
+	// producer side, othermode is mirrored so the ucodes can read it back without waiting
+	private CommandRing ring = new CommandRing(20);
+	private OtherMode recordedOtherMode = new OtherMode();
+	private Thread renderThread;
+
 	private Bus16bit rdram;
 	private Bus32bit mi;
 	private Bus32bit vi;
@@ -556,10 +595,18 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 		width = windowedWidth;
 		height = windowedHeight;
 
-		canvas = new GLCanvas();
-		canvas.setSize(640, 480);
+		// headless runs have no display, the dp then only parses commands
+		if (!GraphicsEnvironment.isHeadless())
+		{
+			canvas = new GLCanvas();
+			canvas.setSize(640, 480);
+		}
 
 		buildOps();
+
+		renderThread = new Thread(new CommandReplay(), "rdp");
+		renderThread.setDaemon(true);
+		renderThread.start();
 	}
 
 	@Override
@@ -579,6 +626,7 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 			{
 				((Configurable) vi).writeConfig("screen", canvas);
 				resetDp();
+				resetOtherMode(recordedOtherMode);
 			}
 			break;
 		case 3:
@@ -591,6 +639,22 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 
 	@Override
 	public void reset()
+	{
+		record(RECORD_RESET, 0);
+		ring.publish();
+	}
+
+	@Override
+	public void clock(long ticks)
+	{
+		// end of display list, the render thread finishes it while the cpu runs on
+		record(RECORD_CLOCK, 0);
+		ring.publish();
+		resetOtherMode(recordedOtherMode);
+		LockSupport.unpark(renderThread);
+	}
+
+	private void replayReset()
 	{
 		cache.construct();
 		current = null;
@@ -599,13 +663,13 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 		cache.config(32 * 1048576, 1);
 	}
 
-	@Override
-	public void clock(long ticks)
+	private void replayClock()
 	{
 		// DList++;
 		colorbufferChanged = true;
 		resetDp();
-		context.release();
+		if (render)
+			context.release();
 	}
 
 	@Override
@@ -614,29 +678,31 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 		switch ((reg - 0x04100000) >> 2)
 		{
 		case 3:
+			sync();
 			return regDPC[DPC_STATUS_REG];
 		case 4:
+			sync();
 			return regDPC[DPC_CLOCK_REG];
 		case 5:
+			sync();
 			return regDPC[DPC_BUFBUSY_REG];
 		case 6:
+			sync();
 			return regDPC[DPC_PIPEBUSY_REG];
 		case 7:
+			sync();
 			return regDPC[DPC_TMEM_REG];
 		case 8:
-			return otherMode.w1; // Lo
+			return recordedOtherMode.w1; // Lo
 		case 9:
-			return otherMode.w0; // Hi
+			return recordedOtherMode.w0; // Hi
 		case 11:
-			glDrawTriangles();
+			record(RECORD_FLUSH, 0);
+			ring.publish();
 			return 0;
 		case 13: // swap buffers
-			if (colorbufferChanged)
-			{
-				hDC.swapBuffers();
-				colorbufferChanged = false;
-				return 1;
-			}
+			record(RECORD_SWAP, 0);
+			ring.publish();
 			return 0;
 		default:
 			return 0;
@@ -681,6 +747,39 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 				regDPC[DPC_STATUS_REG] |= DPC_STATUS_FLUSH;
 			}
 			break;
+		case 8:
+			recordedOtherMode.w1 = value;
+			recordRegister(8, value);
+			break;
+		case 9:
+			recordedOtherMode.w0 = value;
+			recordRegister(9, value);
+			break;
+		case 10: // viewport, read now as rdram may change before the render thread gets to it
+			recordRegister(10, (rdram.read16bit(value + 14) << 16) | (rdram.read16bit(value + 6) & 0xFFFF));
+			break;
+		case 11: // init gl, keeps the render thread at most one display list behind
+			sync();
+			recordRegister(11, value);
+			break;
+		case 12:
+		case 13:
+		case 14:
+			recordRegister((reg - 0x04100000) >> 2, value);
+			break;
+		case 15: // hle triangles, count of indexed triangles, NoN in bit 31
+			recordTriangles(value);
+			break;
+		case 16: // hle line between indices 0 and 1, width as float bits
+			recordLine(value);
+			break;
+		}
+	}
+
+	private void replayRegister(int reg, int value)
+	{
+		switch (reg)
+		{
 		case 8:
 			if (((value) & 0x3) != ((otherMode.w1) & 0x3))
 				changed |= CHANGED_ALPHACOMPARE;
@@ -692,14 +791,14 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 				changed |= CHANGED_CYCLETYPE;
 			otherMode.w0 = value;
 			break;
-		case 10: // viewport
-			vTrans = rdram.read16bit(value + 14) * FIXED2FLOATRECIP10;
-			vScale = rdram.read16bit(value + 6) * FIXED2FLOATRECIP10;
+		case 10: // viewport, z translate and scale
+			vTrans = (short) (value >> 16) * FIXED2FLOATRECIP10;
+			vScale = (short) value * FIXED2FLOATRECIP10;
 			nearZ = vTrans - vScale;
 			changed |= CHANGED_VIEWPORT;
 			break;
 		case 11: // init gl
-			if (canvas.isDisplayable())
+			if (canvas != null && canvas.isDisplayable())
 			{
 				if (!render)
 				{
@@ -716,7 +815,7 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 				context.makeCurrent();
 				gl = context.getGL().getGL2();
 			}
-			else
+			else if (render)
 			{
 				context.release();
 				context.destroy();
@@ -759,6 +858,53 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 			else
 				gl.glDisable(GL2.GL_DEPTH_TEST);
 			break;
+		case 15: // hle triangles, count of indexed triangles, NoN in bit 31
+			if (!render)
+				break;
+			drawHleTriangles(value & 0x7FFFFFFF, value < 0);
+			break;
+		case 16: // hle line between indices 0 and 1, width as float bits
+			if (!render)
+				break;
+			loadHleVertex(hleTriangle[0], renderIndices[0]);
+			loadHleVertex(hleTriangle[1], renderIndices[1]);
+			glDrawLine(hleTriangle[0], hleTriangle[1], Float.intBitsToFloat(value));
+			break;
+		}
+	}
+
+	@Override
+	public Object readConfig(String key)
+	{
+		if (key.equals("hlevertices")) return hleVertices;
+		else if (key.equals("hleindices")) return hleIndices;
+		if (key.startsWith("texture"))
+		{
+			sync();
+			return cache.readConfig(key);
+		}
+		else if (key.startsWith("combiner"))
+		{
+			sync();
+			return combiners.readConfig(key);
+		}
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
+		sync();
+		if (key.startsWith("texture")) cache.writeConfig(key, value);
+		else if (key.equals("cachedir"))
+		{
+			cacheDir = (String) value;
+			openStores();
+		}
+		else if (key.equals("romcrc"))
+		{
+			romCrc = (String) value;
+			openStores();
 		}
 	}
 
@@ -771,13 +917,205 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 	@Override
 	public void writeDMA(int pAddr, ByteBuffer cmdObj, int offset, int length)
 	{
-		if (!render)
+		byte[] cmd = cmdObj.array();
+		int words = (StrictMath.min(length, commandData.length) + 3) >> 2;
+		switch (cmd[0] & 0x3F)
+		{
+		case 0x2F: // othermode
+			recordedOtherMode.w0 = (((cmd[1] & 0xFF) << 16) | ((cmd[2] & 0xFF) << 8) | (cmd[3] & 0xFF));
+			recordedOtherMode.w1 = ((cmd[4] & 0xFF) << 24) | ((cmd[5] & 0xFF) << 16) | ((cmd[6] & 0xFF) << 8) | (cmd[7] & 0xFF);
+			break;
+		}
+
+		record(RECORD_COMMAND, words);
+		for (int i = 0; i < words << 2; i += 4)
+			ring.put(((cmd[i] & 0xFF) << 24) | ((cmd[i + 1] & 0xFF) << 16) | ((cmd[i + 2] & 0xFF) << 8) | (cmd[i + 3] & 0xFF));
+		ring.publish();
+
+		if ((cmd[0] & 0x3F) == 0x29)
+		{
+			// full sync, the game may reuse the rdram the replay reads from or
+			// read back the framebuffer as soon as it sees the interrupt
+			sync();
+			mi.write32bit(MI_INTR_REG, MI_INTR_SET_DP);
+		}
+	}
+
+	// the stores of a rom live in a directory named after its header crcs
+	private void openStores()
+	{
+		if (cacheDir == null || romCrc == null)
 			return;
+		File dir = new File(cacheDir, romCrc);
+		cache.writeConfig("texturestore", dir);
+		combiners.setStore(new File(dir, "combiners.bin"));
+	}
 
-		byte[] cmd = rdp_cmd_data = cmdObj.array();
-		int w1 = ((cmd[0] & 0xFF) << 24) | ((cmd[1] & 0xFF) << 16) | ((cmd[2] & 0xFF) << 8) | (cmd[3] & 0xFF);
-		int w2 = ((cmd[4] & 0xFF) << 24) | ((cmd[5] & 0xFF) << 16) | ((cmd[6] & 0xFF) << 8) | (cmd[7] & 0xFF);
-		rdp_command_table[cmd[0] & 0x3F].exec(w1, w2);
+	// Command Pipeline ////////////////////////////////////////////////////////
+
+	/**
+	 * Replays the recorded commands on the thread that owns the gl context.
+	 */
+	private class CommandReplay implements Runnable
+	{
+		public void run()
+		{
+			int idle = 0;
+			while (true)
+			{
+				if (!ring.poll())
+				{
+					if (++idle < 64)
+						Thread.yield();
+					else
+						LockSupport.parkNanos(100000L);
+					continue;
+				}
+				idle = 0;
+
+				int header = ring.take();
+				long end = ring.position() + (header & 0xFFFFFF);
+				try
+				{
+					replay(header >>> 24, end);
+				}
+				catch (RuntimeException e)
+				{
+					e.printStackTrace();
+				}
+				ring.skipTo(end);
+				ring.release();
+			}
+		}
+	}
+
+	private void replay(int type, long end)
+	{
+		switch (type)
+		{
+		case RECORD_REGISTER:
+			int reg = ring.take();
+			replayRegister(reg, ring.take());
+			break;
+		case RECORD_COMMAND:
+			int w1 = ring.take();
+			int w2 = ring.take();
+			for (int i = 8; ring.position() < end; i += 4)
+			{
+				int w = ring.take();
+				commandData[i] = (byte) (w >> 24);
+				commandData[i + 1] = (byte) (w >> 16);
+				commandData[i + 2] = (byte) (w >> 8);
+				commandData[i + 3] = (byte) w;
+			}
+			if (render)
+			{
+				rdp_cmd_data = commandData;
+				rdp_command_table[(w1 >> 24) & 0x3F].exec(w1, w2);
+			}
+			break;
+		case RECORD_TRIANGLES:
+			int value = ring.take();
+			replayVertices();
+			for (int i = 0; i < (value & 0x7FFFFFFF) * 3; i++)
+				renderIndices[i] = ring.take();
+			replayRegister(15, value);
+			break;
+		case RECORD_LINE:
+			int width = ring.take();
+			replayVertices();
+			renderIndices[0] = ring.take();
+			renderIndices[1] = ring.take();
+			replayRegister(16, width);
+			break;
+		case RECORD_FLUSH:
+			if (render)
+				glDrawTriangles();
+			break;
+		case RECORD_SWAP:
+			if (colorbufferChanged && render)
+			{
+				hDC.swapBuffers();
+				colorbufferChanged = false;
+			}
+			break;
+		case RECORD_CLOCK:
+			replayClock();
+			break;
+		case RECORD_RESET:
+			replayReset();
+			break;
+		}
+	}
+
+	private void replayVertices()
+	{
+		int count = ring.take();
+		for (int a = 0; a < HLE_ATTRIBUTES; a++)
+		{
+			for (int i = 0; i < count; i++)
+				renderVertices[a * HLE_VERTICES + i] = Float.intBitsToFloat(ring.take());
+		}
+	}
+
+	private void record(int type, int words)
+	{
+		ring.reserve(words + 1);
+		ring.put((type << 24) | words);
+	}
+
+	private void recordRegister(int reg, int value)
+	{
+		record(RECORD_REGISTER, 2);
+		ring.put(reg);
+		ring.put(value);
+		ring.publish();
+	}
+
+	private void recordTriangles(int value)
+	{
+		int indices = (value & 0x7FFFFFFF) * 3;
+		int count = 0;
+		for (int i = 0; i < indices; i++)
+			count = StrictMath.max(count, hleIndices[i] + 1);
+
+		record(RECORD_TRIANGLES, 2 + count * HLE_ATTRIBUTES + indices);
+		ring.put(value);
+		recordVertices(count);
+		for (int i = 0; i < indices; i++)
+			ring.put(hleIndices[i]);
+		ring.publish();
+	}
+
+	private void recordLine(int width)
+	{
+		int count = StrictMath.max(hleIndices[0], hleIndices[1]) + 1;
+		record(RECORD_LINE, 4 + count * HLE_ATTRIBUTES);
+		ring.put(width);
+		recordVertices(count);
+		ring.put(hleIndices[0]);
+		ring.put(hleIndices[1]);
+		ring.publish();
+	}
+
+	private void recordVertices(int count)
+	{
+		ring.put(count);
+		for (int a = 0; a < HLE_ATTRIBUTES; a++)
+		{
+			for (int i = 0; i < count; i++)
+				ring.put(Float.floatToRawIntBits(hleVertices[a * HLE_VERTICES + i]));
+		}
+	}
+
+	/**
+	 * Waits for the render thread to replay everything recorded so far.
+	 */
+	private void sync()
+	{
+		LockSupport.unpark(renderThread);
+		while (!ring.isDrained())
+			Thread.yield();
 	}
 
 	// Private Methods /////////////////////////////////////////////////////////
@@ -970,36 +1308,41 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 		updateSize();
 		updateScale();
 
-		otherMode.w1 &= ~ALPHA_COMPARE;
-		otherMode.w1 |= ((G_AC_NONE & 0x3) << 0);
-		otherMode.w1 &= ~DEPTH_SOURCE;
-		otherMode.w1 |= ((G_ZS_PIXEL & 0x1) << 2);
-		otherMode.w1 &= 0x00000007;
-		otherMode.w1 |= 0;
-
-		otherMode.w0 &= ~ALPHA_DITHER;
-		otherMode.w0 |= ((G_AD_DISABLE & 0x3) << 4);
-		otherMode.w0 &= ~COLOR_DITHER;
-		otherMode.w0 |= ((G_CD_DISABLE & 0x3) << 6);
-		otherMode.w0 &= ~COMBINE_KEY;
-		otherMode.w0 |= ((G_CK_NONE & 0x1) << 8);
-		otherMode.w0 &= ~TEX_CONVERT;
-		otherMode.w0 |= ((G_TC_FILT & 0x7) << 9);
-		otherMode.w0 &= ~TEX_FILTER;
-		otherMode.w0 |= ((G_TF_POINT & 0x3) << 12);
-		otherMode.w0 &= ~TEX_LUT;
-		otherMode.w0 |= ((G_TT_NONE & 0x3) << 14);
-		otherMode.w0 &= ~TEX_LOD;
-		otherMode.w0 |= ((G_TL_TILE & 0x1) << 16);
-		otherMode.w0 &= ~TEX_DETAIL;
-		otherMode.w0 |= ((G_TD_CLAMP & 0x3) << 17);
-		otherMode.w0 &= ~TEX_PERSP;
+		resetOtherMode(otherMode);
+	}
+
+	private static void resetOtherMode(OtherMode om)
+	{
+		om.w1 &= ~ALPHA_COMPARE;
+		om.w1 |= ((G_AC_NONE & 0x3) << 0);
+		om.w1 &= ~DEPTH_SOURCE;
+		om.w1 |= ((G_ZS_PIXEL & 0x1) << 2);
+		om.w1 &= 0x00000007;
+		om.w1 |= 0;
+
+		om.w0 &= ~ALPHA_DITHER;
+		om.w0 |= ((G_AD_DISABLE & 0x3) << 4);
+		om.w0 &= ~COLOR_DITHER;
+		om.w0 |= ((G_CD_DISABLE & 0x3) << 6);
+		om.w0 &= ~COMBINE_KEY;
+		om.w0 |= ((G_CK_NONE & 0x1) << 8);
+		om.w0 &= ~TEX_CONVERT;
+		om.w0 |= ((G_TC_FILT & 0x7) << 9);
+		om.w0 &= ~TEX_FILTER;
+		om.w0 |= ((G_TF_POINT & 0x3) << 12);
+		om.w0 &= ~TEX_LUT;
+		om.w0 |= ((G_TT_NONE & 0x3) << 14);
+		om.w0 &= ~TEX_LOD;
+		om.w0 |= ((G_TL_TILE & 0x1) << 16);
+		om.w0 &= ~TEX_DETAIL;
+		om.w0 |= ((G_TD_CLAMP & 0x3) << 17);
+		om.w0 &= ~TEX_PERSP;
 		;
-		otherMode.w0 |= ((G_TP_PERSP & 0x1) << 19);
-		otherMode.w0 &= ~CYCLE_TYPE;
-		otherMode.w0 |= ((G_CYC_1CYCLE & 0x3) << 20);
-		otherMode.w0 &= ~PIPELINE_MODE;
-		otherMode.w0 |= ((G_PM_NPRIMITIVE & 0x1) << 23);
+		om.w0 |= ((G_TP_PERSP & 0x1) << 19);
+		om.w0 &= ~CYCLE_TYPE;
+		om.w0 |= ((G_CYC_1CYCLE & 0x3) << 20);
+		om.w0 &= ~PIPELINE_MODE;
+		om.w0 |= ((G_PM_NPRIMITIVE & 0x1) << 23);
 	}
 
 	private void updateScale()
@@ -1029,59 +1372,157 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 			screenHeight = 240;
 	}
 
-	private void addTriangle(float[] vtx1, float[] c1, float[] tex1, float[] vtx2, float[] c2, float[] tex2, float[] vtx3, float[] c3, float[] tex3)
+	private void addTriangle(Vertex v1, Vertex v2, Vertex v3)
 	{
 		if (changed != 0)
 		{
 			glUpdateStates();
 		}
 
-		final int VTX = 0;
-		final int CLR = 1;
-		final int TEX = 2;
-		float[][][] v = { { vtx1, c1, tex1 }, { vtx2, c2, tex2 }, { vtx3, c3, tex3 } };
+		addVertex(v1);
+		addVertex(v2);
+		addVertex(v3);
 
-		for (int i = 0; i < 3; i++)
+		numTriangles++;
+
+		if (numVertices >= 255)
+			glDrawTriangles();
+	}
+
+	private void addVertex(Vertex spvert)
+	{
+		GLVertex vertex = vertices[numVertices];
+		vertex.vtx.put(0, spvert.vtx[0]);
+		vertex.vtx.put(1, spvert.vtx[1]);
+		vertex.vtx.put(2, RDP_GETOM_Z_SOURCE_SEL(otherMode) == G_ZS_PRIM ? zDepth * spvert.vtx[3] : spvert.vtx[2]);
+		vertex.vtx.put(3, spvert.vtx[3]);
+
+		vertex.color.put(0, spvert.color[0]);
+		vertex.color.put(1, spvert.color[1]);
+		vertex.color.put(2, spvert.color[2]);
+		vertex.color.put(3, spvert.color[3]);
+		combiners.setConstant(vertex.color, combiners.vertex.color, combiners.vertex.alpha);
+
+		if (Combiners.EXT_secondary_color)
 		{
-			float[][] spvert = v[i];
-			GLVertex vertex = vertices[numVertices];
-			vertex.vtx.put(0, spvert[VTX][0]);
-			vertex.vtx.put(1, spvert[VTX][1]);
-			vertex.vtx.put(2, RDP_GETOM_Z_SOURCE_SEL(otherMode) == G_ZS_PRIM ? zDepth * spvert[VTX][3] : spvert[VTX][2]);
-			vertex.vtx.put(3, spvert[VTX][3]);
+			vertex.secondaryColor.put(0, 0.0f);
+			vertex.secondaryColor.put(0, 0.0f);
+			vertex.secondaryColor.put(0, 0.0f);
+			vertex.secondaryColor.put(0, 1.0f);
+			combiners.setConstant(vertex.secondaryColor, combiners.vertex.secondaryColor, Combiners.ONE);
+		}
 
-			vertex.color.put(0, spvert[CLR][0]);
-			vertex.color.put(1, spvert[CLR][1]);
-			vertex.color.put(2, spvert[CLR][2]);
-			vertex.color.put(3, spvert[CLR][3]);
-			combiners.setConstant(vertex.color, combiners.vertex.color, combiners.vertex.alpha);
+		if (combiners.usesT0)
+		{
+			vertex.tex0.put(0, cache.getTexS(0, spvert.tex[0]));
+			vertex.tex0.put(1, cache.getTexT(0, spvert.tex[1]));
+		}
+		if (combiners.usesT1)
+		{
+			vertex.tex1.put(0, cache.getTexS(1, spvert.tex[0]));
+			vertex.tex1.put(1, cache.getTexT(1, spvert.tex[1]));
+		}
+		numVertices++;
+	}
 
-			if (Combiners.EXT_secondary_color)
+	private void loadHleVertex(Vertex v, int i)
+	{
+		v.vtx[0] = renderVertices[(HLE_X + 0) * HLE_VERTICES + i];
+		v.vtx[1] = renderVertices[(HLE_X + 1) * HLE_VERTICES + i];
+		v.vtx[2] = renderVertices[(HLE_X + 2) * HLE_VERTICES + i];
+		v.vtx[3] = renderVertices[(HLE_X + 3) * HLE_VERTICES + i];
+		v.color[0] = renderVertices[(HLE_R + 0) * HLE_VERTICES + i];
+		v.color[1] = renderVertices[(HLE_R + 1) * HLE_VERTICES + i];
+		v.color[2] = renderVertices[(HLE_R + 2) * HLE_VERTICES + i];
+		v.color[3] = renderVertices[(HLE_R + 3) * HLE_VERTICES + i];
+		v.tex[0] = renderVertices[(HLE_S + 0) * HLE_VERTICES + i];
+		v.tex[1] = renderVertices[(HLE_S + 1) * HLE_VERTICES + i];
+		v.clip[0] = renderVertices[(HLE_CLIP + 0) * HLE_VERTICES + i];
+		v.clip[1] = renderVertices[(HLE_CLIP + 1) * HLE_VERTICES + i];
+		v.clip[2] = renderVertices[(HLE_CLIP + 2) * HLE_VERTICES + i];
+	}
+
+	private void drawHleTriangles(int count, boolean non)
+	{
+		for (int i = 0; i < count * 3; i += 3)
+		{
+			loadHleVertex(hleTriangle[0], renderIndices[i]);
+			loadHleVertex(hleTriangle[1], renderIndices[i + 1]);
+			loadHleVertex(hleTriangle[2], renderIndices[i + 2]);
+
+			// NoN work-around, clips triangles, and draws the clipped-off parts with clamped z
+			if (non &&
+					((hleTriangle[0].clip[2] < 0.0f) ||
+							(hleTriangle[1].clip[2] < 0.0f) ||
+					(hleTriangle[2].clip[2] < 0.0f)))
 			{
-				vertex.secondaryColor.put(0, 0.0f);
-				vertex.secondaryColor.put(0, 0.0f);
-				vertex.secondaryColor.put(0, 0.0f);
-				vertex.secondaryColor.put(0, 1.0f);
-				combiners.setConstant(vertex.secondaryColor, combiners.vertex.secondaryColor, Combiners.ONE);
+				addNearClippedTriangle(hleTriangle);
 			}
+			else
+			{
+				addTriangle(hleTriangle[0], hleTriangle[1], hleTriangle[2]);
+			}
+		}
 
-			if (combiners.usesT0)
+		update();
+	}
+
+	private void addNearClippedTriangle(Vertex[] tmpvertices)
+	{
+		int nearIndex = 0;
+		int clippedIndex = 0;
+
+		for (int i = 0; i < 3; i++)
+		{
+			int j = i + 1;
+			if (j == 3) j = 0;
+
+			if (((tmpvertices[i].clip[2] < 0.0f) && (tmpvertices[j].clip[2] >= 0.0f)) ||
+					((tmpvertices[i].clip[2] >= 0.0f) && (tmpvertices[j].clip[2] < 0.0f)))
 			{
-				vertex.tex0.put(0, cache.getTexS(0, spvert[TEX][0]));
-				vertex.tex0.put(1, cache.getTexT(0, spvert[TEX][1]));
+				float percent = (-tmpvertices[i].vtx[3] - tmpvertices[i].vtx[2]) / ((tmpvertices[j].vtx[2] - tmpvertices[i].vtx[2]) + (tmpvertices[j].vtx[3] - tmpvertices[i].vtx[3]));
+
+				clippedVertices[clippedIndex].interpolateVertex(percent, tmpvertices[i], tmpvertices[j]);
+
+				nearVertices[nearIndex].copyVertex(clippedVertices[clippedIndex]);
+				nearVertices[nearIndex].vtx[2] = -nearVertices[nearIndex].vtx[3];
+
+				clippedIndex++;
+				nearIndex++;
 			}
-			if (combiners.usesT1)
+
+			if (((tmpvertices[i].clip[2] < 0.0f) && (tmpvertices[j].clip[2] >= 0.0f)) ||
+					((tmpvertices[i].clip[2] >= 0.0f) && (tmpvertices[j].clip[2] >= 0.0f)))
 			{
-				vertex.tex1.put(0, cache.getTexS(1, spvert[TEX][0]));
-				vertex.tex1.put(1, cache.getTexT(1, spvert[TEX][1]));
+				clippedVertices[clippedIndex].copyVertex(tmpvertices[j]);
+				clippedIndex++;
+			}
+			else
+			{
+				nearVertices[nearIndex].copyVertex(tmpvertices[j]);
+				nearVertices[nearIndex].vtx[2] = -nearVertices[nearIndex].vtx[3];
+				nearIndex++;
 			}
-			numVertices++;
 		}
 
-		numTriangles++;
+		addTriangle(clippedVertices[0], clippedVertices[1], clippedVertices[2]);
 
-		if (numVertices >= 255)
-			glDrawTriangles();
+		if (clippedIndex == 4)
+		{
+			addTriangle(clippedVertices[0], clippedVertices[2], clippedVertices[3]);
+		}
+
+		gl.glDisable(GL2.GL_POLYGON_OFFSET_FILL);
+
+		addTriangle(nearVertices[0], nearVertices[1], nearVertices[2]);
+
+		if (nearIndex == 4)
+		{
+			addTriangle(nearVertices[0], nearVertices[2], nearVertices[3]);
+		}
+
+		if (((otherMode.w1 >> 10) & 0x3) == ZMODE_DEC)
+			gl.glEnable(GL2.GL_POLYGON_OFFSET_FILL);
 	}
 
 	private void glClearDepthBuffer(boolean depthUpdate)
@@ -1315,43 +1756,37 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 			gl.glEnable(GL2.GL_CULL_FACE);
 	}
 
-	private void glDrawLine(float[] vtx1, float[] c1, float[] vtx2, float[] c2, float width)
+	private void glDrawLine(Vertex v1, Vertex v2, float width)
 	{
 		if (changed != 0)
 		{
 			glUpdateStates();
 		}
 
-		final int VTX = 0;
-		final int CLR = 1;
-		float[][][] v = { { vtx1, c1 }, { vtx2, c2 } };
-
-		float[] color = new float[4];
-
 		gl.glLineWidth(width * scaleX);
 
 		gl.glBegin(GL2.GL_LINES);
 		for (int i = 0; i < 2; i++)
 		{
-			float[][] spvert = v[i];
-			color[0] = spvert[CLR][0];
-			color[1] = spvert[CLR][1];
-			color[2] = spvert[CLR][2];
-			color[3] = spvert[CLR][3];
-			combiners.setConstant(color, combiners.vertex.color, combiners.vertex.alpha);
-			gl.glColor4fv(color, 0);
+			Vertex spvert = (i == 0) ? v1 : v2;
+			lineColor[0] = spvert.color[0];
+			lineColor[1] = spvert.color[1];
+			lineColor[2] = spvert.color[2];
+			lineColor[3] = spvert.color[3];
+			combiners.setConstant(lineColor, combiners.vertex.color, combiners.vertex.alpha);
+			gl.glColor4fv(lineColor, 0);
 
 			if (Combiners.EXT_secondary_color)
 			{
-				color[0] = spvert[CLR][0];
-				color[1] = spvert[CLR][1];
-				color[2] = spvert[CLR][2];
-				color[3] = spvert[CLR][3];
-				combiners.setConstant(color, combiners.vertex.secondaryColor, combiners.vertex.alpha);
-				gl.glSecondaryColor3fv(color, 0);
+				lineColor[0] = spvert.color[0];
+				lineColor[1] = spvert.color[1];
+				lineColor[2] = spvert.color[2];
+				lineColor[3] = spvert.color[3];
+				combiners.setConstant(lineColor, combiners.vertex.secondaryColor, combiners.vertex.alpha);
+				gl.glSecondaryColor3fv(lineColor, 0);
 			}
 
-			gl.glVertex4f(spvert[VTX][0], spvert[VTX][1], spvert[VTX][2], spvert[VTX][3]);
+			gl.glVertex4f(spvert.vtx[0], spvert.vtx[1], spvert.vtx[2], spvert.vtx[3]);
 		}
 		gl.glEnd();
 	}
@@ -1564,8 +1999,6 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 		rdp_command_table[14] = rdp_tri_texshade;
 		rdp_command_table[15] = rdp_tri_texshade_z;
 
-		rdp_command_table[16] = rdp_hle_triangle; // rdp_invalid
-		rdp_command_table[17] = rdp_hle_line; // rdp_invalid
 		rdp_command_table[18] = rdp_hle_texture; // rdp_invalid
 
 		rdp_command_table[36] = rdp_tex_rect;
@@ -1727,7 +2160,7 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 	{
 		public void exec(int w1, int w2)
 		{
-			mi.write32bit(MI_INTR_REG, MI_INTR_SET_DP);
+			// the dp interrupt is raised when the command is recorded
 		}
 	};
 
@@ -2008,185 +2441,6 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 		}
 	};
 
-	protected OpCode rdp_hle_triangle = new OpCode()
-	{
-		public void exec(int w1, int w2)
-		{
-			Vertex[] tmpvertices = { new Vertex(), new Vertex(), new Vertex() };
-			tmpvertices[0].vtx = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[8] & 0xFF) << 24) | ((rdp_cmd_data[9] & 0xFF) << 16) | ((rdp_cmd_data[10] & 0xFF) << 8) | (rdp_cmd_data[11] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[12] & 0xFF) << 24) | ((rdp_cmd_data[13] & 0xFF) << 16) | ((rdp_cmd_data[14] & 0xFF) << 8) | (rdp_cmd_data[15] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[16] & 0xFF) << 24) | ((rdp_cmd_data[17] & 0xFF) << 16) | ((rdp_cmd_data[18] & 0xFF) << 8) | (rdp_cmd_data[19] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[20] & 0xFF) << 24) | ((rdp_cmd_data[21] & 0xFF) << 16) | ((rdp_cmd_data[22] & 0xFF) << 8) | (rdp_cmd_data[23] & 0xFF)) };
-			tmpvertices[1].vtx = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[24] & 0xFF) << 24) | ((rdp_cmd_data[25] & 0xFF) << 16) | ((rdp_cmd_data[26] & 0xFF) << 8) | (rdp_cmd_data[27] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[28] & 0xFF) << 24) | ((rdp_cmd_data[29] & 0xFF) << 16) | ((rdp_cmd_data[30] & 0xFF) << 8) | (rdp_cmd_data[31] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[32] & 0xFF) << 24) | ((rdp_cmd_data[33] & 0xFF) << 16) | ((rdp_cmd_data[34] & 0xFF) << 8) | (rdp_cmd_data[35] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[36] & 0xFF) << 24) | ((rdp_cmd_data[37] & 0xFF) << 16) | ((rdp_cmd_data[38] & 0xFF) << 8) | (rdp_cmd_data[39] & 0xFF)) };
-			tmpvertices[2].vtx = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[40] & 0xFF) << 24) | ((rdp_cmd_data[41] & 0xFF) << 16) | ((rdp_cmd_data[42] & 0xFF) << 8) | (rdp_cmd_data[43] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[44] & 0xFF) << 24) | ((rdp_cmd_data[45] & 0xFF) << 16) | ((rdp_cmd_data[46] & 0xFF) << 8) | (rdp_cmd_data[47] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[48] & 0xFF) << 24) | ((rdp_cmd_data[49] & 0xFF) << 16) | ((rdp_cmd_data[50] & 0xFF) << 8) | (rdp_cmd_data[51] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[52] & 0xFF) << 24) | ((rdp_cmd_data[53] & 0xFF) << 16) | ((rdp_cmd_data[54] & 0xFF) << 8) | (rdp_cmd_data[55] & 0xFF)) };
-			tmpvertices[0].color = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[56] & 0xFF) << 24) | ((rdp_cmd_data[57] & 0xFF) << 16) | ((rdp_cmd_data[58] & 0xFF) << 8) | (rdp_cmd_data[59] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[60] & 0xFF) << 24) | ((rdp_cmd_data[61] & 0xFF) << 16) | ((rdp_cmd_data[62] & 0xFF) << 8) | (rdp_cmd_data[63] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[64] & 0xFF) << 24) | ((rdp_cmd_data[65] & 0xFF) << 16) | ((rdp_cmd_data[66] & 0xFF) << 8) | (rdp_cmd_data[67] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[68] & 0xFF) << 24) | ((rdp_cmd_data[69] & 0xFF) << 16) | ((rdp_cmd_data[70] & 0xFF) << 8) | (rdp_cmd_data[71] & 0xFF)) };
-			tmpvertices[1].color = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[72] & 0xFF) << 24) | ((rdp_cmd_data[73] & 0xFF) << 16) | ((rdp_cmd_data[74] & 0xFF) << 8) | (rdp_cmd_data[75] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[76] & 0xFF) << 24) | ((rdp_cmd_data[77] & 0xFF) << 16) | ((rdp_cmd_data[78] & 0xFF) << 8) | (rdp_cmd_data[79] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[80] & 0xFF) << 24) | ((rdp_cmd_data[81] & 0xFF) << 16) | ((rdp_cmd_data[82] & 0xFF) << 8) | (rdp_cmd_data[83] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[84] & 0xFF) << 24) | ((rdp_cmd_data[85] & 0xFF) << 16) | ((rdp_cmd_data[86] & 0xFF) << 8) | (rdp_cmd_data[87] & 0xFF)) };
-			tmpvertices[2].color = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[88] & 0xFF) << 24) | ((rdp_cmd_data[89] & 0xFF) << 16) | ((rdp_cmd_data[90] & 0xFF) << 8) | (rdp_cmd_data[91] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[92] & 0xFF) << 24) | ((rdp_cmd_data[93] & 0xFF) << 16) | ((rdp_cmd_data[94] & 0xFF) << 8) | (rdp_cmd_data[95] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[96] & 0xFF) << 24) | ((rdp_cmd_data[97] & 0xFF) << 16) | ((rdp_cmd_data[98] & 0xFF) << 8) | (rdp_cmd_data[99] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[100] & 0xFF) << 24) | ((rdp_cmd_data[101] & 0xFF) << 16) | ((rdp_cmd_data[102] & 0xFF) << 8) | (rdp_cmd_data[103] & 0xFF)) };
-			tmpvertices[0].tex = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[104] & 0xFF) << 24) | ((rdp_cmd_data[105] & 0xFF) << 16) | ((rdp_cmd_data[106] & 0xFF) << 8) | (rdp_cmd_data[107] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[108] & 0xFF) << 24) | ((rdp_cmd_data[109] & 0xFF) << 16) | ((rdp_cmd_data[110] & 0xFF) << 8) | (rdp_cmd_data[111] & 0xFF)) };
-			tmpvertices[1].tex = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[112] & 0xFF) << 24) | ((rdp_cmd_data[113] & 0xFF) << 16) | ((rdp_cmd_data[114] & 0xFF) << 8) | (rdp_cmd_data[115] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[116] & 0xFF) << 24) | ((rdp_cmd_data[117] & 0xFF) << 16) | ((rdp_cmd_data[118] & 0xFF) << 8) | (rdp_cmd_data[119] & 0xFF)) };
-			tmpvertices[2].tex = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[120] & 0xFF) << 24) | ((rdp_cmd_data[121] & 0xFF) << 16) | ((rdp_cmd_data[122] & 0xFF) << 8) | (rdp_cmd_data[123] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[124] & 0xFF) << 24) | ((rdp_cmd_data[125] & 0xFF) << 16) | ((rdp_cmd_data[126] & 0xFF) << 8) | (rdp_cmd_data[127] & 0xFF)) };
-			tmpvertices[0].clip = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[128] & 0xFF) << 24) | ((rdp_cmd_data[129] & 0xFF) << 16) | ((rdp_cmd_data[130] & 0xFF) << 8) | (rdp_cmd_data[131] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[132] & 0xFF) << 24) | ((rdp_cmd_data[133] & 0xFF) << 16) | ((rdp_cmd_data[134] & 0xFF) << 8) | (rdp_cmd_data[135] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[136] & 0xFF) << 24) | ((rdp_cmd_data[137] & 0xFF) << 16) | ((rdp_cmd_data[138] & 0xFF) << 8) | (rdp_cmd_data[139] & 0xFF)) };
-			tmpvertices[1].clip = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[144] & 0xFF) << 24) | ((rdp_cmd_data[145] & 0xFF) << 16) | ((rdp_cmd_data[146] & 0xFF) << 8) | (rdp_cmd_data[147] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[148] & 0xFF) << 24) | ((rdp_cmd_data[149] & 0xFF) << 16) | ((rdp_cmd_data[150] & 0xFF) << 8) | (rdp_cmd_data[151] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[152] & 0xFF) << 24) | ((rdp_cmd_data[153] & 0xFF) << 16) | ((rdp_cmd_data[154] & 0xFF) << 8) | (rdp_cmd_data[155] & 0xFF)) };
-			tmpvertices[2].clip = new float[] {
-					Float.intBitsToFloat(((rdp_cmd_data[160] & 0xFF) << 24) | ((rdp_cmd_data[161] & 0xFF) << 16) | ((rdp_cmd_data[162] & 0xFF) << 8) | (rdp_cmd_data[163] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[164] & 0xFF) << 24) | ((rdp_cmd_data[165] & 0xFF) << 16) | ((rdp_cmd_data[166] & 0xFF) << 8) | (rdp_cmd_data[167] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[168] & 0xFF) << 24) | ((rdp_cmd_data[169] & 0xFF) << 16) | ((rdp_cmd_data[170] & 0xFF) << 8) | (rdp_cmd_data[171] & 0xFF)) };
-
-			// NoN work-around, clips triangles, and draws the clipped-off parts with clamped z
-			if ((rdp_cmd_data[1] & 0xFF) != 0 &&
-					((tmpvertices[0].clip[2] < 0.0f) ||
-							(tmpvertices[1].clip[2] < 0.0f) ||
-					(tmpvertices[2].clip[2] < 0.0f)))
-			{
-				Vertex[] nearVertices = new Vertex[4];
-				Vertex[] clippedVertices = new Vertex[4];
-				for (int i = 0; i < 4; i++)
-				{ // TMP
-					nearVertices[i] = new Vertex();
-					clippedVertices[i] = new Vertex();
-				}
-
-				int nearIndex = 0;
-				int clippedIndex = 0;
-
-				int[] v = { 0, 1, 2 };
-
-				for (int i = 0; i < 3; i++)
-				{
-					int j = i + 1;
-					if (j == 3) j = 0;
-
-					if (((tmpvertices[v[i]].clip[2] < 0.0f) && (tmpvertices[v[j]].clip[2] >= 0.0f)) ||
-							((tmpvertices[v[i]].clip[2] >= 0.0f) && (tmpvertices[v[j]].clip[2] < 0.0f)))
-					{
-						float percent = (-tmpvertices[v[i]].vtx[3] - tmpvertices[v[i]].vtx[2]) / ((tmpvertices[v[j]].vtx[2] - tmpvertices[v[i]].vtx[2]) + (tmpvertices[v[j]].vtx[3] - tmpvertices[v[i]].vtx[3]));
-
-						clippedVertices[clippedIndex].interpolateVertex(percent, tmpvertices[v[i]], tmpvertices[v[j]]);
-
-						nearVertices[nearIndex].copyVertex(clippedVertices[clippedIndex]);
-						nearVertices[nearIndex].vtx[2] = -nearVertices[nearIndex].vtx[3];
-
-						clippedIndex++;
-						nearIndex++;
-					}
-
-					if (((tmpvertices[v[i]].clip[2] < 0.0f) && (tmpvertices[v[j]].clip[2] >= 0.0f)) ||
-							((tmpvertices[v[i]].clip[2] >= 0.0f) && (tmpvertices[v[j]].clip[2] >= 0.0f)))
-					{
-						clippedVertices[clippedIndex].copyVertex(tmpvertices[v[j]]);
-						clippedIndex++;
-					}
-					else
-					{
-						nearVertices[nearIndex].copyVertex(tmpvertices[v[j]]);
-						nearVertices[nearIndex].vtx[2] = -nearVertices[nearIndex].vtx[3];
-						nearIndex++;
-					}
-				}
-
-				addTriangle(clippedVertices[0].vtx, clippedVertices[0].color, clippedVertices[0].tex,
-						clippedVertices[1].vtx, clippedVertices[1].color, clippedVertices[1].tex,
-						clippedVertices[2].vtx, clippedVertices[2].color, clippedVertices[2].tex);
-
-				if (clippedIndex == 4)
-				{
-					addTriangle(clippedVertices[0].vtx, clippedVertices[0].color, clippedVertices[0].tex,
-							clippedVertices[2].vtx, clippedVertices[2].color, clippedVertices[2].tex,
-							clippedVertices[3].vtx, clippedVertices[3].color, clippedVertices[3].tex);
-				}
-
-				gl.glDisable(GL2.GL_POLYGON_OFFSET_FILL);
-
-				addTriangle(nearVertices[0].vtx, nearVertices[0].color, nearVertices[0].tex,
-						nearVertices[1].vtx, nearVertices[1].color, nearVertices[1].tex,
-						nearVertices[2].vtx, nearVertices[2].color, nearVertices[2].tex);
-
-				if (nearIndex == 4)
-				{
-					addTriangle(nearVertices[0].vtx, nearVertices[0].color, nearVertices[0].tex,
-							nearVertices[2].vtx, nearVertices[2].color, nearVertices[2].tex,
-							nearVertices[3].vtx, nearVertices[3].color, nearVertices[3].tex);
-				}
-
-				if (((otherMode.w1 >> 10) & 0x3) == ZMODE_DEC)
-					gl.glEnable(GL2.GL_POLYGON_OFFSET_FILL);
-
-			}
-			else
-			{
-				addTriangle(tmpvertices[0].vtx, tmpvertices[0].color, tmpvertices[0].tex,
-						tmpvertices[1].vtx, tmpvertices[1].color, tmpvertices[1].tex,
-						tmpvertices[2].vtx, tmpvertices[2].color, tmpvertices[2].tex);
-			}
-
-			update();
-		}
-	};
-
-	protected OpCode rdp_hle_line = new OpCode()
-	{
-		public void exec(int w1, int w2)
-		{
-			float[] vtx1 = {
-					Float.intBitsToFloat(w2),
-					Float.intBitsToFloat(((rdp_cmd_data[8] & 0xFF) << 24) | ((rdp_cmd_data[9] & 0xFF) << 16) | ((rdp_cmd_data[10] & 0xFF) << 8) | (rdp_cmd_data[11] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[12] & 0xFF) << 24) | ((rdp_cmd_data[13] & 0xFF) << 16) | ((rdp_cmd_data[14] & 0xFF) << 8) | (rdp_cmd_data[15] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[16] & 0xFF) << 24) | ((rdp_cmd_data[17] & 0xFF) << 16) | ((rdp_cmd_data[18] & 0xFF) << 8) | (rdp_cmd_data[19] & 0xFF)) };
-			float[] c1 = {
-					Float.intBitsToFloat(((rdp_cmd_data[20] & 0xFF) << 24) | ((rdp_cmd_data[21] & 0xFF) << 16) | ((rdp_cmd_data[22] & 0xFF) << 8) | (rdp_cmd_data[23] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[24] & 0xFF) << 24) | ((rdp_cmd_data[25] & 0xFF) << 16) | ((rdp_cmd_data[26] & 0xFF) << 8) | (rdp_cmd_data[27] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[28] & 0xFF) << 24) | ((rdp_cmd_data[29] & 0xFF) << 16) | ((rdp_cmd_data[30] & 0xFF) << 8) | (rdp_cmd_data[31] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[32] & 0xFF) << 24) | ((rdp_cmd_data[33] & 0xFF) << 16) | ((rdp_cmd_data[34] & 0xFF) << 8) | (rdp_cmd_data[35] & 0xFF)) };
-
-			float[] vtx2 = {
-					Float.intBitsToFloat(((rdp_cmd_data[36] & 0xFF) << 24) | ((rdp_cmd_data[37] & 0xFF) << 16) | ((rdp_cmd_data[38] & 0xFF) << 8) | (rdp_cmd_data[39] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[40] & 0xFF) << 24) | ((rdp_cmd_data[41] & 0xFF) << 16) | ((rdp_cmd_data[42] & 0xFF) << 8) | (rdp_cmd_data[43] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[44] & 0xFF) << 24) | ((rdp_cmd_data[45] & 0xFF) << 16) | ((rdp_cmd_data[46] & 0xFF) << 8) | (rdp_cmd_data[47] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[48] & 0xFF) << 24) | ((rdp_cmd_data[49] & 0xFF) << 16) | ((rdp_cmd_data[50] & 0xFF) << 8) | (rdp_cmd_data[51] & 0xFF)) };
-			float[] c2 = {
-					Float.intBitsToFloat(((rdp_cmd_data[52] & 0xFF) << 24) | ((rdp_cmd_data[53] & 0xFF) << 16) | ((rdp_cmd_data[54] & 0xFF) << 8) | (rdp_cmd_data[55] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[56] & 0xFF) << 24) | ((rdp_cmd_data[57] & 0xFF) << 16) | ((rdp_cmd_data[58] & 0xFF) << 8) | (rdp_cmd_data[59] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[60] & 0xFF) << 24) | ((rdp_cmd_data[61] & 0xFF) << 16) | ((rdp_cmd_data[62] & 0xFF) << 8) | (rdp_cmd_data[63] & 0xFF)),
-					Float.intBitsToFloat(((rdp_cmd_data[64] & 0xFF) << 24) | ((rdp_cmd_data[65] & 0xFF) << 16) | ((rdp_cmd_data[66] & 0xFF) << 8) | (rdp_cmd_data[67] & 0xFF)) };
-
-			glDrawLine(vtx1, c1, vtx2, c2,
-					Float.intBitsToFloat(((rdp_cmd_data[68] & 0xFF) << 24) | ((rdp_cmd_data[69] & 0xFF) << 16) | ((rdp_cmd_data[70] & 0xFF) << 8) | (rdp_cmd_data[71] & 0xFF)));
-		}
-	};
-
 	protected OpCode rdp_hle_texture = new OpCode()
 	{
 		public void exec(int w1, int w2)
@@ -2662,8 +2916,6 @@ public class DisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA
 
 		// strip->nbVtxs = vtx - strip->vtxs;
 		// nbVtxs = vtx - vtxs;
-		addTriangle(tmpvertices[0].vtx, tmpvertices[0].color, tmpvertices[0].tex,
-				tmpvertices[2].vtx, tmpvertices[2].color, tmpvertices[2].tex,
-				tmpvertices[5].vtx, tmpvertices[5].color, tmpvertices[5].tex);
+		addTriangle(tmpvertices[0], tmpvertices[2], tmpvertices[5]);
 	}
 }
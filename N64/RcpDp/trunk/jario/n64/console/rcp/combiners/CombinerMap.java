@@ -0,0 +1,93 @@
+/**
+ * Copyright 2005, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.console.rcp.combiners;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from combiner keys to cached combiners, probed
+ * linearly. Keys are never removed, the whole map is cleared instead.
+ */
+public class CombinerMap
+{
+	private long[] keys = new long[64];
+	private Combiners.CachedCombiner[] values = new Combiners.CachedCombiner[64];
+	private int size;
+
+	public Combiners.CachedCombiner get(long key)
+	{
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask;; i = (i + 1) & mask)
+		{
+			if (values[i] == null)
+				return null;
+			if (keys[i] == key)
+				return values[i];
+		}
+	}
+
+	public void put(long key, Combiners.CachedCombiner value)
+	{
+		// kept at most half full so probes stay short
+		if ((size + 1) << 1 > keys.length)
+			resize(keys.length << 1);
+
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (values[i] != null && keys[i] != key)
+			i = (i + 1) & mask;
+		if (values[i] == null)
+			size++;
+		keys[i] = key;
+		values[i] = value;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	private static int hash(long key)
+	{
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key >>> 32) ^ (int) key;
+	}
+
+	private void resize(int capacity)
+	{
+		long[] oldKeys = keys;
+		Combiners.CachedCombiner[] oldValues = values;
+		keys = new long[capacity];
+		values = new Combiners.CachedCombiner[capacity];
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldValues[i] != null)
+				put(oldKeys[i], oldValues[i]);
+		}
+	}
+}
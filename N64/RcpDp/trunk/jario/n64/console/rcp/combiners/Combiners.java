@@ -20,10 +20,20 @@
 
 package jario.n64.console.rcp.combiners;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.nio.FloatBuffer;
+import java.util.ArrayList;
 import javax.media.opengl.GL2;
 
-public class Combiners
+import jario.hardware.Configurable;
+
+public class Combiners implements Configurable
 {
 	public static final int TEXTURE_ENV = 0;
 	public static final int TEXTURE_ENV_COMBINE = 1;
@@ -341,8 +351,6 @@ public class Combiners
 	{
 		public gDPCombine combine = new gDPCombine();
 		public CompiledCombiner compiled;
-		public CachedCombiner left;
-		public CachedCombiner right;
 	};
 
 	public static class Vertex
@@ -538,8 +546,11 @@ public class Combiners
 	};
 
 	public Vertex vertex = new Vertex();
-	public CachedCombiner root;
 	public CachedCombiner current;
+	private CombinerMap combinerMap = new CombinerMap();
+	private int hits;
+	private int misses;
+	private int warmed;
 	private int compiler;
 	public boolean usesT0;
 	public boolean usesT1;
@@ -551,11 +562,63 @@ public class Combiners
 	public static PrimColor primColor = new PrimColor();
 
 	public gDPCombine combine = new gDPCombine();
+
+	// combiners compiled in earlier sessions, keys as in combineKey
+	private ArrayList<Long> recorded = new ArrayList<Long>();
+	private DataOutputStream store;
 	
 	public Combiners()
 	{
 	}
 
+	/**
+	 * Records compiled combiners to file, the ones already in it are compiled
+	 * again when gl is initialized.
+	 */
+	public void setStore(File file)
+	{
+		recorded.clear();
+		if (store != null)
+		{
+			try
+			{
+				store.close();
+			}
+			catch (IOException e)
+			{
+			}
+			store = null;
+		}
+		if (file == null)
+			return;
+
+		try
+		{
+			if (file.exists())
+			{
+				DataInputStream in = new DataInputStream(new FileInputStream(file));
+				try
+				{
+					while (true)
+						recorded.add(in.readLong());
+				}
+				catch (EOFException e)
+				{
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+			store = new DataOutputStream(new FileOutputStream(file, true));
+		}
+		catch (IOException e)
+		{
+			System.err.println("Combiner store unavailable: " + file);
+			e.printStackTrace();
+		}
+	}
+
 	// called by OpenGl
 	public void init()
 	{
@@ -574,7 +637,42 @@ public class Combiners
 			compiler = TEXTURE_ENV;
 			TextureEnv.init();
 		}
-		root = null;
+		combinerMap.clear();
+
+		// before the first frame, so the rom does not stall the first time each one is used
+		warmup(recorded);
+	}
+
+	/**
+	 * Compiles the combiners for the given keys that are not cached yet,
+	 * without counting them as misses.
+	 */
+	public void warmup(Iterable<Long> keys)
+	{
+		for (long key : keys)
+		{
+			if (combinerMap.get(key) == null)
+			{
+				combinerMap.put(key, compile(key < 0, key & Long.MAX_VALUE));
+				warmed++;
+			}
+		}
+	}
+
+	// cache statistics, used by DisplayProcessor.readConfig
+	@Override
+	public Object readConfig(String key)
+	{
+		if (key.equals("combinerhits")) return hits;
+		else if (key.equals("combinermisses")) return misses;
+		else if (key.equals("combinerwarmed")) return warmed;
+		else if (key.equals("combinercount")) return combinerMap.size();
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
 	}
 
 	public void updateCombineColors(GL2 gl)
@@ -604,33 +702,27 @@ public class Combiners
 		}
 	}
 
-	private void selectCombine(boolean twocycle, long mux)
+	// the mux with the cycle type in bit 63, one and two cycle combiners compile differently
+	private static long combineKey(boolean twocycle, long mux)
 	{
-		CachedCombiner comb = root;
-		CachedCombiner parent = comb;
+		return twocycle ? mux | Long.MIN_VALUE : mux;
+	}
 
-		while (comb != null)
-		{
-			parent = comb;
-
-			if (mux == comb.combine.getMux())
-				break;
-			else if (mux < comb.combine.getMux())
-				comb = comb.left;
-			else
-				comb = comb.right;
-		}
+	private void selectCombine(boolean twocycle, long mux)
+	{
+		long key = combineKey(twocycle, mux);
+		CachedCombiner comb = combinerMap.get(key);
 
 		if (comb == null)
 		{
 			comb = compile(twocycle, mux);
-
-			if (parent == null)
-				root = comb;
-			else if (parent.combine.getMux() > comb.combine.getMux())
-				parent.left = comb;
-			else
-				parent.right = comb;
+			combinerMap.put(key, comb);
+			record(key);
+			misses++;
+		}
+		else
+		{
+			hits++;
 		}
 
 		current = comb;
@@ -643,6 +735,21 @@ public class Combiners
 		current.compiled.set(gl, this);
 	}
 
+	private void record(long key)
+	{
+		if (store == null)
+			return;
+		try
+		{
+			store.writeLong(key);
+			store.flush();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
 	// private void destroy() {
 	// GL gl = GLN64jPlugin.gl;
 	// if (root != null) {
@@ -724,8 +831,6 @@ public class Combiners
 		CachedCombiner cached = new CachedCombiner();
 
 		cached.combine.setMux(newcombine.getMux());
-		cached.left = null;
-		cached.right = null;
 
 		// Send the simplified combiner to the hardware-specific compiler
 		switch (compiler)
@@ -20,11 +20,6 @@
 
 package jario.n64.console.rcp.textures;
 
-import com.jogamp.common.nio.Buffers;
-
-import jario.hardware.BusDMA;
-import jario.hardware.Hardware;
-
 import java.nio.ByteBuffer;
 import javax.media.opengl.GL2;
 
@@ -62,6 +57,10 @@ public class CachedTexture
 	public float shiftScaleT;
 	// Scale to shift
 	public int textureBytes;
+	public int glInternalFormat;
+	public int glType;
+	public ByteBuffer pixels; // decoded texels waiting for the first bind
+	public TextureKey key;
 	public CachedTexture lower;
 	public CachedTexture higher;
 
@@ -104,55 +103,10 @@ public class CachedTexture
 		return i;
 	}
 
-	public void load(boolean IA16, int textureBitDepth, ByteBuffer tmem, GL2 gl)
+	public void load(boolean IA16, int textureBitDepth, ByteBuffer tmem, TextureDecoder decoder)
 	{
-		int glInternalFormat;
-		int glType;
-		ImageFormat.GetTexelFunc GetTexel;
-
-		if (((ImageFormat.imageFormat[size][format].autoFormat == GL2.GL_RGBA8) ||
-				((format == TextureCache.G_IM_FMT_CI) && (IA16)) || (textureBitDepth == 2)) && (textureBitDepth != 0))
-		{
-			textureBytes = (realWidth * realHeight) << 2;
-			if ((format == TextureCache.G_IM_FMT_CI) && (IA16))
-			{
-				if (size == TextureCache.G_IM_SIZ_4b)
-					GetTexel = ImageFormat.GetCI4IA_RGBA8888;
-				else
-					GetTexel = ImageFormat.GetCI8IA_RGBA8888;
-
-				glInternalFormat = GL2.GL_RGBA8;
-				glType = GL2.GL_UNSIGNED_BYTE;
-			}
-			else
-			{
-				GetTexel = ImageFormat.imageFormat[size][format].Get32;
-				glInternalFormat = ImageFormat.imageFormat[size][format].glInternalFormat32;
-				glType = ImageFormat.imageFormat[size][format].glType32;
-			}
-		}
-		else
-		{
-			textureBytes = (realWidth * realHeight) << 1;
-			if ((format == TextureCache.G_IM_FMT_CI) && (IA16))
-			{
-				if (size == TextureCache.G_IM_SIZ_4b)
-					GetTexel = ImageFormat.GetCI4IA_RGBA4444;
-				else
-					GetTexel = ImageFormat.GetCI8IA_RGBA4444;
-
-				glInternalFormat = GL2.GL_RGBA4;
-				glType = GL2.GL_UNSIGNED_SHORT_4_4_4_4;
-			}
-			else
-			{
-				GetTexel = ImageFormat.imageFormat[size][format].Get16;
-				glInternalFormat = ImageFormat.imageFormat[size][format].glInternalFormat16;
-				glType = ImageFormat.imageFormat[size][format].glType16;
-			}
-		}
+		ImageFormat.RowDecoder rowDecoder = selectFormat(IA16, textureBitDepth);
 
-		ByteBuffer dest = Buffers.newDirectByteBuffer(textureBytes);
 		int newline = line;
 		int mirrorSBit;
 		int maskSMask;
@@ -190,124 +144,66 @@ public class CachedTexture
 			mirrorTBit = 0x0000;
 		}
 
-		ByteBuffer src;
-		int i;
-		int j = 0;
-		int tx;
-		int ty;
-		for (int y = 0; y < realHeight; y++)
+		// the wrapped source column is the same for every row
+		int[] columns = decoder.columns(realWidth);
+		for (int x = 0; x < realWidth; x++)
 		{
-			ty = StrictMath.min(y, clampTClamp) & maskTMask;
+			int tx = StrictMath.min(x, clampSClamp) & maskSMask;
 
-			if ((y & mirrorTBit) != 0)
-				ty ^= maskTMask;
-
-			tmem.position((tMem + (newline * ty)) * 8);
-			src = tmem.slice();
-
-			i = (ty & 1) << 1;
-			for (int x = 0; x < realWidth; x++)
-			{
-				tx = StrictMath.min(x, clampSClamp) & maskSMask;
-
-				if ((x & mirrorSBit) != 0)
-					tx ^= maskSMask;
+			if ((x & mirrorSBit) != 0)
+				tx ^= maskSMask;
 
-				if (glInternalFormat == GL2.GL_RGBA8)
-				{
-					dest.asIntBuffer().put(j++, GetTexel.GetTexel(src, tx, i, palette));
-				}
-				else
-				{
-					dest.asShortBuffer().put(j++, (short) GetTexel.GetTexel(src, tx, i, palette));
-				}
-			}
+			columns[x] = tx;
 		}
 
-		gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, glInternalFormat, realWidth, realHeight, 0, GL2.GL_RGBA, glType, dest);
-	}
-
-	public void loadBackground(boolean IA16, int textureBitDepth, Hardware rdram, GL2 gl, int imgwidth, int imgheight, int imgsize, int address)
-	{
-		int glInternalFormat;
-		int glType;
-		ImageFormat.GetTexelFunc GetTexel;
-
-		if (((ImageFormat.imageFormat[size][format].autoFormat == GL2.GL_RGBA8) ||
-				((format == TextureCache.G_IM_FMT_CI) && (IA16)) || (textureBitDepth == 2)) && (textureBitDepth != 0))
+		// odd tmem rows have their words swapped
+		int[] rows = decoder.rows(realHeight);
+		int[] swaps = decoder.swaps(realHeight);
+		for (int y = 0; y < realHeight; y++)
 		{
-			textureBytes = (realWidth * realHeight) << 2;
-			if ((format == TextureCache.G_IM_FMT_CI) && (IA16))
-			{
-				if (size == TextureCache.G_IM_SIZ_4b)
-					GetTexel = ImageFormat.GetCI4IA_RGBA8888;
-				else
-					GetTexel = ImageFormat.GetCI8IA_RGBA8888;
+			int ty = StrictMath.min(y, clampTClamp) & maskTMask;
 
-				glInternalFormat = GL2.GL_RGBA8;
-				glType = GL2.GL_UNSIGNED_BYTE;
-			}
-			else
-			{
-				GetTexel = ImageFormat.imageFormat[size][format].Get32;
-				glInternalFormat = ImageFormat.imageFormat[size][format].glInternalFormat32;
-				glType = ImageFormat.imageFormat[size][format].glType32;
-			}
-		}
-		else
-		{
-			textureBytes = (realWidth * realHeight) << 1;
-			if ((format == TextureCache.G_IM_FMT_CI) && (IA16))
-			{
-				if (size == TextureCache.G_IM_SIZ_4b)
-					GetTexel = ImageFormat.GetCI4IA_RGBA4444;
-				else
-					GetTexel = ImageFormat.GetCI8IA_RGBA4444;
+			if ((y & mirrorTBit) != 0)
+				ty ^= maskTMask;
 
-				glInternalFormat = GL2.GL_RGBA4;
-				glType = GL2.GL_UNSIGNED_SHORT_4_4_4_4;
-			}
-			else
-			{
-				GetTexel = ImageFormat.imageFormat[size][format].Get16;
-				glInternalFormat = ImageFormat.imageFormat[size][format].glInternalFormat16;
-				glType = ImageFormat.imageFormat[size][format].glType16;
-			}
+			rows[y] = (tMem + (newline * ty)) * 8;
+			swaps[y] = (ty & 1) << 2;
 		}
 
-		int bpl = imgwidth << imgsize >> 1;
-		int numBytes = bpl * imgheight;
-		ByteBuffer swapped = ByteBuffer.allocate(numBytes);
-
-		((BusDMA) rdram).readDMA(address, swapped, 0, numBytes);
+		pixels = decoder.decode(rowDecoder, tmem.array(), tmem.capacity() - 1, realWidth, realHeight, palette, textureBytes / (realWidth * realHeight));
+	}
 
-		ByteBuffer dest = ByteBuffer.allocateDirect(textureBytes);
-		ByteBuffer src;
+	public void loadBackground(boolean IA16, int textureBitDepth, byte[] image, int bpl, TextureDecoder decoder)
+	{
+		ImageFormat.RowDecoder rowDecoder = selectFormat(IA16, textureBitDepth);
 
 		int clampSClamp = width - 1;
 		int clampTClamp = height - 1;
 
-		int tx;
-		int ty;
+		int[] columns = decoder.columns(realWidth);
+		for (int x = 0; x < realWidth; x++)
+			columns[x] = StrictMath.min(x, clampSClamp);
+
+		int[] rows = decoder.rows(realHeight);
+		int[] swaps = decoder.swaps(realHeight);
 		for (int y = 0; y < realHeight; y++)
 		{
-			ty = StrictMath.min(y, clampTClamp);
-
-			swapped.position(bpl * ty);
-			src = swapped.slice();
-
-			for (int x = 0; x < realWidth; x++)
-			{
-				tx = StrictMath.min(x, clampSClamp);
-
-				if (glInternalFormat == GL2.GL_RGBA8)
-					dest.putInt(GetTexel.GetTexel(src, tx, 0, palette));
-				else
-					dest.putShort((short) GetTexel.GetTexel(src, tx, 0, palette));
-			}
+			rows[y] = bpl * StrictMath.min(y, clampTClamp);
+			swaps[y] = 0;
 		}
 
-		gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, glInternalFormat, realWidth, realHeight, 0, GL2.GL_RGBA, glType, dest);
+		pixels = decoder.decode(rowDecoder, image, -1, realWidth, realHeight, palette, textureBytes / (realWidth * realHeight));
+	}
+
+	/**
+	 * Uploads the decoded texels to the bound texture the first time it is
+	 * activated and hands the buffer back to the decoder.
+	 */
+	public void upload(GL2 gl, TextureDecoder decoder)
+	{
+		gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, glInternalFormat, realWidth, realHeight, 0, GL2.GL_RGBA, glType, pixels);
+		decoder.release(pixels);
+		pixels = null;
 	}
 
 	public void activate(float uls, float ult, int shifts, int shiftt, float scaleX, float scaleY)
@@ -332,4 +228,41 @@ public class CachedTexture
 		offsetS = uls;
 		offsetT = ult;
 	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	private ImageFormat.RowDecoder selectFormat(boolean IA16, int textureBitDepth)
+	{
+		if (((ImageFormat.imageFormat[size][format].autoFormat == GL2.GL_RGBA8) ||
+				((format == TextureCache.G_IM_FMT_CI) && (IA16)) || (textureBitDepth == 2)) && (textureBitDepth != 0))
+		{
+			textureBytes = (realWidth * realHeight) << 2;
+			if ((format == TextureCache.G_IM_FMT_CI) && (IA16))
+			{
+				glInternalFormat = GL2.GL_RGBA8;
+				glType = GL2.GL_UNSIGNED_BYTE;
+				if (size == TextureCache.G_IM_SIZ_4b)
+					return ImageFormat.DecodeCI4IA_RGBA8888;
+				else
+					return ImageFormat.DecodeCI8IA_RGBA8888;
+			}
+			glInternalFormat = ImageFormat.imageFormat[size][format].glInternalFormat32;
+			glType = ImageFormat.imageFormat[size][format].glType32;
+			return ImageFormat.imageFormat[size][format].Decode32;
+		}
+
+		textureBytes = (realWidth * realHeight) << 1;
+		if ((format == TextureCache.G_IM_FMT_CI) && (IA16))
+		{
+			glInternalFormat = GL2.GL_RGBA4;
+			glType = GL2.GL_UNSIGNED_SHORT_4_4_4_4;
+			if (size == TextureCache.G_IM_SIZ_4b)
+				return ImageFormat.DecodeCI4IA_RGBA4444;
+			else
+				return ImageFormat.DecodeCI8IA_RGBA4444;
+		}
+		glInternalFormat = ImageFormat.imageFormat[size][format].glInternalFormat16;
+		glType = ImageFormat.imageFormat[size][format].glType16;
+		return ImageFormat.imageFormat[size][format].Decode16;
+	}
 }
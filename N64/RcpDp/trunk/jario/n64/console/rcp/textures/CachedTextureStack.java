@@ -20,8 +20,12 @@
 
 package jario.n64.console.rcp.textures;
 
+import java.util.HashMap;
+
 import javax.media.opengl.GL2;
 
+// Textures are kept in least recently used order (top is the most recent) and
+// indexed by their key for lookups.
 public class CachedTextureStack
 {
 	private GL2 gl;
@@ -29,6 +33,7 @@ public class CachedTextureStack
 	public CachedTexture top;
 	public CachedTexture bottom;
 	private int numCached;
+	private HashMap<TextureKey, CachedTexture> index = new HashMap<TextureKey, CachedTexture>();
 
 	public void init(GL2 gl)
 	{
@@ -36,11 +41,23 @@ public class CachedTextureStack
 		top = null;
 		bottom = null;
 		numCached = 0;
+		index.clear();
+	}
+
+	public int size()
+	{
+		return numCached;
+	}
+
+	public CachedTexture find(TextureKey key)
+	{
+		return index.get(key);
 	}
 
 	public void removeBottom()
 	{
 		gl.glDeleteTextures(1, bottom.glName, 0);
+		unindex(bottom);
 		if (bottom == top)
 			top = null;
 
@@ -81,6 +98,7 @@ public class CachedTextureStack
 
 		numCached--;
 		gl.glDeleteTextures(1, texture.glName, 0);
+		unindex(texture);
 	}
 
 	public void addTop(CachedTexture newtop)
@@ -99,6 +117,8 @@ public class CachedTextureStack
 		top = newtop;
 
 		numCached++;
+		if (newtop.key != null)
+			index.put(newtop.key, newtop);
 	}
 
 	public void moveToTop(CachedTexture newtop)
@@ -122,4 +142,10 @@ public class CachedTextureStack
 		top.higher = newtop;
 		top = newtop;
 	}
+
+	private void unindex(CachedTexture texture)
+	{
+		if (texture.key != null && index.get(texture.key) == texture)
+			index.remove(texture.key);
+	}
 }
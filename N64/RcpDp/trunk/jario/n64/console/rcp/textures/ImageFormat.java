@@ -21,29 +21,28 @@
 package jario.n64.console.rcp.textures;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import javax.media.opengl.GL2;
 
 public class ImageFormat
 {
-	public GetTexelFunc Get16;
+	public RowDecoder Decode16;
 	public int glType16;
 	public int glInternalFormat16;
-	public GetTexelFunc Get32;
+	public RowDecoder Decode32;
 	public int glType32;
 	public int glInternalFormat32;
 	public int autoFormat;
 	public int lineShift;
 	public int maxTexels;
 
-	private static ByteBuffer tmem;
+	private static byte[] tlut;
 
-	private ImageFormat(GetTexelFunc Get16, int glType16, int glInternalFormat16, GetTexelFunc Get32, int glType32, int glInternalFormat32, int autoFormat, int lineShift, int maxTexels)
+	private ImageFormat(RowDecoder Decode16, int glType16, int glInternalFormat16, RowDecoder Decode32, int glType32, int glInternalFormat32, int autoFormat, int lineShift, int maxTexels)
 	{
-		this.Get16 = Get16;
+		this.Decode16 = Decode16;
 		this.glType16 = glType16;
 		this.glInternalFormat16 = glInternalFormat16;
-		this.Get32 = Get32;
+		this.Decode32 = Decode32;
 		this.glType32 = glType32;
 		this.glInternalFormat32 = glInternalFormat32;
 		this.autoFormat = autoFormat;
@@ -53,250 +52,277 @@ public class ImageFormat
 
 	public static void settMem(ByteBuffer mem)
 	{
-		tmem = mem;
+		tlut = mem.array();
 	}
 
-	public static interface GetTexelFunc
+	/**
+	 * Converts one row of texels. The source texel for column x is
+	 * columns[x], read from row with byte addresses xored with swap and
+	 * and-ed with mask. Texels are written with absolute puts starting at
+	 * offset in dest, so rows may be decoded concurrently.
+	 */
+	public static interface RowDecoder
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette);
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset);
 	}
 
-	public static final GetTexelFunc GetNone = new GetTexelFunc()
+	public static final RowDecoder DecodeNone = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			return 0x00000000;
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) 0);
 		}
 	};
 
-	public static final GetTexelFunc GetCI4IA_RGBA4444 = new GetTexelFunc()
+	public static final RowDecoder DecodeNone32 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetCI4IA_RGBA4444");
-			return 0x0000F0FF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), 0);
 		}
 	};
 
-	public static final GetTexelFunc GetCI4IA_RGBA8888 = new GetTexelFunc()
+	// 4-bit
+
+	public static final RowDecoder DecodeCI4IA_RGBA4444 = new RowDecoder()
+	{
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
+		{
+			int base = palette << 4;
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) IA88_RGBA4444(tlut(base + texel4(src, row, swap, mask, columns[x]))));
+		}
+	};
+
+	public static final RowDecoder DecodeCI4IA_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			int color4B = src.get((x >> 1) ^ (i << 1)) & 0xFF;
-			if ((x & 1) != 0)
-				return IA88_RGBA8888(tmem.getShort((256 + (palette << 4) + (color4B & 0x0F)) * 8));
-			else
-				return IA88_RGBA8888(tmem.getShort((256 + (palette << 4) + (color4B >> 4)) * 8));
+			int base = palette << 4;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), IA88_RGBA8888(tlut(base + texel4(src, row, swap, mask, columns[x]))));
 		}
 	};
 
-	public static final GetTexelFunc GetCI4RGBA_RGBA5551 = new GetTexelFunc()
+	public static final RowDecoder DecodeCI4RGBA_RGBA5551 = new RowDecoder()
 	{
-		public final int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			int color4B = src.get((x >> 1) ^ (i << 1)) & 0xFF;
-			if ((x & 1) != 0)
-				return RGBA5551_RGBA5551(tmem.getShort((256 + (palette << 4) + (color4B & 0x0F)) * 8)) & 0xFFFF;
-			else
-				return RGBA5551_RGBA5551(tmem.getShort((256 + (palette << 4) + (color4B >> 4)) * 8)) & 0xFFFF;
+			int base = palette << 4;
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) tlut(base + texel4(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetCI4RGBA_RGBA8888 = new GetTexelFunc()
+	public static final RowDecoder DecodeCI4RGBA_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetCI4RGBA_RGBA8888");
-			return 0xFF00FFFF;
+			int base = palette << 4;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), RGBA5551_RGBA8888(tlut(base + texel4(src, row, swap, mask, columns[x]))));
 		}
 	};
 
-	public static final GetTexelFunc GetIA31_RGBA8888 = new GetTexelFunc()
+	public static final RowDecoder DecodeIA31_RGBA4444 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetIA31_RGBA8888");
-			return 0xFF00FFFF;
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) IA31_RGBA4444(texel4(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetIA31_RGBA4444 = new GetTexelFunc()
+	public static final RowDecoder DecodeIA31_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			int color4B = src.get((x >> 1) ^ (i << 1)) & 0xFF;
-			return IA31_RGBA4444(((x & 1) != 0) ? (byte) (color4B & 0x0F) : (byte) (color4B >> 4)) & 0xFFFF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), IA31_RGBA8888(texel4(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetI4_RGBA8888 = new GetTexelFunc()
+	public static final RowDecoder DecodeI4_RGBA4444 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetI4_RGBA8888");
-			return 0xFF00FFFF;
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) I4_RGBA4444(texel4(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetI4_RGBA4444 = new GetTexelFunc()
+	public static final RowDecoder DecodeI4_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			int color4B = src.get((x >> 1) ^ (i << 1)) & 0xFF;
-			return I4_RGBA4444(((x & 1) != 0) ? (byte) (color4B & 0x0F) : (byte) (color4B >> 4)) & 0xFFFF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), I4_RGBA8888(texel4(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetCI8IA_RGBA4444 = new GetTexelFunc()
+	// 8-bit
+
+	public static final RowDecoder DecodeCI8IA_RGBA4444 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetCI8IA_RGBA4444");
-			return 0x0000F0FF;
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) IA88_RGBA4444(tlut(texel8(src, row, swap, mask, columns[x]))));
 		}
 	};
 
-	public static final GetTexelFunc GetCI8IA_RGBA8888 = new GetTexelFunc()
+	public static final RowDecoder DecodeCI8IA_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			// System.out.println("GetCI8IA_RGBA8888");
-			return 0xFF00FFFF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), IA88_RGBA8888(tlut(texel8(src, row, swap, mask, columns[x]))));
 		}
 	};
 
-	public static final GetTexelFunc GetCI8RGBA_RGBA5551 = new GetTexelFunc()
+	public static final RowDecoder DecodeCI8RGBA_RGBA5551 = new RowDecoder()
 	{
-		public final int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			return RGBA5551_RGBA5551(tmem.getShort((256 + (src.get(x ^ (i << 1)) & 0xFF)) * 8)) & 0xFFFF;
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) tlut(texel8(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetCI8RGBA_RGBA8888 = new GetTexelFunc()
+	public static final RowDecoder DecodeCI8RGBA_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetCI8RGBA_RGBA8888");
-			return 0xFF00FFFF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), RGBA5551_RGBA8888(tlut(texel8(src, row, swap, mask, columns[x]))));
 		}
 	};
 
-	public static final GetTexelFunc GetIA44_RGBA8888 = new GetTexelFunc()
+	public static final RowDecoder DecodeIA44_RGBA4444 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetIA44_RGBA8888");
-			return 0xFF00FFFF;
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) IA44_RGBA4444(texel8(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetIA44_RGBA4444 = new GetTexelFunc()
+	public static final RowDecoder DecodeIA44_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			return IA44_RGBA4444(src.get(x ^ (i << 1))) & 0xFFFF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), IA44_RGBA8888(texel8(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetI8_RGBA8888 = new GetTexelFunc()
+	public static final RowDecoder DecodeI8_RGBA4444 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			return I8_RGBA8888(src.get(x ^ (i << 1)));
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) I8_RGBA4444(texel8(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetI8_RGBA4444 = new GetTexelFunc()
+	public static final RowDecoder DecodeI8_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetI8_RGBA4444");
-			return 0x0000F0FF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), I8_RGBA8888(texel8(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetRGBA5551_RGBA8888 = new GetTexelFunc()
+	// 16-bit
+
+	public static final RowDecoder DecodeRGBA5551_RGBA5551 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetRGBA5551_RGBA8888 ");
-			return 0xFF00FFFF;
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) texel16(src, row, swap, mask, columns[x]));
 		}
 	};
 
-	public static final GetTexelFunc GetRGBA5551_RGBA5551 = new GetTexelFunc()
+	public static final RowDecoder DecodeRGBA5551_RGBA8888 = new RowDecoder()
 	{
-		public final int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			return RGBA5551_RGBA5551(src.asShortBuffer().get(x ^ i)) & 0xFFFF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), RGBA5551_RGBA8888(texel16(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetIA88_RGBA8888 = new GetTexelFunc()
+	public static final RowDecoder DecodeIA88_RGBA4444 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			return IA88_RGBA8888(src.asShortBuffer().get(x ^ i));
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) IA88_RGBA4444(texel16(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetIA88_RGBA4444 = new GetTexelFunc()
+	public static final RowDecoder DecodeIA88_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetIA88_RGBA4444");
-			return 0x0000F0FF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), IA88_RGBA8888(texel16(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetRGBA8888_RGBA8888 = new GetTexelFunc()
+	// 32-bit
+
+	public static final RowDecoder DecodeRGBA8888_RGBA4444 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			src.order(ByteOrder.LITTLE_ENDIAN);
-			return src.asIntBuffer().get(x ^ i);
+			for (int x = 0; x < count; x++)
+				dest.putShort(offset + (x << 1), (short) RGBA8888_RGBA4444(texel32(src, row, swap, mask, columns[x])));
 		}
 	};
 
-	public static final GetTexelFunc GetRGBA8888_RGBA4444 = new GetTexelFunc()
+	public static final RowDecoder DecodeRGBA8888_RGBA8888 = new RowDecoder()
 	{
-		public int GetTexel(ByteBuffer src, int x, int i, int palette)
+		public void decode(byte[] src, int row, int swap, int mask, int[] columns, int count, int palette, ByteBuffer dest, int offset)
 		{
-			System.out.println("GetRGBA8888_RGBA4444");
-			return 0x0000F0FF;
+			for (int x = 0; x < count; x++)
+				dest.putInt(offset + (x << 2), texel32(src, row, swap, mask, columns[x]));
 		}
 	};
 
 	public static ImageFormat[][] imageFormat =
-	{ // Get16 glType16 glInternalFormat16 Get32 glType32 glInternalFormat32 autoFormat
+	{ // Decode16 glType16 glInternalFormat16 Decode32 glType32 glInternalFormat32 autoFormat
 	{ // 4-bit
-			new ImageFormat(GetCI4RGBA_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, GetCI4RGBA_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 4, 4096), // CI (Banjo-Kazooie uses this, doesn't make sense, but it works...)
-					new ImageFormat(GetNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetNone, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 4, 8192), // YUV
-					new ImageFormat(GetCI4RGBA_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, GetCI4RGBA_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 4, 4096), // CI
-					new ImageFormat(GetIA31_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetIA31_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 4, 8192), // IA
-					new ImageFormat(GetI4_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetI4_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 4, 8192), // I
+			new ImageFormat(DecodeCI4RGBA_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, DecodeCI4RGBA_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 4, 4096), // CI (Banjo-Kazooie uses this, doesn't make sense, but it works...)
+					new ImageFormat(DecodeNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeNone32, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 4, 8192), // YUV
+					new ImageFormat(DecodeCI4RGBA_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, DecodeCI4RGBA_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 4, 4096), // CI
+					new ImageFormat(DecodeIA31_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeIA31_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 4, 8192), // IA
+					new ImageFormat(DecodeI4_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeI4_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 4, 8192), // I
 			},
 			{ // 8-bit
-			new ImageFormat(GetCI8RGBA_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, GetCI8RGBA_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 3, 2048), // RGBA
-					new ImageFormat(GetNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetNone, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 4096), // YUV
-					new ImageFormat(GetCI8RGBA_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, GetCI8RGBA_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 3, 2048), // CI
-					new ImageFormat(GetIA44_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetIA44_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 3, 4096), // IA
-					new ImageFormat(GetI8_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetI8_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA8, 3, 4096), // I
+			new ImageFormat(DecodeCI8RGBA_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, DecodeCI8RGBA_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 3, 2048), // RGBA
+					new ImageFormat(DecodeNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeNone32, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 4096), // YUV
+					new ImageFormat(DecodeCI8RGBA_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, DecodeCI8RGBA_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 3, 2048), // CI
+					new ImageFormat(DecodeIA44_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeIA44_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 3, 4096), // IA
+					new ImageFormat(DecodeI8_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeI8_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA8, 3, 4096), // I
 			},
 			{ // 16-bit
-			new ImageFormat(GetRGBA5551_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, GetRGBA5551_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 2, 2048), // RGBA
-					new ImageFormat(GetNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetNone, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 2, 2048), // YUV
-					new ImageFormat(GetNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetNone, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 2048), // CI
-					new ImageFormat(GetIA88_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetIA88_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA8, 2, 2048), // IA
-					new ImageFormat(GetNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetNone, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 2048), // I
+			new ImageFormat(DecodeRGBA5551_RGBA5551, GL2.GL_UNSIGNED_SHORT_5_5_5_1, GL2.GL_RGB5_A1, DecodeRGBA5551_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGB5_A1, 2, 2048), // RGBA
+					new ImageFormat(DecodeNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeNone32, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 2, 2048), // YUV
+					new ImageFormat(DecodeNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeNone32, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 2048), // CI
+					new ImageFormat(DecodeIA88_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeIA88_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA8, 2, 2048), // IA
+					new ImageFormat(DecodeNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeNone32, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 2048), // I
 			},
 			{ // 32-bit
-			new ImageFormat(GetRGBA8888_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetRGBA8888_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA8, 2, 1024), // RGBA
-					new ImageFormat(GetNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetNone, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 1024), // YUV
-					new ImageFormat(GetNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetNone, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 1024), // CI
-					new ImageFormat(GetNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetNone, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 1024), // IA
-					new ImageFormat(GetNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, GetNone, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 1024), // I
+			new ImageFormat(DecodeRGBA8888_RGBA4444, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeRGBA8888_RGBA8888, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA8, 2, 1024), // RGBA
+					new ImageFormat(DecodeNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeNone32, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 1024), // YUV
+					new ImageFormat(DecodeNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeNone32, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 1024), // CI
+					new ImageFormat(DecodeNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeNone32, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 1024), // IA
+					new ImageFormat(DecodeNone, GL2.GL_UNSIGNED_SHORT_4_4_4_4, GL2.GL_RGBA4, DecodeNone32, GL2.GL_UNSIGNED_BYTE, GL2.GL_RGBA8, GL2.GL_RGBA4, 0, 1024), // I
 			}
 	};
 
@@ -320,60 +346,122 @@ public class ImageFormat
 			15, // 1 = 1111
 	};
 
-	// Just swaps the word
-	private static final short RGBA5551_RGBA5551(short color)
+	private static final int[] Three2Eight =
+	{
+			0, // 000 = 00000000
+			36, // 001 = 00100100
+			73, // 010 = 01001001
+			109, // 011 = 01101101
+			146, // 100 = 10010010
+			182, // 101 = 10110110
+			219, // 110 = 11011011
+			255, // 111 = 11111111
+	};
+
+	// texel fetches, addresses are swizzled the way tmem stores odd rows
+
+	private static final int texel4(byte[] src, int row, int swap, int mask, int x)
+	{
+		int color4B = src[(row + ((x >> 1) ^ swap)) & mask];
+		return ((x & 1) != 0) ? color4B & 0x0F : (color4B >> 4) & 0x0F;
+	}
+
+	private static final int texel8(byte[] src, int row, int swap, int mask, int x)
+	{
+		return src[(row + (x ^ swap)) & mask] & 0xFF;
+	}
+
+	private static final int texel16(byte[] src, int row, int swap, int mask, int x)
+	{
+		int a = (row + ((x << 1) ^ swap)) & mask;
+		return ((src[a] & 0xFF) << 8) | (src[a + 1] & 0xFF);
+	}
+
+	// rgba bytes in memory order, the same as the gl RGBA8 upload
+	private static final int texel32(byte[] src, int row, int swap, int mask, int x)
+	{
+		int a = (row + ((x << 2) ^ (swap << 1))) & mask;
+		return (src[a] & 0xFF) | ((src[a + 1] & 0xFF) << 8) | ((src[a + 2] & 0xFF) << 16) | ((src[a + 3] & 0xFF) << 24);
+	}
+
+	// palette entries are 16-bit and spaced a quadword apart in the upper half of tmem
+	private static final int tlut(int index)
+	{
+		int a = (256 + index) << 3;
+		return ((tlut[a] & 0xFF) << 8) | (tlut[a + 1] & 0xFF);
+	}
+
+	// texel conversions, 32-bit results hold r in the low byte
+
+	private static final int RGBA5551_RGBA8888(int color)
 	{
-		return color;
+		int r = (color >> 11) & 0x1F;
+		int g = (color >> 6) & 0x1F;
+		int b = (color >> 1) & 0x1F;
+		return ((color & 1) != 0 ? 0xFF000000 : 0) | (((b << 3) | (b >> 2)) << 16) | (((g << 3) | (g >> 2)) << 8) | ((r << 3) | (r >> 2));
 	}
 
-	private static final int IA88_RGBA8888(short color)
+	private static final int IA88_RGBA8888(int color)
 	{
 		int al = color & 0xFF;
 		int ah = (color >> 8) & 0xFF;
 		return (al << 24) | (ah << 16) | (ah << 8) | ah;
 	}
 
-	private static final short IA44_RGBA4444(byte color)
+	private static final int IA88_RGBA4444(int color)
+	{
+		int i = (color >> 12) & 0x0F;
+		return (i << 12) | (i << 8) | (i << 4) | ((color >> 4) & 0x0F);
+	}
+
+	private static final int IA44_RGBA4444(int color)
+	{
+		int i = (color >> 4) & 0x0F;
+		return (i << 12) | (i << 8) | (color & 0xFF);
+	}
+
+	private static final int IA44_RGBA8888(int color)
+	{
+		int i = ((color >> 4) & 0x0F) * 0x11;
+		int a = (color & 0x0F) * 0x11;
+		return (a << 24) | (i << 16) | (i << 8) | i;
+	}
+
+	private static final int IA31_RGBA4444(int color)
+	{
+		int i = Three2Four[(color >> 1) & 0x07];
+		return (i << 12) | (i << 8) | (i << 4) | One2Four[color & 1];
+	}
+
+	private static final int IA31_RGBA8888(int color)
+	{
+		int i = Three2Eight[(color >> 1) & 0x07];
+		return ((color & 1) != 0 ? 0xFF000000 : 0) | (i << 16) | (i << 8) | i;
+	}
+
+	private static final int I8_RGBA8888(int color)
+	{
+		return (color << 24) | (color << 16) | (color << 8) | color;
+	}
+
+	private static final int I8_RGBA4444(int color)
 	{
-		int cl = color & 0xFF;
-		int al = cl;
-		cl = (cl >> 4) & 0xFF;
-		int ah = cl;
-		cl = (cl << 4) & 0xFF;
-		ah = ah | cl;
-		return (short) ((ah << 8) | al);
+		int i = color >> 4;
+		return (i << 12) | (i << 8) | (i << 4) | i;
 	}
 
-	private static final short IA31_RGBA4444(byte color)
-	{
-		int cl = color & 0xFF;
-		int bl = cl;
-		bl = (bl >> 1) & 0xFF;
-		int ch = Three2Four[bl];
-		int ah = ch;
-		ch = (ch << 4) & 0xFF;
-		ah |= ch;
-		int al = ch;
-		bl = cl;
-		bl &= 1;
-		ch = One2Four[bl];
-		al |= ch;
-		return (short) ((ah << 8) | al);
+	private static final int I4_RGBA4444(int color)
+	{
+		return color * 0x1111;
 	}
 
-	private static final int I8_RGBA8888(byte color)
+	private static final int I4_RGBA8888(int color)
 	{
-		int cl = color & 0xFF;
-		return (cl << 24) | (cl << 16) | (cl << 8) | (cl);
+		return color * 0x11111111;
 	}
 
-	private static final short I4_RGBA4444(byte color)
+	private static final int RGBA8888_RGBA4444(int color)
 	{
-		int cl = color & 0xFF;
-		int al = cl;
-		cl = (cl << 4) & 0xFF;
-		al |= cl;
-		int ah = al;
-		return (short) (((ah & 0xFF) << 8) | (al & 0xFF));
+		return ((color << 8) & 0xF000) | ((color >> 4) & 0x0F00) | ((color >> 16) & 0x00F0) | ((color >> 28) & 0x000F);
 	}
 }
@@ -23,15 +23,18 @@ package jario.n64.console.rcp.textures;
 import jario.hardware.Bus16bit;
 import jario.hardware.Bus32bit;
 import jario.hardware.BusDMA;
+import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.zip.Adler32;
 import java.util.zip.Checksum;
 import javax.media.opengl.GL2;
 
-public class TextureCache
+public class TextureCache implements Configurable
 {
 	// GBI
 	// Image formats
@@ -193,6 +196,9 @@ public class TextureCache
 	private boolean ARB_multitexture; // TNT, GeForce, Rage 128, Radeon
 	private int cachedBytes;
 	private CachedTextureStack stack = new CachedTextureStack();
+	private TextureDecoder decoder = new TextureDecoder();
+	private TextureStore store;
+	private int storeHits;
 	private Texture texture = new Texture();
 	private gDPTile[] tiles = new gDPTile[8];
 	private gDPTile loadTile = new gDPTile();
@@ -208,6 +214,9 @@ public class TextureCache
 	private final byte[] tmp = new byte[4];
 	private int hits;
 	private int misses;
+	private int evictions;
+	private long evictedBytes;
+	private TextureKey probe = new TextureKey();
 	private int[] glNoiseNames = new int[32];
 	private CachedTexture dummy;
 	private BgImage bgImage = new BgImage();
@@ -301,6 +310,29 @@ public class TextureCache
 		crcBuildTable();
 	}
 
+	// cache statistics, used by DisplayProcessor.readConfig
+	@Override
+	public Object readConfig(String key)
+	{
+		if (key.equals("texturehits")) return hits;
+		else if (key.equals("texturemisses")) return misses;
+		else if (key.equals("textureevictions")) return evictions;
+		else if (key.equals("textureevictedbytes")) return evictedBytes;
+		else if (key.equals("texturecount")) return stack.size();
+		else if (key.equals("texturebytes")) return cachedBytes;
+		else if (key.equals("texturemaxbytes")) return maxBytes;
+		else if (key.equals("texturestorehits")) return storeHits;
+		else if (key.equals("texturestorecount")) return store != null ? store.size() : 0;
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
+		if (key.equals("texturemaxbytes")) maxBytes = (Integer) value;
+		else if (key.equals("texturestore")) openStore((File) value);
+	}
+
 	// called by OpenGl.addTriangle
 	public float getTexS(int tex, float scale)
 	{
@@ -1008,29 +1040,27 @@ public class TextureCache
 		}
 		int crc = (int) crc32.getValue();
 
-		CachedTexture texture = stack.top;
-		while (texture != null)
+		probe.crc = crc;
+		probe.width = width;
+		probe.height = height;
+		probe.clampWidth = clampWidth;
+		probe.clampHeight = clampHeight;
+		probe.maskS = textureTile[tex].masks;
+		probe.maskT = textureTile[tex].maskt;
+		probe.mirrorS = textureTile[tex].mirrors;
+		probe.mirrorT = textureTile[tex].mirrort;
+		probe.clampS = textureTile[tex].clamps;
+		probe.clampT = textureTile[tex].clampt;
+		probe.format = textureTile[tex].format;
+		probe.size = textureTile[tex].size;
+		probe.variant = (IA16 ? 1 : 0) | (textureBitDepth << 1);
+
+		CachedTexture texture = stack.find(probe);
+		if (texture != null)
 		{
-			if ((texture.crc == crc) &&
-					(texture.width == width) &&
-					(texture.height == height) &&
-					(texture.clampWidth == clampWidth) &&
-					(texture.clampHeight == clampHeight) &&
-					(texture.maskS == textureTile[tex].masks) &&
-					(texture.maskT == textureTile[tex].maskt) &&
-					(texture.mirrorS == textureTile[tex].mirrors) &&
-					(texture.mirrorT == textureTile[tex].mirrort) &&
-					(texture.clampS == textureTile[tex].clamps) &&
-					(texture.clampT == textureTile[tex].clampt) &&
-					(texture.format == textureTile[tex].format) &&
-					(texture.size == textureTile[tex].size))
-			{
-				activateTexture(tex, texture, linear);
-				hits++;
-				return;
-			}
-
-			texture = texture.lower;
+			activateTexture(tex, texture, linear);
+			hits++;
+			return;
 		}
 
 		misses++;
@@ -1040,9 +1070,9 @@ public class TextureCache
 			gl.glActiveTexture(GL2.GL_TEXTURE0 + tex);
 
 		current[tex] = new CachedTexture();
+		current[tex].key = probe.copy();
 		prune();
 		stack.addTop(current[tex]);
-		gl.glBindTexture(GL2.GL_TEXTURE_2D, current[tex].glName[0]);
 
 		current[tex].address = textureImage.address;
 		current[tex].crc = crc;
@@ -1088,7 +1118,7 @@ public class TextureCache
 		else if (textureTile[tex].shiftt > 0)
 			current[tex].shiftScaleT /= (float) (1 << textureTile[tex].shiftt);
 
-		current[tex].load(IA16, textureBitDepth, tmem, gl);
+		loadTexels(current[tex], IA16, null);
 		activateTexture(tex, current[tex], linear);
 		cachedBytes += current[tex].textureBytes;
 	}
@@ -1101,7 +1131,7 @@ public class TextureCache
 		// calculate bgImage crc
 		int numBytes = bgImage.width * bgImage.height << bgImage.size >>> 1;
 		crc32.reset();
-		ByteBuffer buff = ByteBuffer.allocate(numBytes);
+		ByteBuffer buff = decoder.source(numBytes);
 		byte[] rdramcrc = buff.array();
 		((BusDMA) rdram).readDMA(bgImage.address, buff, 0, numBytes);
 		crc32.update(rdramcrc, 0, numBytes);
@@ -1118,21 +1148,28 @@ public class TextureCache
 		}
 		int crc = (int) crc32.getValue();
 
-		// find and activate bgImage
-		CachedTexture tex = stack.top;
-		while (tex != null)
+		// find and activate bgImage, backgrounds are always clamped and unmasked
+		probe.crc = crc;
+		probe.width = bgImage.width;
+		probe.height = bgImage.height;
+		probe.clampWidth = bgImage.width;
+		probe.clampHeight = bgImage.height;
+		probe.maskS = 0;
+		probe.maskT = 0;
+		probe.mirrorS = 0;
+		probe.mirrorT = 0;
+		probe.clampS = 1;
+		probe.clampT = 1;
+		probe.format = bgImage.format;
+		probe.size = bgImage.size;
+		probe.variant = (IA16 ? 1 : 0) | (textureBitDepth << 1);
+
+		CachedTexture tex = stack.find(probe);
+		if (tex != null)
 		{
-			if ((tex.crc == crc) &&
-					(tex.width == bgImage.width) &&
-					(tex.height == bgImage.height) &&
-					(tex.format == bgImage.format) &&
-					(tex.size == bgImage.size))
-			{
-				activateTexture(0, tex, linear);
-				hits++;
-				return;
-			}
-			tex = tex.lower;
+			activateTexture(0, tex, linear);
+			hits++;
+			return;
 		}
 
 		// bgImage not found
@@ -1143,9 +1180,9 @@ public class TextureCache
 			gl.glActiveTexture(GL2.GL_TEXTURE0);
 
 		current[0] = new CachedTexture();
+		current[0].key = probe.copy();
 		prune();
 		stack.addTop(current[0]);
-		gl.glBindTexture(GL2.GL_TEXTURE_2D, current[0].glName[0]);
 
 		current[0].address = bgImage.address;
 		current[0].crc = crc;
@@ -1171,26 +1208,69 @@ public class TextureCache
 		current[0].shiftScaleS = 1.0f;
 		current[0].shiftScaleT = 1.0f;
 
-		current[0].loadBackground(IA16, textureBitDepth, (Hardware) rdram, gl, bgImage.width, bgImage.height, bgImage.size, bgImage.address);
+		loadTexels(current[0], IA16, rdramcrc);
 		activateTexture(0, current[0], linear);
 		cachedBytes += current[0].textureBytes;
 	}
 
+	// takes the texels from the store when it has them, else decodes and stores them,
+	// background images are decoded from image and never stored, they are redrawn
+	// by the cpu too often to be worth keeping
+	private void loadTexels(CachedTexture texture, boolean IA16, byte[] image)
+	{
+		if (image != null)
+		{
+			texture.loadBackground(IA16, textureBitDepth, image, texture.width << texture.size >> 1, decoder);
+			return;
+		}
+
+		if (store != null && store.load(texture))
+		{
+			storeHits++;
+			return;
+		}
+
+		texture.load(IA16, textureBitDepth, tmem, decoder);
+		if (store != null)
+			store.save(texture);
+	}
+
+	private void openStore(File dir)
+	{
+		if (store != null)
+			store.close();
+		store = null;
+		if (dir == null)
+			return;
+
+		try
+		{
+			dir.mkdirs();
+			store = new TextureStore(dir);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Texture store unavailable: " + dir);
+			e.printStackTrace();
+		}
+	}
+
+	// evicts least recently used textures until the cache fits in maxBytes,
+	// the dummy texture is never evicted
 	private void prune()
 	{
 		while (cachedBytes > maxBytes)
 		{
-			if (stack.bottom != dummy)
-			{
-				cachedBytes -= stack.bottom.textureBytes;
+			CachedTexture victim = (stack.bottom != dummy) ? stack.bottom : dummy.higher;
+			if (victim == null)
+				break;
+			cachedBytes -= victim.textureBytes;
+			evictions++;
+			evictedBytes += victim.textureBytes;
+			if (victim == stack.bottom)
 				stack.removeBottom();
-			}
-			else if (dummy.higher != null)
-			{
-				stack.remove(dummy.higher);
-				cachedBytes -= dummy.higher.textureBytes;
-			}
-			// may need else, can get stuck in this loop
+			else
+				stack.remove(victim);
 		}
 	}
 
@@ -1200,6 +1280,9 @@ public class TextureCache
 			gl.glActiveTexture(GL2.GL_TEXTURE0 + tex);
 		// Bind the cached texture
 		gl.glBindTexture(GL2.GL_TEXTURE_2D, texture.glName[0]);
+		// Upload on first use
+		if (texture.pixels != null)
+			texture.upload(gl, decoder);
 		// Set filter mode. Almost always bilinear, but check anyways
 		if (linear)
 		{
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2005, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.console.rcp.textures;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Converts texels into upload buffers. Large textures are split into
+ * interleaved row slices that decode on a worker pool, the buffers are
+ * pooled by size and handed back once uploaded.
+ */
+public class TextureDecoder
+{
+	private static final int PARALLEL_TEXELS = 16384; // smaller textures decode on the calling thread
+	private static final int SLICE_ROWS = 8;
+	private static final int POOLED_BUFFERS = 4; // per size
+
+	/**
+	 * Decodes the rows of the current texture it owns.
+	 */
+	private class Slice implements Callable<Object>
+	{
+		public int first;
+		public int step;
+
+		@Override
+		public Object call()
+		{
+			decodeRows(first, step);
+			return null;
+		}
+	}
+
+	private ExecutorService sliceExecutor;
+	private List<Slice> sliceTasks = new ArrayList<Slice>();
+	private List<ArrayDeque<ByteBuffer>> freeBuffers = new ArrayList<ArrayDeque<ByteBuffer>>();
+	private ByteBuffer source = ByteBuffer.allocate(0);
+
+	// current texture, row y reads from rows[y] with swaps[y]
+	private ImageFormat.RowDecoder decoder;
+	private byte[] src;
+	private int mask;
+	private int[] columns = new int[0];
+	private int[] rows = new int[0];
+	private int[] swaps = new int[0];
+	private int width;
+	private int height;
+	private int palette;
+	private ByteBuffer dest;
+	private int texelBytes;
+
+	public TextureDecoder()
+	{
+		for (int i = 0; i < 32; i++)
+			freeBuffers.add(new ArrayDeque<ByteBuffer>());
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 0; i < threads; i++)
+		{
+			Slice slice = new Slice();
+			slice.first = i;
+			slice.step = threads;
+			sliceTasks.add(slice);
+		}
+		if (threads > 1)
+		{
+			sliceExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+			{
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "texture decode");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	public int[] columns(int width)
+	{
+		if (columns.length < width)
+			columns = new int[width];
+		return columns;
+	}
+
+	public int[] rows(int height)
+	{
+		if (rows.length < height)
+		{
+			rows = new int[height];
+			swaps = new int[height];
+		}
+		return rows;
+	}
+
+	public int[] swaps(int height)
+	{
+		rows(height);
+		return swaps;
+	}
+
+	/**
+	 * Returns a heap buffer of at least bytes, reused between calls.
+	 */
+	public ByteBuffer source(int bytes)
+	{
+		if (source.capacity() < bytes)
+			source = ByteBuffer.allocate(bytes);
+		source.clear();
+		return source;
+	}
+
+	/**
+	 * Decodes width x height texels through the column and row tables into a
+	 * pooled native order buffer, which should be given back with release.
+	 */
+	public ByteBuffer decode(ImageFormat.RowDecoder decoder, byte[] src, int mask, int width, int height, int palette, int texelBytes)
+	{
+		this.decoder = decoder;
+		this.src = src;
+		this.mask = mask;
+		this.width = width;
+		this.height = height;
+		this.palette = palette;
+		this.texelBytes = texelBytes;
+		dest = acquire(width * height * texelBytes);
+
+		if (sliceExecutor != null && width * height >= PARALLEL_TEXELS)
+		{
+			try
+			{
+				for (Future<Object> f : sliceExecutor.invokeAll(sliceTasks))
+					f.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e)
+			{
+				e.printStackTrace();
+			}
+		}
+		else
+		{
+			decodeRows(0, 1);
+		}
+
+		ByteBuffer pixels = dest;
+		this.src = null;
+		dest = null;
+		return pixels;
+	}
+
+	public void release(ByteBuffer buffer)
+	{
+		if (buffer.isReadOnly())
+			return; // mapped from the texture store
+		ArrayDeque<ByteBuffer> free = freeBuffers.get(Integer.numberOfTrailingZeros(buffer.capacity()));
+		if (free.size() < POOLED_BUFFERS)
+			free.push(buffer);
+	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	private ByteBuffer acquire(int bytes)
+	{
+		int log2 = 32 - Integer.numberOfLeadingZeros(StrictMath.max(bytes, 64) - 1);
+		ByteBuffer buffer = freeBuffers.get(log2).poll();
+		if (buffer == null)
+			buffer = ByteBuffer.allocateDirect(1 << log2).order(ByteOrder.nativeOrder());
+		buffer.clear();
+		buffer.limit(bytes);
+		return buffer;
+	}
+
+	private void decodeRows(int first, int step)
+	{
+		int stride = width * texelBytes;
+		for (int block = first * SLICE_ROWS; block < height; block += step * SLICE_ROWS)
+		{
+			int end = StrictMath.min(block + SLICE_ROWS, height);
+			for (int y = block; y < end; y++)
+				decoder.decode(src, rows[y], swaps[y], mask, columns, width, palette, dest, y * stride);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2005, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.console.rcp.textures;
+
+/**
+ * Lookup key of a cached texture: the tmem crc plus everything that changes
+ * how the texels are expanded into a gl texture.
+ */
+public class TextureKey
+{
+	public int crc;
+	public int width;
+	public int height;
+	public int clampWidth;
+	public int clampHeight;
+	public int maskS;
+	public int maskT;
+	public int mirrorS;
+	public int mirrorT;
+	public int clampS;
+	public int clampT;
+	public int format;
+	public int size;
+	public int variant; // ia16 palette and texture bit depth
+
+	public TextureKey copy()
+	{
+		TextureKey key = new TextureKey();
+		key.crc = crc;
+		key.width = width;
+		key.height = height;
+		key.clampWidth = clampWidth;
+		key.clampHeight = clampHeight;
+		key.maskS = maskS;
+		key.maskT = maskT;
+		key.mirrorS = mirrorS;
+		key.mirrorT = mirrorT;
+		key.clampS = clampS;
+		key.clampT = clampT;
+		key.format = format;
+		key.size = size;
+		key.variant = variant;
+		return key;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = crc;
+		hash = hash * 31 + ((width << 16) | height);
+		hash = hash * 31 + ((clampWidth << 16) | clampHeight);
+		hash = hash * 31 + ((maskS << 24) | (maskT << 16) | (mirrorS << 12) | (mirrorT << 8) | (clampS << 4) | clampT);
+		hash = hash * 31 + ((variant << 8) | (format << 4) | size);
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!(obj instanceof TextureKey))
+			return false;
+		TextureKey key = (TextureKey) obj;
+		return (key.crc == crc) &&
+				(key.width == width) &&
+				(key.height == height) &&
+				(key.clampWidth == clampWidth) &&
+				(key.clampHeight == clampHeight) &&
+				(key.maskS == maskS) &&
+				(key.maskT == maskT) &&
+				(key.mirrorS == mirrorS) &&
+				(key.mirrorT == mirrorT) &&
+				(key.clampS == clampS) &&
+				(key.clampT == clampT) &&
+				(key.format == format) &&
+				(key.size == size) &&
+				(key.variant == variant);
+	}
+}
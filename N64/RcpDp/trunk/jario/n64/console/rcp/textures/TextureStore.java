@@ -0,0 +1,269 @@
+/**
+ * Copyright 2005, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.console.rcp.textures;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Decoded textures kept on disk between sessions. The store is an append
+ * only file of records, a texture key followed by the gl format and the
+ * texels as they are uploaded. The file is memory mapped and hits are
+ * uploaded straight from the mapping. Records appended during a session
+ * are mapped in segments of their own as they are first needed. A store
+ * that reaches MAX_BYTES takes no more records, and is started over when
+ * it is next opened.
+ */
+public class TextureStore
+{
+	private static final int MAGIC = 0x4A544558; // JTEX
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 12;
+	private static final int RECORD_HEADER_BYTES = 19 * 4;
+	private static final long MAX_BYTES = 256L << 20;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private TreeMap<Long, MappedByteBuffer> segments = new TreeMap<Long, MappedByteBuffer>(); // by file offset
+	private long end; // records are appended here
+	private long mappedEnd; // the file is mapped up to here
+	private boolean failed; // the store does nothing after an unexpected error
+	private HashMap<TextureKey, Long> index = new HashMap<TextureKey, Long>();
+	private ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+
+	public TextureStore(File dir) throws IOException
+	{
+		file = new RandomAccessFile(new File(dir, "textures.bin"), "rw");
+		channel = file.getChannel();
+
+		// texels are stored in native order, a store from another machine is started over
+		int order = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? 1 : 0;
+		long size = channel.size();
+		if (size < HEADER_BYTES || size >= MAX_BYTES || file.readInt() != MAGIC || file.readInt() != VERSION || file.readInt() != order)
+		{
+			channel.truncate(0);
+			file.seek(0);
+			file.writeInt(MAGIC);
+			file.writeInt(VERSION);
+			file.writeInt(order);
+			size = HEADER_BYTES;
+		}
+
+		MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		int offset = HEADER_BYTES;
+		while (offset + RECORD_HEADER_BYTES <= mapped.capacity())
+		{
+			mapped.position(offset);
+			TextureKey key = readKey(mapped);
+			mapped.position(offset + RECORD_HEADER_BYTES - 4);
+			int length = mapped.getInt();
+			if (length < 0 || offset + RECORD_HEADER_BYTES + length > mapped.capacity())
+				break; // torn write at the end of the last session
+			index.put(key, (long) offset);
+			offset += RECORD_HEADER_BYTES + length;
+		}
+		end = offset;
+		if (end < size)
+		{
+			// cut off the torn record so appended records start past the mapping
+			channel.truncate(end);
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+		}
+		segments.put(0L, mapped);
+		mappedEnd = end;
+	}
+
+	/**
+	 * Fills in the texels and gl format of texture from the store, returns
+	 * false if its key has not been stored.
+	 */
+	public boolean load(CachedTexture texture)
+	{
+		if (failed)
+			return false;
+		Long offset = index.get(texture.key);
+		if (offset == null)
+			return false;
+
+		try
+		{
+			// saved this session, after the last segment was mapped
+			if (offset >= mappedEnd)
+				map();
+
+			Map.Entry<Long, MappedByteBuffer> segment = segments.floorEntry(offset);
+			MappedByteBuffer mapped = segment.getValue();
+			int position = (int) (offset - segment.getKey());
+			mapped.position(position + 14 * 4);
+			int glInternalFormat = mapped.getInt();
+			int glType = mapped.getInt();
+			int realWidth = mapped.getInt();
+			int realHeight = mapped.getInt();
+			int length = mapped.getInt();
+			if (realWidth != texture.realWidth || realHeight != texture.realHeight)
+				return false;
+
+			ByteBuffer pixels = mapped.duplicate();
+			pixels.position(position + RECORD_HEADER_BYTES);
+			pixels.limit(position + RECORD_HEADER_BYTES + length);
+			texture.pixels = pixels.slice().order(ByteOrder.nativeOrder());
+			texture.glInternalFormat = glInternalFormat;
+			texture.glType = glType;
+			texture.textureBytes = length;
+			return true;
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return false;
+		}
+		catch (RuntimeException e)
+		{
+			fail(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Appends the decoded texels of texture, before they are uploaded.
+	 */
+	public void save(CachedTexture texture)
+	{
+		if (failed || index.containsKey(texture.key))
+			return;
+		if (end + RECORD_HEADER_BYTES + texture.textureBytes > MAX_BYTES)
+			return; // full until it is started over
+
+		try
+		{
+			long offset = end;
+			ByteBuffer pixels = texture.pixels.duplicate();
+			pixels.position(0);
+			pixels.limit(texture.textureBytes);
+
+			recordHeader.clear();
+			writeKey(recordHeader, texture.key);
+			recordHeader.putInt(texture.glInternalFormat);
+			recordHeader.putInt(texture.glType);
+			recordHeader.putInt(texture.realWidth);
+			recordHeader.putInt(texture.realHeight);
+			recordHeader.putInt(texture.textureBytes);
+			recordHeader.flip();
+
+			channel.position(offset);
+			while (recordHeader.hasRemaining())
+				channel.write(recordHeader);
+			while (pixels.hasRemaining())
+				channel.write(pixels);
+			index.put(texture.key, offset);
+			end = channel.position();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		catch (RuntimeException e)
+		{
+			fail(e);
+		}
+	}
+
+	public int size()
+	{
+		return index.size();
+	}
+
+	public void close()
+	{
+		try
+		{
+			channel.close();
+			file.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		segments.clear();
+		index.clear();
+	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	// maps the records appended since the last segment
+	private void map() throws IOException
+	{
+		segments.put(mappedEnd, channel.map(FileChannel.MapMode.READ_ONLY, mappedEnd, end - mappedEnd));
+		mappedEnd = end;
+	}
+
+	private void fail(RuntimeException e)
+	{
+		e.printStackTrace();
+		failed = true;
+		segments.clear();
+		index.clear();
+	}
+
+	private static TextureKey readKey(ByteBuffer buffer)
+	{
+		TextureKey key = new TextureKey();
+		key.crc = buffer.getInt();
+		key.width = buffer.getInt();
+		key.height = buffer.getInt();
+		key.clampWidth = buffer.getInt();
+		key.clampHeight = buffer.getInt();
+		key.maskS = buffer.getInt();
+		key.maskT = buffer.getInt();
+		key.mirrorS = buffer.getInt();
+		key.mirrorT = buffer.getInt();
+		key.clampS = buffer.getInt();
+		key.clampT = buffer.getInt();
+		key.format = buffer.getInt();
+		key.size = buffer.getInt();
+		key.variant = buffer.getInt();
+		return key;
+	}
+
+	private static void writeKey(ByteBuffer buffer, TextureKey key)
+	{
+		buffer.putInt(key.crc);
+		buffer.putInt(key.width);
+		buffer.putInt(key.height);
+		buffer.putInt(key.clampWidth);
+		buffer.putInt(key.clampHeight);
+		buffer.putInt(key.maskS);
+		buffer.putInt(key.maskT);
+		buffer.putInt(key.mirrorS);
+		buffer.putInt(key.mirrorT);
+		buffer.putInt(key.clampS);
+		buffer.putInt(key.clampT);
+		buffer.putInt(key.format);
+		buffer.putInt(key.size);
+		buffer.putInt(key.variant);
+	}
+}
@@ -0,0 +1,1847 @@
+/**
+ * Copyright 2005, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.console.rcp;
+
+import jario.hardware.Bus16bit;
+import jario.hardware.Bus32bit;
+import jario.hardware.BusBulk;
+import jario.hardware.BusDMA;
+import jario.hardware.Clockable;
+import jario.hardware.Configurable;
+import jario.hardware.Hardware;
+import java.awt.Canvas;
+import java.awt.GraphicsEnvironment;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Display processor that rasterizes the rdp commands in software into the
+ * color image in rdram, the video interface then scans it out through the dac.
+ * Primitives are queued until the rdp state changes and are then drawn by a
+ * pool of threads, each owning an interleaved set of 8 scanline bands.
+ */
+public class SoftwareDisplayProcessor implements Hardware, Clockable, Bus32bit, BusDMA, Configurable
+{
+	// hle vertex batch filled by the ucodes, same layout as the gl display processor
+	private static final int HLE_VERTICES = 256;
+	private static final int HLE_X = 0; // x, y, z, w
+	private static final int HLE_R = 4; // r, g, b, a
+	private static final int HLE_S = 8; // s, t
+	// private static final int HLE_CLIP = 10; // clip x, y, z
+	private static final int HLE_ATTRIBUTES = 13;
+
+	private static final int MI_INTR_REG = 0x04300008;
+	private static final int MI_INTR_SET_DP = 0x0800; /* Bit 11: set DP interrupt */
+
+	private static final int RDRAM_SIZE_REG = 0x03F00028;
+
+	// DP Command Registers
+	private static final int DPC_START_REG = 0;
+	private static final int DPC_END_REG = 1;
+	private static final int DPC_CURRENT_REG = 2;
+	private static final int DPC_STATUS_REG = 3;
+	private static final int DPC_CLOCK_REG = 4;
+	private static final int DPC_BUFBUSY_REG = 5;
+	private static final int DPC_PIPEBUSY_REG = 6;
+	private static final int DPC_TMEM_REG = 7;
+
+	private static final int DPC_CLR_XBUS_DMEM_DMA = 0x0001; /* Bit 0: clear xbus_dmem_dma */
+	private static final int DPC_SET_XBUS_DMEM_DMA = 0x0002; /* Bit 1: set xbus_dmem_dma */
+	private static final int DPC_CLR_FREEZE = 0x0004; /* Bit 2: clear freeze */
+	private static final int DPC_SET_FREEZE = 0x0008; /* Bit 3: set freeze */
+	private static final int DPC_CLR_FLUSH = 0x0010; /* Bit 4: clear flush */
+	private static final int DPC_SET_FLUSH = 0x0020; /* Bit 5: set flush */
+
+	private static final int DPC_STATUS_XBUS_DMEM_DMA = 0x001; /* Bit 0: xbus_dmem_dma */
+	private static final int DPC_STATUS_FREEZE = 0x002; /* Bit 1: freeze */
+	private static final int DPC_STATUS_FLUSH = 0x004; /* Bit 2: flush */
+
+	private static final int G_CYC_2CYCLE = 1;
+	private static final int G_CYC_COPY = 2;
+	private static final int G_CYC_FILL = 3;
+
+	private static final int G_IM_FMT_CI = 2;
+	private static final int G_IM_FMT_IA = 3;
+
+	private static final int G_IM_SIZ_4b = 0;
+	private static final int G_IM_SIZ_8b = 1;
+	private static final int G_IM_SIZ_16b = 2;
+	private static final int G_IM_SIZ_32b = 3;
+
+	private static final int G_TT_IA16 = 3;
+	private static final int G_TF_POINT = 0;
+	private static final int G_AC_THRESHOLD = 1;
+	private static final int ZMODE_DEC = 3;
+
+	// combiner inputs, every slot holds r, g, b, a
+	private static final int CC_COMBINED = 0;
+	private static final int CC_TEXEL0 = 1;
+	private static final int CC_TEXEL1 = 2;
+	private static final int CC_PRIM = 3;
+	private static final int CC_SHADE = 4;
+	private static final int CC_ENV = 5;
+	private static final int CC_ONE = 6;
+	private static final int CC_NOISE = 7;
+	private static final int CC_ZERO = 8;
+	private static final int CC_KEY_CENTER = 9;
+	private static final int CC_KEY_SCALE = 10;
+	private static final int CC_COMBINED_ALPHA = 11;
+	private static final int CC_TEXEL0_ALPHA = 12;
+	private static final int CC_TEXEL1_ALPHA = 13;
+	private static final int CC_PRIM_ALPHA = 14;
+	private static final int CC_SHADE_ALPHA = 15;
+	private static final int CC_ENV_ALPHA = 16;
+	private static final int CC_LOD_FRACTION = 17;
+	private static final int CC_PRIM_LOD_FRACTION = 18;
+	private static final int CC_K4 = 19;
+	private static final int CC_K5 = 20;
+	private static final int CC_INPUTS = 21;
+
+	private static final int[] SUB_A_RGB = {
+			CC_COMBINED, CC_TEXEL0, CC_TEXEL1, CC_PRIM, CC_SHADE, CC_ENV, CC_ONE, CC_NOISE,
+			CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO };
+	private static final int[] SUB_B_RGB = {
+			CC_COMBINED, CC_TEXEL0, CC_TEXEL1, CC_PRIM, CC_SHADE, CC_ENV, CC_KEY_CENTER, CC_K4,
+			CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO };
+	private static final int[] MUL_RGB = {
+			CC_COMBINED, CC_TEXEL0, CC_TEXEL1, CC_PRIM, CC_SHADE, CC_ENV, CC_KEY_SCALE, CC_COMBINED_ALPHA,
+			CC_TEXEL0_ALPHA, CC_TEXEL1_ALPHA, CC_PRIM_ALPHA, CC_SHADE_ALPHA, CC_ENV_ALPHA, CC_LOD_FRACTION, CC_PRIM_LOD_FRACTION, CC_K5,
+			CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO,
+			CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO, CC_ZERO };
+	private static final int[] ADD_RGB = {
+			CC_COMBINED, CC_TEXEL0, CC_TEXEL1, CC_PRIM, CC_SHADE, CC_ENV, CC_ONE, CC_ZERO };
+	private static final int[] ADD_ALPHA = {
+			CC_COMBINED, CC_TEXEL0, CC_TEXEL1, CC_PRIM, CC_SHADE, CC_ENV, CC_ONE, CC_ZERO };
+	private static final int[] MUL_ALPHA = {
+			CC_LOD_FRACTION, CC_TEXEL0, CC_TEXEL1, CC_PRIM, CC_SHADE, CC_ENV, CC_PRIM_LOD_FRACTION, CC_ZERO };
+
+	// queued primitives, PRIM_STRIDE floats each
+	private static final int PRIMITIVES = 512;
+	private static final int PRIM_STRIDE = 40;
+	private static final int PRIM_TRIANGLE = 0;
+	private static final int PRIM_FILL_RECT = 1;
+	private static final int PRIM_TEX_RECT = 2;
+	private static final int P_TYPE = 0;
+	private static final int P_X0 = 1; // bounds, inclusive
+	private static final int P_Y0 = 2;
+	private static final int P_X1 = 3;
+	private static final int P_Y1 = 4;
+	private static final int P_TILE = 5;
+	private static final int T_EDGE = 6; // 3 edges of a, b, c
+	private static final int T_PLANE = 15; // 8 attribute planes of c, dx, dy
+	private static final int R_S = 6;
+	private static final int R_T = 7;
+	private static final int R_DSDX = 8;
+	private static final int R_DTDY = 9;
+	private static final int R_FLIP = 10;
+
+	// screen vertex, x and y followed by the interpolated attributes
+	private static final int SV_X = 0;
+	private static final int SV_Y = 1;
+	private static final int SV_ATTR = 2; // z, q, s, t, r, g, b, a
+	private static final int SV_STRIDE = 10;
+	private static final int A_Z = 0;
+	private static final int A_Q = 1;
+	private static final int A_S = 2;
+	private static final int A_T = 3;
+	private static final int A_R = 4;
+	private static final int A_ATTRIBUTES = 8;
+
+	// clip vertex, x, y, z, w, s, t, r, g, b, a
+	private static final int CV_STRIDE = 10;
+	private static final int CV_MAX = 8;
+	private static final float NEAR_W = 1.0e-5f;
+
+	private static final int MAX_WIDTH = 1024;
+	private static final int MAX_HEIGHT = 1024;
+	private static final int BAND_SHIFT = 3;
+	private static final int PARALLEL_PIXELS = 4096;
+
+	private static final byte ROW_UNLOADED = 0;
+	private static final byte ROW_CLEAN = 1;
+	private static final byte ROW_DIRTY = 2;
+
+	public static interface OpCode
+	{
+		public void exec(int inst1, int inst2);
+	}
+
+	private static class Tile
+	{
+		public int format;
+		public int size;
+		public int line;
+		public int tmem;
+		public int palette;
+		public int cms;
+		public int cmt;
+		public int masks;
+		public int maskt;
+		public int shifts;
+		public int shiftt;
+		public int uls;
+		public int ult;
+		public int lrs;
+		public int lrt;
+
+		// derived sampling state
+		public int stride;
+		public float shiftScaleS;
+		public float shiftScaleT;
+		public float fuls;
+		public float fult;
+		public boolean clampS;
+		public boolean clampT;
+		public boolean mirrorS;
+		public boolean mirrorT;
+		public int maskS;
+		public int maskT;
+		public int maxS;
+		public int maxT;
+
+		public void update()
+		{
+			stride = (size == G_IM_SIZ_32b) ? line << 4 : line << 3;
+			shiftScaleS = (shifts > 10) ? (float) (1 << (16 - shifts)) : 1.0f / (1 << shifts);
+			shiftScaleT = (shiftt > 10) ? (float) (1 << (16 - shiftt)) : 1.0f / (1 << shiftt);
+			fuls = uls * 0.25f;
+			fult = ult * 0.25f;
+			maskS = StrictMath.min(masks, 10);
+			maskT = StrictMath.min(maskt, 10);
+			clampS = (cms & 2) != 0 || maskS == 0;
+			clampT = (cmt & 2) != 0 || maskT == 0;
+			mirrorS = (cms & 1) != 0;
+			mirrorT = (cmt & 1) != 0;
+			maxS = StrictMath.max(0, (lrs - uls) >> 2);
+			maxT = StrictMath.max(0, (lrt - ult) >> 2);
+		}
+	}
+
+	/**
+	 * Renders the queued primitives into the scanline bands it owns.
+	 */
+	private class Band implements Callable<Object>
+	{
+		public int first;
+		public int step;
+		public int[] in = new int[CC_INPUTS << 2];
+		public int[] rowWords = new int[MAX_WIDTH];
+		public float[] attr = new float[A_ATTRIBUTES];
+		public int noise = 0x9E3779B9;
+
+		@Override
+		public Object call()
+		{
+			render(first, step);
+			return null;
+		}
+
+		public void render(int first, int step)
+		{
+			for (int p = 0; p < primCount; p++)
+			{
+				int base = p * PRIM_STRIDE;
+				switch ((int) prims[base + P_TYPE])
+				{
+				case PRIM_TRIANGLE:
+					rasterTriangle(base, first, step);
+					break;
+				case PRIM_FILL_RECT:
+				case PRIM_TEX_RECT:
+					rasterRect(base, first, step);
+					break;
+				}
+			}
+		}
+
+		private void rasterTriangle(int base, int first, int step)
+		{
+			int x0 = (int) prims[base + P_X0];
+			int y0 = (int) prims[base + P_Y0];
+			int x1 = (int) prims[base + P_X1];
+			int y1 = (int) prims[base + P_Y1];
+			int tile = (int) prims[base + P_TILE];
+			int plane = base + T_PLANE;
+
+			for (int y = y0; y <= y1; y++)
+			{
+				if (((y >> BAND_SHIFT) % step) != first)
+				{
+					y |= (1 << BAND_SHIFT) - 1;
+					continue;
+				}
+
+				// span of pixel centers inside all three edges
+				float py = y + 0.5f;
+				float left = x0;
+				float right = x1 + 1;
+				boolean empty = false;
+				for (int e = base + T_EDGE; e < base + T_EDGE + 9; e += 3)
+				{
+					float a = prims[e];
+					float c = prims[e + 1] * py + prims[e + 2];
+					if (a > 0.0f)
+						left = StrictMath.max(left, -c / a);
+					else if (a < 0.0f)
+						right = StrictMath.min(right, -c / a);
+					else if (c < 0.0f)
+						empty = true;
+				}
+				if (empty)
+					continue;
+				int xs = StrictMath.max(x0, (int) StrictMath.ceil(left - 0.5f));
+				int xe = StrictMath.min(x1, (int) StrictMath.floor(right - 0.5f));
+				if (xs > xe)
+					continue;
+
+				prepareRow(this, y);
+				float px = xs + 0.5f;
+				for (int k = 0; k < A_ATTRIBUTES; k++)
+				{
+					int pl = plane + k * 3;
+					attr[k] = prims[pl] + prims[pl + 1] * px + prims[pl + 2] * py;
+				}
+				int row = y * fbWidth;
+				for (int x = xs; x <= xe; x++)
+				{
+					float q = attr[A_Q];
+					float w = (q != 0.0f && (usesTexel0 || usesTexel1 || cycleType == G_CYC_COPY)) ? 1.0f / q : 0.0f;
+					drawPixel(this, row, x, attr[A_Z], triangleDepthCompare, triangleDepthUpdate,
+							clampColor(attr[A_R]), clampColor(attr[A_R + 1]), clampColor(attr[A_R + 2]), clampColor(attr[A_R + 3]),
+							tile, attr[A_S] * w, attr[A_T] * w);
+					for (int k = 0; k < A_ATTRIBUTES; k++)
+						attr[k] += prims[plane + k * 3 + 1];
+				}
+			}
+		}
+
+		private void rasterRect(int base, int first, int step)
+		{
+			int x0 = (int) prims[base + P_X0];
+			int y0 = (int) prims[base + P_Y0];
+			int x1 = (int) prims[base + P_X1];
+			int y1 = (int) prims[base + P_Y1];
+			int tile = (int) prims[base + P_TILE];
+			boolean textured = prims[base + P_TYPE] == PRIM_TEX_RECT;
+			boolean flip = prims[base + R_FLIP] != 0.0f;
+			float s0 = prims[base + R_S];
+			float t0 = prims[base + R_T];
+			float dsdx = prims[base + R_DSDX];
+			float dtdy = prims[base + R_DTDY];
+
+			for (int y = y0; y <= y1; y++)
+			{
+				if (((y >> BAND_SHIFT) % step) != first)
+				{
+					y |= (1 << BAND_SHIFT) - 1;
+					continue;
+				}
+
+				prepareRow(this, y);
+				int row = y * fbWidth;
+				for (int x = x0; x <= x1; x++)
+				{
+					float s = 0.0f;
+					float t = 0.0f;
+					if (textured)
+					{
+						s = s0 + dsdx * (flip ? y - y0 : x - x0);
+						t = t0 + dtdy * (flip ? x - x0 : y - y0);
+					}
+					drawPixel(this, row, x, primDepth, rectDepthCompare, rectDepthUpdate, 0, 0, 0, 0, tile, s, t);
+				}
+			}
+		}
+	}
+
+	private OpCode[] rdp_command_table;
+	private byte[] rdp_cmd_data;
+	private float[] hleVertices = new float[HLE_ATTRIBUTES * HLE_VERTICES];
+	private int[] hleIndices = new int[HLE_VERTICES * 3];
+	private float[] clipIn = new float[CV_MAX * CV_STRIDE];
+	private float[] clipOut = new float[CV_MAX * CV_STRIDE];
+	private float[] screenVertices = new float[CV_MAX * SV_STRIDE];
+
+	private float[] prims = new float[PRIMITIVES * PRIM_STRIDE];
+	private int primCount;
+	private int primPixels;
+	private Band[] bands;
+	private List<Band> bandTasks = new ArrayList<Band>();
+	private ExecutorService bandExecutor;
+
+	// rdp state
+	private int otherModeHi;
+	private int otherModeLo;
+	private int[] combineMux = new int[16];
+	private boolean usesTexel0;
+	private boolean usesTexel1;
+	private int primColor;
+	private int primLodFraction;
+	private int envColor;
+	private int fogColor;
+	private int blendColor;
+	private int fillColor;
+	private int keyCenter;
+	private int keyScale;
+	private int k4;
+	private int k5;
+	private float primDepth;
+	private int scissorX0;
+	private int scissorY0;
+	private int scissorX1 = MAX_WIDTH;
+	private int scissorY1 = MAX_HEIGHT;
+	private Tile[] tiles = new Tile[8];
+	private byte[] tmem = new byte[4096];
+	private byte[] loadBuffer = new byte[4096];
+	private ByteBuffer loadDma = ByteBuffer.wrap(loadBuffer);
+	private int textureImageAddress;
+	private int textureImageWidth;
+	private int textureImageSize;
+	private int depthImageAddress;
+
+	// hle state
+	private int hleTile;
+	private float hleScaleS = 1.0f;
+	private float hleScaleT = 1.0f;
+	private int cullMode;
+	private boolean depthEnabled;
+	private float vScaleX = 160.0f;
+	private float vScaleY = 120.0f;
+	private float vScaleZ = 511.0f;
+	private float vTransX = 160.0f;
+	private float vTransY = 120.0f;
+	private float vTransZ = 511.0f;
+
+	// per flush pixel pipeline state
+	private int cycleType;
+	private boolean bilerp;
+	private boolean tlutEnabled;
+	private boolean tlutIA16;
+	private boolean alphaThreshold;
+	private boolean alphaCoverage;
+	private boolean forceBlend;
+	private boolean decal;
+	private int[] blendMux = new int[8];
+	private boolean triangleDepthCompare;
+	private boolean triangleDepthUpdate;
+	private boolean rectDepthCompare;
+	private boolean rectDepthUpdate;
+
+	// color image, kept as argb rows that are loaded from and resolved to rdram
+	private int colorImageAddress = -1;
+	private int colorImageSize;
+	private int fbWidth;
+	private int fbRows;
+	private int[] colorBuffer = new int[0];
+	private float[] depthBuffer = new float[0];
+	private byte[] rowState = new byte[MAX_HEIGHT];
+	private int[] resolveWords = new int[MAX_WIDTH];
+	private int[] rgba5551 = new int[65536];
+
+	private int[] regDPC = new int[10];
+
+	private Bus16bit rdram;
+	private int rdramSize;
+	private Bus32bit mi;
+	private Bus32bit vi;
+	private Canvas canvas;
+
+	public SoftwareDisplayProcessor()
+	{
+		for (int i = 0; i < tiles.length; i++)
+		{
+			tiles[i] = new Tile();
+			tiles[i].update();
+		}
+
+		for (int i = 0; i < 65536; i++)
+		{
+			int r = (i >> 11) & 0x1F;
+			int g = (i >> 6) & 0x1F;
+			int b = (i >> 1) & 0x1F;
+			rgba5551[i] = ((i & 1) != 0 ? 0xFF000000 : 0) | (((r << 3) | (r >> 2)) << 16) | (((g << 3) | (g >> 2)) << 8) | ((b << 3) | (b >> 2));
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		bands = new Band[threads];
+		for (int i = 0; i < threads; i++)
+		{
+			bands[i] = new Band();
+			bands[i].first = i;
+			bands[i].step = threads;
+			bandTasks.add(bands[i]);
+		}
+		if (threads > 1)
+		{
+			bandExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+			{
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "rdp band");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		// headless runs have no display, the frames are still written to rdram
+		if (!GraphicsEnvironment.isHeadless())
+		{
+			canvas = new Canvas();
+			canvas.setSize(640, 480);
+		}
+
+		buildOps();
+	}
+
+	@Override
+	public void connect(int port, Hardware bus)
+	{
+		switch (port)
+		{
+		case 0:
+			rdram = (Bus16bit) bus;
+			if (rdram != null)
+				rdramSize = ((Bus32bit) rdram).read32bit(RDRAM_SIZE_REG);
+			break;
+		case 1:
+			mi = (Bus32bit) bus;
+			break;
+		case 2:
+			vi = (Bus32bit) bus;
+			if (vi != null)
+			{
+				((Configurable) vi).writeConfig("framebuffer", true);
+				if (canvas != null)
+					((Configurable) vi).writeConfig("screen", canvas);
+			}
+			break;
+		case 3:
+			break; // timing
+		default:
+			System.err.println("Attempting to connect DP bus on invalid port: " + port);
+			break;
+		}
+	}
+
+	@Override
+	public void reset()
+	{
+		primCount = 0;
+		primPixels = 0;
+		colorImageAddress = -1;
+		fbWidth = 0;
+		fbRows = 0;
+		Arrays.fill(tmem, (byte) 0);
+	}
+
+	@Override
+	public void clock(long ticks)
+	{
+		// end of display list, make the frame visible to the vi and the cpu
+		drawPrimitives();
+		resolve();
+		Arrays.fill(rowState, ROW_UNLOADED);
+	}
+
+	@Override
+	public int read32bit(int reg)
+	{
+		switch ((reg - 0x04100000) >> 2)
+		{
+		case 3:
+			return regDPC[DPC_STATUS_REG];
+		case 4:
+			return regDPC[DPC_CLOCK_REG];
+		case 5:
+			return regDPC[DPC_BUFBUSY_REG];
+		case 6:
+			return regDPC[DPC_PIPEBUSY_REG];
+		case 7:
+			return regDPC[DPC_TMEM_REG];
+		case 8:
+			return otherModeLo;
+		case 9:
+			return otherModeHi;
+		case 11:
+			drawPrimitives();
+			return 0;
+		default:
+			return 0;
+		}
+	}
+
+	@Override
+	public void write32bit(int reg, int value)
+	{
+		switch ((reg - 0x04100000) >> 2)
+		{
+		case 0:
+			regDPC[DPC_START_REG] = value;
+			regDPC[DPC_CURRENT_REG] = value;
+			break;
+		case 1:
+			regDPC[DPC_END_REG] = value;
+			break;
+		case 3:
+			if ((value & DPC_CLR_XBUS_DMEM_DMA) != 0)
+			{
+				regDPC[DPC_STATUS_REG] &= ~DPC_STATUS_XBUS_DMEM_DMA;
+			}
+			if ((value & DPC_SET_XBUS_DMEM_DMA) != 0)
+			{
+				regDPC[DPC_STATUS_REG] |= DPC_STATUS_XBUS_DMEM_DMA;
+			}
+			if ((value & DPC_CLR_FREEZE) != 0)
+			{
+				regDPC[DPC_STATUS_REG] &= ~DPC_STATUS_FREEZE;
+			}
+			if ((value & DPC_SET_FREEZE) != 0)
+			{
+				regDPC[DPC_STATUS_REG] |= DPC_STATUS_FREEZE;
+			}
+			if ((value & DPC_CLR_FLUSH) != 0)
+			{
+				regDPC[DPC_STATUS_REG] &= ~DPC_STATUS_FLUSH;
+			}
+			if ((value & DPC_SET_FLUSH) != 0)
+			{
+				regDPC[DPC_STATUS_REG] |= DPC_STATUS_FLUSH;
+			}
+			break;
+		case 8:
+			if (value != otherModeLo)
+				drawPrimitives();
+			otherModeLo = value;
+			break;
+		case 9:
+			if (value != otherModeHi)
+				drawPrimitives();
+			otherModeHi = value;
+			break;
+		case 10: // viewport
+			if (rdram == null || value + 16 > rdramSize)
+				break;
+			vScaleX = rdram.read16bit(value + 0) * 0.25f;
+			vScaleY = rdram.read16bit(value + 2) * 0.25f;
+			vScaleZ = rdram.read16bit(value + 4);
+			vTransX = rdram.read16bit(value + 8) * 0.25f;
+			vTransY = rdram.read16bit(value + 10) * 0.25f;
+			vTransZ = rdram.read16bit(value + 12);
+			break;
+		case 11: // start of display list
+			break;
+		case 12: // cull face, 1 back, 2 front
+			cullMode = value;
+			break;
+		case 13: // fog, the hle ucodes do not compute a fog factor
+			break;
+		case 14: // zbuff depth test
+			if ((value != 0) != depthEnabled)
+				drawPrimitives();
+			depthEnabled = value != 0;
+			break;
+		case 15: // hle triangles, count of indexed triangles, NoN in bit 31
+			drawHleTriangles(value & 0x7FFFFFFF, value < 0);
+			break;
+		case 16: // hle line between indices 0 and 1, width as float bits
+			drawHleLine(hleIndices[0], hleIndices[1], Float.intBitsToFloat(value));
+			break;
+		}
+	}
+
+	@Override
+	public Object readConfig(String key)
+	{
+		if (key.equals("hlevertices")) return hleVertices;
+		else if (key.equals("hleindices")) return hleIndices;
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
+	}
+
+	@Override
+	public void readDMA(int pAddr, ByteBuffer dma, int offset, int length)
+	{
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	@Override
+	public void writeDMA(int pAddr, ByteBuffer cmdObj, int offset, int length)
+	{
+		byte[] cmd = rdp_cmd_data = cmdObj.array();
+		int w1 = ((cmd[0] & 0xFF) << 24) | ((cmd[1] & 0xFF) << 16) | ((cmd[2] & 0xFF) << 8) | (cmd[3] & 0xFF);
+		int w2 = ((cmd[4] & 0xFF) << 24) | ((cmd[5] & 0xFF) << 16) | ((cmd[6] & 0xFF) << 8) | (cmd[7] & 0xFF);
+		rdp_command_table[cmd[0] & 0x3F].exec(w1, w2);
+	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	private void drawHleTriangles(int count, boolean non)
+	{
+		for (int i = 0; i < count * 3; i += 3)
+		{
+			loadClipVertex(clipIn, 0, hleIndices[i]);
+			loadClipVertex(clipIn, 1, hleIndices[i + 1]);
+			loadClipVertex(clipIn, 2, hleIndices[i + 2]);
+
+			// vertices behind the eye can not be projected, NoN keeps the rest of the near plane
+			int n = clipPolygon(clipIn, clipOut, 3, 0);
+			if (!non)
+				n = clipPolygon(clipOut, clipIn, n, 1);
+			else
+				System.arraycopy(clipOut, 0, clipIn, 0, n * CV_STRIDE);
+			if (n < 3)
+				continue;
+
+			for (int v = 0; v < n; v++)
+				projectVertex(clipIn, v, v);
+			for (int v = 1; v < n - 1; v++)
+				queueTriangle(0, v, v + 1, cullMode);
+		}
+	}
+
+	private void drawHleLine(int i0, int i1, float width)
+	{
+		loadClipVertex(clipIn, 0, i0);
+		loadClipVertex(clipIn, 1, i1);
+		if (clipIn[3] < NEAR_W || clipIn[CV_STRIDE + 3] < NEAR_W)
+			return;
+		projectVertex(clipIn, 0, 0);
+		projectVertex(clipIn, 1, 1);
+
+		// expand the line into a quad of the given width
+		float dx = screenVertices[SV_STRIDE + SV_X] - screenVertices[SV_X];
+		float dy = screenVertices[SV_STRIDE + SV_Y] - screenVertices[SV_Y];
+		float length = (float) StrictMath.sqrt(dx * dx + dy * dy);
+		if (length == 0.0f)
+			return;
+		float nx = -dy / length * width * 0.5f;
+		float ny = dx / length * width * 0.5f;
+		System.arraycopy(screenVertices, SV_STRIDE, screenVertices, 2 * SV_STRIDE, SV_STRIDE);
+		System.arraycopy(screenVertices, 0, screenVertices, 3 * SV_STRIDE, SV_STRIDE);
+		screenVertices[SV_X] += nx;
+		screenVertices[SV_Y] += ny;
+		screenVertices[SV_STRIDE + SV_X] += nx;
+		screenVertices[SV_STRIDE + SV_Y] += ny;
+		screenVertices[2 * SV_STRIDE + SV_X] -= nx;
+		screenVertices[2 * SV_STRIDE + SV_Y] -= ny;
+		screenVertices[3 * SV_STRIDE + SV_X] -= nx;
+		screenVertices[3 * SV_STRIDE + SV_Y] -= ny;
+		queueTriangle(0, 1, 2, 0);
+		queueTriangle(0, 2, 3, 0);
+	}
+
+	private void loadClipVertex(float[] dst, int v, int i)
+	{
+		int d = v * CV_STRIDE;
+		dst[d + 0] = hleVertices[(HLE_X + 0) * HLE_VERTICES + i];
+		dst[d + 1] = hleVertices[(HLE_X + 1) * HLE_VERTICES + i];
+		dst[d + 2] = hleVertices[(HLE_X + 2) * HLE_VERTICES + i];
+		dst[d + 3] = hleVertices[(HLE_X + 3) * HLE_VERTICES + i];
+		dst[d + 4] = hleVertices[(HLE_S + 0) * HLE_VERTICES + i] * hleScaleS;
+		dst[d + 5] = hleVertices[(HLE_S + 1) * HLE_VERTICES + i] * hleScaleT;
+		dst[d + 6] = hleVertices[(HLE_R + 0) * HLE_VERTICES + i] * 255.0f;
+		dst[d + 7] = hleVertices[(HLE_R + 1) * HLE_VERTICES + i] * 255.0f;
+		dst[d + 8] = hleVertices[(HLE_R + 2) * HLE_VERTICES + i] * 255.0f;
+		dst[d + 9] = hleVertices[(HLE_R + 3) * HLE_VERTICES + i] * 255.0f;
+	}
+
+	/**
+	 * Clips a convex polygon against w >= NEAR_W (plane 0) or z >= -w (plane 1).
+	 */
+	private static int clipPolygon(float[] src, float[] dst, int n, int plane)
+	{
+		int out = 0;
+		for (int i = 0; i < n; i++)
+		{
+			int a = i * CV_STRIDE;
+			int b = ((i + 1) % n) * CV_STRIDE;
+			float da = (plane == 0) ? src[a + 3] - NEAR_W : src[a + 2] + src[a + 3];
+			float db = (plane == 0) ? src[b + 3] - NEAR_W : src[b + 2] + src[b + 3];
+			if (da >= 0.0f)
+			{
+				System.arraycopy(src, a, dst, out * CV_STRIDE, CV_STRIDE);
+				out++;
+			}
+			if ((da >= 0.0f) != (db >= 0.0f) && out < CV_MAX)
+			{
+				float f = da / (da - db);
+				int d = out * CV_STRIDE;
+				for (int k = 0; k < CV_STRIDE; k++)
+					dst[d + k] = src[a + k] + (src[b + k] - src[a + k]) * f;
+				out++;
+			}
+		}
+		return out;
+	}
+
+	private void projectVertex(float[] src, int v, int sv)
+	{
+		int c = v * CV_STRIDE;
+		int d = sv * SV_STRIDE;
+		float q = 1.0f / src[c + 3];
+		boolean persp = (otherModeHi & 0x80000) != 0;
+		screenVertices[d + SV_X] = src[c + 0] * q * vScaleX + vTransX;
+		screenVertices[d + SV_Y] = -src[c + 1] * q * vScaleY + vTransY;
+		float z = (src[c + 2] * q * vScaleZ + vTransZ) * 0.0009765625f;
+		screenVertices[d + SV_ATTR + A_Z] = StrictMath.min(1.0f, StrictMath.max(0.0f, z));
+		screenVertices[d + SV_ATTR + A_Q] = persp ? q : 1.0f;
+		screenVertices[d + SV_ATTR + A_S] = persp ? src[c + 4] * q : src[c + 4];
+		screenVertices[d + SV_ATTR + A_T] = persp ? src[c + 5] * q : src[c + 5];
+		for (int k = 0; k < 4; k++)
+			screenVertices[d + SV_ATTR + A_R + k] = src[c + 6 + k];
+	}
+
+	private void queueTriangle(int a, int b, int c, int cull)
+	{
+		int va = a * SV_STRIDE;
+		int vb = b * SV_STRIDE;
+		int vc = c * SV_STRIDE;
+		float area = (screenVertices[vb + SV_X] - screenVertices[va + SV_X]) * (screenVertices[vc + SV_Y] - screenVertices[va + SV_Y]) -
+				(screenVertices[vc + SV_X] - screenVertices[va + SV_X]) * (screenVertices[vb + SV_Y] - screenVertices[va + SV_Y]);
+		if (area == 0.0f || Float.isNaN(area) || Float.isInfinite(area))
+			return;
+
+		// counter-clockwise in gl is clockwise on the y-down screen
+		if ((cull == 1 && area > 0.0f) || (cull == 2 && area < 0.0f))
+			return;
+		if (area < 0.0f)
+		{
+			int t = vb;
+			vb = vc;
+			vc = t;
+			area = -area;
+		}
+
+		float x0 = screenVertices[va + SV_X], y0 = screenVertices[va + SV_Y];
+		float x1 = screenVertices[vb + SV_X], y1 = screenVertices[vb + SV_Y];
+		float x2 = screenVertices[vc + SV_X], y2 = screenVertices[vc + SV_Y];
+		int minx = StrictMath.max(scissorX0, (int) StrictMath.floor(StrictMath.min(x0, StrictMath.min(x1, x2))));
+		int miny = StrictMath.max(scissorY0, (int) StrictMath.floor(StrictMath.min(y0, StrictMath.min(y1, y2))));
+		int maxx = StrictMath.min(StrictMath.min(scissorX1, fbWidth) - 1, (int) StrictMath.ceil(StrictMath.max(x0, StrictMath.max(x1, x2))));
+		int maxy = StrictMath.min(StrictMath.min(scissorY1, fbRows) - 1, (int) StrictMath.ceil(StrictMath.max(y0, StrictMath.max(y1, y2))));
+		if (minx > maxx || miny > maxy)
+			return;
+
+		if (primCount == PRIMITIVES)
+			drawPrimitives();
+		int p = primCount++ * PRIM_STRIDE;
+		prims[p + P_TYPE] = PRIM_TRIANGLE;
+		prims[p + P_X0] = minx;
+		prims[p + P_Y0] = miny;
+		prims[p + P_X1] = maxx;
+		prims[p + P_Y1] = maxy;
+		prims[p + P_TILE] = hleTile;
+		setEdge(p + T_EDGE + 0, x0, y0, x1, y1);
+		setEdge(p + T_EDGE + 3, x1, y1, x2, y2);
+		setEdge(p + T_EDGE + 6, x2, y2, x0, y0);
+
+		float dx1 = x1 - x0, dy1 = y1 - y0;
+		float dx2 = x2 - x0, dy2 = y2 - y0;
+		float inv = 1.0f / area;
+		for (int k = 0; k < A_ATTRIBUTES; k++)
+		{
+			float a0 = screenVertices[va + SV_ATTR + k];
+			float da1 = screenVertices[vb + SV_ATTR + k] - a0;
+			float da2 = screenVertices[vc + SV_ATTR + k] - a0;
+			float dadx = (da1 * dy2 - da2 * dy1) * inv;
+			float dady = (da2 * dx1 - da1 * dx2) * inv;
+			int pl = p + T_PLANE + k * 3;
+			prims[pl] = a0 - dadx * x0 - dady * y0;
+			prims[pl + 1] = dadx;
+			prims[pl + 2] = dady;
+		}
+		primPixels += (maxx - minx + 1) * (maxy - miny + 1);
+	}
+
+	private void setEdge(int e, float xa, float ya, float xb, float yb)
+	{
+		prims[e] = ya - yb;
+		prims[e + 1] = xb - xa;
+		prims[e + 2] = (yb - ya) * xa - (xb - xa) * ya;
+	}
+
+	private void queueRect(int type, int ulx, int uly, int lrx, int lry, int tile, float s, float t, float dsdx, float dtdy, boolean flip)
+	{
+		int x0 = StrictMath.max(ulx, scissorX0);
+		int y0 = StrictMath.max(uly, scissorY0);
+		int x1 = StrictMath.min(lrx, StrictMath.min(scissorX1, fbWidth) - 1);
+		int y1 = StrictMath.min(lry, StrictMath.min(scissorY1, fbRows) - 1);
+		if (x0 > x1 || y0 > y1)
+			return;
+
+		if (primCount == PRIMITIVES)
+			drawPrimitives();
+		int p = primCount++ * PRIM_STRIDE;
+		prims[p + P_TYPE] = type;
+		prims[p + P_X0] = x0;
+		prims[p + P_Y0] = y0;
+		prims[p + P_X1] = x1;
+		prims[p + P_Y1] = y1;
+		prims[p + P_TILE] = tile;
+		prims[p + R_S] = s + dsdx * (flip ? y0 - uly : x0 - ulx);
+		prims[p + R_T] = t + dtdy * (flip ? x0 - ulx : y0 - uly);
+		prims[p + R_DSDX] = dsdx;
+		prims[p + R_DTDY] = dtdy;
+		prims[p + R_FLIP] = flip ? 1.0f : 0.0f;
+		primPixels += (x1 - x0 + 1) * (y1 - y0 + 1);
+	}
+
+	/**
+	 * Draws the queued primitives with the current state, split across the bands.
+	 */
+	private void drawPrimitives()
+	{
+		if (primCount == 0)
+			return;
+		if (colorImageSize < G_IM_SIZ_16b)
+		{
+			primCount = 0;
+			primPixels = 0;
+			return;
+		}
+
+		updatePipeline();
+		for (int i = 0; i < bands.length; i++)
+			loadConstants(bands[i].in);
+
+		if (bandExecutor != null && primPixels >= PARALLEL_PIXELS)
+		{
+			try
+			{
+				for (Future<Object> f : bandExecutor.invokeAll(bandTasks))
+					f.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e)
+			{
+				e.printStackTrace();
+			}
+		}
+		else
+		{
+			bands[0].render(0, 1);
+		}
+
+		primCount = 0;
+		primPixels = 0;
+	}
+
+	private void updatePipeline()
+	{
+		cycleType = (otherModeHi >> 20) & 0x3;
+		bilerp = ((otherModeHi >> 12) & 0x3) != G_TF_POINT && cycleType < G_CYC_COPY;
+		tlutEnabled = (otherModeHi & 0x8000) != 0;
+		tlutIA16 = ((otherModeHi >> 14) & 0x3) == G_TT_IA16;
+		alphaThreshold = (otherModeLo & 0x3) == G_AC_THRESHOLD && (otherModeLo & 0x2000) == 0;
+		alphaCoverage = !alphaThreshold && (otherModeLo & 0x1000) != 0;
+		forceBlend = (otherModeLo & 0x4000) != 0;
+		decal = ((otherModeLo >> 10) & 0x3) == ZMODE_DEC;
+		for (int i = 0; i < 8; i++)
+			blendMux[i] = (otherModeLo >>> (30 - (i << 1))) & 0x3;
+
+		boolean zCompare = (otherModeLo & 0x10) != 0;
+		boolean zUpdate = (otherModeLo & 0x20) != 0;
+		boolean zPrim = (otherModeLo & 0x04) != 0;
+		boolean pipeline = cycleType < G_CYC_COPY;
+		triangleDepthCompare = pipeline && depthEnabled && zCompare;
+		triangleDepthUpdate = pipeline && depthEnabled && zUpdate;
+		rectDepthCompare = pipeline && zPrim && zCompare;
+		rectDepthUpdate = pipeline && zPrim && zUpdate;
+	}
+
+	private void loadConstants(int[] in)
+	{
+		setInput(in, CC_PRIM, primColor);
+		setInput(in, CC_ENV, envColor);
+		setInput(in, CC_KEY_CENTER, keyCenter);
+		setInput(in, CC_KEY_SCALE, keyScale);
+		setInput(in, CC_ONE, 0xFFFFFFFF);
+		setInput(in, CC_ZERO, 0);
+		setInput(in, CC_K4, k4 * 0x010101);
+		setInput(in, CC_K5, k5 * 0x010101);
+		setInput(in, CC_PRIM_ALPHA, (primColor >>> 24) * 0x01010101);
+		setInput(in, CC_ENV_ALPHA, (envColor >>> 24) * 0x01010101);
+		setInput(in, CC_LOD_FRACTION, 0);
+		setInput(in, CC_PRIM_LOD_FRACTION, primLodFraction * 0x01010101);
+		setInput(in, CC_COMBINED, 0);
+		setInput(in, CC_COMBINED_ALPHA, 0);
+	}
+
+	private static void setInput(int[] in, int slot, int argb)
+	{
+		int i = slot << 2;
+		in[i] = (argb >> 16) & 0xFF;
+		in[i + 1] = (argb >> 8) & 0xFF;
+		in[i + 2] = argb & 0xFF;
+		in[i + 3] = argb >>> 24;
+	}
+
+	private static void setAlphaInput(int[] in, int slot, int alpha)
+	{
+		int i = slot << 2;
+		in[i] = in[i + 1] = in[i + 2] = in[i + 3] = alpha;
+	}
+
+	private static int clampColor(float c)
+	{
+		return (c <= 0.0f) ? 0 : ((c >= 255.0f) ? 255 : (int) c);
+	}
+
+	private static int combine(int a, int b, int c, int d)
+	{
+		int v = (((a - b) * (c + (c >> 7))) + (d << 8) + 0x80) >> 8;
+		return (v < 0) ? 0 : ((v > 0xFF) ? 0xFF : v);
+	}
+
+	/**
+	 * Runs one pixel through the texture, combiner and blender stages and
+	 * writes it to the color image.
+	 */
+	private void drawPixel(Band band, int row, int x, float z, boolean depthCompare, boolean depthUpdate, int r, int g, int b, int a, int tile, float s, float t)
+	{
+		int i = row + x;
+		int color;
+
+		switch (cycleType)
+		{
+		case G_CYC_FILL:
+			if (colorImageSize == G_IM_SIZ_32b)
+				color = (fillColor << 24) | (fillColor >>> 8);
+			else
+				color = rgba5551[((x & 1) == 0 ? fillColor >>> 16 : fillColor) & 0xFFFF];
+			colorBuffer[i] = color;
+			return;
+		case G_CYC_COPY:
+			color = sampleTexel(tiles[tile], s, t, false);
+			if ((otherModeLo & 0x3) != 0 && (color >>> 24) == 0)
+				return;
+			colorBuffer[i] = color;
+			return;
+		}
+
+		if (depthCompare && z > depthBuffer[i] + (decal ? 0.002f : 0.0f))
+			return;
+
+		int[] in = band.in;
+		in[CC_SHADE << 2] = r;
+		in[(CC_SHADE << 2) + 1] = g;
+		in[(CC_SHADE << 2) + 2] = b;
+		in[(CC_SHADE << 2) + 3] = a;
+		setAlphaInput(in, CC_SHADE_ALPHA, a);
+		if (usesTexel0)
+		{
+			int texel0 = sampleTexel(tiles[tile], s, t, bilerp);
+			setInput(in, CC_TEXEL0, texel0);
+			setAlphaInput(in, CC_TEXEL0_ALPHA, texel0 >>> 24);
+		}
+		if (usesTexel1)
+		{
+			int texel1 = sampleTexel(tiles[(tile + 1) & 7], s, t, bilerp);
+			setInput(in, CC_TEXEL1, texel1);
+			setAlphaInput(in, CC_TEXEL1_ALPHA, texel1 >>> 24);
+		}
+		band.noise ^= band.noise << 13;
+		band.noise ^= band.noise >>> 17;
+		band.noise ^= band.noise << 5;
+		setAlphaInput(in, CC_NOISE, band.noise & 0xFF);
+
+		combineCycle(in, 0);
+		if (cycleType == G_CYC_2CYCLE)
+			combineCycle(in, 8);
+		int cr = in[CC_COMBINED << 2];
+		int cg = in[(CC_COMBINED << 2) + 1];
+		int cb = in[(CC_COMBINED << 2) + 2];
+		int ca = in[(CC_COMBINED << 2) + 3];
+
+		// alpha compare against the blend color, or the coverage cut-out of tex edge modes
+		if (alphaThreshold)
+		{
+			int threshold = blendColor >>> 24;
+			if (threshold > 0 ? ca < threshold : ca == 0)
+				return;
+		}
+		else if (alphaCoverage && ca < 0x80)
+			return;
+
+		color = 0xFF000000 | (cr << 16) | (cg << 8) | cb;
+		if (cycleType == G_CYC_2CYCLE)
+		{
+			color = blend(0, color, ca, colorBuffer[i]);
+			if (forceBlend)
+				color = blend(1, color, ca, colorBuffer[i]);
+			else
+				color = blendInput(blendMux[1], color, colorBuffer[i]);
+		}
+		else if (forceBlend)
+			color = blend(0, color, ca, colorBuffer[i]);
+		else
+			color = blendInput(blendMux[0], color, colorBuffer[i]);
+
+		colorBuffer[i] = color | 0xFF000000;
+		if (depthUpdate)
+			depthBuffer[i] = z;
+	}
+
+	private void combineCycle(int[] in, int m)
+	{
+		int ra = combineMux[m];
+		int rb = combineMux[m + 1];
+		int rc = combineMux[m + 2];
+		int rd = combineMux[m + 3];
+		int r = combine(in[ra], in[rb], in[rc], in[rd]);
+		int g = combine(in[ra + 1], in[rb + 1], in[rc + 1], in[rd + 1]);
+		int b = combine(in[ra + 2], in[rb + 2], in[rc + 2], in[rd + 2]);
+		int a = combine(in[combineMux[m + 4]], in[combineMux[m + 5]], in[combineMux[m + 6]], in[combineMux[m + 7]]);
+		int c = CC_COMBINED << 2;
+		in[c] = r;
+		in[c + 1] = g;
+		in[c + 2] = b;
+		in[c + 3] = a;
+		setAlphaInput(in, CC_COMBINED_ALPHA, a);
+	}
+
+	/**
+	 * Blender cycle, (p * a + m * b) / 255 with the p and m inputs selecting
+	 * the pixel, memory, blend or fog color.
+	 */
+	private int blend(int cycle, int pixel, int pixelAlpha, int memory)
+	{
+		int p = blendInput(blendMux[cycle], pixel, memory);
+		int m = blendInput(blendMux[cycle + 4], pixel, memory);
+		int a;
+		switch (blendMux[cycle + 2])
+		{
+		case 0:
+			a = pixelAlpha;
+			break;
+		case 1:
+			a = fogColor >>> 24;
+			break;
+		default:
+			a = 0; // shade alpha carries the fog factor, which the hle ucodes do not compute
+			break;
+		}
+		int b;
+		switch (blendMux[cycle + 6])
+		{
+		case 0:
+			b = 0xFF - a;
+			break;
+		case 1:
+			b = memory >>> 24;
+			break;
+		case 2:
+			b = 0xFF;
+			break;
+		default:
+			b = 0;
+			break;
+		}
+		int r = ((((p >> 16) & 0xFF) * a + ((m >> 16) & 0xFF) * b) * 257 + 0x8080) >> 16;
+		int g = ((((p >> 8) & 0xFF) * a + ((m >> 8) & 0xFF) * b) * 257 + 0x8080) >> 16;
+		int bl = (((p & 0xFF) * a + (m & 0xFF) * b) * 257 + 0x8080) >> 16;
+		return (StrictMath.min(r, 0xFF) << 16) | (StrictMath.min(g, 0xFF) << 8) | StrictMath.min(bl, 0xFF);
+	}
+
+	private int blendInput(int select, int pixel, int memory)
+	{
+		switch (select)
+		{
+		case 0:
+			return pixel;
+		case 1:
+			return memory;
+		case 2:
+			return blendColor;
+		default:
+			return fogColor;
+		}
+	}
+
+	// Textures ////////////////////////////////////////////////////////////////
+
+	private int sampleTexel(Tile tile, float s, float t, boolean filter)
+	{
+		s = s * tile.shiftScaleS - tile.fuls;
+		t = t * tile.shiftScaleT - tile.fult;
+		if (!filter)
+			return fetchTexel(tile, floor(s), floor(t));
+
+		s -= 0.5f;
+		t -= 0.5f;
+		int s0 = floor(s);
+		int t0 = floor(t);
+		int fs = (int) ((s - s0) * 256.0f);
+		int ft = (int) ((t - t0) * 256.0f);
+		int c00 = fetchTexel(tile, s0, t0);
+		int c10 = fetchTexel(tile, s0 + 1, t0);
+		int c01 = fetchTexel(tile, s0, t0 + 1);
+		int c11 = fetchTexel(tile, s0 + 1, t0 + 1);
+		int color = 0;
+		for (int shift = 0; shift < 32; shift += 8)
+		{
+			int top = (((c00 >>> shift) & 0xFF) << 8) + (((c10 >>> shift) & 0xFF) - ((c00 >>> shift) & 0xFF)) * fs;
+			int bottom = (((c01 >>> shift) & 0xFF) << 8) + (((c11 >>> shift) & 0xFF) - ((c01 >>> shift) & 0xFF)) * fs;
+			int v = ((top << 8) + (bottom - top) * ft) >> 16;
+			color |= (v & 0xFF) << shift;
+		}
+		return color;
+	}
+
+	private static int floor(float f)
+	{
+		int i = (int) f;
+		return (f < i) ? i - 1 : i;
+	}
+
+	private static int wrap(int s, boolean clamp, boolean mirror, int mask, int max)
+	{
+		if (clamp)
+			s = (s < 0) ? 0 : ((s > max) ? max : s);
+		if (mask != 0)
+		{
+			if (mirror && ((s >> mask) & 1) != 0)
+				s = ~s;
+			s &= (1 << mask) - 1;
+		}
+		return s;
+	}
+
+	/**
+	 * Reads one texel from tmem, odd rows have their 32 bit words swapped.
+	 */
+	private int fetchTexel(Tile tile, int s, int t)
+	{
+		s = wrap(s, tile.clampS, tile.mirrorS, tile.maskS, tile.maxS);
+		t = wrap(t, tile.clampT, tile.mirrorT, tile.maskT, tile.maxT);
+		int base = (tile.tmem << 3) + t * tile.stride;
+		int odd = (t & 1) << 2;
+		int v;
+
+		switch (tile.size)
+		{
+		case G_IM_SIZ_4b:
+			v = tmem[((base + (s >> 1)) ^ odd) & 0xFFF];
+			v = ((s & 1) == 0) ? (v >> 4) & 0xF : v & 0xF;
+			if (tile.format == G_IM_FMT_CI)
+				return tlutEnabled ? paletteColor((tile.palette << 4) | v) : v * 0x11111111;
+			if (tile.format == G_IM_FMT_IA)
+			{
+				int i = v >> 1;
+				i = (i << 5) | (i << 2) | (i >> 1);
+				return ((v & 1) != 0 ? 0xFF000000 : 0) | (i * 0x010101);
+			}
+			return v * 0x11111111;
+		case G_IM_SIZ_8b:
+			v = tmem[((base + s) ^ odd) & 0xFFF] & 0xFF;
+			if (tile.format == G_IM_FMT_CI)
+				return tlutEnabled ? paletteColor(v) : v * 0x01010101;
+			if (tile.format == G_IM_FMT_IA)
+				return ((v & 0xF) * 0x11000000) | ((v >> 4) * 0x111111);
+			return v * 0x01010101;
+		case G_IM_SIZ_16b:
+			int a16 = (base + (s << 1)) ^ odd;
+			v = ((tmem[a16 & 0xFFF] & 0xFF) << 8) | (tmem[(a16 + 1) & 0xFFF] & 0xFF);
+			if (tile.format == G_IM_FMT_IA)
+				return ((v & 0xFF) << 24) | ((v >> 8) * 0x010101);
+			return rgba5551[v];
+		default:
+			int a32 = (base + (s << 2)) ^ odd;
+			v = ((tmem[a32 & 0xFFF] & 0xFF) << 24) | ((tmem[(a32 + 1) & 0xFFF] & 0xFF) << 16) | ((tmem[(a32 + 2) & 0xFFF] & 0xFF) << 8) | (tmem[(a32 + 3) & 0xFFF] & 0xFF);
+			return (v << 24) | (v >>> 8);
+		}
+	}
+
+	private int paletteColor(int index)
+	{
+		int a = 0x800 + ((index & 0xFF) << 3);
+		int v = ((tmem[a] & 0xFF) << 8) | (tmem[a + 1] & 0xFF);
+		if (tlutIA16)
+			return ((v & 0xFF) << 24) | ((v >> 8) * 0x010101);
+		return rgba5551[v];
+	}
+
+	private int readTextureImage(int address, int length)
+	{
+		if (rdram == null || address < 0 || address >= rdramSize || length <= 0)
+			return 0;
+		length = StrictMath.min(StrictMath.min(length, loadBuffer.length), rdramSize - address);
+		// render to texture reads back the color image
+		if (address + length > colorImageAddress && address < colorImageAddress + fbRows * (fbWidth << colorImageSize >> 1))
+			resolve();
+		((BusDMA) rdram).readDMA(address, loadDma, 0, length);
+		return length;
+	}
+
+	private void loadBlock(int w1, int w2)
+	{
+		Tile tile = tiles[(w2 >> 24) & 0x7];
+		int uls = (w1 >> 12) & 0xFFF;
+		int ult = w1 & 0xFFF;
+		int lrs = (w2 >> 12) & 0xFFF;
+		int dxt = w2 & 0xFFF;
+		tile.uls = uls << 2;
+		tile.ult = ult << 2;
+		tile.lrs = lrs << 2;
+		tile.update();
+
+		int dst = tile.tmem << 3;
+		int bytes = StrictMath.min(((lrs - uls + 1) << textureImageSize) >> 1, tmem.length - dst);
+		bytes = readTextureImage(textureImageAddress + ((((ult * textureImageWidth) + uls) << textureImageSize) >> 1), (bytes + 7) & ~7);
+
+		// dxt advances the line counter per 64 bit word, odd lines are stored swapped
+		int line = 0;
+		for (int i = 0; i < bytes; i += 8)
+		{
+			int odd = ((line >> 11) & 1) << 2;
+			for (int k = 0; k < 8 && i + k < bytes; k++)
+				tmem[(dst + ((i + k) ^ odd)) & 0xFFF] = loadBuffer[i + k];
+			line += dxt;
+		}
+	}
+
+	private void loadTile(int w1, int w2)
+	{
+		Tile tile = tiles[(w2 >> 24) & 0x7];
+		tile.uls = (w1 >> 12) & 0xFFF;
+		tile.ult = w1 & 0xFFF;
+		tile.lrs = (w2 >> 12) & 0xFFF;
+		tile.lrt = w2 & 0xFFF;
+		tile.update();
+
+		int s0 = tile.uls >> 2;
+		int rowBytes = (((tile.lrs >> 2) - s0 + 1) << textureImageSize) >> 1;
+		for (int t = tile.ult >> 2, row = 0; t <= (tile.lrt >> 2); t++, row++)
+		{
+			int dst = (tile.tmem << 3) + row * tile.stride;
+			if (dst >= tmem.length)
+				break;
+			int odd = (row & 1) << 2;
+			int bytes = readTextureImage(textureImageAddress + ((((t * textureImageWidth) + s0) << textureImageSize) >> 1), rowBytes);
+			for (int i = 0; i < bytes; i++)
+				tmem[((dst + i) ^ odd) & 0xFFF] = loadBuffer[i];
+		}
+	}
+
+	private void loadTlut(int w1, int w2)
+	{
+		Tile tile = tiles[(w2 >> 24) & 0x7];
+		tile.uls = (w1 >> 12) & 0xFFF;
+		tile.ult = w1 & 0xFFF;
+		tile.lrs = (w2 >> 12) & 0xFFF;
+		tile.lrt = w2 & 0xFFF;
+		tile.update();
+
+		// each 16 bit entry occupies a 64 bit word in the upper half of tmem
+		int dst = tile.tmem << 3;
+		int count = StrictMath.min((tile.lrs >> 2) - (tile.uls >> 2) + 1, (tmem.length - dst) >> 3);
+		int bytes = readTextureImage(textureImageAddress + ((tile.uls >> 2) << 1), count << 1);
+		for (int i = 0; i < (bytes >> 1); i++)
+		{
+			tmem[dst + (i << 3)] = loadBuffer[i << 1];
+			tmem[dst + (i << 3) + 1] = loadBuffer[(i << 1) + 1];
+		}
+	}
+
+	// Color Image /////////////////////////////////////////////////////////////
+
+	private void setColorImage(int address, int width, int size)
+	{
+		width = StrictMath.min(width, MAX_WIDTH);
+		if (address == colorImageAddress && width == fbWidth && size == colorImageSize)
+			return;
+		resolve();
+
+		int rowBytes = (width << size) >> 1;
+		colorImageAddress = address;
+		colorImageSize = size;
+		fbRows = (rowBytes > 0 && rdramSize > address) ? StrictMath.min(MAX_HEIGHT, (rdramSize - address) / rowBytes) : 0;
+		if (width != fbWidth || colorBuffer.length < width * fbRows)
+		{
+			fbWidth = width;
+			colorBuffer = new int[width * MAX_HEIGHT];
+			depthBuffer = new float[width * MAX_HEIGHT];
+			Arrays.fill(depthBuffer, 1.0f);
+		}
+		Arrays.fill(rowState, ROW_UNLOADED);
+	}
+
+	/**
+	 * Loads a row of the color image on first use, called from the band owning it.
+	 */
+	private void prepareRow(Band band, int y)
+	{
+		if (rowState[y] == ROW_UNLOADED)
+		{
+			int[] words = band.rowWords;
+			int row = y * fbWidth;
+			if (colorImageSize == G_IM_SIZ_32b)
+			{
+				((BusBulk) rdram).read32bit(colorImageAddress + (row << 2), words, 0, fbWidth);
+				for (int x = 0; x < fbWidth; x++)
+					colorBuffer[row + x] = (words[x] << 24) | (words[x] >>> 8);
+			}
+			else
+			{
+				((BusBulk) rdram).read32bit(colorImageAddress + (row << 1), words, 0, fbWidth >> 1);
+				for (int x = 0; x < (fbWidth >> 1); x++)
+				{
+					colorBuffer[row + (x << 1)] = rgba5551[words[x] >>> 16];
+					colorBuffer[row + (x << 1) + 1] = rgba5551[words[x] & 0xFFFF];
+				}
+			}
+		}
+		rowState[y] = ROW_DIRTY;
+	}
+
+	/**
+	 * Writes the rows drawn since the last resolve back to rdram.
+	 */
+	private void resolve()
+	{
+		if (rdram == null || colorImageAddress < 0)
+			return;
+		for (int y = 0; y < fbRows; y++)
+		{
+			if (rowState[y] != ROW_DIRTY)
+				continue;
+			int row = y * fbWidth;
+			if (colorImageSize == G_IM_SIZ_32b)
+			{
+				for (int x = 0; x < fbWidth; x++)
+					resolveWords[x] = (colorBuffer[row + x] << 8) | (colorBuffer[row + x] >>> 24);
+				((BusBulk) rdram).write32bit(colorImageAddress + (row << 2), resolveWords, 0, fbWidth);
+			}
+			else
+			{
+				for (int x = 0; x < (fbWidth >> 1); x++)
+					resolveWords[x] = (pack5551(colorBuffer[row + (x << 1)]) << 16) | pack5551(colorBuffer[row + (x << 1) + 1]);
+				((BusBulk) rdram).write32bit(colorImageAddress + (row << 1), resolveWords, 0, fbWidth >> 1);
+			}
+			rowState[y] = ROW_CLEAN;
+		}
+	}
+
+	private static int pack5551(int argb)
+	{
+		return ((argb >> 8) & 0xF800) | ((argb >> 5) & 0x07C0) | ((argb >> 2) & 0x003E) | (argb >>> 31);
+	}
+
+	private void clearDepth(int uly, int lry)
+	{
+		for (int y = StrictMath.max(uly, 0); y <= lry && y < fbRows; y++)
+			Arrays.fill(depthBuffer, y * fbWidth, (y + 1) * fbWidth, 1.0f);
+	}
+
+	// Commands ////////////////////////////////////////////////////////////////
+
+	private void gDPTextureRectangle(int w1, int w2, int w3, int w4, boolean flip)
+	{
+		int ulx = ((w2 >> 12) & 0xFFF) >> 2;
+		int uly = (w2 & 0xFFF) >> 2;
+		int lrx = ((w1 >> 12) & 0xFFF) >> 2;
+		int lry = (w1 & 0xFFF) >> 2;
+		float s = ((short) (w3 >> 16)) * 0.03125f;
+		float t = ((short) w3) * 0.03125f;
+		float dsdx = ((short) (w4 >> 16)) * 0.0009765625f;
+		float dtdy = ((short) w4) * 0.0009765625f;
+
+		// copy mode moves four texels per clock, its rectangles include the lower right edge
+		int cycle = (otherModeHi >> 20) & 0x3;
+		if (cycle == G_CYC_COPY)
+			dsdx *= 0.25f;
+		if (cycle < G_CYC_COPY)
+		{
+			lrx--;
+			lry--;
+		}
+		queueRect(PRIM_TEX_RECT, ulx, uly, lrx, lry, (w2 >> 24) & 0x7, s, t, dsdx, dtdy, flip);
+	}
+
+	private void buildOps()
+	{
+		rdp_command_table = new OpCode[64];
+		for (int i = 0; i < 64; i++)
+			rdp_command_table[i] = rdp_invalid;
+		rdp_command_table[0] = rdp_noop;
+		// edge coefficient triangles (8 - 15) are not produced by the hle ucodes
+		for (int i = 8; i < 16; i++)
+			rdp_command_table[i] = rdp_noop;
+		rdp_command_table[18] = rdp_hle_texture;
+		rdp_command_table[36] = rdp_tex_rect;
+		rdp_command_table[37] = rdp_tex_rect_flip;
+		rdp_command_table[38] = rdp_noop; // sync load
+		rdp_command_table[39] = rdp_noop; // sync pipe
+		rdp_command_table[40] = rdp_noop; // sync tile
+		rdp_command_table[41] = rdp_sync_full;
+		rdp_command_table[42] = rdp_set_key_gb;
+		rdp_command_table[43] = rdp_set_key_r;
+		rdp_command_table[44] = rdp_set_convert;
+		rdp_command_table[45] = rdp_set_scissor;
+		rdp_command_table[46] = rdp_set_prim_depth;
+		rdp_command_table[47] = rdp_set_other_modes;
+		rdp_command_table[48] = rdp_load_tlut;
+		rdp_command_table[50] = rdp_set_tile_size;
+		rdp_command_table[51] = rdp_load_block;
+		rdp_command_table[52] = rdp_load_tile;
+		rdp_command_table[53] = rdp_set_tile;
+		rdp_command_table[54] = rdp_fill_rect;
+		rdp_command_table[55] = rdp_set_fill_color;
+		rdp_command_table[56] = rdp_set_fog_color;
+		rdp_command_table[57] = rdp_set_blend_color;
+		rdp_command_table[58] = rdp_set_prim_color;
+		rdp_command_table[59] = rdp_set_env_color;
+		rdp_command_table[60] = rdp_set_combine;
+		rdp_command_table[61] = rdp_set_texture_image;
+		rdp_command_table[62] = rdp_set_mask_image;
+		rdp_command_table[63] = rdp_set_color_image;
+	}
+
+	protected OpCode rdp_invalid = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			System.out.printf("RDP: invalid command  %d, %s %s\n", (w1 >> 24) & 0x3f, Integer.toHexString(w1), Integer.toHexString(w2));
+		}
+	};
+
+	protected OpCode rdp_noop = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+		}
+	};
+
+	protected OpCode rdp_hle_texture = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			hleTile = (w1 >> 8) & 0x7;
+			hleScaleS = ((w2 >> 16) & 0xFFFF) * 1.5258789e-05f;
+			hleScaleT = ((w2 >> 0) & 0xFFFF) * 1.5258789e-05f;
+			if (hleScaleS == 0.0f)
+				hleScaleS = 1.0f;
+			if (hleScaleT == 0.0f)
+				hleScaleT = 1.0f;
+		}
+	};
+
+	protected OpCode rdp_tex_rect = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			int w3 = ((rdp_cmd_data[8] & 0xFF) << 24) | ((rdp_cmd_data[9] & 0xFF) << 16) | ((rdp_cmd_data[10] & 0xFF) << 8) | (rdp_cmd_data[11] & 0xFF);
+			int w4 = ((rdp_cmd_data[12] & 0xFF) << 24) | ((rdp_cmd_data[13] & 0xFF) << 16) | ((rdp_cmd_data[14] & 0xFF) << 8) | (rdp_cmd_data[15] & 0xFF);
+			gDPTextureRectangle(w1, w2, w3, w4, false);
+		}
+	};
+
+	protected OpCode rdp_tex_rect_flip = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			int w3 = ((rdp_cmd_data[8] & 0xFF) << 24) | ((rdp_cmd_data[9] & 0xFF) << 16) | ((rdp_cmd_data[10] & 0xFF) << 8) | (rdp_cmd_data[11] & 0xFF);
+			int w4 = ((rdp_cmd_data[12] & 0xFF) << 24) | ((rdp_cmd_data[13] & 0xFF) << 16) | ((rdp_cmd_data[14] & 0xFF) << 8) | (rdp_cmd_data[15] & 0xFF);
+			gDPTextureRectangle(w1, w2, w3, w4, true);
+		}
+	};
+
+	protected OpCode rdp_sync_full = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			resolve();
+			mi.write32bit(MI_INTR_REG, MI_INTR_SET_DP);
+		}
+	};
+
+	protected OpCode rdp_set_key_gb = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			keyCenter = (keyCenter & 0xFF0000) | (((w2 >> 24) & 0xFF) << 8) | ((w2 >> 8) & 0xFF);
+			keyScale = (keyScale & 0xFF0000) | (((w2 >> 16) & 0xFF) << 8) | (w2 & 0xFF);
+		}
+	};
+
+	protected OpCode rdp_set_key_r = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			keyCenter = (keyCenter & 0xFFFF) | (((w2 >> 8) & 0xFF) << 16);
+			keyScale = (keyScale & 0xFFFF) | ((w2 & 0xFF) << 16);
+		}
+	};
+
+	protected OpCode rdp_set_convert = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			k4 = ((w2 >> 9) & 0x1FF) & 0xFF;
+			k5 = (w2 & 0x1FF) & 0xFF;
+		}
+	};
+
+	protected OpCode rdp_set_scissor = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			scissorX0 = ((w1 >> 12) & 0xFFF) >> 2;
+			scissorY0 = (w1 & 0xFFF) >> 2;
+			scissorX1 = ((w2 >> 12) & 0xFFF) >> 2;
+			scissorY1 = (w2 & 0xFFF) >> 2;
+		}
+	};
+
+	protected OpCode rdp_set_prim_depth = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			primDepth = ((w2 >> 16) & 0x7FFF) * 3.0517578e-05f;
+		}
+	};
+
+	protected OpCode rdp_set_other_modes = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			otherModeHi = w1 & 0xFFFFFF;
+			otherModeLo = w2;
+		}
+	};
+
+	protected OpCode rdp_load_tlut = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			loadTlut(w1, w2);
+		}
+	};
+
+	protected OpCode rdp_set_tile_size = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			Tile tile = tiles[(w2 >> 24) & 0x7];
+			tile.uls = (w1 >> 12) & 0xFFF;
+			tile.ult = w1 & 0xFFF;
+			tile.lrs = (w2 >> 12) & 0xFFF;
+			tile.lrt = w2 & 0xFFF;
+			tile.update();
+		}
+	};
+
+	protected OpCode rdp_load_block = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			loadBlock(w1, w2);
+		}
+	};
+
+	protected OpCode rdp_load_tile = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			loadTile(w1, w2);
+		}
+	};
+
+	protected OpCode rdp_set_tile = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			Tile tile = tiles[(w2 >> 24) & 0x7];
+			tile.format = (w1 >> 21) & 0x7;
+			tile.size = (w1 >> 19) & 0x3;
+			tile.line = (w1 >> 9) & 0x1FF;
+			tile.tmem = w1 & 0x1FF;
+			tile.palette = (w2 >> 20) & 0xF;
+			tile.cmt = (w2 >> 18) & 0x3;
+			tile.maskt = (w2 >> 14) & 0xF;
+			tile.shiftt = (w2 >> 10) & 0xF;
+			tile.cms = (w2 >> 8) & 0x3;
+			tile.masks = (w2 >> 4) & 0xF;
+			tile.shifts = w2 & 0xF;
+			tile.update();
+		}
+	};
+
+	protected OpCode rdp_fill_rect = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			int ulx = (w2 >> 14) & 0x3FF;
+			int uly = (w2 >> 2) & 0x3FF;
+			int lrx = (w1 >> 14) & 0x3FF;
+			int lry = (w1 >> 2) & 0x3FF;
+			int cycle = (otherModeHi >> 20) & 0x3;
+			if (cycle < G_CYC_COPY)
+			{
+				lrx--;
+				lry--;
+			}
+			if (depthImageAddress == colorImageAddress)
+			{
+				drawPrimitives();
+				clearDepth(uly, lry);
+				return;
+			}
+			queueRect(PRIM_FILL_RECT, ulx, uly, lrx, lry, 0, 0.0f, 0.0f, 0.0f, 0.0f, false);
+		}
+	};
+
+	protected OpCode rdp_set_fill_color = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			fillColor = w2;
+		}
+	};
+
+	protected OpCode rdp_set_fog_color = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			fogColor = (w2 << 24) | (w2 >>> 8);
+		}
+	};
+
+	protected OpCode rdp_set_blend_color = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			blendColor = (w2 << 24) | (w2 >>> 8);
+		}
+	};
+
+	protected OpCode rdp_set_prim_color = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			primLodFraction = w1 & 0xFF;
+			primColor = (w2 << 24) | (w2 >>> 8);
+		}
+	};
+
+	protected OpCode rdp_set_env_color = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			envColor = (w2 << 24) | (w2 >>> 8);
+		}
+	};
+
+	protected OpCode rdp_set_combine = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			// slots are pre-scaled to offsets in the combiner input array, alpha reads the fourth channel
+			combineMux[0] = SUB_A_RGB[(w1 >> 20) & 0xF] << 2;
+			combineMux[1] = SUB_B_RGB[(w2 >> 28) & 0xF] << 2;
+			combineMux[2] = MUL_RGB[(w1 >> 15) & 0x1F] << 2;
+			combineMux[3] = ADD_RGB[(w2 >> 15) & 0x7] << 2;
+			combineMux[4] = (ADD_ALPHA[(w1 >> 12) & 0x7] << 2) + 3;
+			combineMux[5] = (ADD_ALPHA[(w2 >> 12) & 0x7] << 2) + 3;
+			combineMux[6] = (MUL_ALPHA[(w1 >> 9) & 0x7] << 2) + 3;
+			combineMux[7] = (ADD_ALPHA[(w2 >> 9) & 0x7] << 2) + 3;
+			combineMux[8] = SUB_A_RGB[(w1 >> 5) & 0xF] << 2;
+			combineMux[9] = SUB_B_RGB[(w2 >> 24) & 0xF] << 2;
+			combineMux[10] = MUL_RGB[w1 & 0x1F] << 2;
+			combineMux[11] = ADD_RGB[(w2 >> 6) & 0x7] << 2;
+			combineMux[12] = (ADD_ALPHA[(w2 >> 21) & 0x7] << 2) + 3;
+			combineMux[13] = (ADD_ALPHA[(w2 >> 3) & 0x7] << 2) + 3;
+			combineMux[14] = (MUL_ALPHA[(w2 >> 18) & 0x7] << 2) + 3;
+			combineMux[15] = (ADD_ALPHA[w2 & 0x7] << 2) + 3;
+
+			usesTexel0 = false;
+			usesTexel1 = false;
+			for (int i = 0; i < 16; i++)
+			{
+				int slot = combineMux[i] >> 2;
+				if (slot == CC_TEXEL0 || slot == CC_TEXEL0_ALPHA)
+					usesTexel0 = true;
+				if (slot == CC_TEXEL1 || slot == CC_TEXEL1_ALPHA)
+					usesTexel1 = true;
+			}
+		}
+	};
+
+	protected OpCode rdp_set_texture_image = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			textureImageSize = (w1 >> 19) & 0x3;
+			textureImageWidth = (w1 & 0xFFF) + 1;
+			textureImageAddress = w2 & 0x3FFFFFF;
+		}
+	};
+
+	protected OpCode rdp_set_mask_image = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			depthImageAddress = w2 & 0x3FFFFFF;
+		}
+	};
+
+	protected OpCode rdp_set_color_image = new OpCode()
+	{
+		public void exec(int w1, int w2)
+		{
+			drawPrimitives();
+			setColorImage(w2 & 0x3FFFFFF, (w1 & 0xFFF) + 1, (w1 >> 19) & 0x3);
+		}
+	};
+}
@@ -143,9 +143,12 @@ public class MIPSInterface implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus
 
 	private HashMap<Integer, Byte> bMem = new HashMap<Integer, Byte>();
 
+	private Region[] regions;
+
 	public MIPSInterface()
 	{
 		regMI[MI_VERSION_REG] = 0x02020102;
+		buildRegions();
 	}
 
 	@Override
@@ -205,309 +208,478 @@ public class MIPSInterface implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus
 	@Override
 	public final byte read8bit(int pAddr)
 	{
+		return regions[pAddr >>> 20].read8bit(pAddr);
+	}
+
+	@Override
+	public final short read16bit(int pAddr)
+	{
+		return regions[pAddr >>> 20].read16bit(pAddr);
+	}
+
+	@Override
+	public final int read32bit(int pAddr)
+	{
+		return regions[pAddr >>> 20].read32bit(pAddr);
+	}
+
+	@Override
+	public final long read64bit(int pAddr)
+	{
+		return regions[pAddr >>> 20].read64bit(pAddr);
+	}
+
+	@Override
+	public final void write8bit(int pAddr, byte value)
+	{
+		regions[pAddr >>> 20].write8bit(pAddr, value);
+	}
+
+	@Override
+	public final void write16bit(int pAddr, short value)
+	{
+		regions[pAddr >>> 20].write16bit(pAddr, value);
+	}
+
+	@Override
+	public final void write32bit(int pAddr, int value)
+	{
+		regions[pAddr >>> 20].write32bit(pAddr, value);
+	}
+
+	@Override
+	public final void write64bit(int pAddr, long value)
+	{
+		regions[pAddr >>> 20].write64bit(pAddr, value);
+	}
+
+	// private methods //////////////////////////////////////////////////
+
+	private void buildRegions()
+	{
+		regions = new Region[0x1000];
+		for (int i = 0; i < regions.length; i++)
+			regions[i] = unmapped;
+		for (int i = 0x000; i < 0x008; i++)
+			regions[i] = rdramRegion; // RAM = 0x00000000 to 0x003FFFFF, Extended RAM = 0x00400000 to 0x007FFFFF
+		for (int i = 0x008; i < 0x03F; i++)
+			regions[i] = unused;
+		regions[0x03F] = rdramRegsRegion;
+		regions[0x040] = spRegion;
+		regions[0x041] = dpRegion;
+		regions[0x043] = miRegion;
+		regions[0x044] = viRegion;
+		regions[0x045] = aiRegion;
+		regions[0x046] = piRegion;
+		regions[0x047] = riRegion;
+		regions[0x048] = siRegion;
+		regions[0x050] = cartRegion;
+		regions[0x080] = cartFlashRegion;
+		for (int i = 0x100; i < 0x160; i++)
+			regions[i] = cartRomRegion;
+		regions[0x1FC] = pifRegion;
+
 		if (DEBUG_MEMORY)
-			System.out.printf("LB:%X ", pAddr);
+		{
+			for (int i = 0; i < regions.length; i++)
+				regions[i] = new TracedRegion(regions[i]);
+		}
+	}
 
-		if (pAddr >= 0x00000000 && pAddr < 0x00800000)
-		{ // RAM = 0x00000000 to 0x003FFFFF, Extended RAM = 0x00400000 to 0x007FFFFF
-			return rdram8bit.read8bit(pAddr);
+	private class Region
+	{
+		public byte read8bit(int pAddr)
+		{
+			Byte b = bMem.get(pAddr);
+			return ((b == null) ? 0 : b);
 		}
-		else if (pAddr >= 0x00800000 && pAddr < 0x03F00000)
-		{ // ?? Unused
-			System.err.println("Illegal Memory LB access: " + Integer.toHexString(pAddr));
-			return 0;
+
+		public short read16bit(int pAddr)
+		{
+			Byte bb1 = bMem.get(pAddr);
+			int b1 = ((bb1 == null) ? 0 : bb1) & 0xFF;
+			Byte bb2 = bMem.get(pAddr + 1);
+			int b2 = ((bb2 == null) ? 0 : bb2) & 0xFF;
+			return (short) ((b1 << 8) | b2);
 		}
-		else if (pAddr >= 0x04000000 && pAddr < 0x04002000)
-		{ // DMEM/IMEM
-			return sp8bit.read8bit(pAddr - 0x04000000);
+
+		public int read32bit(int pAddr)
+		{
+			Byte bb1 = bMem.get(pAddr);
+			int b1 = ((bb1 == null) ? 0 : bb1) & 0xFF;
+			Byte bb2 = bMem.get(pAddr + 1);
+			int b2 = ((bb2 == null) ? 0 : bb2) & 0xFF;
+			Byte bb3 = bMem.get(pAddr + 2);
+			int b3 = ((bb3 == null) ? 0 : bb3) & 0xFF;
+			Byte bb4 = bMem.get(pAddr + 3);
+			int b4 = ((bb4 == null) ? 0 : bb4) & 0xFF;
+			return (b1 << 24) | (b2 << 16) | (b3 << 8) | b4;
 		}
-		else
+
+		public long read64bit(int pAddr)
 		{
-			if (pAddr >= 0x10000000 && pAddr < 0x16000000) { return ((Bus8bit) cart).read8bit(pAddr - 0x05000000); }
-			switch (pAddr & 0xFFF00000)
-			{
-			default:
-				Byte b = bMem.get(pAddr);
-				return ((b == null) ? 0 : b);
-			}
+			return (((long) read32bit(pAddr)) << 32) | (((long) read32bit(pAddr + 4)) & 0xFFFFFFFFL);
+		}
+
+		public void write8bit(int pAddr, byte value)
+		{
+			bMem.put(pAddr, value);
+		}
+
+		public void write16bit(int pAddr, short value)
+		{
+			bMem.put(pAddr, (byte) ((value >> 8) & 0xFFFF));
+			bMem.put(pAddr + 1, (byte) ((value) & 0xFFFF));
+		}
+
+		public void write32bit(int pAddr, int value)
+		{
+			bMem.put(pAddr, (byte) ((value >> 24) & 0xFFFF));
+			bMem.put(pAddr + 1, (byte) ((value >> 16) & 0xFFFF));
+			bMem.put(pAddr + 2, (byte) ((value >> 8) & 0xFFFF));
+			bMem.put(pAddr + 3, (byte) ((value) & 0xFFFF));
+		}
+
+		public void write64bit(int pAddr, long value)
+		{
+			write32bit(pAddr, (int) (value >> 32));
+			write32bit(pAddr + 4, (int) value);
 		}
 	}
 
-	@Override
-	public final short read16bit(int pAddr)
+	private class TracedRegion extends Region
 	{
-		if (DEBUG_MEMORY)
+		private Region region;
+
+		public TracedRegion(Region region)
+		{
+			this.region = region;
+		}
+
+		public byte read8bit(int pAddr)
+		{
+			System.out.printf("LB:%X ", pAddr);
+			return region.read8bit(pAddr);
+		}
+
+		public short read16bit(int pAddr)
+		{
 			System.out.printf("LH:%X ", pAddr);
+			return region.read16bit(pAddr);
+		}
 
-		if (pAddr >= 0x00000000 && pAddr < 0x00800000)
-		{ // RAM = 0x00000000 to 0x003FFFFF, Extended RAM = 0x00400000 to 0x007FFFFF
-			return rdram16bit.read16bit(pAddr);
+		public int read32bit(int pAddr)
+		{
+			System.out.printf("LW:%X ", pAddr);
+			return region.read32bit(pAddr);
 		}
-		else if (pAddr >= 0x00800000 && pAddr < 0x03F00000)
-		{ // ?? Unused
-			System.err.println("Illegal Memory LH access: " + Integer.toHexString(pAddr));
-			return 0;
+
+		public long read64bit(int pAddr)
+		{
+			System.out.printf("LD:%X ", pAddr);
+			return region.read64bit(pAddr);
 		}
-		else if (pAddr >= 0x04000000 && pAddr < 0x04002000)
-		{ // DMEM/IMEM
-			return sp16bit.read16bit(pAddr - 0x04000000);
+
+		public void write8bit(int pAddr, byte value)
+		{
+			System.out.printf("SB:%X ", pAddr);
+			region.write8bit(pAddr, value);
 		}
-		else
+
+		public void write16bit(int pAddr, short value)
 		{
-			switch (pAddr & 0xFFF00000)
-			{
-			default:
-				Byte bb1 = bMem.get(pAddr);
-				int b1 = ((bb1 == null) ? 0 : bb1) & 0xFF;
-				Byte bb2 = bMem.get(pAddr + 1);
-				int b2 = ((bb2 == null) ? 0 : bb2) & 0xFF;
-				return (short) ((b1 << 8) | b2);
-			}
+			System.out.printf("SH:%X ", pAddr);
+			region.write16bit(pAddr, value);
+		}
+
+		public void write32bit(int pAddr, int value)
+		{
+			System.out.printf("SW:%X ", pAddr);
+			region.write32bit(pAddr, value);
+		}
+
+		public void write64bit(int pAddr, long value)
+		{
+			System.out.printf("SD:%X ", pAddr);
+			region.write64bit(pAddr, value);
 		}
 	}
 
-	@Override
-	public final int read32bit(int pAddr)
+	private Region unmapped = new Region();
+
+	private Region rdramRegion = new Region()
 	{
-		if (DEBUG_MEMORY)
-			System.out.printf("LW:%X ", pAddr);
+		public byte read8bit(int pAddr)
+		{
+			return rdram8bit.read8bit(pAddr);
+		}
+
+		public short read16bit(int pAddr)
+		{
+			return rdram16bit.read16bit(pAddr);
+		}
 
-		if (pAddr >= 0x00000000 && pAddr < 0x00800000)
-		{ // RAM = 0x00000000 to 0x003FFFFF, Extended RAM = 0x00400000 to 0x007FFFFF
+		public int read32bit(int pAddr)
+		{
 			return rdram32bit.read32bit(pAddr);
 		}
-		else if (pAddr >= 0x00800000 && pAddr < 0x03F00000)
-		{ // ?? Unused
+
+		public void write8bit(int pAddr, byte value)
+		{
+			rdram8bit.write8bit(pAddr, value);
+		}
+
+		public void write16bit(int pAddr, short value)
+		{
+			rdram16bit.write16bit(pAddr, value);
+		}
+
+		public void write32bit(int pAddr, int value)
+		{
+			rdram32bit.write32bit(pAddr, value);
+		}
+	};
+
+	private Region unused = new Region()
+	{
+		public byte read8bit(int pAddr)
+		{
+			System.err.println("Illegal Memory LB access: " + Integer.toHexString(pAddr));
+			return 0;
+		}
+
+		public short read16bit(int pAddr)
+		{
+			System.err.println("Illegal Memory LH access: " + Integer.toHexString(pAddr));
+			return 0;
+		}
+
+		public int read32bit(int pAddr)
+		{
 			System.err.println("Illegal Memory LW access: " + Integer.toHexString(pAddr));
 			return 0;
 		}
-		else if (pAddr >= 0x04000000 && pAddr < 0x04002000)
-		{ // DMEM/IMEM
-			return sp32bit.read32bit(pAddr - 0x04000000);
+
+		public void write8bit(int pAddr, byte value)
+		{
+			System.err.println("Illegal Memory SB access: " + Integer.toHexString(pAddr));
 		}
-		else
+
+		public void write16bit(int pAddr, short value)
 		{
-			if (pAddr >= 0x10000000 && pAddr < 0x16000000) { return cart.read32bit(pAddr - 0x05000000); }
+			System.err.println("Illegal Memory SH access: " + Integer.toHexString(pAddr));
+		}
 
-			switch (pAddr & 0xFFF00000)
-			{
-			case 0x03F00000:
-				return rdram32bit.read32bit(pAddr);
-			case 0x04000000:
-				return sp32bit.read32bit(pAddr);
-			case 0x04100000:
-				return dp.read32bit(pAddr);
-			case 0x04300000:
-				return readRegister((pAddr - 0x04300000) >> 2);
-			case 0x04400000:
-				return vi.read32bit(pAddr);
-			case 0x04500000:
-				return ai.read32bit(pAddr);
-			case 0x04600000:
-				return pi.read32bit(pAddr);
-			case 0x04700000:
-				return ri.read32bit(pAddr);
-			case 0x04800000:
-				return si.read32bit(pAddr);
-			case 0x05000000:
-				return cart.read32bit(pAddr - 0x05000000);
-			case 0x08000000:
-				return cart.read32bit(pAddr - 0x05000000);
-			case 0x1FC00000:
-				return pif.read32bit(pAddr - 0x1FC00000);
-			default:
-				Byte bb1 = bMem.get(pAddr);
-				int b1 = ((bb1 == null) ? 0 : bb1) & 0xFF;
-				Byte bb2 = bMem.get(pAddr + 1);
-				int b2 = ((bb2 == null) ? 0 : bb2) & 0xFF;
-				Byte bb3 = bMem.get(pAddr + 2);
-				int b3 = ((bb3 == null) ? 0 : bb3) & 0xFF;
-				Byte bb4 = bMem.get(pAddr + 3);
-				int b4 = ((bb4 == null) ? 0 : bb4) & 0xFF;
-				return (b1 << 24) | (b2 << 16) | (b3 << 8) | b4;
-			}
+		public void write32bit(int pAddr, int value)
+		{
+			System.err.println("Illegal Memory SW access: " + Integer.toHexString(pAddr));
 		}
-	}
+	};
 
-	@Override
-	public final long read64bit(int pAddr)
+	private Region rdramRegsRegion = new Region()
 	{
-		if (DEBUG_MEMORY)
-			System.out.printf("LD:%X ", pAddr);
+		public int read32bit(int pAddr)
+		{
+			return rdram32bit.read32bit(pAddr);
+		}
 
-		return (((long) read32bit(pAddr)) << 32) | (((long) read32bit(pAddr + 4)) & 0xFFFFFFFFL);
-	}
+		public void write32bit(int pAddr, int value)
+		{
+			rdram32bit.write32bit(pAddr, value);
+		}
+	};
 
-	@Override
-	public final void write8bit(int pAddr, byte value)
+	private Region spRegion = new Region()
 	{
-		if (DEBUG_MEMORY)
-			System.out.printf("SB:%X ", pAddr);
+		public byte read8bit(int pAddr)
+		{
+			if (pAddr < 0x04002000)
+				return sp8bit.read8bit(pAddr - 0x04000000); // DMEM/IMEM
+			return super.read8bit(pAddr);
+		}
 
-		if (pAddr >= 0x00000000 && pAddr < 0x00800000)
-		{ // RAM = 0x00000000 to 0x003FFFFF, Extended RAM = 0x00400000 to 0x007FFFFF
-			rdram8bit.write8bit(pAddr, value);
+		public short read16bit(int pAddr)
+		{
+			if (pAddr < 0x04002000)
+				return sp16bit.read16bit(pAddr - 0x04000000); // DMEM/IMEM
+			return super.read16bit(pAddr);
 		}
-		else if (pAddr >= 0x00800000 && pAddr < 0x03F00000)
-		{ // ?? Unused
-			System.err.println("Illegal Memory SB access: " + Integer.toHexString(pAddr));
-			return;
+
+		public int read32bit(int pAddr)
+		{
+			if (pAddr < 0x04002000)
+				return sp32bit.read32bit(pAddr - 0x04000000); // DMEM/IMEM
+			return sp32bit.read32bit(pAddr);
 		}
-		else if (pAddr >= 0x04000000 && pAddr < 0x04002000)
-		{ // DMEM/IMEM
-			sp8bit.write8bit(pAddr - 0x04000000, value);
+
+		public void write8bit(int pAddr, byte value)
+		{
+			if (pAddr < 0x04002000)
+				sp8bit.write8bit(pAddr - 0x04000000, value); // DMEM/IMEM
+			else
+				super.write8bit(pAddr, value);
 		}
-		else
+
+		public void write16bit(int pAddr, short value)
 		{
-			switch (pAddr & 0xFFF00000)
-			{
-			case 0x00000000:
-			case 0x00100000:
-			case 0x00200000:
-			case 0x00300000:
-			case 0x00400000:
-			case 0x00500000:
-			case 0x00600000:
-			case 0x00700000:
-				System.err.println("Illegal RAM Memory SB: " + Integer.toHexString(pAddr));
-				return;
-			default:
-				bMem.put(pAddr, value);
-			}
+			if (pAddr < 0x04002000)
+				sp16bit.write16bit(pAddr - 0x04000000, value); // DMEM/IMEM
+			else
+				super.write16bit(pAddr, value);
 		}
-	}
 
-	@Override
-	public final void write16bit(int pAddr, short value)
+		public void write32bit(int pAddr, int value)
+		{
+			if (pAddr < 0x04002000)
+				sp32bit.write32bit(pAddr - 0x04000000, value); // DMEM/IMEM
+			else
+				sp32bit.write32bit(pAddr, value);
+		}
+	};
+
+	private Region dpRegion = new Region()
 	{
-		if (DEBUG_MEMORY)
-			System.out.printf("SH:%X ", pAddr);
+		public int read32bit(int pAddr)
+		{
+			return dp.read32bit(pAddr);
+		}
 
-		if (pAddr >= 0x00000000 && pAddr < 0x00800000)
-		{ // RAM = 0x00000000 to 0x003FFFFF, Extended RAM = 0x00400000 to 0x007FFFFF
-			rdram16bit.write16bit(pAddr, value);
+		public void write32bit(int pAddr, int value)
+		{
+			dp.write32bit(pAddr, value);
 		}
-		else if (pAddr >= 0x00800000 && pAddr < 0x03F00000)
-		{ // ?? Unused
-			System.err.println("Illegal Memory SH access: " + Integer.toHexString(pAddr));
-			return;
+	};
+
+	private Region miRegion = new Region()
+	{
+		public int read32bit(int pAddr)
+		{
+			return readRegister((pAddr - 0x04300000) >> 2);
+		}
+
+		public void write32bit(int pAddr, int value)
+		{
+			writeRegister((pAddr - 0x04300000) >> 2, value);
 		}
-		else if (pAddr >= 0x04000000 && pAddr < 0x04002000)
-		{ // DMEM/IMEM
-			sp16bit.write16bit(pAddr - 0x04000000, value);
+	};
+
+	private Region viRegion = new Region()
+	{
+		public int read32bit(int pAddr)
+		{
+			return vi.read32bit(pAddr);
 		}
-		else
+
+		public void write32bit(int pAddr, int value)
 		{
-			switch (pAddr & 0xFFF00000)
-			{
-			case 0x00000000:
-			case 0x00100000:
-			case 0x00200000:
-			case 0x00300000:
-			case 0x00400000:
-			case 0x00500000:
-			case 0x00600000:
-			case 0x00700000:
-				System.err.println("Illegal RAM Memory SH: " + Integer.toHexString(pAddr));
-				return;
-			default:
-				bMem.put(pAddr, (byte) ((value >> 8) & 0xFFFF));
-				bMem.put(pAddr + 1, (byte) ((value) & 0xFFFF));
-			}
+			vi.write32bit(pAddr, value);
 		}
-	}
+	};
 
-	@Override
-	public final void write32bit(int pAddr, int value)
+	private Region aiRegion = new Region()
 	{
-		if (DEBUG_MEMORY)
-			System.out.printf("SW:%X ", pAddr);
+		public int read32bit(int pAddr)
+		{
+			return ai.read32bit(pAddr);
+		}
 
-		if (pAddr >= 0x00000000 && pAddr < 0x00800000)
-		{ // RAM = 0x00000000 to 0x003FFFFF, Extended RAM = 0x00400000 to 0x007FFFFF
-			rdram32bit.write32bit(pAddr, value);
+		public void write32bit(int pAddr, int value)
+		{
+			ai.write32bit(pAddr, value);
 		}
-		else if (pAddr >= 0x00800000 && pAddr < 0x03F00000)
-		{ // ?? Unused
-			System.err.println("Illegal Memory  SW access: " + Integer.toHexString(pAddr));
-			return;
+	};
+
+	private Region piRegion = new Region()
+	{
+		public int read32bit(int pAddr)
+		{
+			return pi.read32bit(pAddr);
 		}
-		else if (pAddr >= 0x04000000 && pAddr < 0x04002000)
-		{ // DMEM/IMEM
-			sp32bit.write32bit(pAddr - 0x04000000, value);
+
+		public void write32bit(int pAddr, int value)
+		{
+			pi.write32bit(pAddr, value);
 		}
-		else
+	};
+
+	private Region riRegion = new Region()
+	{
+		public int read32bit(int pAddr)
 		{
-			if (pAddr >= 0x10000000 && pAddr < 0x16000000)
-			{
-				cart.write32bit(pAddr - 0x05000000, value);
-			}
+			return ri.read32bit(pAddr);
+		}
 
-			switch (pAddr & 0xFFF00000)
-			{
-			case 0x00000000:
-			case 0x00100000:
-			case 0x00200000:
-			case 0x00300000:
-			case 0x00400000:
-			case 0x00500000:
-			case 0x00600000:
-			case 0x00700000:
-				System.err.println("Illegal RAM Memory SW: " + Integer.toHexString(pAddr));
-				return;
-			case 0x03F00000:
-				rdram32bit.write32bit(pAddr, value);
-				break;
-			case 0x04000000:
-				sp32bit.write32bit(pAddr, value);
-				break;
-			case 0x04100000:
-				dp.write32bit(pAddr, value);
-				break;
-			case 0x04300000:
-				writeRegister((pAddr - 0x04300000) >> 2, value);
-				break;
-			case 0x04400000:
-				vi.write32bit(pAddr, value);
-				break;
-			case 0x04500000:
-				ai.write32bit(pAddr, value);
-				break;
-			case 0x04600000:
-				pi.write32bit(pAddr, value);
-				break;
-			case 0x04700000:
-				ri.write32bit(pAddr, value);
-				break;
-			case 0x04800000:
-				si.write32bit(pAddr, value);
-				break;
-			case 0x08000000:
-				cart.write32bit(pAddr - 0x05000000, value);
-				break;
-			case 0x1FC00000:
-				pif.write32bit(pAddr - 0x1FC00000, value);
-				break;
-			default:
-				bMem.put(pAddr, (byte) ((value >> 24) & 0xFFFF));
-				bMem.put(pAddr + 1, (byte) ((value >> 16) & 0xFFFF));
-				bMem.put(pAddr + 2, (byte) ((value >> 8) & 0xFFFF));
-				bMem.put(pAddr + 3, (byte) ((value) & 0xFFFF));
-			}
+		public void write32bit(int pAddr, int value)
+		{
+			ri.write32bit(pAddr, value);
 		}
-	}
+	};
 
-	@Override
-	public final void write64bit(int pAddr, long value)
+	private Region siRegion = new Region()
 	{
-		if (DEBUG_MEMORY)
-			System.out.printf("SD:%X ", pAddr);
+		public int read32bit(int pAddr)
+		{
+			return si.read32bit(pAddr);
+		}
 
-		write32bit(pAddr, (int) (value >> 32));
-		write32bit(pAddr + 4, (int) value);
-	}
+		public void write32bit(int pAddr, int value)
+		{
+			si.write32bit(pAddr, value);
+		}
+	};
 
-	// private methods //////////////////////////////////////////////////
+	private Region cartRegion = new Region()
+	{
+		public int read32bit(int pAddr)
+		{
+			return cart.read32bit(pAddr - 0x05000000);
+		}
+	};
+
+	private Region cartFlashRegion = new Region()
+	{
+		public int read32bit(int pAddr)
+		{
+			return cart.read32bit(pAddr - 0x05000000);
+		}
+
+		public void write32bit(int pAddr, int value)
+		{
+			cart.write32bit(pAddr - 0x05000000, value);
+		}
+	};
+
+	private Region cartRomRegion = new Region()
+	{
+		public byte read8bit(int pAddr)
+		{
+			return ((Bus8bit) cart).read8bit(pAddr - 0x05000000);
+		}
+
+		public int read32bit(int pAddr)
+		{
+			return cart.read32bit(pAddr - 0x05000000);
+		}
+
+		public void write32bit(int pAddr, int value)
+		{
+			cart.write32bit(pAddr - 0x05000000, value);
+			super.write32bit(pAddr, value);
+		}
+	};
+
+	private Region pifRegion = new Region()
+	{
+		public int read32bit(int pAddr)
+		{
+			return pif.read32bit(pAddr - 0x1FC00000);
+		}
+
+		public void write32bit(int pAddr, int value)
+		{
+			pif.write32bit(pAddr - 0x1FC00000, value);
+		}
+	};
 
 	private int readRegister(int reg)
 	{
@@ -67,6 +67,9 @@ public class ParallelInterface implements Hardware, Clockable, Bus32bit
 	// private static final int PI_SET_RESET = 0x01;
 	private static final int PI_CLR_INTR = 0x02;
 
+	private static final int TIMER_SCHEDULE_REG = 16 + 2; // from now, on the pi port
+	private static final int TIMER_CANCEL_REG = 32 + 2;
+
 	private int[] regPI = new int[13];
 	private boolean dmaUsed;
 
@@ -115,7 +118,7 @@ public class ParallelInterface implements Hardware, Clockable, Bus32bit
 	{
 		regPI[PI_STATUS_REG] &= ~PI_STATUS_DMA_BUSY;
 		mi.write32bit(MI_INTR_REG, MI_INTR_SET_PI);
-		timer.write32bit(2, -(int) ticks);
+		timer.write32bit(TIMER_CANCEL_REG, 0);
 	}
 
 	@Override
@@ -159,16 +162,15 @@ public class ParallelInterface implements Hardware, Clockable, Bus32bit
 			break;
 		case 2:
 			regPI[PI_RD_LEN_REG] = value;
+			regPI[PI_STATUS_REG] |= PI_STATUS_DMA_BUSY;
 			piDmaRead(regPI[PI_DRAM_ADDR_REG], regPI[PI_CART_ADDR_REG], regPI[PI_RD_LEN_REG]);
-			regPI[PI_STATUS_REG] &= ~PI_STATUS_DMA_BUSY;
-			mi.write32bit(MI_INTR_REG, MI_INTR_SET_PI);
+			timer.write32bit(TIMER_SCHEDULE_REG, dmaCycles(regPI[PI_RD_LEN_REG]));
 			break;
 		case 3:
 			regPI[PI_WR_LEN_REG] = value;
 			regPI[PI_STATUS_REG] |= PI_STATUS_DMA_BUSY;
 			piDmaWrite(regPI[PI_DRAM_ADDR_REG], regPI[PI_CART_ADDR_REG], regPI[PI_WR_LEN_REG]);
-			regPI[PI_STATUS_REG] &= ~PI_STATUS_DMA_BUSY;
-			mi.write32bit(MI_INTR_REG, MI_INTR_SET_PI);
+			timer.write32bit(TIMER_SCHEDULE_REG, dmaCycles(regPI[PI_WR_LEN_REG]));
 			break;
 		case 4:
 			if ((value & PI_CLR_INTR) != 0)
@@ -205,6 +207,13 @@ public class ParallelInterface implements Hardware, Clockable, Bus32bit
 
 	// Private Methods /////////////////////////////////////////////////////////
 
+	// the data moves at once, busy and the interrupt follow the time the
+	// transfer takes on the bus, about 2.5 count cycles a byte
+	private static int dmaCycles(int len)
+	{
+		return (((len & 0x00FFFFFF) + 1) * 5) >> 1;
+	}
+
 	private void piDmaRead(int dramAddr, int cartAddr, int rdLen)
 	{
 		if (dramAddr + rdLen + 1 > rdram.read32bit(RDRAM_CAPACITY_REG))
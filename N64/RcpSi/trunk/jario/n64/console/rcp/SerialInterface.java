@@ -42,7 +42,7 @@ public class SerialInterface implements Hardware, Clockable, Bus32bit
 	private static final int SI_PIF_ADDR_WR64B_REG = 2;
 	private static final int SI_STATUS_REG = 3;
 
-	// private static final int SI_STATUS_DMA_BUSY = 0x0001;
+	private static final int SI_STATUS_DMA_BUSY = 0x0001;
 	// private static final int SI_STATUS_RD_BUSY = 0x0002;
 	// private static final int SI_STATUS_DMA_ERROR = 0x0008;
 	private static final int SI_STATUS_INTERRUPT = 0x1000;
@@ -51,6 +51,10 @@ public class SerialInterface implements Hardware, Clockable, Bus32bit
 
 	private static final int PIF_READ_REG = 0;
 
+	private static final int TIMER_SCHEDULE_REG = 16 + 1; // from now, on the si port
+	private static final int TIMER_CANCEL_REG = 32 + 1;
+	private static final int SI_DMA_CYCLES = 0x900; // a 64 byte pif ram transfer
+
 	private Bus8bit rdram;
 	private Bus32bit mi;
 	private Bus8bit pif;
@@ -90,9 +94,10 @@ public class SerialInterface implements Hardware, Clockable, Bus32bit
 	@Override
 	public void clock(long ticks)
 	{
+		regSI[SI_STATUS_REG] &= ~SI_STATUS_DMA_BUSY;
 		regSI[SI_STATUS_REG] |= SI_STATUS_INTERRUPT;
 		mi.write32bit(MI_INTR_REG, MI_INTR_SET_SI);
-		timer.write32bit(1, -(int) ticks);
+		timer.write32bit(TIMER_CANCEL_REG, 0);
 	}
 
 	@Override
@@ -118,14 +123,14 @@ public class SerialInterface implements Hardware, Clockable, Bus32bit
 		case 1:
 			regSI[SI_PIF_ADDR_RD64B_REG] = value;
 			pifRamDmaRead(rdram, regSI[SI_DRAM_ADDR_REG]);
-			regSI[SI_STATUS_REG] |= SI_STATUS_INTERRUPT;
-			mi.write32bit(MI_INTR_REG, MI_INTR_SET_SI);
+			regSI[SI_STATUS_REG] |= SI_STATUS_DMA_BUSY;
+			timer.write32bit(TIMER_SCHEDULE_REG, SI_DMA_CYCLES);
 			break;
 		case 4:
 			regSI[SI_PIF_ADDR_WR64B_REG] = value;
 			pifRamDmaWrite(rdram, regSI[SI_DRAM_ADDR_REG]);
-			regSI[SI_STATUS_REG] |= SI_STATUS_INTERRUPT;
-			mi.write32bit(MI_INTR_REG, MI_INTR_SET_SI);
+			regSI[SI_STATUS_REG] |= SI_STATUS_DMA_BUSY;
+			timer.write32bit(TIMER_SCHEDULE_REG, SI_DMA_CYCLES);
 			break;
 		case 6:
 			regSI[SI_STATUS_REG] &= ~SI_STATUS_INTERRUPT;
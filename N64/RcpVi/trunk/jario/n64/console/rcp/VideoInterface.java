@@ -23,6 +23,7 @@ package jario.n64.console.rcp;
 import jario.hardware.Bus32bit;
 import jario.hardware.Clockable;
 import jario.hardware.Configurable;
+import jario.hardware.FramePacer;
 import jario.hardware.Hardware;
 
 import java.awt.Component;
@@ -31,7 +32,6 @@ import java.awt.Dimension;
 public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurable
 {
 	private int FRAMES_PER_SECOND = 60;
-	private int SKIP_TICKS = 1000 / FRAMES_PER_SECOND;
 	
 	private static final int VI_STATUS_REG = 0;
 	private static final int VI_ORIGIN_REG = 1;
@@ -50,8 +50,11 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 
 	private static final int MI_INTR_REG = 0x04300008;
 
+	private static final int DAC_AUDIO_QUEUED_REG = 2; // read, in microseconds
+	private static final int DAC_AUDIO_TARGET_REG = 3; // read, in microseconds
 	private static final int DAC_WIDTH_BUF_REG = 4;
 	private static final int DAC_FPS_REG = 5;
+	private static final int DAC_PIXEL_SIZE_REG = 10;
 
 	private static final int MI_INTR_CLR_VI = 0x0040; /* Bit 6: clear VI interrupt */
 	private static final int MI_INTR_SET_VI = 0x0080; /* Bit 7: set VI interrupt */
@@ -66,17 +69,11 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 	private boolean useFrameBuffer;
 	private int fbLenBytes;
 	private int[] regVI = new int[14];
-	private long lastFrame;
-	private long[] frames = new long[NUM_FRAMES];
-	private int currentFrame;
-	private long frequency;
+	private FramePacer pacer = new FramePacer(FRAMES_PER_SECOND);
+	private volatile int currentFrame; // read by other threads through "frames"
 	private int oldViVsyncReg = 0;
 	private int viIntrTime = 500000;
 	private int viFieldNumber;
-	private long currentTime;
-	private long next_game_tick;
-	private long sleep_time;
-	private boolean frameLimit = true;
 
 	private Bus32bit mi;
 	private Bus32bit dac;
@@ -84,7 +81,6 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 
 	public VideoInterface()
 	{
-		frequency = 1000;
 		currentFrame = 0;
 		viFieldNumber = 0;
 	}
@@ -109,7 +105,7 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 		case 3:
 			timer = (Bus32bit) bus;
 			if (timer != null)
-				timer.write32bit(3, 5000);
+				timer.write32bit(19, 5000);
 			break;
 		}
 	}
@@ -117,7 +113,6 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 	@Override
 	public void reset()
 	{
-		frequency = 1000;
 		currentFrame = 0;
 		viFieldNumber = 0;
 	}
@@ -163,7 +158,7 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 		case 13:
 			return regVI[VI_Y_SCALE_REG];
 		case 16:
-			return frameLimit ? 1 : 0;
+			return pacer.isLimit() ? 1 : 0;
 		case 17:
 			return useFrameBuffer ? 1 : 0;
 		default:
@@ -179,7 +174,13 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 		case 0:
 			if (regVI[VI_STATUS_REG] != value)
 			{
+				boolean typeChanged = ((regVI[VI_STATUS_REG] ^ value) & 0x3) != 0;
 				regVI[VI_STATUS_REG] = value;
+				if (typeChanged)
+				{
+					dac.write32bit(DAC_PIXEL_SIZE_REG, pixelSize());
+					fbLenBytes = regVI[VI_WIDTH_REG] * ((regVI[VI_WIDTH_REG] >> 2) * 3) * pixelSize();
+				}
 			}
 			break;
 		case 1:
@@ -191,7 +192,7 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 				regVI[VI_WIDTH_REG] = value;
 				dac.write32bit(DAC_WIDTH_BUF_REG, value);
 				drawSurface.setPreferredSize(new Dimension(regVI[VI_WIDTH_REG], (regVI[VI_WIDTH_REG] >> 2) * 3));
-				fbLenBytes = (3 * regVI[VI_WIDTH_REG] * regVI[VI_WIDTH_REG]) >> 1;
+				fbLenBytes = regVI[VI_WIDTH_REG] * ((regVI[VI_WIDTH_REG] >> 2) * 3) * pixelSize();
 			}
 			break;
 		case 3:
@@ -230,7 +231,7 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 		case 14:
 			break;
 		case 16:
-			frameLimit = value != 0;
+			pacer.setLimit(value != 0);
 			break;
 		case 17:
 			useFrameBuffer = value != 0;
@@ -242,8 +243,13 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 	public Object readConfig(String key)
 	{
 		if (key.equals("framelimit"))
-			return frameLimit;
+			return pacer.isLimit();
 		else if (key.equals("framebuffer")) return useFrameBuffer;
+		else if (key.equals("frames")) return currentFrame;
+		else if (key.equals("speed")) return pacer.getSpeed();
+		else if (key.equals("audiosync")) return pacer.isAudioSync();
+		else if (key.equals("frametime50")) return pacer.percentile(50) / 1000000.0f; // milliseconds
+		else if (key.equals("frametime99")) return pacer.percentile(99) / 1000000.0f;
 		return null;
 	}
 
@@ -251,9 +257,13 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 	public void writeConfig(String key, Object value)
 	{
 		if (key.equals("framelimit"))
-			frameLimit = (Boolean) value;
+			pacer.setLimit((Boolean) value);
 		else if (key.equals("framebuffer"))
 			useFrameBuffer = (Boolean) value;
+		else if (key.equals("speed"))
+			pacer.setSpeed((Float) value);
+		else if (key.equals("audiosync"))
+			pacer.setAudioSync((Boolean) value);
 		else if (key.equals("screen"))
 		{
 			drawSurface = (Component) value;
@@ -266,6 +276,12 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 
 	// Private Methods /////////////////////////////////////////////////////////
 
+	// bytes per framebuffer pixel, type 3 is 32-bit color and the others 16-bit
+	private int pixelSize()
+	{
+		return (regVI[VI_STATUS_REG] & 0x3) == 3 ? 4 : 2;
+	}
+
 	private int refreshScreen()
 	{
 		if (oldViVsyncReg != regVI[VI_V_SYNC_REG])
@@ -301,15 +317,9 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 
 		if ((currentFrame & 7) == 0)
 		{
-			long frametime = System.currentTimeMillis();
-			frames[(currentFrame >> 3) % NUM_FRAMES] = frametime - lastFrame;
-			lastFrame = frametime;
 			if (currentFrame > (NUM_FRAMES << 3))
 			{
-				float total = 0.0f;
-				for (int count = 0; count < NUM_FRAMES; count++)
-					total += frames[count];
-				dac.write32bit(DAC_FPS_REG, (int) (frequency / (total / (NUM_FRAMES << 3))));
+				dac.write32bit(DAC_FPS_REG, pacer.framesPerSecond());
 			}
 			else
 			{
@@ -329,24 +339,7 @@ public class VideoInterface implements Hardware, Clockable, Bus32bit, Configurab
 			mi.read32bit(0x04100034);
 		}
 
-		currentTime = System.currentTimeMillis();
-		if (frameLimit)
-		{
-			next_game_tick += SKIP_TICKS;
-			sleep_time = next_game_tick - currentTime;
-			if (sleep_time >= 0)
-			{
-				try
-				{
-					Thread.sleep(sleep_time);
-				}
-				catch (InterruptedException e)
-				{
-					e.printStackTrace();
-				}
-			}
-		}
-		next_game_tick = System.currentTimeMillis();
+		pacer.frame(dac.read32bit(DAC_AUDIO_QUEUED_REG), dac.read32bit(DAC_AUDIO_TARGET_REG));
 
 		return viIntrTime;
 	}
@@ -24,12 +24,14 @@ import jario.hardware.Bus16bit;
 import jario.hardware.Bus32bit;
 import jario.hardware.Bus64bit;
 import jario.hardware.Bus8bit;
+import jario.hardware.BusBulk;
 import jario.hardware.BusDMA;
+import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 
 import java.nio.ByteBuffer;
 
-public class Rdram implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus64bit, BusDMA
+public class Rdram implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus64bit, BusDMA, BusBulk
 {
 	private static final int RDRAM_CONFIG_REG = 0;
 	private static final int RDRAM_DEVICE_ID_REG = 1;
@@ -42,19 +44,31 @@ public class Rdram implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus64bit, B
 	private static final int RDRAM_ADDR_SELECT_REG = 8;
 	private static final int RDRAM_DEVICE_MANUF_REG = 9;
 
-	private byte[] rdram;
+	private static final int CPU_CODE_WRITE_REG = 45;
+	private static final int CPU_CODE_DMA_REG = 46;
+
+	private ByteBuffer rdram;
 
 	private int[] regRDRAM = new int[10];
 
+	private Bus32bit cpu;
+	private boolean[] codePages;
+
 	public Rdram()
 	{
-		rdram = new byte[0x00800000]; // (8MB);
+		rdram = ByteBuffer.allocateDirect(0x00800000); // (8MB), big-endian
 	}
 
 	@Override
 	public void connect(int port, Hardware bus)
 	{
-		throw new UnsupportedOperationException("Not supported yet.");
+		switch (port)
+		{
+		case 0:
+			cpu = (Bus32bit) bus;
+			codePages = (cpu != null) ? (boolean[]) ((Configurable) cpu).readConfig("codepages") : null;
+			break;
+		}
 	}
 
 	@Override
@@ -66,13 +80,13 @@ public class Rdram implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus64bit, B
 	@Override
 	public byte read8bit(int pAddr)
 	{
-		return rdram[pAddr];
+		return rdram.get(pAddr);
 	}
 
 	@Override
 	public short read16bit(int pAddr)
 	{
-		return (short) (((rdram[pAddr] & 0xFF) << 8) | (rdram[pAddr + 1] & 0xFF));
+		return rdram.getShort(pAddr);
 	}
 
 	@Override
@@ -80,7 +94,7 @@ public class Rdram implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus64bit, B
 	{
 		if (pAddr < 0x00800000)
 		{
-			return (rdram[pAddr] << 24) | ((rdram[pAddr + 1] & 0xFF) << 16) | ((rdram[pAddr + 2] & 0xFF) << 8) | (rdram[pAddr + 3] & 0xFF);
+			return rdram.getInt(pAddr);
 		}
 		else if ((pAddr & 0xFFF00000) == 0x03F00000)
 		{
@@ -107,7 +121,7 @@ public class Rdram implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus64bit, B
 			case 9:
 				return regRDRAM[RDRAM_DEVICE_MANUF_REG];
 			case 10:
-				return rdram.length;
+				return rdram.capacity();
 			default:
 				return 0;
 			}
@@ -122,27 +136,49 @@ public class Rdram implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus64bit, B
 	@Override
 	public long read64bit(int pAddr)
 	{
-		return ((rdram[pAddr] & 0xFFL) << 56) | ((rdram[pAddr + 1] & 0xFFL) << 48) | ((rdram[pAddr + 2] & 0xFFL) << 40) | ((rdram[pAddr + 3] & 0xFFL) << 32)
-				| ((rdram[pAddr + 4] & 0xFFL) << 24) | ((rdram[pAddr + 5] & 0xFFL) << 16) | ((rdram[pAddr + 6] & 0xFFL) << 8) | (rdram[pAddr + 7] & 0xFFL);
+		return rdram.getLong(pAddr);
 	}
 
 	@Override
 	public void readDMA(int pAddr, ByteBuffer dma, int offset, int length)
 	{
-		System.arraycopy(rdram, pAddr, dma.array(), offset, length);
+		ByteBuffer src = rdram.duplicate();
+		src.position(pAddr);
+		if (dma.hasArray())
+		{
+			src.get(dma.array(), dma.arrayOffset() + offset, length);
+		}
+		else
+		{
+			src.limit(pAddr + length);
+			ByteBuffer dst = dma.duplicate();
+			dst.position(offset);
+			dst.put(src);
+		}
+	}
+
+	@Override
+	public void read32bit(int pAddr, int[] data, int offset, int length)
+	{
+		ByteBuffer src = rdram.duplicate();
+		src.position(pAddr);
+		src.asIntBuffer().get(data, offset, length);
 	}
 
 	@Override
 	public void write8bit(int pAddr, byte value)
 	{
-		rdram[pAddr] = value;
+		if (codePages != null && codePages[pAddr >>> 12])
+			cpu.write32bit(CPU_CODE_WRITE_REG, pAddr);
+		rdram.put(pAddr, value);
 	}
 
 	@Override
 	public void write16bit(int pAddr, short value)
 	{
-		rdram[pAddr] = (byte) (value >> 8);
-		rdram[pAddr + 1] = (byte) value;
+		if (codePages != null && codePages[pAddr >>> 12])
+			cpu.write32bit(CPU_CODE_WRITE_REG, pAddr);
+		rdram.putShort(pAddr, value);
 	}
 
 	@Override
@@ -150,10 +186,9 @@ public class Rdram implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus64bit, B
 	{
 		if (pAddr < 0x00800000)
 		{
-			rdram[pAddr] = (byte) (value >> 24);
-			rdram[pAddr + 1] = (byte) (value >> 16);
-			rdram[pAddr + 2] = (byte) (value >> 8);
-			rdram[pAddr + 3] = (byte) value;
+			if (codePages != null && codePages[pAddr >>> 12])
+				cpu.write32bit(CPU_CODE_WRITE_REG, pAddr);
+			rdram.putInt(pAddr, value);
 		}
 		else if ((pAddr & 0xFFF00000) == 0x03F00000)
 		{
@@ -212,19 +247,51 @@ public class Rdram implements Hardware, Bus8bit, Bus16bit, Bus32bit, Bus64bit, B
 	@Override
 	public void write64bit(int pAddr, long value)
 	{
-		rdram[pAddr] = (byte) (value >> 56);
-		rdram[pAddr + 1] = (byte) (value >> 48);
-		rdram[pAddr + 2] = (byte) (value >> 40);
-		rdram[pAddr + 3] = (byte) (value >> 32);
-		rdram[pAddr + 4] = (byte) (value >> 24);
-		rdram[pAddr + 5] = (byte) (value >> 16);
-		rdram[pAddr + 6] = (byte) (value >> 8);
-		rdram[pAddr + 7] = (byte) value;
+		if (codePages != null && codePages[pAddr >>> 12])
+		{
+			cpu.write32bit(CPU_CODE_WRITE_REG, pAddr);
+			cpu.write32bit(CPU_CODE_WRITE_REG, pAddr + 4);
+		}
+		rdram.putLong(pAddr, value);
 	}
 
 	@Override
 	public void writeDMA(int pAddr, ByteBuffer dma, int offset, int length)
 	{
-		System.arraycopy(dma.array(), offset, rdram, pAddr, length);
+		invalidateCode(pAddr, length);
+		ByteBuffer dst = rdram.duplicate();
+		dst.position(pAddr);
+		if (dma.hasArray())
+		{
+			dst.put(dma.array(), dma.arrayOffset() + offset, length);
+		}
+		else
+		{
+			ByteBuffer src = dma.duplicate();
+			src.position(offset);
+			src.limit(offset + length);
+			dst.put(src);
+		}
+	}
+
+	@Override
+	public void write32bit(int pAddr, int[] data, int offset, int length)
+	{
+		invalidateCode(pAddr, length << 2);
+		ByteBuffer dst = rdram.duplicate();
+		dst.position(pAddr);
+		dst.asIntBuffer().put(data, offset, length);
+	}
+
+	private void invalidateCode(int pAddr, int length)
+	{
+		if (codePages != null && length > 0)
+		{
+			for (int page = pAddr >>> 12; page <= (pAddr + length - 1) >>> 12 && page < codePages.length; page++)
+			{
+				if (codePages[page])
+					cpu.write32bit(CPU_CODE_DMA_REG, page << 12);
+			}
+		}
 	}
 }
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2009, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.system;
+
+import jario.hardware.Configurable;
+import jario.hardware.Hardware;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+
+/**
+ * Headless system that runs a rom for a fixed number of frames with the frame
+ * limiter off and reports the emulation speed.
+ * 
+ * usage: Jario64Benchmark <rom> [frames] [warmup frames]
+ * 
+ * The video and audio players are read from the BENCHMARK_VIDEO_PLAYER and
+ * BENCHMARK_AUDIO_PLAYER entries of components.properties. No controllers are
+ * connected and saves go to a fresh temporary directory, so two runs of the
+ * same rom execute the same instructions.
+ * 
+ * The time split between components is estimated by sampling the emulation
+ * thread's stack. Each sample is charged to the innermost frame that belongs
+ * to a known component, so memory and bus accesses count for their caller.
+ */
+public class Jario64Benchmark implements Hardware
+{
+	private static final String AUTO_SAVE_DIR = "./save/";
+
+	private static final int CONSOLE_CARTRIDGE_PORT = 5;
+	private static final int CONSOLE_VIDEO_PORT = 6;
+	private static final int CONSOLE_AUDIO_PORT = 7;
+
+	private static final int DEFAULT_FRAMES = 600;
+	private static final int DEFAULT_WARMUP_FRAMES = 60;
+	private static final int SAMPLE_INTERVAL = 2; // ms
+
+	private static final String[] COMPONENT_NAMES = { "CPU", "RSP HLE", "RDP", "AI", "Other" };
+	private static final int CPU = 0;
+	private static final int RSP = 1;
+	private static final int RDP = 2;
+	private static final int AI = 3;
+	private static final int OTHER = 4;
+
+	private Hardware console;
+	private Hardware video;
+	private Hardware audio;
+	private Hardware cartridge;
+
+	private Thread emulationThread;
+	private long[] samples = new long[COMPONENT_NAMES.length];
+
+	public Jario64Benchmark()
+	{
+		try
+		{
+			File dir = new File("components" + File.separator);
+			File file = new File("components.properties");
+			ClassLoader loader = this.getClass().getClassLoader();
+			Properties prop = new Properties();
+			try
+			{
+				if (dir.exists() && dir.listFiles().length > 0)
+				{
+					File[] files = dir.listFiles();
+					URL[] urls = new URL[files.length];
+					for (int i = 0; i < files.length; i++) urls[i] = files[i].toURI().toURL();
+					loader = new URLClassLoader(urls, this.getClass().getClassLoader());
+				}
+				URL url = file.exists() ? file.toURI().toURL() : loader.getResource("resources" + File.separator + "components.properties");
+				if (url != null) prop.load(url.openStream());
+			}
+			catch (IOException e)
+			{
+			}
+
+			cartridge = (Hardware) Class.forName(prop.getProperty("CARTRIDGE", "CARTRIDGE"), true, loader).newInstance();
+			console = (Hardware) Class.forName(prop.getProperty("CONSOLE", "CONSOLE"), true, loader).newInstance();
+			audio = (Hardware) Class.forName(prop.getProperty("BENCHMARK_AUDIO_PLAYER", "BENCHMARK_AUDIO_PLAYER"), true, loader).newInstance();
+			video = (Hardware) Class.forName(prop.getProperty("BENCHMARK_VIDEO_PLAYER", "BENCHMARK_VIDEO_PLAYER"), true, loader).newInstance();
+		}
+		catch (Exception e)
+		{
+			System.err.println("Missing resources.");
+			e.printStackTrace();
+			return;
+		}
+
+		// connect a/v to console
+		console.connect(CONSOLE_VIDEO_PORT, video);
+		console.connect(CONSOLE_AUDIO_PORT, audio);
+
+		((Configurable) console).writeConfig("framelimit", false);
+	}
+
+	@Override
+	public void connect(int port, Hardware bus)
+	{
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	@Override
+	public void reset()
+	{
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	public static void main(String[] args)
+	{
+		if (args.length < 1)
+		{
+			System.err.println("usage: Jario64Benchmark <rom> [frames] [warmup frames]");
+			System.exit(1);
+		}
+		if (System.getProperty("java.awt.headless") == null)
+			System.setProperty("java.awt.headless", "true");
+
+		int frames = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_FRAMES;
+		int warmup = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_WARMUP_FRAMES;
+
+		Jario64Benchmark benchmark = new Jario64Benchmark();
+		if (benchmark.console == null)
+			System.exit(1);
+		benchmark.run(new File(args[0]), frames, warmup);
+		// the cpu is still running on the emulation thread
+		System.exit(0);
+	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	private void run(File romFile, int frames, int warmup)
+	{
+		((Configurable) cartridge).writeConfig("savefile", createSaveFile(romFile));
+		((Configurable) cartridge).writeConfig("romfile", romFile.getAbsolutePath());
+
+		// the cpu runs on the thread that inserts the cartridge
+		emulationThread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				console.connect(CONSOLE_CARTRIDGE_PORT, cartridge);
+			}
+		}, "Emulation");
+		emulationThread.start();
+
+		if (!waitForFrame(warmup, false))
+			return;
+		long startTime = System.nanoTime();
+		int startFrame = readFrames();
+		long startInstructions = readInstructions();
+
+		if (!waitForFrame(warmup + frames, true))
+			return;
+		long time = System.nanoTime() - startTime;
+		int frameCount = readFrames() - startFrame;
+		long instructionCount = readInstructions() - startInstructions;
+
+		double seconds = time / 1000000000.0;
+		System.out.printf("Rom: %s\n", romFile.getName());
+		System.out.printf("Frames: %d in %.3f s (%.2f fps, %.3f ms/frame)\n", frameCount, seconds, frameCount / seconds, (seconds * 1000.0) / frameCount);
+		System.out.printf("Instructions: %d (%.2f MIPS)\n", instructionCount, instructionCount / seconds / 1000000.0);
+		long total = 0;
+		for (int i = 0; i < samples.length; i++)
+			total += samples[i];
+		for (int i = 0; i < samples.length; i++)
+			System.out.printf("%-8s %5.1f%%\n", COMPONENT_NAMES[i], (total > 0) ? (samples[i] * 100.0) / total : 0.0);
+	}
+
+	// Polls the frame counter until it reaches frame, optionally sampling the
+	// emulation thread on the way. Returns false if the emulation thread died.
+	private boolean waitForFrame(int frame, boolean sample)
+	{
+		while (readFrames() < frame)
+		{
+			if (!emulationThread.isAlive())
+			{
+				System.err.println("Emulation stopped before the benchmark completed.");
+				return false;
+			}
+			if (sample)
+				samples[classify(emulationThread.getStackTrace())]++;
+			try
+			{
+				Thread.sleep(SAMPLE_INTERVAL);
+			}
+			catch (InterruptedException e)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int classify(StackTraceElement[] stack)
+	{
+		for (StackTraceElement frame : stack)
+		{
+			String name = frame.getClassName();
+			if (name.startsWith("jario.n64.console.cpu."))
+				return CPU;
+			if (name.startsWith("jario.n64.ucode.") || name.startsWith("jario.n64.console.rcp.SignalProcessor"))
+				return RSP;
+			if (name.startsWith("jario.n64.console.rcp.DisplayProcessor") || name.startsWith("jario.n64.console.rcp.combiners.")
+					|| name.startsWith("jario.n64.console.rcp.textures.") || name.startsWith("jario.n64.console.rcp.FrameBufferStack")
+					|| name.startsWith("jario.n64.console.rcp.DepthBufferStack"))
+				return RDP;
+			if (name.startsWith("jario.n64.console.rcp.AudioInterface"))
+				return AI;
+		}
+		return OTHER;
+	}
+
+	private int readFrames()
+	{
+		Object frames = ((Configurable) console).readConfig("frames");
+		return (frames != null) ? (Integer) frames : 0;
+	}
+
+	private long readInstructions()
+	{
+		Object instructions = ((Configurable) console).readConfig("instructions");
+		return (instructions != null) ? (Long) instructions : 0L;
+	}
+
+	private String createSaveFile(File romFile)
+	{
+		try
+		{
+			File saveDir = File.createTempFile("jario64", "");
+			saveDir.delete();
+			saveDir.mkdirs();
+			saveDir.deleteOnExit();
+			String romName = romFile.getName();
+			if (romName.lastIndexOf('.') > 0)
+				romName = romName.substring(0, romName.lastIndexOf('.'));
+			String path = saveDir.getAbsolutePath() + File.separator + romName;
+			new File(path + ".eep").deleteOnExit();
+			new File(path + ".sra").deleteOnExit();
+			new File(path + ".fla").deleteOnExit();
+			return path;
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return AUTO_SAVE_DIR + "benchmark";
+		}
+	}
+}
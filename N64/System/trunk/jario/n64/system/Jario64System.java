@@ -151,6 +151,18 @@ public class Jario64System implements Hardware
 			});
 			settingsMenu.add(cache);
 
+			JCheckBoxMenuItem recompiler = new JCheckBoxMenuItem("Compile Basic Blocks");
+			recompiler.setState((Boolean) ((Configurable) console).readConfig("recompiler"));
+			recompiler.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent evt)
+				{
+					JCheckBoxMenuItem i = (JCheckBoxMenuItem) evt.getSource();
+					((Configurable) console).writeConfig("recompiler", i.isSelected());
+				}
+			});
+			settingsMenu.add(recompiler);
+
 			JCheckBoxMenuItem audioToggle = new JCheckBoxMenuItem("Enable Audio");
 			audioToggle.setState((Boolean) ((Configurable) audio).readConfig("enable"));
 			audioToggle.addActionListener(new ActionListener()
@@ -22,31 +22,53 @@ package jario.n64.console.rcp;
 
 import jario.hardware.Bus32bit;
 import jario.hardware.Clockable;
+import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 
-public class Timer implements Hardware, Clockable, Bus32bit
+/**
+ * Ports:
+ * 0 - 15: Clockable devices. A device is clocked with the (zero or negative)
+ * overshoot when its event fires.
+ * 
+ * Registers:
+ * 0 - 15: (w) Schedule port N value cycles after its previous deadline
+ * (or after the current cycle if the port has no deadline)
+ * 16 - 31: (w) Schedule port N - 16 value cycles after the current cycle
+ * 32 - 47: (w) Cancel the event of port N - 32
+ * 48: (r/w) Cycles left until the next event fires
+ * 
+ * Config:
+ * "clock": long[] { current cycle, cycle of the next event }. Owners of the
+ * cycle counter advance the current cycle directly and only clock the timer
+ * once it has passed the next event.
+ */
+public class Timer implements Hardware, Clockable, Bus32bit, Configurable
 {
-	private static final int MAX_TIMERS = 4;
+	private static final int MAX_TIMERS = 16;
+
+	private static final int NOW = 0;
+	private static final int DEADLINE = 1;
 
-	private int[] nextTimer = new int[MAX_TIMERS];
-	private int currentTimerType;
-	private int timer;
-	private boolean[] active = new boolean[MAX_TIMERS];
+	private long[] clock = new long[2];
+	private long[] when = new long[MAX_TIMERS];
+	private boolean[] based = new boolean[MAX_TIMERS];
+	private int[] heap = new int[MAX_TIMERS];
+	private int[] position = new int[MAX_TIMERS];
+	private int size;
 
-	private Clockable[] devices = new Clockable[4];
+	private Clockable[] devices = new Clockable[MAX_TIMERS];
 
 	public Timer()
 	{
-		currentTimerType = -1;
-		timer = 0;
-		for (int count = 0; count < MAX_TIMERS; count++)
-			active[count] = false;
+		for (int i = 0; i < MAX_TIMERS; i++)
+			position[i] = -1;
+		clock[DEADLINE] = Long.MAX_VALUE;
 	}
 
 	@Override
 	public void connect(int port, Hardware bus)
 	{
-		if (port < 0 || port > 3)
+		if (port < 0 || port >= MAX_TIMERS)
 			return;
 		devices[port] = (Clockable) bus;
 	}
@@ -54,14 +76,28 @@ public class Timer implements Hardware, Clockable, Bus32bit
 	@Override
 	public void reset()
 	{
-		timer = 0;
+		// keep pending events, rebased to the new zero cycle
+		for (int i = 0; i < MAX_TIMERS; i++)
+		{
+			if (based[i])
+				when[i] -= clock[NOW];
+		}
+		clock[NOW] = 0;
+		updateDeadline();
 	}
 
 	@Override
 	public void clock(long ticks)
 	{
-		timer -= ticks;
-		checkTimerDone();
+		clock[NOW] += ticks;
+		while (size > 0 && when[heap[0]] < clock[NOW])
+		{
+			int port = heap[0];
+			remove(port);
+			updateDeadline();
+			if (devices[port] != null)
+				devices[port].clock(when[port] - clock[NOW]);
+		}
 	}
 
 	@Override
@@ -69,8 +105,8 @@ public class Timer implements Hardware, Clockable, Bus32bit
 	{
 		switch (reg)
 		{
-		case 4:
-			return timer;
+		case 48:
+			return (size > 0) ? (int) (when[heap[0]] - clock[NOW]) : 0x7FFFFFFF;
 		default:
 			return 0;
 		}
@@ -79,74 +115,113 @@ public class Timer implements Hardware, Clockable, Bus32bit
 	@Override
 	public void write32bit(int reg, int value)
 	{
-		switch (reg)
+		if (reg >= 0 && reg < 16)
+		{
+			schedule(reg, (based[reg] ? when[reg] : clock[NOW]) + value);
+		}
+		else if (reg >= 16 && reg < 32)
 		{
-		case 0:
-			changeTimer(0, timer + nextTimer[0] + value);
-			break;
-		case 1:
-			changeTimer(1, timer + nextTimer[1] + value);
-			break;
-		case 2:
-			changeTimer(2, timer + nextTimer[2] + value);
-			break;
-		case 3:
-			changeTimer(3, timer + nextTimer[3] + value);
-			break;
-		case 4:
-			timer = value;
-			break;
+			schedule(reg - 16, clock[NOW] + value);
 		}
+		else if (reg >= 32 && reg < 48)
+		{
+			cancel(reg - 32);
+		}
+		else if (reg == 48)
+		{
+			if (size > 0)
+				clock[NOW] = when[heap[0]] - value;
+		}
+	}
+
+	@Override
+	public Object readConfig(String key)
+	{
+		if (key.equals("clock")) return clock;
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
 	}
 
 	// Private Methods /////////////////////////////////////////////////////////
 
-	private void checkTimerDone()
+	private void schedule(int port, long cycle)
 	{
-		if (timer >= 0 || currentTimerType == -1)
-			return;
-		devices[currentTimerType].clock(timer);
+		if (position[port] >= 0)
+			remove(port);
+		when[port] = cycle;
+		based[port] = true;
+		position[port] = size;
+		heap[size++] = port;
+		siftUp(position[port]);
+		updateDeadline();
 	}
 
-	private void changeTimer(int type, int value)
+	private void cancel(int port)
 	{
-		if (value == 0)
-		{
-			nextTimer[type] = 0;
-			active[type] = false;
+		based[port] = false;
+		if (position[port] < 0)
 			return;
-		}
+		remove(port);
+		updateDeadline();
+	}
 
-		nextTimer[type] = value - timer;
-		active[type] = true;
+	private void updateDeadline()
+	{
+		clock[DEADLINE] = (size > 0) ? when[heap[0]] : Long.MAX_VALUE;
+	}
 
-		for (int count = 1; count < MAX_TIMERS; count++)
-		{
-			if (!active[count])
-				continue;
-			nextTimer[count] += timer;
-		}
-		currentTimerType = -1;
-		timer = 0x7FFFFFFF;
-		for (int count = 1; count < MAX_TIMERS; count++)
-		{
-			if (!active[count])
-				continue;
-			if (nextTimer[count] >= timer)
-				continue;
-			timer = nextTimer[count];
-			currentTimerType = count;
-		}
-		if (currentTimerType == -1)
+	private void remove(int port)
+	{
+		int i = position[port];
+		position[port] = -1;
+		size--;
+		if (i == size)
+			return;
+		int moved = heap[size];
+		heap[i] = moved;
+		position[moved] = i;
+		siftUp(i);
+		if (position[moved] == i)
+			siftDown(i);
+	}
+
+	private void siftUp(int i)
+	{
+		int port = heap[i];
+		while (i > 0)
 		{
-			System.err.printf("No active timers ???\nEmulation Stoped\n");
-			System.exit(0);
+			int parent = (i - 1) >> 1;
+			if (when[heap[parent]] <= when[port])
+				break;
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
 		}
-		for (int count = 1; count < MAX_TIMERS; count++)
+		heap[i] = port;
+		position[port] = i;
+	}
+
+	private void siftDown(int i)
+	{
+		int port = heap[i];
+		while (true)
 		{
-			if (!active[count])
-				continue;
-			nextTimer[count] -= timer;
+			int child = (i << 1) + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && when[heap[child + 1]] < when[heap[child]])
+				child++;
+			if (when[port] <= when[heap[child]])
+				break;
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
 		}
+		heap[i] = port;
+		position[port] = i;
 	}
 }
@@ -24,8 +24,10 @@ import jario.hardware.Bus16bit;
 import jario.hardware.Bus32bit;
 import jario.hardware.Bus64bit;
 import jario.hardware.Bus8bit;
+import jario.hardware.BusBulk;
 import jario.hardware.BusDMA;
 import jario.hardware.Clockable;
+import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 
 import java.nio.ByteBuffer;
@@ -46,6 +48,35 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 	protected static final int DP_CULL_FACE_REG = 12;
 	protected static final int DP_FOG_REG = 13;
 	protected static final int DP_DEPTH_REG = 14;
+	protected static final int DP_TRIANGLES_REG = 15;
+	protected static final int DP_LINE_REG = 16;
+
+	// vertex buffer layout, one plane of VERTEX_COUNT floats per attribute
+	protected static final int VERTEX_COUNT = 80;
+	protected static final int V_X = 0 * VERTEX_COUNT;
+	protected static final int V_Y = 1 * VERTEX_COUNT;
+	protected static final int V_Z = 2 * VERTEX_COUNT;
+	protected static final int V_W = 3 * VERTEX_COUNT;
+	protected static final int V_NX = 4 * VERTEX_COUNT;
+	protected static final int V_NY = 5 * VERTEX_COUNT;
+	protected static final int V_NZ = 6 * VERTEX_COUNT;
+	protected static final int V_R = 7 * VERTEX_COUNT;
+	protected static final int V_G = 8 * VERTEX_COUNT;
+	protected static final int V_B = 9 * VERTEX_COUNT;
+	protected static final int V_A = 10 * VERTEX_COUNT;
+	protected static final int V_S = 11 * VERTEX_COUNT;
+	protected static final int V_T = 12 * VERTEX_COUNT;
+	protected static final int V_CLIP_X = 13 * VERTEX_COUNT;
+	protected static final int V_CLIP_Y = 14 * VERTEX_COUNT;
+	protected static final int V_CLIP_Z = 15 * VERTEX_COUNT;
+	protected static final int VERTEX_ATTRIBUTES = 16;
+
+	// hle vertex batch layout, see DisplayProcessor
+	protected static final int HLE_X = 0;
+	protected static final int HLE_R = 4;
+	protected static final int HLE_S = 8;
+	protected static final int HLE_CLIP = 10;
+	protected static final int HLE_ATTRIBUTES = 13;
 
 	protected static final int CHANGED_MATRIX = 0x02;
 	protected static final int CHANGED_COLORBUFFER = 0x04;
@@ -141,62 +172,6 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 		public int mtx;
 	};
 
-	protected static class SPVertex
-	{
-		public float[] vtx = new float[4];
-		public float[] norm = new float[4];
-		public float[] color = new float[4];
-		public float[] tex = new float[2];
-		public float[] clip = new float[3];
-		public short flag;
-
-		public void clip()
-		{
-			if (vtx[0] < -vtx[3])
-			{
-				clip[0] = -1.0f;
-			}
-			else if (vtx[0] > vtx[3])
-			{
-				clip[0] = 1.0f;
-			}
-			else
-			{
-				clip[0] = 0.0f;
-			}
-
-			if (vtx[1] < -vtx[3])
-			{
-				clip[1] = -1.0f;
-			}
-			else if (vtx[1] > vtx[3])
-			{
-				clip[1] = 1.0f;
-			}
-			else
-			{
-				clip[1] = 0.0f;
-			}
-
-			if (vtx[3] <= 0.0f)
-			{
-				clip[2] = -1.0f;
-			}
-			else if (vtx[2] < -vtx[3])
-			{
-				clip[2] = -0.1f;
-			}
-			else if (vtx[2] > vtx[3])
-			{
-				clip[2] = 1.0f;
-			}
-			else
-			{
-				clip[2] = 0.0f;
-			}
-		}
-	};
-
 	protected static class Matrix
 	{
 		public int modelViewi;
@@ -242,6 +217,7 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 	protected static BusDMA dpDMA;
 	protected static Bus8bit rdram;
 	protected static Bus16bit rdram16bit;
+	protected static BusBulk rdramBulk;
 	protected static Hardware dmem;
 	protected static int rdramSize;
 	protected static boolean init;
@@ -253,7 +229,9 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 	public static int changed;
 
 	// vertex buffer should be in dmem
-	protected static SPVertex[] vertices = new SPVertex[80];
+	protected static float[] vertices = new float[VERTEX_ATTRIBUTES * VERTEX_COUNT];
+	protected static short[] vertexFlags = new short[VERTEX_COUNT];
+	protected static int[] vertexWords = new int[80 * 4];
 	protected static int vertexi;
 	protected static Matrix matrix = new Matrix();
 	protected static DMAOffsets DMAOffsets = new DMAOffsets();
@@ -264,8 +242,16 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 	protected static Light[] lights = new Light[12];
 	protected static Fog fog = new Fog();
 	protected static int nextCmd;
-	protected static ByteBuffer dpcmdbuf = ByteBuffer.allocate(256);
-	protected static byte[] dpcmd = dpcmdbuf.array();
+
+	// triangles queued for the dp, each sp vertex is uploaded once per batch
+	protected static float[] hleVertices;
+	protected static int[] hleIndices;
+	protected static int hleCapacity;
+	protected static int hleVertexCount;
+	protected static int hleIndexCount;
+	protected static int hleBatch = 1;
+	protected static int[] hleSlot = new int[80];
+	protected static int[] hleSlotBatch = new int[80];
 
 	protected static OpCode[] dlist = new OpCode[256];
 
@@ -293,10 +279,6 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 	{
 		if (!init)
 		{
-			for (int i = 0; i < vertices.length; i++)
-			{
-				vertices[i] = new SPVertex();
-			}
 			for (int i = 0; i < lights.length; i++)
 			{
 				lights[i] = new Light();
@@ -320,6 +302,7 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 		case 1:
 			rdram = (Bus8bit) bus;
 			rdram16bit = (Bus16bit) bus;
+			rdramBulk = (BusBulk) bus;
 			if (rdram != null)
 				rdramSize = ((Bus32bit) rdram).read32bit(0x03F00028);
 			break;
@@ -329,6 +312,15 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 		case 3:
 			dp = (Bus32bit) bus;
 			dpDMA = (BusDMA) bus;
+			if (bus != null)
+			{
+				hleVertices = (float[]) ((Configurable) bus).readConfig("hlevertices");
+				hleIndices = (int[]) ((Configurable) bus).readConfig("hleindices");
+				hleCapacity = hleVertices.length / HLE_ATTRIBUTES;
+			}
+			hleVertexCount = 0;
+			hleIndexCount = 0;
+			hleBatch++;
 			break;
 		}
 	}
@@ -568,36 +560,39 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 			return;
 		if ((n + v0) < (80))
 		{
-			SPVertex vertex;
+			// fetch all n 16 byte vertex records in one transfer
+			rdramBulk.read32bit(address, vertexWords, 0, n << 2);
+			float[] v = vertices;
+			int w = 0;
 			for (int i = v0; i < n + v0; i++)
 			{
-				vertex = vertices[i];
-				vertex.vtx[0] = rdram16bit.read16bit(address);
-				vertex.vtx[1] = rdram16bit.read16bit(address + 2);
-				vertex.vtx[2] = rdram16bit.read16bit(address + 4);
+				v[V_X + i] = (short) (vertexWords[w] >> 16);
+				v[V_Y + i] = (short) vertexWords[w];
+				v[V_Z + i] = (short) (vertexWords[w + 1] >> 16);
 
-				vertex.flag = rdram16bit.read16bit(address + 6);
-				vertex.tex[0] = rdram16bit.read16bit(address + 8) * Gbi.FIXED2FLOATRECIP5;
-				vertex.tex[1] = rdram16bit.read16bit(address + 10) * Gbi.FIXED2FLOATRECIP5;
+				vertexFlags[i] = (short) vertexWords[w + 1];
+				v[V_S + i] = ((short) (vertexWords[w + 2] >> 16)) * Gbi.FIXED2FLOATRECIP5;
+				v[V_T + i] = ((short) vertexWords[w + 2]) * Gbi.FIXED2FLOATRECIP5;
 
+				int w3 = vertexWords[w + 3];
 				if ((geometryMode & Gbi.G_LIGHTING) != 0)
 				{
-					vertex.norm[0] = rdram.read8bit(address + 12);
-					vertex.norm[1] = rdram.read8bit(address + 13);
-					vertex.norm[2] = rdram.read8bit(address + 14);
-					vertex.color[3] = (rdram.read8bit(address + 15) & 0xFF) * 0.0039215689f;
+					v[V_NX + i] = (byte) (w3 >> 24);
+					v[V_NY + i] = (byte) (w3 >> 16);
+					v[V_NZ + i] = (byte) (w3 >> 8);
+					v[V_A + i] = (w3 & 0xFF) * 0.0039215689f;
 				}
 				else
 				{
-					vertex.color[0] = (rdram.read8bit(address + 12) & 0xFF) * 0.0039215689f;
-					vertex.color[1] = (rdram.read8bit(address + 13) & 0xFF) * 0.0039215689f;
-					vertex.color[2] = (rdram.read8bit(address + 14) & 0xFF) * 0.0039215689f;
-					vertex.color[3] = (rdram.read8bit(address + 15) & 0xFF) * 0.0039215689f;
+					v[V_R + i] = ((w3 >>> 24) & 0xFF) * 0.0039215689f;
+					v[V_G + i] = ((w3 >> 16) & 0xFF) * 0.0039215689f;
+					v[V_B + i] = ((w3 >> 8) & 0xFF) * 0.0039215689f;
+					v[V_A + i] = (w3 & 0xFF) * 0.0039215689f;
 				}
-
-				gSPProcessVertex(vertex);
-				address += 16;
+				w += 4;
 			}
+
+			gSPProcessVertices(v0, n);
 		}
 	}
 
@@ -606,14 +601,14 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 		switch (where)
 		{
 		case Gbi.G_MWO_POINT_RGBA:
-			vertices[vtx].color[0] = ((val >> 24) & Gbi.SR_MASK_8) * 0.0039215689f;
-			vertices[vtx].color[1] = ((val >> 16) & Gbi.SR_MASK_8) * 0.0039215689f;
-			vertices[vtx].color[2] = ((val >> 8) & Gbi.SR_MASK_8) * 0.0039215689f;
-			vertices[vtx].color[3] = (val & Gbi.SR_MASK_8) * 0.0039215689f;
+			vertices[V_R + vtx] = ((val >> 24) & Gbi.SR_MASK_8) * 0.0039215689f;
+			vertices[V_G + vtx] = ((val >> 16) & Gbi.SR_MASK_8) * 0.0039215689f;
+			vertices[V_B + vtx] = ((val >> 8) & Gbi.SR_MASK_8) * 0.0039215689f;
+			vertices[V_A + vtx] = (val & Gbi.SR_MASK_8) * 0.0039215689f;
 			break;
 		case Gbi.G_MWO_POINT_ST:
-			vertices[vtx].tex[0] = ((short) ((val >> 16) & Gbi.SR_MASK_16)) * Gbi.FIXED2FLOATRECIP5;
-			vertices[vtx].tex[1] = ((short) (val & Gbi.SR_MASK_16)) * Gbi.FIXED2FLOATRECIP5;
+			vertices[V_S + vtx] = ((short) ((val >> 16) & Gbi.SR_MASK_16)) * Gbi.FIXED2FLOATRECIP5;
+			vertices[V_T + vtx] = ((short) (val & Gbi.SR_MASK_16)) * Gbi.FIXED2FLOATRECIP5;
 			break;
 		case Gbi.G_MWO_POINT_XYSCREEN:
 			break;
@@ -622,76 +617,121 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 		}
 	}
 
-	protected static void gSPProcessVertex(SPVertex vert)
+	// transforms, lights and clips vertices v0 .. v0 + n - 1, one stage at a time
+	protected static void gSPProcessVertices(int v0, int n)
 	{
-		float intensity;
-		float r, g, b;
+		float[] v = vertices;
+		int end = v0 + n;
 
 		if ((changed & CHANGED_MATRIX) != 0)
 			gSPCombineMatrices();
 
-		Math3D.transformVertex(vert.vtx, matrix.combined);
+		Math3D.transformVertices(v, V_X, VERTEX_COUNT, v0, end, matrix.combined);
 
 		if (matrix.billboard != 0)
 		{
-			vert.vtx[0] += vertices[0].vtx[0];
-			vert.vtx[1] += vertices[0].vtx[1];
-			vert.vtx[2] += vertices[0].vtx[2];
-			vert.vtx[3] += vertices[0].vtx[3];
+			for (int i = v0; i < end; i++)
+			{
+				v[V_X + i] += v[V_X];
+				v[V_Y + i] += v[V_Y];
+				v[V_Z + i] += v[V_Z];
+				v[V_W + i] += v[V_W];
+			}
 		}
 
 		if ((geometryMode & Gbi.G_ZBUFFER) == 0)
 		{
-			vert.vtx[2] = -vert.vtx[3];
+			for (int i = v0; i < end; i++)
+				v[V_Z + i] = -v[V_W + i];
 		}
 
 		if ((geometryMode & Gbi.G_LIGHTING) != 0)
 		{
-			Math3D.transformVector(vert.norm, matrix.modelView[matrix.modelViewi]);
-			Math3D.normalize(vert.norm);
-
-			r = lights[numLights].color[0];
-			g = lights[numLights].color[1];
-			b = lights[numLights].color[2];
+			Math3D.transformVectors(v, V_NX, VERTEX_COUNT, v0, end, matrix.modelView[matrix.modelViewi]);
+			Math3D.normalizeVectors(v, V_NX, VERTEX_COUNT, v0, end);
 
-			for (int i = 0; i < numLights; i++)
+			float r = lights[numLights].color[0];
+			float g = lights[numLights].color[1];
+			float b = lights[numLights].color[2];
+			for (int i = v0; i < end; i++)
 			{
-				intensity = Math3D.dotProduct(vert.norm, lights[i].vec);
+				v[V_R + i] = r;
+				v[V_G + i] = g;
+				v[V_B + i] = b;
+			}
 
-				if (intensity < 0.0f)
+			for (int l = 0; l < numLights; l++)
+			{
+				float lx = lights[l].vec[0];
+				float ly = lights[l].vec[1];
+				float lz = lights[l].vec[2];
+				r = lights[l].color[0];
+				g = lights[l].color[1];
+				b = lights[l].color[2];
+				for (int i = v0; i < end; i++)
 				{
-					intensity = 0.0f;
-				}
+					float intensity = v[V_NX + i] * lx + v[V_NY + i] * ly + v[V_NZ + i] * lz;
 
-				r += lights[i].color[0] * intensity;
-				g += lights[i].color[1] * intensity;
-				b += lights[i].color[2] * intensity;
-			}
+					if (intensity < 0.0f)
+					{
+						intensity = 0.0f;
+					}
 
-			vert.color[0] = r;
-			vert.color[1] = g;
-			vert.color[2] = b;
+					v[V_R + i] += r * intensity;
+					v[V_G + i] += g * intensity;
+					v[V_B + i] += b * intensity;
+				}
+			}
 
 			if ((geometryMode & Gbi.G_TEXTURE_GEN) != 0)
 			{
-				Math3D.transformVector(vert.norm, matrix.projection);
-
-				Math3D.normalize(vert.norm);
+				Math3D.transformVectors(v, V_NX, VERTEX_COUNT, v0, end, matrix.projection);
+				Math3D.normalizeVectors(v, V_NX, VERTEX_COUNT, v0, end);
 
 				if ((geometryMode & Gbi.G_TEXTURE_GEN_LINEAR) != 0)
 				{
-					vert.tex[0] = (float) StrictMath.acos(vert.norm[0]) * 325.94931f;
-					vert.tex[1] = (float) StrictMath.acos(vert.norm[1]) * 325.94931f;
+					for (int i = v0; i < end; i++)
+					{
+						v[V_S + i] = (float) StrictMath.acos(v[V_NX + i]) * 325.94931f;
+						v[V_T + i] = (float) StrictMath.acos(v[V_NY + i]) * 325.94931f;
+					}
 				}
 				else
 				{ // G_TEXTURE_GEN
-					vert.tex[0] = (vert.norm[0] + 1.0f) * 512.0f;
-					vert.tex[1] = (vert.norm[1] + 1.0f) * 512.0f;
+					for (int i = v0; i < end; i++)
+					{
+						v[V_S + i] = (v[V_NX + i] + 1.0f) * 512.0f;
+						v[V_T + i] = (v[V_NY + i] + 1.0f) * 512.0f;
+					}
 				}
 			}
 		}
 
-		vert.clip();
+		gSPClipVertices(v0, end);
+	}
+
+	protected static void gSPClipVertices(int v0, int end)
+	{
+		float[] v = vertices;
+		for (int i = v0; i < end; i++)
+		{
+			float x = v[V_X + i];
+			float y = v[V_Y + i];
+			float z = v[V_Z + i];
+			float w = v[V_W + i];
+
+			v[V_CLIP_X + i] = (x < -w) ? -1.0f : (x > w) ? 1.0f : 0.0f;
+			v[V_CLIP_Y + i] = (y < -w) ? -1.0f : (y > w) ? 1.0f : 0.0f;
+
+			if (w <= 0.0f)
+				v[V_CLIP_Z + i] = -1.0f;
+			else if (z < -w)
+				v[V_CLIP_Z + i] = -0.1f;
+			else if (z > w)
+				v[V_CLIP_Z + i] = 1.0f;
+			else
+				v[V_CLIP_Z + i] = 0.0f;
+		}
 	}
 
 	protected static boolean gSPCullVertices(int v0, int vn)
@@ -702,55 +742,55 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 
 		for (int i = v0; i <= vn; i++)
 		{
-			if (vertices[i].clip[0] == 0.0f)
+			if (vertices[V_CLIP_X + i] == 0.0f)
 				return false;
-			else if (vertices[i].clip[0] < 0.0f)
+			else if (vertices[V_CLIP_X + i] < 0.0f)
 			{
 				if (xClip > 0.0f)
 					return false;
 				else
-					xClip = vertices[i].clip[0];
+					xClip = vertices[V_CLIP_X + i];
 			}
-			else if (vertices[i].clip[0] > 0.0f)
+			else if (vertices[V_CLIP_X + i] > 0.0f)
 			{
 				if (xClip < 0.0f)
 					return false;
 				else
-					xClip = vertices[i].clip[0];
+					xClip = vertices[V_CLIP_X + i];
 			}
 
-			if (vertices[i].clip[1] == 0.0f)
+			if (vertices[V_CLIP_Y + i] == 0.0f)
 				return false;
-			else if (vertices[i].clip[1] < 0.0f)
+			else if (vertices[V_CLIP_Y + i] < 0.0f)
 			{
 				if (yClip > 0.0f)
 					return false;
 				else
-					yClip = vertices[i].clip[1];
+					yClip = vertices[V_CLIP_Y + i];
 			}
-			else if (vertices[i].clip[1] > 0.0f)
+			else if (vertices[V_CLIP_Y + i] > 0.0f)
 			{
 				if (yClip < 0.0f)
 					return false;
 				else
-					yClip = vertices[i].clip[1];
+					yClip = vertices[V_CLIP_Y + i];
 			}
 
-			if (vertices[i].clip[2] == 0.0f)
+			if (vertices[V_CLIP_Z + i] == 0.0f)
 				return false;
-			else if (vertices[i].clip[2] < 0.0f)
+			else if (vertices[V_CLIP_Z + i] < 0.0f)
 			{
 				if (zClip > 0.0f)
 					return false;
 				else
-					zClip = vertices[i].clip[2];
+					zClip = vertices[V_CLIP_Z + i];
 			}
-			else if (vertices[i].clip[2] > 0.0f)
+			else if (vertices[V_CLIP_Z + i] > 0.0f)
 			{
 				if (zClip < 0.0f)
 					return false;
 				else
-					zClip = vertices[i].clip[2];
+					zClip = vertices[V_CLIP_Z + i];
 			}
 		}
 
@@ -772,32 +812,34 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 		if ((v0 < 80) && (v1 < 80) && (v2 < 80))
 		{
 			// Don't bother with triangles completely outside clipping frustrum
-			if (((vertices[v0].clip[0] < 0.0f) &&
-					(vertices[v1].clip[0] < 0.0f) &&
-					(vertices[v2].clip[0] < 0.0f)) ||
-					((vertices[v0].clip[0] > 0.0f) &&
-							(vertices[v1].clip[0] > 0.0f) &&
-					(vertices[v2].clip[0] > 0.0f)) ||
-					((vertices[v0].clip[1] < 0.0f) &&
-							(vertices[v1].clip[1] < 0.0f) &&
-					(vertices[v2].clip[1] < 0.0f)) ||
-					((vertices[v0].clip[1] > 0.0f) &&
-							(vertices[v1].clip[1] > 0.0f) &&
-					(vertices[v2].clip[1] > 0.0f)) ||
-					((vertices[v0].clip[2] > 0.1f) &&
-							(vertices[v1].clip[2] > 0.1f) &&
-					(vertices[v2].clip[2] > 0.1f)) ||
-					((vertices[v0].clip[2] < -0.1f) &&
-							(vertices[v1].clip[2] < -0.1f) &&
-					(vertices[v2].clip[2] < -0.1f)))
+			if (((vertices[V_CLIP_X + v0] < 0.0f) &&
+					(vertices[V_CLIP_X + v1] < 0.0f) &&
+					(vertices[V_CLIP_X + v2] < 0.0f)) ||
+					((vertices[V_CLIP_X + v0] > 0.0f) &&
+							(vertices[V_CLIP_X + v1] > 0.0f) &&
+					(vertices[V_CLIP_X + v2] > 0.0f)) ||
+					((vertices[V_CLIP_Y + v0] < 0.0f) &&
+							(vertices[V_CLIP_Y + v1] < 0.0f) &&
+					(vertices[V_CLIP_Y + v2] < 0.0f)) ||
+					((vertices[V_CLIP_Y + v0] > 0.0f) &&
+							(vertices[V_CLIP_Y + v1] > 0.0f) &&
+					(vertices[V_CLIP_Y + v2] > 0.0f)) ||
+					((vertices[V_CLIP_Z + v0] > 0.1f) &&
+							(vertices[V_CLIP_Z + v1] > 0.1f) &&
+					(vertices[V_CLIP_Z + v2] > 0.1f)) ||
+					((vertices[V_CLIP_Z + v0] < -0.1f) &&
+							(vertices[V_CLIP_Z + v1] < -0.1f) &&
+					(vertices[V_CLIP_Z + v2] < -0.1f)))
 				return;
 
 			updateStates();
 
-			createTriangleCommand(vertices[v0].vtx, vertices[v0].color, vertices[v0].tex, vertices[v0].clip,
-					vertices[v1].vtx, vertices[v1].color, vertices[v1].tex, vertices[v1].clip,
-					vertices[v2].vtx, vertices[v2].color, vertices[v2].tex, vertices[v2].clip);
-			((BusDMA) dp).writeDMA(0x10, dpcmdbuf, 0, 176);
+			if ((hleVertexCount + 3 > hleCapacity) || (hleIndexCount + 3 > hleIndices.length))
+				gSPSubmitTriangles();
+
+			hleIndices[hleIndexCount++] = batchVertex(v0);
+			hleIndices[hleIndexCount++] = batchVertex(v1);
+			hleIndices[hleIndexCount++] = batchVertex(v2);
 		}
 	}
 
@@ -809,7 +851,60 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 				(nextCmd != Gbi.G_TRI4) &&
 				(nextCmd != Gbi.G_QUAD) &&
 				(nextCmd != Gbi.G_DMA_TRI))
+		{
+			gSPSubmitTriangles();
 			dp_readRegister(SP_DL_REG);
+		}
+	}
+
+	protected static void gSPSubmitTriangles()
+	{
+		if (hleIndexCount > 0)
+			dp_writeRegister(DP_TRIANGLES_REG, (hleIndexCount / 3) | (sp_readRegister(SP_NON_REG) != 0 ? 0x80000000 : 0));
+		hleVertexCount = 0;
+		hleIndexCount = 0;
+		hleBatch++;
+	}
+
+	protected static void gSPDrawLine(int v0, int v1, float width)
+	{
+		gSPSubmitTriangles();
+		hleIndices[0] = batchVertex(v0);
+		hleIndices[1] = batchVertex(v1);
+		dp_writeRegister(DP_LINE_REG, Float.floatToIntBits(width));
+		gSPSubmitTriangles();
+	}
+
+	// call when a vertex changes while triangles using it may still be queued
+	protected static void gSPInvalidateVertex(int v)
+	{
+		hleSlotBatch[v] = hleBatch - 1;
+	}
+
+	protected static int batchVertex(int v)
+	{
+		if (hleSlotBatch[v] == hleBatch)
+			return hleSlot[v];
+
+		int i = hleVertexCount++;
+		int n = hleCapacity;
+		hleVertices[(HLE_X + 0) * n + i] = vertices[V_X + v];
+		hleVertices[(HLE_X + 1) * n + i] = vertices[V_Y + v];
+		hleVertices[(HLE_X + 2) * n + i] = vertices[V_Z + v];
+		hleVertices[(HLE_X + 3) * n + i] = vertices[V_W + v];
+		hleVertices[(HLE_R + 0) * n + i] = vertices[V_R + v];
+		hleVertices[(HLE_R + 1) * n + i] = vertices[V_G + v];
+		hleVertices[(HLE_R + 2) * n + i] = vertices[V_B + v];
+		hleVertices[(HLE_R + 3) * n + i] = vertices[V_A + v];
+		hleVertices[(HLE_S + 0) * n + i] = vertices[V_S + v];
+		hleVertices[(HLE_S + 1) * n + i] = vertices[V_T + v];
+		hleVertices[(HLE_CLIP + 0) * n + i] = vertices[V_CLIP_X + v];
+		hleVertices[(HLE_CLIP + 1) * n + i] = vertices[V_CLIP_Y + v];
+		hleVertices[(HLE_CLIP + 2) * n + i] = vertices[V_CLIP_Z + v];
+
+		hleSlot[v] = i;
+		hleSlotBatch[v] = hleBatch;
+		return i;
 	}
 
 	protected static void gSP1Triangle(int v0, int v1, int v2, int flag)
@@ -838,215 +933,6 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 		gSPFlushTriangles();
 	}
 
-	protected static void createTriangleCommand(float[] vtx1, float[] c1, float[] tex1, float[] clip1, float[] vtx2, float[] c2, float[] tex2, float[] clip2, float[] vtx3, float[] c3, float[] tex3, float[] clip3)
-	{
-		dpcmd[0] = 0x10;
-		dpcmd[1] = (byte) sp_readRegister(SP_NON_REG);
-
-		// Edge
-		int vtx1_x = Float.floatToIntBits(vtx1[0]);
-		dpcmd[8] = (byte) (vtx1_x >> 24);
-		dpcmd[9] = (byte) (vtx1_x >> 16);
-		dpcmd[10] = (byte) (vtx1_x >> 8);
-		dpcmd[11] = (byte) (vtx1_x);
-		int vtx1_y = Float.floatToIntBits(vtx1[1]);
-		dpcmd[12] = (byte) (vtx1_y >> 24);
-		dpcmd[13] = (byte) (vtx1_y >> 16);
-		dpcmd[14] = (byte) (vtx1_y >> 8);
-		dpcmd[15] = (byte) (vtx1_y);
-		int vtx1_z = Float.floatToIntBits(vtx1[2]);
-		dpcmd[16] = (byte) (vtx1_z >> 24);
-		dpcmd[17] = (byte) (vtx1_z >> 16);
-		dpcmd[18] = (byte) (vtx1_z >> 8);
-		dpcmd[19] = (byte) (vtx1_z);
-		int vtx1_w = Float.floatToIntBits(vtx1[3]);
-		dpcmd[20] = (byte) (vtx1_w >> 24);
-		dpcmd[21] = (byte) (vtx1_w >> 16);
-		dpcmd[22] = (byte) (vtx1_w >> 8);
-		dpcmd[23] = (byte) (vtx1_w);
-		int vtx2_x = Float.floatToIntBits(vtx2[0]);
-		dpcmd[24] = (byte) (vtx2_x >> 24);
-		dpcmd[25] = (byte) (vtx2_x >> 16);
-		dpcmd[26] = (byte) (vtx2_x >> 8);
-		dpcmd[27] = (byte) (vtx2_x);
-		int vtx2_y = Float.floatToIntBits(vtx2[1]);
-		dpcmd[28] = (byte) (vtx2_y >> 24);
-		dpcmd[29] = (byte) (vtx2_y >> 16);
-		dpcmd[30] = (byte) (vtx2_y >> 8);
-		dpcmd[31] = (byte) (vtx2_y);
-		int vtx2_z = Float.floatToIntBits(vtx2[2]);
-		dpcmd[32] = (byte) (vtx2_z >> 24);
-		dpcmd[33] = (byte) (vtx2_z >> 16);
-		dpcmd[34] = (byte) (vtx2_z >> 8);
-		dpcmd[35] = (byte) (vtx2_z);
-		int vtx2_w = Float.floatToIntBits(vtx2[3]);
-		dpcmd[36] = (byte) (vtx2_w >> 24);
-		dpcmd[37] = (byte) (vtx2_w >> 16);
-		dpcmd[38] = (byte) (vtx2_w >> 8);
-		dpcmd[39] = (byte) (vtx2_w);
-		int vtx3_x = Float.floatToIntBits(vtx3[0]);
-		dpcmd[40] = (byte) (vtx3_x >> 24);
-		dpcmd[41] = (byte) (vtx3_x >> 16);
-		dpcmd[42] = (byte) (vtx3_x >> 8);
-		dpcmd[43] = (byte) (vtx3_x);
-		int vtx3_y = Float.floatToIntBits(vtx3[1]);
-		dpcmd[44] = (byte) (vtx3_y >> 24);
-		dpcmd[45] = (byte) (vtx3_y >> 16);
-		dpcmd[46] = (byte) (vtx3_y >> 8);
-		dpcmd[47] = (byte) (vtx3_y);
-		int vtx3_z = Float.floatToIntBits(vtx3[2]);
-		dpcmd[48] = (byte) (vtx3_z >> 24);
-		dpcmd[49] = (byte) (vtx3_z >> 16);
-		dpcmd[50] = (byte) (vtx3_z >> 8);
-		dpcmd[51] = (byte) (vtx3_z);
-		int vtx3_w = Float.floatToIntBits(vtx3[3]);
-		dpcmd[52] = (byte) (vtx3_w >> 24);
-		dpcmd[53] = (byte) (vtx3_w >> 16);
-		dpcmd[54] = (byte) (vtx3_w >> 8);
-		dpcmd[55] = (byte) (vtx3_w);
-
-		// Shade
-		int c1_r = Float.floatToIntBits(c1[0]);
-		dpcmd[56] = (byte) (c1_r >> 24);
-		dpcmd[57] = (byte) (c1_r >> 16);
-		dpcmd[58] = (byte) (c1_r >> 8);
-		dpcmd[59] = (byte) (c1_r);
-		int c1_g = Float.floatToIntBits(c1[1]);
-		dpcmd[60] = (byte) (c1_g >> 24);
-		dpcmd[61] = (byte) (c1_g >> 16);
-		dpcmd[62] = (byte) (c1_g >> 8);
-		dpcmd[63] = (byte) (c1_g);
-		int c1_b = Float.floatToIntBits(c1[2]);
-		dpcmd[64] = (byte) (c1_b >> 24);
-		dpcmd[65] = (byte) (c1_b >> 16);
-		dpcmd[66] = (byte) (c1_b >> 8);
-		dpcmd[67] = (byte) (c1_b);
-		int c1_a = Float.floatToIntBits(c1[3]);
-		dpcmd[68] = (byte) (c1_a >> 24);
-		dpcmd[69] = (byte) (c1_a >> 16);
-		dpcmd[70] = (byte) (c1_a >> 8);
-		dpcmd[71] = (byte) (c1_a);
-		int c2_r = Float.floatToIntBits(c2[0]);
-		dpcmd[72] = (byte) (c2_r >> 24);
-		dpcmd[73] = (byte) (c2_r >> 16);
-		dpcmd[74] = (byte) (c2_r >> 8);
-		dpcmd[75] = (byte) (c2_r);
-		int c2_g = Float.floatToIntBits(c2[1]);
-		dpcmd[76] = (byte) (c2_g >> 24);
-		dpcmd[77] = (byte) (c2_g >> 16);
-		dpcmd[78] = (byte) (c2_g >> 8);
-		dpcmd[79] = (byte) (c2_g);
-		int c2_b = Float.floatToIntBits(c2[2]);
-		dpcmd[80] = (byte) (c2_b >> 24);
-		dpcmd[81] = (byte) (c2_b >> 16);
-		dpcmd[82] = (byte) (c2_b >> 8);
-		dpcmd[83] = (byte) (c2_b);
-		int c2_a = Float.floatToIntBits(c2[3]);
-		dpcmd[84] = (byte) (c2_a >> 24);
-		dpcmd[85] = (byte) (c2_a >> 16);
-		dpcmd[86] = (byte) (c2_a >> 8);
-		dpcmd[87] = (byte) (c2_a);
-		int c3_r = Float.floatToIntBits(c3[0]);
-		dpcmd[88] = (byte) (c3_r >> 24);
-		dpcmd[89] = (byte) (c3_r >> 16);
-		dpcmd[90] = (byte) (c3_r >> 8);
-		dpcmd[91] = (byte) (c3_r);
-		int c3_g = Float.floatToIntBits(c3[1]);
-		dpcmd[92] = (byte) (c3_g >> 24);
-		dpcmd[93] = (byte) (c3_g >> 16);
-		dpcmd[94] = (byte) (c3_g >> 8);
-		dpcmd[95] = (byte) (c3_g);
-		int c3_b = Float.floatToIntBits(c3[2]);
-		dpcmd[96] = (byte) (c3_b >> 24);
-		dpcmd[97] = (byte) (c3_b >> 16);
-		dpcmd[98] = (byte) (c3_b >> 8);
-		dpcmd[99] = (byte) (c3_b);
-		int c3_a = Float.floatToIntBits(c3[3]);
-		dpcmd[100] = (byte) (c3_a >> 24);
-		dpcmd[101] = (byte) (c3_a >> 16);
-		dpcmd[102] = (byte) (c3_a >> 8);
-		dpcmd[103] = (byte) (c3_a);
-
-		// Texture
-		int tex1_s = Float.floatToIntBits(tex1[0]);
-		dpcmd[104] = (byte) (tex1_s >> 24);
-		dpcmd[105] = (byte) (tex1_s >> 16);
-		dpcmd[106] = (byte) (tex1_s >> 8);
-		dpcmd[107] = (byte) (tex1_s);
-		int tex1_t = Float.floatToIntBits(tex1[1]);
-		dpcmd[108] = (byte) (tex1_t >> 24);
-		dpcmd[109] = (byte) (tex1_t >> 16);
-		dpcmd[110] = (byte) (tex1_t >> 8);
-		dpcmd[111] = (byte) (tex1_t);
-		int tex2_s = Float.floatToIntBits(tex2[0]);
-		dpcmd[112] = (byte) (tex2_s >> 24);
-		dpcmd[113] = (byte) (tex2_s >> 16);
-		dpcmd[114] = (byte) (tex2_s >> 8);
-		dpcmd[115] = (byte) (tex2_s);
-		int tex2_t = Float.floatToIntBits(tex2[1]);
-		dpcmd[116] = (byte) (tex2_t >> 24);
-		dpcmd[117] = (byte) (tex2_t >> 16);
-		dpcmd[118] = (byte) (tex2_t >> 8);
-		dpcmd[119] = (byte) (tex2_t);
-		int tex3_s = Float.floatToIntBits(tex3[0]);
-		dpcmd[120] = (byte) (tex3_s >> 24);
-		dpcmd[121] = (byte) (tex3_s >> 16);
-		dpcmd[122] = (byte) (tex3_s >> 8);
-		dpcmd[123] = (byte) (tex3_s);
-		int tex3_t = Float.floatToIntBits(tex3[1]);
-		dpcmd[124] = (byte) (tex3_t >> 24);
-		dpcmd[125] = (byte) (tex3_t >> 16);
-		dpcmd[126] = (byte) (tex3_t >> 8);
-		dpcmd[127] = (byte) (tex3_t);
-
-		// Zbuffer
-		int clip1_x = Float.floatToIntBits(clip1[0]);
-		dpcmd[128] = (byte) (clip1_x >> 24);
-		dpcmd[129] = (byte) (clip1_x >> 16);
-		dpcmd[130] = (byte) (clip1_x >> 8);
-		dpcmd[131] = (byte) (clip1_x);
-		int clip1_y = Float.floatToIntBits(clip1[1]);
-		dpcmd[132] = (byte) (clip1_y >> 24);
-		dpcmd[133] = (byte) (clip1_y >> 16);
-		dpcmd[134] = (byte) (clip1_y >> 8);
-		dpcmd[135] = (byte) (clip1_y);
-		int clip1_z = Float.floatToIntBits(clip1[2]);
-		dpcmd[136] = (byte) (clip1_z >> 24);
-		dpcmd[137] = (byte) (clip1_z >> 16);
-		dpcmd[138] = (byte) (clip1_z >> 8);
-		dpcmd[139] = (byte) (clip1_z);
-		int clip2_x = Float.floatToIntBits(clip2[0]);
-		dpcmd[144] = (byte) (clip2_x >> 24);
-		dpcmd[145] = (byte) (clip2_x >> 16);
-		dpcmd[146] = (byte) (clip2_x >> 8);
-		dpcmd[147] = (byte) (clip2_x);
-		int clip2_y = Float.floatToIntBits(clip2[1]);
-		dpcmd[148] = (byte) (clip2_y >> 24);
-		dpcmd[149] = (byte) (clip2_y >> 16);
-		dpcmd[150] = (byte) (clip2_y >> 8);
-		dpcmd[151] = (byte) (clip2_y);
-		int clip2_z = Float.floatToIntBits(clip2[2]);
-		dpcmd[152] = (byte) (clip2_z >> 24);
-		dpcmd[153] = (byte) (clip2_z >> 16);
-		dpcmd[154] = (byte) (clip2_z >> 8);
-		dpcmd[155] = (byte) (clip2_z);
-		int clip3_x = Float.floatToIntBits(clip3[0]);
-		dpcmd[160] = (byte) (clip3_x >> 24);
-		dpcmd[161] = (byte) (clip3_x >> 16);
-		dpcmd[162] = (byte) (clip3_x >> 8);
-		dpcmd[163] = (byte) (clip3_x);
-		int clip3_y = Float.floatToIntBits(clip3[1]);
-		dpcmd[164] = (byte) (clip3_y >> 24);
-		dpcmd[165] = (byte) (clip3_y >> 16);
-		dpcmd[166] = (byte) (clip3_y >> 8);
-		dpcmd[167] = (byte) (clip3_y);
-		int clip3_z = Float.floatToIntBits(clip3[2]);
-		dpcmd[168] = (byte) (clip3_z >> 24);
-		dpcmd[169] = (byte) (clip3_z >> 16);
-		dpcmd[170] = (byte) (clip3_z >> 8);
-		dpcmd[171] = (byte) (clip3_z);
-	}
-
 	// Shade ///////////////////////////////////////////////////////////////////
 
 	protected static void gSPLight(int address, int n)
@@ -1138,6 +1024,8 @@ public class F3d implements Hardware, Clockable, Bus32bit, Bus64bit
 
 		if ((changed & CHANGED_GEOMETRYMODE) != 0)
 		{
+			gSPSubmitTriangles();
+
 			if ((geometryMode & Gbi.G_CULL_BOTH) != 0)
 			{
 				if ((geometryMode & Gbi.G_CULL_BACK) != 0)
@@ -139,6 +139,65 @@ public class Math3D
 		vec[2] = tmp2;
 	}
 
+	// structure of arrays: x at buf[x + i], y, z and w one plane further each
+	// transforms vertices from .. to - 1 in place, same rounding as transformVertex
+	public static final void transformVertices(float[] buf, int x, int plane, int from, int to, float[][] mtx)
+	{
+		float m00 = mtx[0][0], m01 = mtx[0][1], m02 = mtx[0][2], m03 = mtx[0][3];
+		float m10 = mtx[1][0], m11 = mtx[1][1], m12 = mtx[1][2], m13 = mtx[1][3];
+		float m20 = mtx[2][0], m21 = mtx[2][1], m22 = mtx[2][2], m23 = mtx[2][3];
+		float m30 = mtx[3][0], m31 = mtx[3][1], m32 = mtx[3][2], m33 = mtx[3][3];
+		int y = x + plane;
+		int z = y + plane;
+		int w = z + plane;
+		for (int i = from; i < to; i++)
+		{
+			float vx = buf[x + i];
+			float vy = buf[y + i];
+			float vz = buf[z + i];
+			buf[x + i] = (vx * m00 + vy * m10 + vz * m20) + m30;
+			buf[y + i] = (vx * m01 + vy * m11 + vz * m21) + m31;
+			buf[z + i] = (vx * m02 + vy * m12 + vz * m22) + m32;
+			buf[w + i] = (vx * m03 + vy * m13 + vz * m23) + m33;
+		}
+	}
+
+	// structure of arrays, see transformVertices
+	public static final void transformVectors(float[] buf, int x, int plane, int from, int to, float[][] mtx)
+	{
+		float m00 = mtx[0][0], m01 = mtx[0][1], m02 = mtx[0][2];
+		float m10 = mtx[1][0], m11 = mtx[1][1], m12 = mtx[1][2];
+		float m20 = mtx[2][0], m21 = mtx[2][1], m22 = mtx[2][2];
+		int y = x + plane;
+		int z = y + plane;
+		for (int i = from; i < to; i++)
+		{
+			float vx = buf[x + i];
+			float vy = buf[y + i];
+			float vz = buf[z + i];
+			buf[x + i] = vx * m00 + vy * m10 + vz * m20;
+			buf[y + i] = vx * m01 + vy * m11 + vz * m21;
+			buf[z + i] = vx * m02 + vy * m12 + vz * m22;
+		}
+	}
+
+	// structure of arrays, see transformVertices
+	public static final void normalizeVectors(float[] buf, int x, int plane, int from, int to)
+	{
+		int y = x + plane;
+		int z = y + plane;
+		for (int i = from; i < to; i++)
+		{
+			float vx = buf[x + i];
+			float vy = buf[y + i];
+			float vz = buf[z + i];
+			float length = (float) StrictMath.sqrt(vx * vx + vy * vy + vz * vz);
+			buf[x + i] = vx / length;
+			buf[y + i] = vy / length;
+			buf[z + i] = vz / length;
+		}
+	}
+
 	// float v[3]
 	public static final void normalize(float[] v)
 	{
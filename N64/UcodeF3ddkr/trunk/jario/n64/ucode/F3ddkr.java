@@ -95,17 +95,20 @@ public class F3ddkr extends F3d
 		for (int i = 0; i < n; i++)
 		{
 			int v0 = rdram.read8bit(address + 1) & 0xFF;
-			vertices[v0].tex[0] = rdram16bit.read16bit(address + 4) * Gbi.FIXED2FLOATRECIP5;
-			vertices[v0].tex[1] = rdram16bit.read16bit(address + 6) * Gbi.FIXED2FLOATRECIP5;
+			vertices[V_S + v0] = rdram16bit.read16bit(address + 4) * Gbi.FIXED2FLOATRECIP5;
+			vertices[V_T + v0] = rdram16bit.read16bit(address + 6) * Gbi.FIXED2FLOATRECIP5;
 
 			int v1 = rdram.read8bit(address + 2) & 0xFF;
-			vertices[v1].tex[0] = rdram16bit.read16bit(address + 8) * Gbi.FIXED2FLOATRECIP5;
-			vertices[v1].tex[1] = rdram16bit.read16bit(address + 10) * Gbi.FIXED2FLOATRECIP5;
+			vertices[V_S + v1] = rdram16bit.read16bit(address + 8) * Gbi.FIXED2FLOATRECIP5;
+			vertices[V_T + v1] = rdram16bit.read16bit(address + 10) * Gbi.FIXED2FLOATRECIP5;
 
 			int v2 = rdram.read8bit(address + 3) & 0xFF;
-			vertices[v2].tex[0] = rdram16bit.read16bit(address + 12) * Gbi.FIXED2FLOATRECIP5;
-			vertices[v2].tex[1] = rdram16bit.read16bit(address + 14) * Gbi.FIXED2FLOATRECIP5;
+			vertices[V_S + v2] = rdram16bit.read16bit(address + 12) * Gbi.FIXED2FLOATRECIP5;
+			vertices[V_T + v2] = rdram16bit.read16bit(address + 14) * Gbi.FIXED2FLOATRECIP5;
 
+			gSPInvalidateVertex(v0);
+			gSPInvalidateVertex(v1);
+			gSPInvalidateVertex(v2);
 			gSPTriangle(v0, v1, v2, 0);
 			address += 16;
 		}
@@ -136,32 +139,32 @@ public class F3ddkr extends F3d
 
 		if ((n + v0) < (80))
 		{
-			SPVertex vertex;
+			float[] v = vertices;
 			for (int i = v0; i < n + v0; i++)
 			{
-				vertex = vertices[i];
-				vertex.vtx[0] = rdram16bit.read16bit(address ^ 2);
-				vertex.vtx[1] = rdram16bit.read16bit((address + 2) ^ 2);
-				vertex.vtx[2] = rdram16bit.read16bit((address + 4) ^ 2);
+				v[V_X + i] = rdram16bit.read16bit(address ^ 2);
+				v[V_Y + i] = rdram16bit.read16bit((address + 2) ^ 2);
+				v[V_Z + i] = rdram16bit.read16bit((address + 4) ^ 2);
 
 				if ((geometryMode & Gbi.G_LIGHTING) != 0)
 				{
-					vertex.norm[0] = rdram.read8bit((address + 6) ^ 3);
-					vertex.norm[1] = rdram.read8bit((address + 7) ^ 3);
-					vertex.norm[2] = rdram.read8bit((address + 8) ^ 3);
-					vertex.color[3] = (rdram.read8bit((address + 9) ^ 3) & 0xFF) * 0.0039215689f;
+					v[V_NX + i] = rdram.read8bit((address + 6) ^ 3);
+					v[V_NY + i] = rdram.read8bit((address + 7) ^ 3);
+					v[V_NZ + i] = rdram.read8bit((address + 8) ^ 3);
+					v[V_A + i] = (rdram.read8bit((address + 9) ^ 3) & 0xFF) * 0.0039215689f;
 				}
 				else
 				{
-					vertex.color[0] = (rdram.read8bit((address + 6) ^ 3) & 0xFF) * 0.0039215689f;
-					vertex.color[1] = (rdram.read8bit((address + 7) ^ 3) & 0xFF) * 0.0039215689f;
-					vertex.color[2] = (rdram.read8bit((address + 8) ^ 3) & 0xFF) * 0.0039215689f;
-					vertex.color[3] = (rdram.read8bit((address + 9) ^ 3) & 0xFF) * 0.0039215689f;
+					v[V_R + i] = (rdram.read8bit((address + 6) ^ 3) & 0xFF) * 0.0039215689f;
+					v[V_G + i] = (rdram.read8bit((address + 7) ^ 3) & 0xFF) * 0.0039215689f;
+					v[V_B + i] = (rdram.read8bit((address + 8) ^ 3) & 0xFF) * 0.0039215689f;
+					v[V_A + i] = (rdram.read8bit((address + 9) ^ 3) & 0xFF) * 0.0039215689f;
 				}
 
-				gSPProcessVertex(vertex);
 				address += 10;
 			}
+
+			gSPProcessVertices(v0, n);
 		}
 
 		vertexi += n;
@@ -126,7 +126,7 @@ public class F3dex extends F3d
 	{
 		if ((address + 8) > rdramSize)
 			return;
-		if (vertices[vtx].vtx[2] <= zval)
+		if (vertices[V_Z + vtx] <= zval)
 			sp_writeRegister(SP_DLPC_REG, address);
 	}
 
@@ -137,62 +137,41 @@ public class F3dexbg extends F3dex2
 
 		for (int i = 0; i < (n << 4); i += 16)
 		{
-			SPVertex vertex = vertices[v0 - n + (i >> 4)];
-			vertex.vtx[0] = (float) rdram16bit.read16bit((address + i) + 0);
-			vertex.vtx[1] = (float) rdram16bit.read16bit((address + i) + 2);
-			vertex.vtx[2] = (float) rdram16bit.read16bit((address + i) + 4);
-			vertex.flag = rdram16bit.read16bit((address + i) + 6);
-			vertex.tex[0] = (float) rdram16bit.read16bit((address + i) + 8) * 0.03125f;
-			vertex.tex[1] = (float) rdram16bit.read16bit((address + i) + 10) * 0.03125f;
-			vertex.color[3] = (rdram.read8bit((address + i) + 15) & 0xFF) * 0.0039215689f;
+			int v = v0 - n + (i >> 4);
+			vertices[V_X + v] = (float) rdram16bit.read16bit((address + i) + 0);
+			vertices[V_Y + v] = (float) rdram16bit.read16bit((address + i) + 2);
+			vertices[V_Z + v] = (float) rdram16bit.read16bit((address + i) + 4);
+			vertexFlags[v] = rdram16bit.read16bit((address + i) + 6);
+			vertices[V_S + v] = (float) rdram16bit.read16bit((address + i) + 8) * 0.03125f;
+			vertices[V_T + v] = (float) rdram16bit.read16bit((address + i) + 10) * 0.03125f;
+			vertices[V_A + v] = (rdram.read8bit((address + i) + 15) & 0xFF) * 0.0039215689f;
 
-			Math3D.transformVertex(vertex.vtx, matrix.combined);
+			Math3D.transformVertices(vertices, V_X, VERTEX_COUNT, v, v + 1, matrix.combined);
 
-			if (vertex.vtx[0] < -vertex.vtx[3])
-				vertex.clip[0] = -1.0f;
-			else if (vertex.vtx[0] > vertex.vtx[3])
-				vertex.clip[0] = 1.0f;
-			else
-				vertex.clip[0] = 0.0f;
+			gSPClipVertices(v, v + 1);
 
-			if (vertex.vtx[1] < -vertex.vtx[3])
-				vertex.clip[1] = -1.0f;
-			else if (vertex.vtx[1] > vertex.vtx[3])
-				vertex.clip[1] = 1.0f;
-			else
-				vertex.clip[1] = 0.0f;
-
-			if (vertex.vtx[3] <= 0.0f)
-				vertex.clip[2] = -1.0f;
-			else if (vertex.vtx[2] < -vertex.vtx[3])
-				vertex.clip[2] = -0.1f;
-			else if (vertex.vtx[2] > vertex.vtx[3])
-				vertex.clip[2] = 1.0f;
-			else
-				vertex.clip[2] = 0.0f;
-
-			vertex.color[0] = (rdram.read8bit((address + i) + 12) & 0xFF) * 0.0039215689f;
-			vertex.color[1] = (rdram.read8bit((address + i) + 13) & 0xFF) * 0.0039215689f;
-			vertex.color[2] = (rdram.read8bit((address + i) + 14) & 0xFF) * 0.0039215689f;
+			vertices[V_R + v] = (rdram.read8bit((address + i) + 12) & 0xFF) * 0.0039215689f;
+			vertices[V_G + v] = (rdram.read8bit((address + i) + 13) & 0xFF) * 0.0039215689f;
+			vertices[V_B + v] = (rdram.read8bit((address + i) + 14) & 0xFF) * 0.0039215689f;
 
 			if ((geometryMode & 0x00020000 /* Gbi.G_LIGHTING */) != 0)
 			{
 				int shift = (v0 - n) << 1;
-				vertex.norm[0] = rdram.read8bit(uc8_normale_addr + (i >> 3) + shift + 0);
-				vertex.norm[1] = rdram.read8bit(uc8_normale_addr + (i >> 3) + shift + 1);
-				vertex.norm[2] = (byte) (vertex.flag & 0xff);
+				vertices[V_NX + v] = rdram.read8bit(uc8_normale_addr + (i >> 3) + shift + 0);
+				vertices[V_NY + v] = rdram.read8bit(uc8_normale_addr + (i >> 3) + shift + 1);
+				vertices[V_NZ + v] = (byte) (vertexFlags[v] & 0xff);
 
-				Math3D.transformVector(vertex.norm, matrix.modelView[matrix.modelViewi]);
-				Math3D.normalize(vertex.norm);
+				Math3D.transformVectors(vertices, V_NX, VERTEX_COUNT, v, v + 1, matrix.modelView[matrix.modelViewi]);
+				Math3D.normalizeVectors(vertices, V_NX, VERTEX_COUNT, v, v + 1);
 				if ((geometryMode & 0x00080000 /* Gbi.G_TEXTURE_GEN_LINEAR */) != 0)
 				{
-					vertex.tex[0] = (float) StrictMath.acos(vertex.norm[0]) * 325.94931f;
-					vertex.tex[1] = (float) StrictMath.acos(vertex.norm[1]) * 325.94931f;
+					vertices[V_S + v] = (float) StrictMath.acos(vertices[V_NX + v]) * 325.94931f;
+					vertices[V_T + v] = (float) StrictMath.acos(vertices[V_NY + v]) * 325.94931f;
 				}
 				else
 				{ // G_TEXTURE_GEN
-					vertex.tex[0] = (vertex.norm[0] + 1.0f) * 512.0f;
-					vertex.tex[1] = (vertex.norm[1] + 1.0f) * 512.0f;
+					vertices[V_S + v] = (vertices[V_NX + v] + 1.0f) * 512.0f;
+					vertices[V_T + v] = (vertices[V_NY + v] + 1.0f) * 512.0f;
 				}
 
 				float[] color = { lights[numLights].color[0], lights[numLights].color[1], lights[numLights].color[2] };
@@ -200,20 +179,20 @@ public class F3dexbg extends F3dex2
 				int l;
 				if ((geometryMode & 0x00400000) != 0)
 				{
-					Math3D.normalize(vertex.norm);
+					Math3D.normalizeVectors(vertices, V_NX, VERTEX_COUNT, v, v + 1);
 					for (l = 0; l < numLights - 1; l++)
 					{
 						if (lights[l].nonblack == 0)
 							continue;
-						light_intensity = Math3D.dotProduct(vertex.norm, lights[l].vec);
+						light_intensity = vertices[V_NX + v] * lights[l].vec[0] + vertices[V_NY + v] * lights[l].vec[1] + vertices[V_NZ + v] * lights[l].vec[2];
 						if (light_intensity < 0.0f)
 							continue;
 						if (lights[l].ca > 0.0f)
 						{
-							float vx = (vertex.vtx[0] + uc8_coord_mod[8]) * uc8_coord_mod[12] - lights[l].x;
-							float vy = (vertex.vtx[1] + uc8_coord_mod[9]) * uc8_coord_mod[13] - lights[l].y;
-							float vz = (vertex.vtx[2] + uc8_coord_mod[10]) * uc8_coord_mod[14] - lights[l].z;
-							float vw = (vertex.vtx[3] + uc8_coord_mod[11]) * uc8_coord_mod[15] - lights[l].w;
+							float vx = (vertices[V_X + v] + uc8_coord_mod[8]) * uc8_coord_mod[12] - lights[l].x;
+							float vy = (vertices[V_Y + v] + uc8_coord_mod[9]) * uc8_coord_mod[13] - lights[l].y;
+							float vz = (vertices[V_Z + v] + uc8_coord_mod[10]) * uc8_coord_mod[14] - lights[l].z;
+							float vw = (vertices[V_W + v] + uc8_coord_mod[11]) * uc8_coord_mod[15] - lights[l].w;
 							float len = (vx * vx + vy * vy + vz * vz + vw * vw) / 65536.0f;
 							float p_i = lights[l].ca / len;
 							if (p_i > 1.0f) p_i = 1.0f;
@@ -223,7 +202,7 @@ public class F3dexbg extends F3dex2
 						color[1] += lights[l].color[1] * light_intensity;
 						color[2] += lights[l].color[2] * light_intensity;
 					}
-					light_intensity = Math3D.dotProduct(vertex.norm, lights[l].vec);
+					light_intensity = vertices[V_NX + v] * lights[l].vec[0] + vertices[V_NY + v] * lights[l].vec[1] + vertices[V_NZ + v] * lights[l].vec[2];
 					if (light_intensity > 0.0f)
 					{
 						color[0] += lights[l].color[0] * light_intensity;
@@ -237,10 +216,10 @@ public class F3dexbg extends F3dex2
 					{
 						if (lights[l].nonblack != 0 && lights[l].nonzero != 0)
 						{
-							float vx = (vertex.vtx[0] + uc8_coord_mod[8]) * uc8_coord_mod[12] - lights[l].x;
-							float vy = (vertex.vtx[1] + uc8_coord_mod[9]) * uc8_coord_mod[13] - lights[l].y;
-							float vz = (vertex.vtx[2] + uc8_coord_mod[10]) * uc8_coord_mod[14] - lights[l].z;
-							float vw = (vertex.vtx[3] + uc8_coord_mod[11]) * uc8_coord_mod[15] - lights[l].w;
+							float vx = (vertices[V_X + v] + uc8_coord_mod[8]) * uc8_coord_mod[12] - lights[l].x;
+							float vy = (vertices[V_Y + v] + uc8_coord_mod[9]) * uc8_coord_mod[13] - lights[l].y;
+							float vz = (vertices[V_Z + v] + uc8_coord_mod[10]) * uc8_coord_mod[14] - lights[l].z;
+							float vw = (vertices[V_W + v] + uc8_coord_mod[11]) * uc8_coord_mod[15] - lights[l].w;
 							float len = (vx * vx + vy * vy + vz * vz + vw * vw) / 65536.0f;
 							light_intensity = lights[l].ca / len;
 							if (light_intensity > 1.0f) light_intensity = 1.0f;
@@ -256,9 +235,9 @@ public class F3dexbg extends F3dex2
 					color[1] = 1.0f;
 				if (color[2] > 1.0f)
 					color[2] = 1.0f;
-				vertex.color[0] = vertex.color[0] * color[0];
-				vertex.color[1] = vertex.color[1] * color[1];
-				vertex.color[2] = vertex.color[2] * color[2];
+				vertices[V_R + v] = vertices[V_R + v] * color[0];
+				vertices[V_G + v] = vertices[V_G + v] * color[1];
+				vertices[V_B + v] = vertices[V_B + v] * color[2];
 			}
 		}
 	}
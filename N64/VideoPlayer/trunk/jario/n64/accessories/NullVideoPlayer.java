@@ -0,0 +1,66 @@
+/**
+ * Copyright 2009, 2013 Jason LaDere
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package jario.n64.accessories;
+
+import jario.hardware.Bus32bit;
+import jario.hardware.Configurable;
+import jario.hardware.Hardware;
+
+/**
+ * Video player without a display, used for headless runs. The screen is never
+ * attached so the display processor does not render.
+ */
+public class NullVideoPlayer implements Hardware, Bus32bit, Configurable
+{
+	public NullVideoPlayer()
+	{
+	}
+
+	@Override
+	public void connect(int port, Hardware bus)
+	{
+	}
+
+	@Override
+	public void reset()
+	{
+	}
+
+	@Override
+	public int read32bit(int pAddr)
+	{
+		return 0;
+	}
+
+	@Override
+	public void write32bit(int reg, int value)
+	{
+	}
+
+	@Override
+	public Object readConfig(String key)
+	{
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
+	}
+}
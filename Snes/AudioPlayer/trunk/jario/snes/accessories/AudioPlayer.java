@@ -68,6 +68,7 @@ public class AudioPlayer implements Hardware, BusDMA, Configurable
 	public Object readConfig(String key)
 	{
 		if (key.equals("enable")) return enable;
+		else if (key.equals("queued")) return queuedMicros();
 		return null;
 	}
 
@@ -82,6 +83,16 @@ public class AudioPlayer implements Hardware, BusDMA, Configurable
 		}
 	}
 
+	// audio written to the line and not yet played, -1 without a line
+	private int queuedMicros()
+	{
+		SourceDataLine line = audioDataLine;
+		if (line == null)
+			return -1;
+		long frames = (line.getBufferSize() - line.available()) >> 2;
+		return (int) ((frames * 1000000L) / (long) sampleRate);
+	}
+
 	private boolean initAudio(float sampleRate)
 	{
 		closeAudio(); // Release just in case...
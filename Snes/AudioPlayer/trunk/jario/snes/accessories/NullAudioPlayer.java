@@ -0,0 +1,55 @@
+/**
+ * Copyright 2013 Jason LaDere
+ */
+
+package jario.snes.accessories;
+
+import jario.hardware.BusDMA;
+import jario.hardware.Configurable;
+import jario.hardware.Hardware;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Audio player without an output line, used for headless runs. Samples are
+ * dropped and nothing is ever reported as queued, so the frame pacing never
+ * depends on wall clock time.
+ */
+public class NullAudioPlayer implements Hardware, BusDMA, Configurable
+{
+	public NullAudioPlayer()
+	{
+	}
+
+	@Override
+	public void connect(int port, Hardware hw)
+	{
+	}
+
+	@Override
+	public void reset()
+	{
+	}
+
+	@Override
+	public void readDMA(int address, ByteBuffer b, int offset, int length)
+	{
+	}
+
+	@Override
+	public void writeDMA(int address, ByteBuffer buffer, int offset, int length)
+	{
+	}
+
+	@Override
+	public Object readConfig(String key)
+	{
+		if (key.equals("enable")) return false;
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
+	}
+}
@@ -118,6 +118,7 @@ public class Console implements Hardware, Clockable, Configurable
 		smp.connect(1, cpu);
 
 		dsp.connect(0, audio);
+		audio.connect(1, dsp);
 
 		video.connect(1, ppu);
 		video.connect(2, audio); // to simulate multi-out
@@ -198,16 +199,20 @@ public class Console implements Hardware, Clockable, Configurable
 	@Override
 	public Object readConfig(String key)
 	{
-		if (key.equals("accuracy")) return ((Configurable) ppu).readConfig("accuracy");
+		if (key.equals("accuracy") || key.equals("render threads")) return ((Configurable) ppu).readConfig(key);
 		else if (key.equals("fps")) return ((Configurable) video).readConfig("fps");
+		else if (key.equals("framelimit") || key.equals("speed") || key.equals("audiosync") || key.startsWith("frametime")) return ((Configurable) video).readConfig(key);
+		else if (key.equals("frames")) return ((Configurable) video).readConfig("frames");
+		else if (key.equals("instructions")) return ((Configurable) cpu).readConfig("instructions");
 		return null;
 	}
 
 	@Override
 	public void writeConfig(String key, Object value)
 	{
-		if (key.equals("accuracy")) ((Configurable) ppu).writeConfig("accuracy", value);
+		if (key.equals("accuracy") || key.equals("render threads")) ((Configurable) ppu).writeConfig(key, value);
 		else if (key.equals("fps")) ((Configurable) video).writeConfig("fps", value);
+		else if (key.equals("framelimit") || key.equals("speed") || key.equals("audiosync")) ((Configurable) video).writeConfig(key, value);
 	}
 
 	private void insertCartridge()
@@ -33,6 +33,8 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 	protected Bus32bit video;
 
 	private long smp_clock;
+	private long ppu_clock;
+	private volatile long instructions; // read by other threads, added to once per clock()
 
 	private Clockable coprocessors;
 
@@ -91,6 +93,7 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 	@Override
 	public void clock(long clocks)
 	{
+		long count = clocks;
 		while (clocks-- > 0L)
 		{
 			if (status.nmi_pending)
@@ -105,14 +108,16 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 				op_irq((regs.e == false ? 0xffee : 0xfffe));
 			}
 
-			opcode_table.get(op_readpc()).Invoke();
+			opcode_table[op_readpc()].Invoke();
 		}
+		instructions += count;
 	}
 
 	@Override
 	public void reset()
 	{
 		smp_clock = 0;
+		ppu_clock = 0;
 
 		// should this remove the coprocessors or reset them?
 		//coprocessors = null;
@@ -223,6 +228,7 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 		case 0x4212:
 		{
 			int result = (regs.mdr & 0x3e);
+			synchronize_ppu();
 			int vbstart = !ppu1bit.read1bit(1) ? 225 : 240;
 
 			if (counter.vcounter() >= vbstart && counter.vcounter() <= vbstart + 2)
@@ -382,6 +388,7 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 		}
 		case 0x4201:
 		{
+			synchronize_ppu();
 			ppu1bit.write1bit(29, ((data >> 7) & 0x1) != 0);
 			status.pio = data;
 			// goto case 0x4202;
@@ -540,6 +547,7 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 	public Object readConfig(String key)
 	{
 		if (key.equals("BUS B")) return status;
+		else if (key.equals("instructions")) return instructions;
 		return null;
 	}
 
@@ -558,6 +566,10 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 	@Override
 	public byte op_read(int addr)
 	{
+		if ((addr & 0x40ffc0) == 0x2100)
+		{   // $[00-3f|80-bf]:[2100-213f]
+			synchronize_ppu();
+		}
 		regs.mdr = bus.read8bit(addr);
 		add_clocks(speed(addr));
 		return regs.mdr;
@@ -567,6 +579,10 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 	public void op_write(int addr, byte data)
 	{
 		add_clocks(speed(addr));
+		if ((addr & 0x40ffc0) == 0x2100)
+		{
+			synchronize_ppu();
+		}
 		bus.write8bit(addr, regs.mdr = data);
 	}
 
@@ -603,7 +619,7 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 	protected void step(int clocks)
 	{
 		smp_clock += clocks;
-		ppu.clock(clocks);
+		ppu_clock += clocks;
 		if (coprocessors != null)
 		{
 			coprocessors.clock(clocks);
@@ -616,6 +632,18 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 		smp_clock = 0;
 	}
 	
+	// The ppu runs behind the cpu and only catches up when it can be seen:
+	// an access to its registers, the counter latch, $4212 and the start of
+	// a scanline, where the counter and the scanline handler read its state.
+	final void synchronize_ppu()
+	{
+		if (ppu_clock != 0)
+		{
+			ppu.clock(ppu_clock);
+			ppu_clock = 0;
+		}
+	}
+
 	private void synchronize_coprocessor()
 	{
 		if (coprocessors != null)
@@ -746,6 +774,10 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 			status.irq_valid = false;
 		}
 
+		if (counter.hcounter() + clocks >= counter.lineclocks())
+		{
+			synchronize_ppu();
+		}
 		counter.tick(clocks);
 		queue.tick(clocks);
 		step(clocks);
@@ -756,7 +788,6 @@ public class CPU extends CPUCore implements Hardware, Clockable, Bus1bit, Bus8bi
 		public void run()
 		{
 			synchronize_smp();
-			// synchronize_ppu();
 			synchronize_coprocessor();
 			video.write32bit(0, counter.vcounter());
 			if (counter.vcounter() == 241)
@@ -10,7 +10,6 @@ package jario.snes.performance.cpu;
 import jario.snes.performance.cpu.CPUCoreOperation.CPUCoreOp;
 
 import java.util.Arrays;
-import java.util.List;
 
 public abstract class CPUCore
 {
@@ -2633,8 +2632,9 @@ public abstract class CPUCore
 		}
 	};
 
-	protected List<CPUCoreOperation> opcode_table;
+	protected CPUCoreOperation[] opcode_table;
 	public CPUCoreOperation[] op_table = new CPUCoreOperation[256 * 5];
+	private CPUCoreOperation[][] mode_tables = new CPUCoreOperation[5][]; // op_table split by Table_*
 
 	private CPUCoreOp GetCoreOp(String name)
 	{
@@ -3006,28 +3006,28 @@ public abstract class CPUCore
 	{
 		if (regs.e)
 		{
-			opcode_table = Arrays.asList(op_table).subList(Table_EM, Table_EM + (op_table.length - Table_EM));
+			opcode_table = mode_tables[Table_EM >> 8];
 		}
 		else if (regs.p.m)
 		{
 			if (regs.p.x)
 			{
-				opcode_table = Arrays.asList(op_table).subList(Table_MX, Table_MX + (op_table.length - Table_MX));
+				opcode_table = mode_tables[Table_MX >> 8];
 			}
 			else
 			{
-				opcode_table = Arrays.asList(op_table).subList(Table_Mx, Table_Mx + (op_table.length - Table_Mx));
+				opcode_table = mode_tables[Table_Mx >> 8];
 			}
 		}
 		else
 		{
 			if (regs.p.x)
 			{
-				opcode_table = Arrays.asList(op_table).subList(Table_mX, Table_mX + (op_table.length - Table_mX));
+				opcode_table = mode_tables[Table_mX >> 8];
 			}
 			else
 			{
-				opcode_table = Arrays.asList(op_table).subList(Table_mx, Table_mx + (op_table.length - Table_mx));
+				opcode_table = mode_tables[Table_mx >> 8];
 			}
 		}
 	}
@@ -3048,5 +3048,9 @@ public abstract class CPUCore
 	public CPUCore()
 	{
 		initialize_opcode_table();
+		for (int i = 0; i < mode_tables.length; i++)
+		{
+			mode_tables[i] = Arrays.copyOfRange(op_table, i << 8, (i + 1) << 8);
+		}
 	}
 }
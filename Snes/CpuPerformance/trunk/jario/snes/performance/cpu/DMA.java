@@ -47,6 +47,10 @@ public class DMA
 
 	private void dma_transfer(boolean direction, int bbus, int abus)
 	{
+		if ((bbus & 0xc0) == 0x00)
+		{   // $2100-$213f
+			self.synchronize_ppu();
+		}
 		if ((direction ? 1 : 0) == 0)
 		{
 			byte data = dma_read(abus);
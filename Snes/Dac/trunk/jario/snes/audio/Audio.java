@@ -9,13 +9,16 @@ package jario.snes.audio;
 
 import jario.hardware.Bus32bit;
 import jario.hardware.BusDMA;
+import jario.hardware.Clockable;
+import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 
 import java.nio.ByteBuffer;
 
-public class Audio implements Hardware, Bus32bit
+public class Audio implements Hardware, Bus32bit, BusDMA
 {
 	private BusDMA output;
+	private Clockable dsp;
 	private byte[] buffer0 = new byte[8192];
 	private ByteBuffer outputBuffer;
 	private int bufferIndex;
@@ -34,6 +37,9 @@ public class Audio implements Hardware, Bus32bit
 		case 0:
 			output = (BusDMA) hw;
 			break;
+		case 1:
+			dsp = (Clockable) hw;
+			break;
 		}
 	}
 
@@ -49,10 +55,17 @@ public class Audio implements Hardware, Bus32bit
 		switch (address)
 		{
 		case 0:
+			if (dsp != null)
+			{
+				dsp.clock(0L); // catch up with the frame
+			}
 			int index = bufferIndex;
 			output.writeDMA(0, outputBuffer, 0, index);
 			bufferIndex = 0;
 			return index;
+		case 1: // microseconds queued and not yet played
+			Object queued = ((Configurable) output).readConfig("queued");
+			return queued != null ? (Integer) queued : -1;
 		default:
 			return 0;
 		}
@@ -69,4 +82,18 @@ public class Audio implements Hardware, Bus32bit
 			buffer0[bufferIndex++] = (byte) (sample >> 0); // right
 		}
 	}
+
+	@Override
+	public void readDMA(int address, ByteBuffer data, int offset, int length)
+	{
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	@Override
+	public void writeDMA(int address, ByteBuffer data, int offset, int length)
+	{   // a block of big endian 16 bit left/right samples
+		length = StrictMath.min(length, buffer0.length - bufferIndex);
+		System.arraycopy(data.array(), offset, buffer0, bufferIndex, length);
+		bufferIndex += length;
+	}
 }
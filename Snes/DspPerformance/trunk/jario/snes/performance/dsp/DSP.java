@@ -7,21 +7,34 @@
 
 package jario.snes.performance.dsp;
 
-import jario.hardware.Bus32bit;
 import jario.hardware.Bus8bit;
+import jario.hardware.BusDMA;
 import jario.hardware.Clockable;
 import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * The S-DSP is clocked lazily. Owed clocks pile up until the S-SMP touches
+ * a DSP register, clock(0) is called at the end of a frame or a thousand
+ * samples are owed, then SPCDSP catches up in one run and the samples go
+ * to the DAC as a single block.
+ */
 public class DSP implements Hardware, Clockable, Bus8bit, Configurable
 {
+	private static final long MAX_OWED_CLOCKS = 768L * 1024; // 1024 samples
+
 	private long clock;
 
 	private byte[] apuram = new byte[64 * 1024];
-	private Bus32bit output;
+	private BusDMA output;
 
 	private SPCDSP spc_dsp = new SPCDSP();
 	private short[] samplebuffer = new short[8192];
+	private ByteBuffer sampleblock = ByteBuffer.allocate(8192 * 2);
+	private ShortBuffer samples = sampleblock.asShortBuffer();
 	boolean[] channel_enabled = new boolean[8];
 	
 	private Bus8bit sram = new Bus8bit()
@@ -55,7 +68,7 @@ public class DSP implements Hardware, Clockable, Bus8bit, Configurable
 		switch (port)
 		{
 		case 0:
-			output = (Bus32bit) hw;
+			output = (BusDMA) hw;
 			break;
 		}
 	}
@@ -63,12 +76,14 @@ public class DSP implements Hardware, Clockable, Bus8bit, Configurable
 	@Override
 	public byte read8bit(int addr)
 	{
+		synchronize();
 		return spc_dsp.read(addr);
 	}
 
 	@Override
 	public void write8bit(int addr, byte data)
 	{
+		synchronize();
 		spc_dsp.write(addr, data);
 	}
 
@@ -76,20 +91,9 @@ public class DSP implements Hardware, Clockable, Bus8bit, Configurable
 	public void clock(long clocks)
 	{
 		clock -= clocks;
-		while (clock < 0L)
+		if (clocks == 0L || clock < -MAX_OWED_CLOCKS)
 		{
-			spc_dsp.run(1);
-			clock += 24L;
-
-			int count = spc_dsp.sample_count();
-			if (count > 0)
-			{
-				for (int n = 0; n < count; n += 2)
-				{
-					output.write32bit(0, ((samplebuffer[n + 0] & 0xFFFF) << 16) | (samplebuffer[n + 1] & 0xFFFF));
-				}
-				spc_dsp.set_output(samplebuffer, 8192);
-			}
+			synchronize();
 		}
 	}
 
@@ -113,6 +117,27 @@ public class DSP implements Hardware, Clockable, Bus8bit, Configurable
 	{
 	}
 
+	// runs every 24 clock step owed, as many as clocking each one would have
+	private void synchronize()
+	{
+		if (clock >= 0L)
+		{
+			return;
+		}
+		int steps = (int) ((23L - clock) / 24L);
+		spc_dsp.run(steps);
+		clock += steps * 24L;
+
+		int count = spc_dsp.sample_count();
+		if (count > 0)
+		{
+			samples.clear();
+			samples.put(samplebuffer, 0, count);
+			output.writeDMA(0, sampleblock, 0, count << 1);
+			spc_dsp.set_output(samplebuffer, 8192);
+		}
+	}
+
 	private void power()
 	{
 		spc_dsp.init(apuram);
@@ -102,11 +102,6 @@ public class SPCDSP
 		}
 	}
 
-	private static final boolean Phase(int n, int clocks_remain)
-	{
-		return (n != 0) && (--clocks_remain == 0);
-	}
-
 	// Runs DSP for specified number of clocks (~1024000 per second). Every 32 clocks
 	// a pair of samples is be generated.
 	public void run(int clocks_remain)
@@ -115,159 +110,160 @@ public class SPCDSP
 
 		int phase = m.phase;
 		m.phase = (phase + clocks_remain) & 31;
-		do
+		loop: do
 		{
 			switch (phase)
 			{
 			case 0:
 				voice_V5(m.voices[0]);
 				voice_V2(m.voices[1]);
-				if (Phase(1, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 1:
 				voice_V6(m.voices[0]);
 				voice_V3(m.voices[1]);
-				if (Phase(2, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 2:
 				voice_V7_V4_V1(m.voices, 0);
-				if (Phase(3, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 3:
 				voice_V8_V5_V2(m.voices, 0);
-				if (Phase(4, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 4:
 				voice_V9_V6_V3(m.voices, 0);
-				if (Phase(5, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 5:
 				voice_V7_V4_V1(m.voices, 1);
-				if (Phase(6, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 6:
 				voice_V8_V5_V2(m.voices, 1);
-				if (Phase(7, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 7:
 				voice_V9_V6_V3(m.voices, 1);
-				if (Phase(8, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 8:
 				voice_V7_V4_V1(m.voices, 2);
-				if (Phase(9, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 9:
 				voice_V8_V5_V2(m.voices, 2);
-				if (Phase(10, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 10:
 				voice_V9_V6_V3(m.voices, 2);
-				if (Phase(11, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 11:
 				voice_V7_V4_V1(m.voices, 3);
-				if (Phase(12, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 12:
 				voice_V8_V5_V2(m.voices, 3);
-				if (Phase(13, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 13:
 				voice_V9_V6_V3(m.voices, 3);
-				if (Phase(14, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 14:
 				voice_V7_V4_V1(m.voices, 4);
-				if (Phase(15, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 15:
 				voice_V8_V5_V2(m.voices, 4);
-				if (Phase(16, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 16:
 				voice_V9_V6_V3(m.voices, 4);
-				if (Phase(17, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 17:
 				voice_V1(m.voices[0]);
 				voice_V7(m.voices[5]);
 				voice_V4(m.voices[6]);
-				if (Phase(18, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 18:
 				voice_V8_V5_V2(m.voices, 5);
-				if (Phase(19, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 19:
 				voice_V9_V6_V3(m.voices, 5);
-				if (Phase(20, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 20:
 				voice_V1(m.voices[1]);
 				voice_V7(m.voices[6]);
 				voice_V4(m.voices[7]);
-				if (Phase(21, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 21:
 				voice_V8(m.voices[6]);
 				voice_V5(m.voices[7]);
 				voice_V2(m.voices[0]);
-				if (Phase(22, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 22:
 				voice_V3a(m.voices[0]);
 				voice_V9(m.voices[6]);
 				voice_V6(m.voices[7]);
 				echo_22();
-				if (Phase(23, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 23:
 				voice_V7(m.voices[7]);
 				echo_23();
-				if (Phase(24, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 24:
 				voice_V8(m.voices[7]);
 				echo_24();
-				if (Phase(25, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 25:
 				voice_V3b(m.voices[0]);
 				voice_V9(m.voices[7]);
 				echo_25();
-				if (Phase(26, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 26:
 				echo_26();
-				if (Phase(27, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 27:
 				misc_27();
 				echo_27();
-				if (Phase(28, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 28:
 				misc_28();
 				echo_28();
-				if (Phase(29, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 29:
 				misc_29();
 				echo_29();
-				if (Phase(30, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 30:
 				misc_30();
 				voice_V3c(m.voices[0]);
 				echo_30();
-				if (Phase(31, clocks_remain))
-					break;
+				if (--clocks_remain == 0)
+					break loop;
 			case 31:
 				voice_V4(m.voices[0]);
 				voice_V1(m.voices[2]);
 				break;
 			}
+			phase = 0; // later passes start over at the first clock
 		} while (--clocks_remain != 0);
 	}
 
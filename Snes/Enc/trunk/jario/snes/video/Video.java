@@ -12,6 +12,7 @@ import jario.hardware.Bus32bit;
 import jario.hardware.BusDMA;
 import jario.hardware.Clockable;
 import jario.hardware.Configurable;
+import jario.hardware.FramePacer;
 import jario.hardware.Hardware;
 
 import java.nio.ByteBuffer;
@@ -22,7 +23,6 @@ import java.util.concurrent.Executors;
 public class Video implements Hardware, Clockable, Bus32bit, Configurable
 {
 	private int FRAMES_PER_SECOND = 60;
-	private int SKIP_TICKS = 1000 / FRAMES_PER_SECOND;
 
 	private BusDMA output;
 	private BusDMA ppuDma;
@@ -30,10 +30,8 @@ public class Video implements Hardware, Clockable, Bus32bit, Configurable
 	private Bus32bit audio;
 
 	private ExecutorService executor;
-	private long currentTime;
-	private long next_game_tick;
-	private long sleep_time;
-	private boolean limit = true;
+	private FramePacer pacer = new FramePacer(FRAMES_PER_SECOND);
+	private volatile int frames; // read by other threads through "frames"
 
 	class AudioVideoThread implements Runnable
 	{
@@ -65,7 +63,6 @@ public class Video implements Hardware, Clockable, Bus32bit, Configurable
 		{
 			line_width[i] = 256;
 		}
-		next_game_tick = System.currentTimeMillis();
 	}
 
 	@Override
@@ -138,26 +135,9 @@ public class Video implements Hardware, Clockable, Bus32bit, Configurable
 
 		frame_hires = false;
 		frame_interlace = false;
+		frames++;
 
-		currentTime = System.currentTimeMillis();
-
-		if (limit)
-		{
-			next_game_tick += SKIP_TICKS;
-			sleep_time = next_game_tick - currentTime;
-			if (sleep_time >= 0)
-			{
-				try
-				{
-					Thread.sleep(sleep_time);
-				}
-				catch (InterruptedException e)
-				{
-					e.printStackTrace();
-				}
-			}
-		}
-		next_game_tick = System.currentTimeMillis();
+		pacer.frame(audio.read32bit(1)); // audio queued in microseconds
 	}
 
 	@Override
@@ -182,6 +162,12 @@ public class Video implements Hardware, Clockable, Bus32bit, Configurable
 	public Object readConfig(String key)
 	{
 		if (key.equals("fps")) return FRAMES_PER_SECOND;
+		else if (key.equals("framelimit")) return pacer.isLimit();
+		else if (key.equals("frames")) return frames;
+		else if (key.equals("speed")) return pacer.getSpeed();
+		else if (key.equals("audiosync")) return pacer.isAudioSync();
+		else if (key.equals("frametime50")) return pacer.percentile(50) / 1000000.0f; // milliseconds
+		else if (key.equals("frametime99")) return pacer.percentile(99) / 1000000.0f;
 		return null;
 	}
 
@@ -191,7 +177,10 @@ public class Video implements Hardware, Clockable, Bus32bit, Configurable
 		if (key.equals("fps"))
 		{
 			FRAMES_PER_SECOND = (Integer) value;
-			SKIP_TICKS = 1000 / FRAMES_PER_SECOND;
+			pacer.setFramesPerSecond(FRAMES_PER_SECOND);
 		}
+		else if (key.equals("framelimit")) pacer.setLimit((Boolean) value);
+		else if (key.equals("speed")) pacer.setSpeed((Float) value);
+		else if (key.equals("audiosync")) pacer.setAudioSync((Boolean) value);
 	}
 }
@@ -53,7 +53,7 @@ public class Background
 
 	public Regs regs = new Regs();
 
-	public int[][] mosaic_table;
+	public static int[][] mosaic_table;
 
 	public int id;
 	public int opt_valid_bit;
@@ -186,11 +186,11 @@ public class Background
 
 		if (regs.main_enable)
 		{
-			window.render(false);
+			window.render(false, self.regs);
 		}
 		if (regs.sub_enable)
 		{
-			window.render(true);
+			window.render(true, self.regs);
 		}
 		if (regs.mode == Mode_Mode7)
 		{
@@ -471,7 +471,10 @@ public class Background
 		priority1_enable = true;
 
 		opt_valid_bit = (id == ID_BG1 ? 0x2000 : id == ID_BG2 ? 0x4000 : 0x0000);
+	}
 
+	static
+	{
 		mosaic_table = new int[16][];
 		for (int m = 0; m < 16; m++)
 		{
@@ -483,6 +486,36 @@ public class Background
 		}
 	}
 
+	// the state render() works from, scanline() has already been run on b
+	public void copy(Background b)
+	{
+		regs.mode = b.regs.mode;
+		regs.priority0 = b.regs.priority0;
+		regs.priority1 = b.regs.priority1;
+		regs.tile_size = b.regs.tile_size;
+		regs.mosaic = b.regs.mosaic;
+		regs.screen_addr = b.regs.screen_addr;
+		regs.screen_size = b.regs.screen_size;
+		regs.tiledata_addr = b.regs.tiledata_addr;
+		regs.hoffset = b.regs.hoffset;
+		regs.voffset = b.regs.voffset;
+		regs.main_enable = b.regs.main_enable;
+		regs.sub_enable = b.regs.sub_enable;
+
+		priority0_enable = b.priority0_enable;
+		priority1_enable = b.priority1_enable;
+		hires = b.hires;
+		width = b.width;
+		tile_width = b.tile_width;
+		tile_height = b.tile_height;
+		mask_x = b.mask_x;
+		mask_y = b.mask_y;
+		scx = b.scx;
+		scy = b.scy;
+		mosaic_voffset = b.mosaic_voffset;
+		window.copy(b.window);
+	}
+
 	private static final int sclip(int bits, int x)
 	{
 		int b = 1 << (bits - 1);
@@ -9,65 +9,79 @@ package jario.snes.performance.ppu;
 
 import java.nio.ByteBuffer;
 
+/**
+ * Tiles decoded to one byte per pixel. A row of eight pixels is put
+ * together from one table lookup per bit plane and stored as a single
+ * long. Vram writes only mark the row they land in, a tile decodes its
+ * marked rows when it is next drawn.
+ */
 public class Cache
 {
+	// the eight bits of a plane byte spread to one per byte lane, leftmost pixel first
+	private static final long[] planes = new long[256];
+
+	static
+	{
+		for (int i = 0; i < 256; i++)
+		{
+			long row = 0;
+			for (int x = 0; x < 8; x++)
+			{
+				row = (row << 8) | ((i >> (7 - x)) & 1);
+			}
+			planes[i] = row;
+		}
+	}
+
 	private ByteBuffer tiledata0;
 	private ByteBuffer tiledata1;
 	private ByteBuffer tiledata2;
-	byte[][] tilevalid = new byte[3][];
+	byte[][] tilevalid = new byte[3][]; // a bit for each decoded row
 
-	private static final void render_line_2(byte[] output, int output_offset, int d0, int d1, int mask)
+	private final void row_2bpp(int tile, int y)
 	{
-		int color = (((d0 & mask) != 0) ? 1 : 0) << 0;
-		color |= (((d1 & mask) != 0) ? 1 : 0) << 1;
-		output[output_offset] = (byte) color;
+		int offset = (tile << 4) + (y << 1);
+		int[] vram = self.vram;
+		tiledata0.putLong((tile << 6) + (y << 3), planes[vram[offset + 0]]
+			| (planes[vram[offset + 1]] << 1));
 	}
 
-	private static final void render_line_4(byte[] output, int output_offset, int d0, int d1, int d2, int d3, int mask)
+	private final void row_4bpp(int tile, int y)
 	{
-		int color = (((d0 & mask) != 0) ? 1 : 0) << 0;
-		color |= (((d1 & mask) != 0) ? 1 : 0) << 1;
-		color |= (((d2 & mask) != 0) ? 1 : 0) << 2;
-		color |= (((d3 & mask) != 0) ? 1 : 0) << 3;
-		output[output_offset] = (byte) color;
+		int offset = (tile << 5) + (y << 1);
+		int[] vram = self.vram;
+		tiledata1.putLong((tile << 6) + (y << 3), planes[vram[offset + 0]]
+			| (planes[vram[offset + 1]] << 1)
+			| (planes[vram[offset + 16]] << 2)
+			| (planes[vram[offset + 17]] << 3));
 	}
 
-	private static final void render_line_8(byte[] output, int output_offset, int d0, int d1, int d2, int d3, int d4, int d5, int d6, int d7, int mask)
+	private final void row_8bpp(int tile, int y)
 	{
-		int color = (((d0 & mask) != 0) ? 1 : 0) << 0;
-		color |= (((d1 & mask) != 0) ? 1 : 0) << 1;
-		color |= (((d2 & mask) != 0) ? 1 : 0) << 2;
-		color |= (((d3 & mask) != 0) ? 1 : 0) << 3;
-		color |= (((d4 & mask) != 0) ? 1 : 0) << 4;
-		color |= (((d5 & mask) != 0) ? 1 : 0) << 5;
-		color |= (((d6 & mask) != 0) ? 1 : 0) << 6;
-		color |= (((d7 & mask) != 0) ? 1 : 0) << 7;
-		output[output_offset] = (byte) color;
+		int offset = (tile << 6) + (y << 1);
+		int[] vram = self.vram;
+		tiledata2.putLong((tile << 6) + (y << 3), planes[vram[offset + 0]]
+			| (planes[vram[offset + 1]] << 1)
+			| (planes[vram[offset + 16]] << 2)
+			| (planes[vram[offset + 17]] << 3)
+			| (planes[vram[offset + 32]] << 4)
+			| (planes[vram[offset + 33]] << 5)
+			| (planes[vram[offset + 48]] << 6)
+			| (planes[vram[offset + 49]] << 7));
 	}
 
 	ByteBuffer tile_2bpp(int tile)
 	{
-		if (tilevalid[0][tile] == 0)
+		int dirty = ~tilevalid[0][tile] & 0xff;
+		if (dirty != 0)
 		{
-			tilevalid[0][tile] = 1;
-			byte[] output = tiledata0.array();
-			int output_offset = tile << 6;
-			int offset = tile << 4;
-			int y = 8;
-			int d0, d1;
-			while ((y--) != 0)
+			tilevalid[0][tile] = (byte) 0xff;
+			for (int y = 0; y < 8; y++)
 			{
-				d0 = self.vram[offset + 0];
-				d1 = self.vram[offset + 1];
-				render_line_2(output, output_offset++, d0, d1, 0x80);
-				render_line_2(output, output_offset++, d0, d1, 0x40);
-				render_line_2(output, output_offset++, d0, d1, 0x20);
-				render_line_2(output, output_offset++, d0, d1, 0x10);
-				render_line_2(output, output_offset++, d0, d1, 0x08);
-				render_line_2(output, output_offset++, d0, d1, 0x04);
-				render_line_2(output, output_offset++, d0, d1, 0x02);
-				render_line_2(output, output_offset++, d0, d1, 0x01);
-				offset += 2;
+				if ((dirty & (1 << y)) != 0)
+				{
+					row_2bpp(tile, y);
+				}
 			}
 		}
 		tiledata0.position(tile << 6);
@@ -76,29 +90,16 @@ public class Cache
 
 	ByteBuffer tile_4bpp(int tile)
 	{
-		if (tilevalid[1][tile] == 0)
+		int dirty = ~tilevalid[1][tile] & 0xff;
+		if (dirty != 0)
 		{
-			tilevalid[1][tile] = 1;
-			byte[] output = tiledata1.array();
-			int output_offset = tile << 6;
-			int offset = tile << 5;
-			int y = 8;
-			int d0, d1, d2, d3;
-			while ((y--) != 0)
+			tilevalid[1][tile] = (byte) 0xff;
+			for (int y = 0; y < 8; y++)
 			{
-				d0 = self.vram[offset + 0];
-				d1 = self.vram[offset + 1];
-				d2 = self.vram[offset + 16];
-				d3 = self.vram[offset + 17];
-				render_line_4(output, output_offset++, d0, d1, d2, d3, 0x80);
-				render_line_4(output, output_offset++, d0, d1, d2, d3, 0x40);
-				render_line_4(output, output_offset++, d0, d1, d2, d3, 0x20);
-				render_line_4(output, output_offset++, d0, d1, d2, d3, 0x10);
-				render_line_4(output, output_offset++, d0, d1, d2, d3, 0x08);
-				render_line_4(output, output_offset++, d0, d1, d2, d3, 0x04);
-				render_line_4(output, output_offset++, d0, d1, d2, d3, 0x02);
-				render_line_4(output, output_offset++, d0, d1, d2, d3, 0x01);
-				offset += 2;
+				if ((dirty & (1 << y)) != 0)
+				{
+					row_4bpp(tile, y);
+				}
 			}
 		}
 		tiledata1.position(tile << 6);
@@ -107,39 +108,31 @@ public class Cache
 
 	ByteBuffer tile_8bpp(int tile)
 	{
-		if (tilevalid[2][tile] == 0)
+		int dirty = ~tilevalid[2][tile] & 0xff;
+		if (dirty != 0)
 		{
-			tilevalid[2][tile] = 1;
-			byte[] output = tiledata2.array();
-			int output_offset = tile << 6;
-			int offset = tile << 6;
-			int y = 8;
-			int d0, d1, d2, d3, d4, d5, d6, d7;
-			while ((y--) != 0)
+			tilevalid[2][tile] = (byte) 0xff;
+			for (int y = 0; y < 8; y++)
 			{
-				d0 = self.vram[offset + 0];
-				d1 = self.vram[offset + 1];
-				d2 = self.vram[offset + 16];
-				d3 = self.vram[offset + 17];
-				d4 = self.vram[offset + 32];
-				d5 = self.vram[offset + 33];
-				d6 = self.vram[offset + 48];
-				d7 = self.vram[offset + 49];
-				render_line_8(output, output_offset++, d0, d1, d2, d3, d4, d5, d6, d7, 0x80);
-				render_line_8(output, output_offset++, d0, d1, d2, d3, d4, d5, d6, d7, 0x40);
-				render_line_8(output, output_offset++, d0, d1, d2, d3, d4, d5, d6, d7, 0x20);
-				render_line_8(output, output_offset++, d0, d1, d2, d3, d4, d5, d6, d7, 0x10);
-				render_line_8(output, output_offset++, d0, d1, d2, d3, d4, d5, d6, d7, 0x08);
-				render_line_8(output, output_offset++, d0, d1, d2, d3, d4, d5, d6, d7, 0x04);
-				render_line_8(output, output_offset++, d0, d1, d2, d3, d4, d5, d6, d7, 0x02);
-				render_line_8(output, output_offset++, d0, d1, d2, d3, d4, d5, d6, d7, 0x01);
-				offset += 2;
+				if ((dirty & (1 << y)) != 0)
+				{
+					row_8bpp(tile, y);
+				}
 			}
 		}
 		tiledata2.position(tile << 6);
 		return tiledata2;
 	}
 
+	// called for every vram byte written
+	void invalidate(int addr)
+	{
+		int row = ~(1 << ((addr >> 1) & 7));
+		tilevalid[0][addr >> 4] &= row;
+		tilevalid[1][addr >> 5] &= row;
+		tilevalid[2][addr >> 6] &= row;
+	}
+
 	ByteBuffer tile(int bpp, int tile)
 	{
 		switch (bpp)
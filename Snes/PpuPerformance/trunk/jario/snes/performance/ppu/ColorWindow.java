@@ -24,7 +24,19 @@ public class ColorWindow
 	public int[] main = new int[256];
 	public int[] sub = new int[256];
 
-	public void render(boolean screen)
+	// settings only, main and sub are worked out again by render
+	public void copy(ColorWindow w)
+	{
+		one_enable = w.one_enable;
+		one_invert = w.one_invert;
+		two_enable = w.two_enable;
+		two_invert = w.two_invert;
+		mask = w.mask;
+		main_mask = w.main_mask;
+		sub_mask = w.sub_mask;
+	}
+
+	public void render(boolean screen, Regs regs)
 	{
 		int[] output = (screen == false ? main : sub);
 		boolean set = true, clr = false;
@@ -62,7 +74,7 @@ public class ColorWindow
 			}
 			for (int x = 0; x < 256; x++)
 			{
-				output[x] = (((x >= PPU.ppu.regs.window_one_left && x <= PPU.ppu.regs.window_one_right) ? set : clr) ? 1 : 0);
+				output[x] = (((x >= regs.window_one_left && x <= regs.window_one_right) ? set : clr) ? 1 : 0);
 			}
 			return;
 		}
@@ -76,15 +88,15 @@ public class ColorWindow
 			}
 			for (int x = 0; x < 256; x++)
 			{
-				output[x] = (((x >= PPU.ppu.regs.window_two_left && x <= PPU.ppu.regs.window_two_right) ? set : clr) ? 1 : 0);
+				output[x] = (((x >= regs.window_two_left && x <= regs.window_two_right) ? set : clr) ? 1 : 0);
 			}
 			return;
 		}
 
 		for (int x = 0; x < 256; x++)
 		{
-			boolean one_mask = (x >= PPU.ppu.regs.window_one_left && x <= PPU.ppu.regs.window_one_right) ^ one_invert;
-			boolean two_mask = (x >= PPU.ppu.regs.window_two_left && x <= PPU.ppu.regs.window_two_right) ^ two_invert;
+			boolean one_mask = (x >= regs.window_one_left && x <= regs.window_one_right) ^ one_invert;
+			boolean two_mask = (x >= regs.window_two_left && x <= regs.window_two_right) ^ two_invert;
 			switch (mask)
 			{
 			case 0:
@@ -69,6 +69,14 @@ public class HVCounter
 		return 1364;
 	}
 
+	void copy(HVCounter counter)
+	{
+		status.interlace = counter.status.interlace;
+		status.field = counter.status.field;
+		status.vcounter = counter.status.vcounter;
+		status.hcounter = counter.status.hcounter;
+	}
+
 	void reset()
 	{
 		status.interlace = false;
@@ -24,7 +24,19 @@ public class LayerWindow
 	public int[] main = new int[256];
 	public int[] sub = new int[256];
 
-	public void render(boolean screen)
+	// settings only, main and sub are worked out again by render
+	public void copy(LayerWindow w)
+	{
+		one_enable = w.one_enable;
+		one_invert = w.one_invert;
+		two_enable = w.two_enable;
+		two_invert = w.two_invert;
+		mask = w.mask;
+		main_enable = w.main_enable;
+		sub_enable = w.sub_enable;
+	}
+
+	public void render(boolean screen, Regs regs)
 	{
 		int[] output;
 		if (screen == false)
@@ -57,7 +69,7 @@ public class LayerWindow
 			boolean set = true ^ one_invert, clr = !set;
 			for (int x = 0; x < 256; x++)
 			{
-				output[x] = (((x >= PPU.ppu.regs.window_one_left && x <= PPU.ppu.regs.window_one_right) ? set : clr) ? 1 : 0);
+				output[x] = (((x >= regs.window_one_left && x <= regs.window_one_right) ? set : clr) ? 1 : 0);
 			}
 			return;
 		}
@@ -67,15 +79,15 @@ public class LayerWindow
 			boolean set = true ^ two_invert, clr = !set;
 			for (int x = 0; x < 256; x++)
 			{
-				output[x] = (((x >= PPU.ppu.regs.window_two_left && x <= PPU.ppu.regs.window_two_right) ? set : clr) ? 1 : 0);
+				output[x] = (((x >= regs.window_two_left && x <= regs.window_two_right) ? set : clr) ? 1 : 0);
 			}
 			return;
 		}
 
 		for (int x = 0; x < 256; x++)
 		{
-			boolean one_mask = (x >= PPU.ppu.regs.window_one_left && x <= PPU.ppu.regs.window_one_right) ^ one_invert;
-			boolean two_mask = (x >= PPU.ppu.regs.window_two_left && x <= PPU.ppu.regs.window_two_right) ^ two_invert;
+			boolean one_mask = (x >= regs.window_one_left && x <= regs.window_one_right) ^ one_invert;
+			boolean two_mask = (x >= regs.window_two_left && x <= regs.window_two_right) ^ two_invert;
 			switch (mask)
 			{
 			case 0:
@@ -15,13 +15,31 @@ import jario.hardware.Configurable;
 import jario.hardware.Hardware;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+/**
+ * Visible scanlines can be drawn on a pool of render threads. The emulation
+ * thread still steps the mosaic counters and evaluates sprites for each line,
+ * then copies the registers and, when it changed, cgram into a PPU kept for
+ * that line, which a render thread draws from while the cpu runs on. Vram only
+ * changes in vblank or forced blank; a write first waits for the lines being
+ * drawn, as does handing the frame to the video encoder.
+ */
 public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Configurable
 {
 	public static final int NTSC = 0;
 	public static final int PAL = 1;
 
+	private static final int MAX_RENDER_THREADS = 4;
+
 	static PPU ppu;
 
 	private long clock;
@@ -32,6 +50,16 @@ public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Confi
 	int[] vram;
 	int[] oam;
 	int[] cgram;
+	private int cgram_version; // changes with every cgram write
+
+	// render threads
+	private int render_threads = StrictMath.max(0, StrictMath.min(Runtime.getRuntime().availableProcessors() - 1, MAX_RENDER_THREADS));
+	private ExecutorService renderers;
+	private PPU[] lines; // state each visible line is drawn from
+	private List<Future<?>> rendering = new ArrayList<Future<?>>();
+	private List<Cache> line_caches = new CopyOnWriteArrayList<Cache>();
+	private ThreadLocal<Cache> line_cache;
+	private Runnable draw; // set on line copies only
 
 	@Override
 	public void connect(int port, Hardware hw)
@@ -128,12 +156,14 @@ public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Confi
 		Arrays.fill(vram, 0);
 		Arrays.fill(oam, 0);
 		Arrays.fill(cgram, 0);
+		cgram_version++;
 		reset();
 	}
 
 	@Override
 	public void reset()
 	{
+		finish_lines();
 		clock = 0;
 		ppuCounter.reset();
 		cpuCounter.reset();
@@ -244,6 +274,34 @@ public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Confi
 		ppuCounter = new HVCounter(this);
 
 		power();
+		set_render_threads(render_threads);
+	}
+
+	// a copy that draws one scanline of owner's frame
+	private PPU(final PPU owner)
+	{
+		vram = owner.vram;
+		cgram = new int[512];
+		cgram_version = owner.cgram_version - 1;
+		bg1 = new Background(this, Background.ID_BG1);
+		bg2 = new Background(this, Background.ID_BG2);
+		bg3 = new Background(this, Background.ID_BG3);
+		bg4 = new Background(this, Background.ID_BG4);
+		sprite = new Sprite(this);
+		screen = new Screen(this);
+		output = owner.output;
+		display = new Display();
+		ppuCounter = new HVCounter(this);
+
+		draw = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				cache = owner.line_cache.get();
+				draw_scanline();
+			}
+		};
 	}
 
 	ByteBuffer output;
@@ -280,10 +338,13 @@ public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Confi
 	{
 		if (regs.display_disable || cpuCounter.vcounter() >= display.height)
 		{
+			finish_lines();
 			vram[addr] = data & 0xFF;
-			cache.tilevalid[0][addr >> 4] = 0;
-			cache.tilevalid[1][addr >> 5] = 0;
-			cache.tilevalid[2][addr >> 6] = 0;
+			cache.invalidate(addr);
+			for (Cache line_cache : line_caches)
+			{
+				line_cache.invalidate(addr);
+			}
 			return;
 		}
 	}
@@ -321,6 +382,7 @@ public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Confi
 	private void cgram_write(int addr, int data)
 	{
 		cgram[addr] = data & 0xFF;
+		cgram_version++;
 	}
 
 	private void mmio_update_video_mode()
@@ -1328,6 +1390,20 @@ public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Confi
 			screen.render_black();
 			return;
 		}
+		sprite.evaluate();
+		if (renderers == null)
+		{
+			draw_scanline();
+			return;
+		}
+
+		PPU line = lines[ppuCounter.vcounter()];
+		line.copy(this);
+		rendering.add(renderers.submit(line.draw));
+	}
+
+	private final void draw_scanline()
+	{
 		screen.scanline();
 		bg1.render();
 		bg2.render();
@@ -1337,12 +1413,101 @@ public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Confi
 		screen.render();
 	}
 
+	// everything draw_scanline() reads, taken at the start of the line
+	private void copy(PPU p)
+	{
+		regs.copy(p.regs);
+		ppuCounter.copy(p.ppuCounter);
+		display.interlace = p.display.interlace;
+		display.width = p.display.width;
+		display.height = p.display.height;
+		if (cgram_version != p.cgram_version)
+		{
+			System.arraycopy(p.cgram, 0, cgram, 0, cgram.length);
+			cgram_version = p.cgram_version;
+		}
+		bg1.copy(p.bg1);
+		bg2.copy(p.bg2);
+		bg3.copy(p.bg3);
+		bg4.copy(p.bg4);
+		sprite.copy(p.sprite);
+		screen.copy(p.screen);
+	}
+
+	// waits for the render threads to finish every line handed to them
+	private void finish_lines()
+	{
+		for (Future<?> line : rendering)
+		{
+			try
+			{
+				line.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch (ExecutionException e)
+			{
+				e.printStackTrace();
+			}
+		}
+		rendering.clear();
+	}
+
+	private void set_render_threads(int threads)
+	{
+		finish_lines();
+		if (renderers != null)
+		{
+			renderers.shutdown();
+			renderers = null;
+		}
+		render_threads = threads;
+		line_caches.clear();
+		if (threads <= 0)
+		{
+			return;
+		}
+
+		if (lines == null)
+		{
+			lines = new PPU[240];
+			for (int i = 0; i < lines.length; i++)
+			{
+				lines[i] = new PPU(this);
+			}
+		}
+		line_cache = new ThreadLocal<Cache>()
+		{
+			@Override
+			protected Cache initialValue()
+			{
+				Cache line_cache = new Cache(PPU.this);
+				line_caches.add(line_cache);
+				return line_cache;
+			}
+		};
+		renderers = Executors.newFixedThreadPool(threads, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "ppu renderer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
 	private HVCounter cpuCounter;
 	HVCounter ppuCounter;
 
 	@Override
 	public void readDMA(int address, ByteBuffer data, int offset, int length)
 	{
+		finish_lines();
 		System.arraycopy(output.array(), 0, data.array(), offset, length);
 	}
 
@@ -1355,6 +1520,7 @@ public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Confi
 	public Object readConfig(String key)
 	{
 		if (key.equals("accuracy")) return false;
+		else if (key.equals("render threads")) return render_threads;
 		return null;
 	}
 
@@ -1367,5 +1533,9 @@ public class PPU implements Hardware, Clockable, Bus1bit, Bus8bit, BusDMA, Confi
 			cpuCounter.region = region;
 			ppuCounter.region = region;
 		}
+		else if (key.equals("render threads"))
+		{
+			set_render_threads(StrictMath.max(0, (Integer) value));
+		}
 	}
 }
@@ -83,4 +83,29 @@ public class Regs
 
 	// $213d
 	public int vcounter;
+
+	// the registers a scanline is rendered from
+	public void copy(Regs r)
+	{
+		display_disable = r.display_disable;
+		display_brightness = r.display_brightness;
+		bgmode = r.bgmode;
+		mode7_hoffset = r.mode7_hoffset;
+		mode7_voffset = r.mode7_voffset;
+		mode7_repeat = r.mode7_repeat;
+		mode7_vflip = r.mode7_vflip;
+		mode7_hflip = r.mode7_hflip;
+		m7a = r.m7a;
+		m7b = r.m7b;
+		m7c = r.m7c;
+		m7d = r.m7d;
+		m7x = r.m7x;
+		m7y = r.m7y;
+		window_one_left = r.window_one_left;
+		window_one_right = r.window_one_right;
+		window_two_left = r.window_two_left;
+		window_two_right = r.window_two_right;
+		pseudo_hires = r.pseudo_hires;
+		interlace = r.interlace;
+	}
 }
@@ -70,7 +70,7 @@ public class Screen
 	public Output output = new Output();
 
 	public ColorWindow window = new ColorWindow();
-	public short[][] light_table;
+	public static short[][] light_table;
 
 	public int get_palette(int color)
 	{
@@ -130,8 +130,8 @@ public class Screen
 			output.sub[x].source = 6;
 		}
 
-		window.render(false);
-		window.render(true);
+		window.render(false, self.regs);
+		window.render(true, self.regs);
 	}
 
 	public void render_black()
@@ -245,6 +245,10 @@ public class Screen
 	public Screen(PPU self)
 	{
 		this.self = self;
+	}
+
+	static
+	{
 		light_table = new short[16][];
 		for (int l = 0; l < 16; l++)
 		{
@@ -266,5 +270,19 @@ public class Screen
 		}
 	}
 
+	public void copy(Screen s)
+	{
+		regs.addsub_mode = s.regs.addsub_mode;
+		regs.direct_color = s.regs.direct_color;
+		regs.color_mode = s.regs.color_mode;
+		regs.color_halve = s.regs.color_halve;
+		System.arraycopy(s.regs.color_enable, 0, regs.color_enable, 0, regs.color_enable.length);
+		regs.color_b = s.regs.color_b;
+		regs.color_g = s.regs.color_g;
+		regs.color_r = s.regs.color_r;
+		regs.color = s.regs.color;
+		window.copy(s.window);
+	}
+
 	private PPU self;
 }
@@ -123,7 +123,9 @@ public class Sprite
 
 	private int[] priority_table = new int[4];
 
-	public void render()
+	// Picks the tiles on this scanline and sets the range and time over
+	// flags, render() then draws them.
+	public void evaluate()
 	{
 		if (list_valid == false)
 		{
@@ -149,7 +151,6 @@ public class Sprite
 
 		int itemcount = 0;
 		int tilecount = 0;
-		Arrays.fill(output.priority, 0xff);
 		Arrays.fill(itemlist, 0xff);
 		for (int i = 0; i < 34; i++)
 		{
@@ -243,7 +244,11 @@ public class Sprite
 
 		regs.time_over |= (tilecount > 34);
 		regs.range_over |= (itemcount > 32);
+	}
 
+	public void render()
+	{
+		Arrays.fill(output.priority, 0xff);
 		if (regs.main_enable == false && regs.sub_enable == false) { return; }
 
 		for (int i = 0; i < 34; i++)
@@ -276,11 +281,11 @@ public class Sprite
 
 		if (regs.main_enable)
 		{
-			window.render(false);
+			window.render(false, self.regs);
 		}
 		if (regs.sub_enable)
 		{
-			window.render(true);
+			window.render(true, self.regs);
 		}
 
 		priority_table[0] = (priority0_enable ? regs.priority0 : 0);
@@ -309,6 +314,35 @@ public class Sprite
 		}
 	}
 
+	// the state render() works from, evaluate() has already been run on s
+	public void copy(Sprite s)
+	{
+		regs.priority0 = s.regs.priority0;
+		regs.priority1 = s.regs.priority1;
+		regs.priority2 = s.regs.priority2;
+		regs.priority3 = s.regs.priority3;
+		regs.main_enable = s.regs.main_enable;
+		regs.sub_enable = s.regs.sub_enable;
+
+		priority0_enable = s.priority0_enable;
+		priority1_enable = s.priority1_enable;
+		priority2_enable = s.priority2_enable;
+		priority3_enable = s.priority3_enable;
+		window.copy(s.window);
+
+		for (int i = 0; i < tilelist.length; i++)
+		{
+			TileList t = tilelist[i];
+			TileList from = s.tilelist[i];
+			t.x = from.x;
+			t.y = from.y;
+			t.priority = from.priority;
+			t.palette = from.palette;
+			t.tile = from.tile;
+			t.hflip = from.hflip;
+		}
+	}
+
 	public Sprite(PPU self)
 	{
 		this.self = self;
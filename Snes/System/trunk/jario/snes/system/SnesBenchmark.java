@@ -0,0 +1,249 @@
+/**
+ * Copyright 2013 Jason LaDere
+ */
+
+package jario.snes.system;
+
+import jario.hardware.Clockable;
+import jario.hardware.Configurable;
+import jario.hardware.Hardware;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Headless system that runs a rom for a fixed number of frames with the frame
+ * limiter off and reports the emulation speed.
+ *
+ * usage: SnesBenchmark <rom> [frames] [warmup frames]
+ *
+ * The video and audio players are read from the BENCHMARK_VIDEO_PLAYER and
+ * BENCHMARK_AUDIO_PLAYER entries of components.properties. Both controller
+ * ports hold a joypad with no buttons pressed, so two runs of the same rom
+ * execute the same instructions.
+ *
+ * The time split between components is estimated by sampling the emulation
+ * thread's stack. Each sample is charged to the innermost frame that belongs
+ * to a known component, so memory and bus accesses count for their caller.
+ */
+public class SnesBenchmark implements Hardware
+{
+	private static final int CONSOLE_CONTROLLER_1_PORT = 0;
+	private static final int CONSOLE_CONTROLLER_2_PORT = 1;
+	private static final int CONSOLE_CARTRIDGE_PORT = 2;
+	private static final int CONSOLE_VIDEO_PORT = 3;
+	private static final int CONSOLE_AUDIO_PORT = 4;
+
+	private static final int DEFAULT_FRAMES = 600;
+	private static final int DEFAULT_WARMUP_FRAMES = 60;
+	private static final int SAMPLE_INTERVAL = 2; // ms
+
+	private static final String[] COMPONENT_NAMES = { "CPU", "SMP", "DSP", "PPU", "Other" };
+	private static final int CPU = 0;
+	private static final int SMP = 1;
+	private static final int DSP = 2;
+	private static final int PPU = 3;
+	private static final int OTHER = 4;
+
+	private Hardware console;
+	private Hardware video;
+	private Hardware audio;
+	private Hardware cartridge;
+
+	private Thread emulationThread;
+	private long[] samples = new long[COMPONENT_NAMES.length];
+
+	public SnesBenchmark()
+	{
+		try
+		{
+			File dir = new File("components" + File.separator);
+			File file = new File("components.properties");
+			ClassLoader loader = this.getClass().getClassLoader();
+			Properties prop = new Properties();
+			try
+			{
+				if (dir.exists() && dir.listFiles().length > 0)
+				{
+					File[] files = dir.listFiles();
+					URL[] urls = new URL[files.length];
+					for (int i = 0; i < files.length; i++) urls[i] = files[i].toURI().toURL();
+					loader = new URLClassLoader(urls, this.getClass().getClassLoader());
+				}
+				URL url = file.exists() ? file.toURI().toURL() : loader.getResource("resources" + File.separator + "components.properties");
+				if (url != null) prop.load(url.openStream());
+			}
+			catch (IOException e)
+			{
+			}
+
+			cartridge = (Hardware) Class.forName(prop.getProperty("CARTRIDGE", "CARTRIDGE"), true, loader).newInstance();
+			console = (Hardware) Class.forName(prop.getProperty("CONSOLE", "CONSOLE"), true, loader).newInstance();
+			audio = (Hardware) Class.forName(prop.getProperty("BENCHMARK_AUDIO_PLAYER", "BENCHMARK_AUDIO_PLAYER"), true, loader).newInstance();
+			video = (Hardware) Class.forName(prop.getProperty("BENCHMARK_VIDEO_PLAYER", "BENCHMARK_VIDEO_PLAYER"), true, loader).newInstance();
+		}
+		catch (Exception e)
+		{
+			System.err.println("Missing resources.");
+			e.printStackTrace();
+			return;
+		}
+
+		// connect a/v to console
+		console.connect(CONSOLE_VIDEO_PORT, video);
+		console.connect(CONSOLE_AUDIO_PORT, audio);
+
+		// idle joypads
+		console.connect(CONSOLE_CONTROLLER_1_PORT, null);
+		console.connect(CONSOLE_CONTROLLER_2_PORT, null);
+
+		((Configurable) console).writeConfig("framelimit", false);
+	}
+
+	@Override
+	public void connect(int port, Hardware hw)
+	{
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	@Override
+	public void reset()
+	{
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	public static void main(String[] args)
+	{
+		if (args.length < 1)
+		{
+			System.err.println("usage: SnesBenchmark <rom> [frames] [warmup frames]");
+			System.exit(1);
+		}
+		if (System.getProperty("java.awt.headless") == null)
+			System.setProperty("java.awt.headless", "true");
+
+		int frames = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_FRAMES;
+		int warmup = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_WARMUP_FRAMES;
+
+		SnesBenchmark benchmark = new SnesBenchmark();
+		if (benchmark.console == null)
+			System.exit(1);
+		benchmark.run(new File(args[0]), frames, warmup);
+		// the cpu is still running on the console's thread
+		System.exit(0);
+	}
+
+	// Private Methods /////////////////////////////////////////////////////////
+
+	private void run(File romFile, int frames, int warmup)
+	{
+		((Configurable) cartridge).writeConfig("romfile", romFile.getAbsolutePath());
+		console.connect(CONSOLE_CARTRIDGE_PORT, cartridge);
+		((Clockable) console).clock(1L); // starts cpu thread
+
+		if (!waitForFrame(warmup, false))
+			return;
+		long startTime = System.nanoTime();
+		int startFrame = readFrames();
+		long startInstructions = readInstructions();
+
+		if (!waitForFrame(warmup + frames, true))
+			return;
+		long time = System.nanoTime() - startTime;
+		int frameCount = readFrames() - startFrame;
+		long instructionCount = readInstructions() - startInstructions;
+
+		double seconds = time / 1000000000.0;
+		System.out.printf("Rom: %s\n", romFile.getName());
+		System.out.printf("Frames: %d in %.3f s (%.2f fps, %.3f ms/frame)\n", frameCount, seconds, frameCount / seconds, (seconds * 1000.0) / frameCount);
+		System.out.printf("Instructions: %d (%.2f MIPS)\n", instructionCount, instructionCount / seconds / 1000000.0);
+		long total = 0;
+		for (int i = 0; i < samples.length; i++)
+			total += samples[i];
+		for (int i = 0; i < samples.length; i++)
+			System.out.printf("%-8s %5.1f%%\n", COMPONENT_NAMES[i], (total > 0) ? (samples[i] * 100.0) / total : 0.0);
+	}
+
+	// Polls the frame counter until it reaches frame, optionally sampling the
+	// emulation thread on the way. Returns false if the emulation stalled.
+	private boolean waitForFrame(int frame, boolean sample)
+	{
+		long lastProgress = System.currentTimeMillis();
+		int lastFrame = readFrames();
+		while (lastFrame < frame)
+		{
+			if (emulationThread == null)
+				emulationThread = findEmulationThread();
+			if (sample && emulationThread != null)
+				samples[classify(emulationThread.getStackTrace())]++;
+			try
+			{
+				Thread.sleep(SAMPLE_INTERVAL);
+			}
+			catch (InterruptedException e)
+			{
+				return false;
+			}
+
+			int frames = readFrames();
+			if (frames != lastFrame)
+			{
+				lastFrame = frames;
+				lastProgress = System.currentTimeMillis();
+			}
+			else if (System.currentTimeMillis() - lastProgress > 10000)
+			{
+				System.err.println("Emulation stopped before the benchmark completed.");
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// the console clocks the cpu on a thread of its own
+	private Thread findEmulationThread()
+	{
+		for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet())
+		{
+			for (StackTraceElement frame : entry.getValue())
+			{
+				if (frame.getClassName().startsWith("jario.snes.console.Console"))
+					return entry.getKey();
+			}
+		}
+		return null;
+	}
+
+	private int classify(StackTraceElement[] stack)
+	{
+		for (StackTraceElement frame : stack)
+		{
+			String name = frame.getClassName();
+			if (name.startsWith("jario.snes.performance.cpu.") || name.startsWith("jario.snes.cpu."))
+				return CPU;
+			if (name.startsWith("jario.snes.smp."))
+				return SMP;
+			if (name.startsWith("jario.snes.performance.dsp.") || name.startsWith("jario.snes.dsp."))
+				return DSP;
+			if (name.startsWith("jario.snes.performance.ppu.") || name.startsWith("jario.snes.ppu."))
+				return PPU;
+		}
+		return OTHER;
+	}
+
+	private int readFrames()
+	{
+		Object frames = ((Configurable) console).readConfig("frames");
+		return (frames != null) ? (Integer) frames : 0;
+	}
+
+	private long readInstructions()
+	{
+		Object instructions = ((Configurable) console).readConfig("instructions");
+		return (instructions != null) ? (Long) instructions : 0L;
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2013 Jason LaDere
+ */
+
+package jario.snes.accessories;
+
+import jario.hardware.BusDMA;
+import jario.hardware.Configurable;
+import jario.hardware.Hardware;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Video player without a display, used for headless runs. Frames are
+ * dropped as soon as they are handed over.
+ */
+public class NullVideoPlayer implements Hardware, BusDMA, Configurable
+{
+	public NullVideoPlayer()
+	{
+	}
+
+	@Override
+	public void connect(int port, Hardware hw)
+	{
+	}
+
+	@Override
+	public void reset()
+	{
+	}
+
+	@Override
+	public void readDMA(int address, ByteBuffer data, int offset, int length)
+	{
+	}
+
+	@Override
+	public void writeDMA(int address, ByteBuffer data, int offset, int length)
+	{
+	}
+
+	@Override
+	public Object readConfig(String key)
+	{
+		return null;
+	}
+
+	@Override
+	public void writeConfig(String key, Object value)
+	{
+	}
+}